@@ -7,10 +7,8 @@ import android.util.Log;
 
 import com.jakubpetriska.gameengine.api.Application;
 import com.jakubpetriska.gameengine.api.Color;
-import com.jakubpetriska.gameengine.api.GameObject;
 import com.jakubpetriska.gameengine.api.MeshData;
 import com.jakubpetriska.gameengine.api.components.Camera;
-import com.jakubpetriska.gameengine.api.components.Transform;
 import com.jakubpetriska.gameengine.api.math.Matrix44;
 import com.jakubpetriska.gameengine.engine.FullRenderer;
 import com.jakubpetriska.gameengine.engine.MeshManager;
@@ -18,8 +16,6 @@ import com.jakubpetriska.gameengine.engine.MeshManager;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
-import java.util.ArrayList;
-import java.util.List;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
@@ -83,6 +79,7 @@ public abstract class RendererImpl implements GLSurfaceView.Renderer, FullRender
     private final float[] mProjectionMatrix = new float[16];
     private final float[] mViewMatrix = new float[16];
     private final float[] mCameraMatrix = new float[16]; // Camera space transformation
+    private final float[] mViewCameraMatrix = new float[16]; // View and camera transformations combined
     private final float[] mMVMatrix = new float[16]; // Model View transformation matrix
     private final float[] mMVPMatrix = new float[16];
     private final Matrix44 mModelMatrixCopy = new Matrix44();
@@ -225,13 +222,6 @@ public abstract class RendererImpl implements GLSurfaceView.Renderer, FullRender
         // Empty, overridden for completeness
     }
 
-    // Used during calculation of world-camera transformation
-    private List<GameObject> mCameraParents = new ArrayList<>();
-
-    // Helper variables that the object transformation matrix creation algorithm uses
-    private final float[] mModelDuplicateMatrix = new float[16];
-    private final float[] mRelativeModelMatrix = new float[16];
-
     @Override
     public void onStartRenderingFrame() {
         // Draw background color
@@ -241,43 +231,18 @@ public abstract class RendererImpl implements GLSurfaceView.Renderer, FullRender
         if (mCamera != null) {
             setupFrustumIfPossibleAndNeeded();
 
-            // Get the inverse camera transformation
-            GameObject gameObject = mCamera.getGameObject();
-            do {
-                mCameraParents.add(0, gameObject);
-                gameObject = gameObject.getParent();
-            } while (gameObject != null);
-
-            Matrix.setIdentityM(mCameraMatrix, 0);
-            for (int i = 0; i < mCameraParents.size(); ++i) {
-                Transform transform = mCameraParents.get(i).transform;
-
-                Matrix.setIdentityM(mRelativeModelMatrix, 0);
-
-                Matrix.scaleM(mRelativeModelMatrix, 0,
-                        transform.getScaleX() == 0 ? 0 : 1 / transform.getScaleX(),
-                        transform.getScaleY() == 0 ? 0 : 1 / transform.getScaleY(),
-                        transform.getScaleZ() == 0 ? 0 : 1 / transform.getScaleZ());
-
-                Matrix.rotateM(mRelativeModelMatrix, 0,
-                        -transform.getRotationZ(),
-                        0, 0, -1);
-                Matrix.rotateM(mRelativeModelMatrix, 0,
-                        -transform.getRotationX(),
-                        1, 0, 0);
-                Matrix.rotateM(mRelativeModelMatrix, 0,
-                        -transform.getRotationY(),
-                        0, -1, 0);
-
-                Matrix.translateM(mRelativeModelMatrix, 0,
-                        transform.getPositionX(), // Revert the direction because of change of the coordinate system handedness
-                        -transform.getPositionY(),
-                        -transform.getPositionZ());
-
-                Matrix.multiplyMM(mModelDuplicateMatrix, 0, mRelativeModelMatrix, 0, mCameraMatrix, 0);
-                System.arraycopy(mModelDuplicateMatrix, 0, mCameraMatrix, 0, 16);
+            // Get the inverse camera transformation, interpolated like the rendered models
+            // so objects moving with the camera do not jitter
+            Matrix44 cameraTransformation = mCamera.getGameObject().transform.getInterpolatedTransformationMatrix(
+                    mApplication.getTime().getInterpolationAlpha());
+            Matrix44.invertAffine(mCameraMatrix, 0, cameraTransformation.getValues(), 0);
+            // Revert the direction of x axis because of change of the coordinate system handedness
+            for (int i = 1; i < 4; ++i) {
+                mCameraMatrix[i] = -mCameraMatrix[i];
+                mCameraMatrix[i * 4] = -mCameraMatrix[i * 4];
             }
-            mCameraParents.clear();
+            // View matrix is combined with the camera matrix once per frame instead of for every object
+            Matrix44.multiplyAffine(mViewCameraMatrix, 0, mViewMatrix, 0, mCameraMatrix, 0);
         }
     }
 
@@ -425,9 +390,8 @@ public abstract class RendererImpl implements GLSurfaceView.Renderer, FullRender
         // Scale matrix according to handedness change
         mModelMatrixCopy.scale(-1, 1, 1);
 
-        // Compose MVP matrix
-        Matrix.multiplyMM(mMVPMatrix, 0, mCameraMatrix, 0, mModelMatrixCopy.getValues(), 0);
-        Matrix.multiplyMM(mMVMatrix, 0, mViewMatrix, 0, mMVPMatrix, 0);
+        // Compose MVP matrix, only the projection is not affine
+        Matrix44.multiplyAffine(mMVMatrix, 0, mViewCameraMatrix, 0, mModelMatrixCopy.getValues(), 0);
         Matrix.multiplyMM(mMVPMatrix, 0, mProjectionMatrix, 0, mMVMatrix, 0);
 
         GLES20.glUseProgram(mShaderProgramObject);
@@ -484,9 +448,8 @@ public abstract class RendererImpl implements GLSurfaceView.Renderer, FullRender
         // Scale matrix according to handedness change
         mModelMatrixCopy.scale(-1, 1, 1);
 
-        // Compose MVP matrix
-        Matrix.multiplyMM(mMVPMatrix, 0, mCameraMatrix, 0, mModelMatrixCopy.getValues(), 0);
-        Matrix.multiplyMM(mMVMatrix, 0, mViewMatrix, 0, mMVPMatrix, 0);
+        // Compose MVP matrix, only the projection is not affine
+        Matrix44.multiplyAffine(mMVMatrix, 0, mViewCameraMatrix, 0, mModelMatrixCopy.getValues(), 0);
         Matrix.multiplyMM(mMVPMatrix, 0, mProjectionMatrix, 0, mMVMatrix, 0);
 
         GLES20.glUseProgram(mShaderProgramLine);
@@ -9,6 +9,7 @@ import com.jakubpetriska.gameengine.android.EngineObjectStore;
 import com.jakubpetriska.gameengine.android.Constants;
 import com.jakubpetriska.gameengine.android.GameEngineGLSurfaceView;
 import com.jakubpetriska.gameengine.engine.Engine;
+import com.jakubpetriska.gameengine.api.external.ExternalCommands;
 import com.jakubpetriska.gameengine.api.external.ExternalMessenger;
 
 /**
@@ -74,4 +75,13 @@ public class GameEngineActivity extends Activity {
     protected ExternalMessenger getMessenger() {
         return mEngine.getExternalMessenger();
     }
+
+    /**
+     * Returns the {@link ExternalCommands} instance used to run code on the engine thread.
+     *
+     * @return The {@link ExternalCommands} instance.
+     */
+    protected ExternalCommands getCommands() {
+        return mEngine.getExternalCommands();
+    }
 }
@@ -11,6 +11,7 @@ import com.jakubpetriska.gameengine.android.EngineObjectStore;
 import com.jakubpetriska.gameengine.android.Constants;
 import com.jakubpetriska.gameengine.android.GameEngineGLSurfaceView;
 import com.jakubpetriska.gameengine.engine.Engine;
+import com.jakubpetriska.gameengine.api.external.ExternalCommands;
 import com.jakubpetriska.gameengine.api.external.ExternalMessenger;
 
 /**
@@ -104,4 +105,13 @@ public class GameEngineFragment extends Fragment {
     public ExternalMessenger getMessenger() {
         return mEngine.getExternalMessenger();
     }
+
+    /**
+     * Returns the {@link ExternalCommands} instance used to run code on the engine thread.
+     *
+     * @return The {@link ExternalCommands} instance.
+     */
+    public ExternalCommands getCommands() {
+        return mEngine.getExternalCommands();
+    }
 }
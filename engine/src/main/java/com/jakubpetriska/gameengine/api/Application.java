@@ -1,6 +1,11 @@
 package com.jakubpetriska.gameengine.api;
 
+import com.jakubpetriska.gameengine.engine.ComponentTraversal;
 import com.jakubpetriska.gameengine.engine.MeshManager;
+import com.jakubpetriska.gameengine.engine.StructureCommandBuffer;
+import com.jakubpetriska.gameengine.engine.TransformStorage;
+
+import java.util.Random;
 
 /**
  * Provides important engine features. Instance of this class is passed everywhere around the
@@ -17,6 +22,27 @@ public abstract class Application {
 
     public abstract MeshManager getMeshManager();
 
+    /**
+     * Used by engine to keep track of changes in the hierarchy of the scene.
+     *
+     * @return Traversal of components of the current scene.
+     */
+    public abstract ComponentTraversal getComponentTraversal();
+
+    /**
+     * Used by engine to defer structural changes of the scene to sync points.
+     *
+     * @return Buffer of structural changes of the current scene.
+     */
+    public abstract StructureCommandBuffer getStructureCommandBuffer();
+
+    /**
+     * Used by engine to store data of transformations of the current scene.
+     *
+     * @return Storage of transformations of the current scene.
+     */
+    public abstract TransformStorage getTransformStorage();
+
     public abstract Messenger getMessenger();
 
     public abstract CollisionsSystem getCollisionsSystem();
@@ -25,6 +51,39 @@ public abstract class Application {
 
     public abstract Debug getDebug();
 
+    /**
+     * Random number generator seeded by the engine. Components should use this
+     * instead of other sources of random numbers, so recorded sessions can be replayed
+     * with the same results.
+     *
+     * @return Random number generator of the engine.
+     * @see com.jakubpetriska.gameengine.engine.Engine#setRandomSeed(long)
+     */
+    public abstract Random getRandom();
+
+    public abstract WorkScheduler getWorkScheduler();
+
+    /**
+     * Pool of prefab instances of the current scene.
+     *
+     * @return Pool of the current scene.
+     */
+    public abstract GameObjectPool getGameObjectPool();
+
+    /**
+     * Index of objects of the current scene by their tags.
+     *
+     * @return Tag index of the current scene.
+     */
+    public abstract TagIndex getTagIndex();
+
+    /**
+     * Table resolving handles of objects and components of this engine.
+     *
+     * @return Handle table of this engine.
+     */
+    public abstract HandleTable getHandleTable();
+
     /**
      * Keep in mind that this method can return different instance in different frames.
      * And therefore result of this method should not be cached.
@@ -1,61 +1,99 @@
 package com.jakubpetriska.gameengine.api;
 
 import com.jakubpetriska.gameengine.api.components.BoxCollider;
-import com.jakubpetriska.gameengine.api.math.Matrix44;
-import com.jakubpetriska.gameengine.api.math.Vector3;
 import com.jakubpetriska.gameengine.engine.ISystem;
+import com.jakubpetriska.gameengine.engine.SubtreeOrderedQueue;
 import com.jakubpetriska.gameengine.utilities.StringUtil;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Detects collisions of colliders in the scene.
+ * <p/>
+ * Collisions are detected after every update step, so in fixed time step mode
+ * colliders are tested against positions of every step and not only of the rendered frame.
  */
 public class CollisionsSystem implements ISystem {
 
     private Application mApplication;
 
-    private List<BoxCollider> mColliders = new ArrayList<>();
-    private List<List<BoxCollider>> mCollidingColliders = new ArrayList<>();
-    private List<Obb> mObbs = new ArrayList<>();
+    private ArrayList<BoxCollider> mColliders = new ArrayList<>();
+    private ArrayList<List<BoxCollider>> mCollidingColliders = new ArrayList<>();
+    // Same colliders as in mColliders for constant time checks of registration
+    private final Set<BoxCollider> mRegisteredColliders =
+            Collections.newSetFromMap(new IdentityHashMap<BoxCollider, Boolean>());
+
+    // Oriented bounding boxes of colliders in the same order as colliders, every box has a center,
+    // 3 unit axes and half sizes along the axes
+    private static final int CENTER_STRIDE = 3;
+    private static final int AXES_STRIDE = 9;
+    private static final int SIZE_STRIDE = 3;
+    private static final int INITIAL_CAPACITY = 16;
+    private float[] mObbCenters = new float[INITIAL_CAPACITY * CENTER_STRIDE];
+    private float[] mObbAxes = new float[INITIAL_CAPACITY * AXES_STRIDE];
+    private float[] mObbSizes = new float[INITIAL_CAPACITY * SIZE_STRIDE];
 
     private boolean mColliderUnregisteringBlocked = false;
     private List<BoxCollider> mCollidersToUnregister = new ArrayList<>();
 
+    private volatile boolean mRegistrationDeferred = false;
+    private final SubtreeOrderedQueue<DeferredRegistration> mDeferredRegistrations = new SubtreeOrderedQueue<>();
+    private final List<DeferredRegistration> mFlushedRegistrations = new ArrayList<>();
+
     // These represent coordinates of second OBB represented in coordinate space of the first OBB.
-    private final Matrix44 mRotation = new Matrix44();
-    private final Matrix44 mAbsRotation = new Matrix44();
-    private final Vector3 mTranslation = new Vector3();
+    // Rotation is a row major 3x3 matrix.
+    private final float[] mRotation = new float[9];
+    private final float[] mAbsRotation = new float[9];
+    private final float[] mTranslation = new float[3];
 
     public CollisionsSystem(Application application) {
         mApplication = application;
-        mRotation.setIdentity();
-        mAbsRotation.setIdentity();
     }
 
-    private static class Obb {
-        final Vector3 center = new Vector3();
-        final Vector3[] axes = new Vector3[3];
-        final Vector3 size = new Vector3();
+    /**
+     * Registration or unregistration of collider requested while registration was deferred.
+     */
+    private static class DeferredRegistration {
+        final BoxCollider collider;
+        final boolean register;
 
-        public Obb() {
-            for (int i = 0; i < axes.length; ++i) {
-                axes[i] = new Vector3();
-            }
+        DeferredRegistration(BoxCollider collider, boolean register) {
+            this.collider = collider;
+            this.register = register;
         }
+    }
 
-        /**
-         * Prepare the OBB to be transformed.
-         * <p/>
-         * During this center is set to 0 vector and axes to respective x, y and z axes.
-         */
-        void reset() {
-            center.set(0, 0, 0);
-            axes[0].set(1, 0, 0);
-            axes[1].set(0, 1, 0);
-            axes[2].set(0, 0, 1);
+    /**
+     * Starts or stops deferring of collider registration. While deferred, colliders can be
+     * registered and unregistered from any thread and the changes are applied by
+     * {@link CollisionsSystem#flushDeferredRegistrations()} in order of top level subtrees
+     * which requested them, see {@link SubtreeOrderedQueue}.
+     *
+     * @param deferred True if registration of colliders should be deferred.
+     */
+    public void setRegistrationDeferred(boolean deferred) {
+        mRegistrationDeferred = deferred;
+    }
+
+    /**
+     * Applies all registrations and unregistrations of colliders that were deferred.
+     */
+    public void flushDeferredRegistrations() {
+        mDeferredRegistrations.drainTo(mFlushedRegistrations);
+        for (int i = 0; i < mFlushedRegistrations.size(); ++i) {
+            DeferredRegistration registration = mFlushedRegistrations.get(i);
+            if (registration.register) {
+                registerCollider(registration.collider);
+            } else {
+                unregisterCollider(registration.collider);
+            }
         }
+        mFlushedRegistrations.clear();
     }
 
     private void blockColliderUnregistering() {
@@ -78,12 +116,16 @@ public class CollisionsSystem implements ISystem {
      *
      * @param collider Collider to register.
      * @return True if collider was successfully registerd, false if it already registered
-     * and thus was not registered again.
+     * and thus was not registered again. While registration is deferred always returns true.
      */
     public boolean registerCollider(BoxCollider collider) {
-        if (!mColliders.contains(collider)) {
+        if (mRegistrationDeferred) {
+            mDeferredRegistrations.add(new DeferredRegistration(collider, true));
+            return true;
+        }
+        if (mRegisteredColliders.add(collider)) {
             mColliders.add(collider);
-            mObbs.add(new Obb());
+            ensureObbCapacity(mColliders.size());
             mCollidingColliders.add(new ArrayList<BoxCollider>());
 
             return true;
@@ -97,10 +139,14 @@ public class CollisionsSystem implements ISystem {
      *
      * @param collider Collider to unregister.
      * @return True if collider was succesfully unregistered, false otherwise.
+     * While registration is deferred always returns true.
      */
     public boolean unregisterCollider(BoxCollider collider) {
-        int index = mColliders.indexOf(collider);
-        if (index < 0) {
+        if (mRegistrationDeferred) {
+            mDeferredRegistrations.add(new DeferredRegistration(collider, false));
+            return true;
+        }
+        if (!mRegisteredColliders.contains(collider)) {
             return false;
         }
         if (mColliderUnregisteringBlocked) {
@@ -108,9 +154,11 @@ public class CollisionsSystem implements ISystem {
             return true;
         }
 
+        int index = mColliders.indexOf(collider);
         mColliders.remove(index);
-        // TODO maybe keep the OBB and List<BoxCollider> objects in cache for a while to avoid too much garbage collection
-        mObbs.remove(index);
+        mRegisteredColliders.remove(collider);
+        // TODO maybe keep the List<BoxCollider> objects in cache for a while to avoid too much garbage collection
+        // OBBs are computed every step for all colliders so their values do not need to be moved
         List<BoxCollider> collidingColliders = mCollidingColliders.remove(index);
         while (collidingColliders.size() > 0) {
             BoxCollider collidingCollider = collidingColliders.remove(0);
@@ -130,41 +178,75 @@ public class CollisionsSystem implements ISystem {
         return true;
     }
 
+    /**
+     * Makes sure that given number of colliders can be registered without growing
+     * internal structures of the system.
+     *
+     * @param count Number of colliders that will be registered.
+     */
+    public void ensureCapacity(int count) {
+        int capacity = mColliders.size() + count;
+        mColliders.ensureCapacity(capacity);
+        mCollidingColliders.ensureCapacity(capacity);
+        ensureObbCapacity(capacity);
+    }
+
     @Override
     public void update() {
 
     }
 
+    private void ensureObbCapacity(int capacity) {
+        if (mObbCenters.length < capacity * CENTER_STRIDE) {
+            int newCapacity = Math.max(capacity, 2 * mObbCenters.length / CENTER_STRIDE);
+            mObbCenters = Arrays.copyOf(mObbCenters, newCapacity * CENTER_STRIDE);
+            mObbAxes = Arrays.copyOf(mObbAxes, newCapacity * AXES_STRIDE);
+            mObbSizes = Arrays.copyOf(mObbSizes, newCapacity * SIZE_STRIDE);
+        }
+    }
+
     @Override
     public void postUpdate() {
+
+    }
+
+    /**
+     * Updates transformations of all registered colliders and detects collisions between them.
+     * Must be called by {@link com.jakubpetriska.gameengine.engine.Engine} after every update step
+     * once matrices of transformations were computed.
+     */
+    public void detectCollisions() {
+        for (int i = 0; i < mColliders.size(); ++i) {
+            mColliders.get(i).updateTransformationMatrix();
+        }
+        if (mColliders.size() < 2) {
+            return;
+        }
+        for (int i = 0; i < mColliders.size(); ++i) {
+            transformObb(mColliders.get(i), i);
+        }
+
+        // Colliders of removed objects are unregistered at the end of the step by the engine,
+        // this only guards against listeners unregistering colliders directly
+        blockColliderUnregistering();
+
         for (int i = 0; i < mColliders.size() - 1; ++i) {
             for (int j = i + 1; j < mColliders.size(); ++j) {
                 BoxCollider firstCollider = mColliders.get(i);
                 BoxCollider secondCollider = mColliders.get(j);
 
-                Obb firstObb = mObbs.get(i);
-                Obb secondObb = mObbs.get(j);
-
-                if (i == 0) {
-                    if (j == 1) {
-                        transformObb(firstCollider, firstObb);
-                    }
-                    transformObb(secondCollider, secondObb);
-                }
-
                 boolean colliding;
                 if (!StringUtil.isEmpty(firstCollider.group)
                         && !StringUtil.isEmpty(secondCollider.group)
                         && firstCollider.group.equals(secondCollider.group)) {
                     colliding = false;
                 } else {
-                    colliding = testCollision(firstObb, secondObb);
+                    colliding = testCollision(i, j);
                 }
                 // TODO optimize this search
                 List<BoxCollider> collidingColliders = mCollidingColliders.get(i);
                 int index = collidingColliders.indexOf(secondCollider);
                 boolean wereCollidingBefore = index > -1;
-                blockColliderUnregistering();
                 if (colliding && !wereCollidingBefore) {
                     firstCollider.onCollisionDetected(secondCollider);
                     secondCollider.onCollisionDetected(firstCollider);
@@ -174,32 +256,50 @@ public class CollisionsSystem implements ISystem {
                     secondCollider.onCollisionEnded(firstCollider);
                     collidingColliders.remove(index);
                 }
-                unblockColliderUnregistering();
             }
         }
+        unblockColliderUnregistering();
+    }
+
+    /**
+     * Computes OBB of the collider from it's absolute transformation. Center of the box is
+     * the translation of the transformation, axes are the transformed unit axes.
+     *
+     * @param collider   Collider whose OBB is computed.
+     * @param colliderIndex Index of the collider.
+     */
+    private void transformObb(BoxCollider collider, int colliderIndex) {
+        float[] m = collider.getTransformationMatrix().getValues();
+        float[] centers = mObbCenters;
+        float[] axes = mObbAxes;
+        float[] sizes = mObbSizes;
+
+        int centerOffset = colliderIndex * CENTER_STRIDE;
+        centers[centerOffset] = m[12];
+        centers[centerOffset + 1] = m[13];
+        centers[centerOffset + 2] = m[14];
+
+        int axesOffset = colliderIndex * AXES_STRIDE;
+        int sizeOffset = colliderIndex * SIZE_STRIDE;
+        for (int axis = 0; axis < 3; ++axis) {
+            // Transformed unit axis is the column of the matrix
+            float x = m[axis * 4];
+            float y = m[axis * 4 + 1];
+            float z = m[axis * 4 + 2];
+            float length = (float) Math.sqrt(x * x + y * y + z * z);
+            int axisOffset = axesOffset + axis * 3;
+            axes[axisOffset] = x / length;
+            axes[axisOffset + 1] = y / length;
+            axes[axisOffset + 2] = z / length;
+            sizes[sizeOffset + axis] = 0.5f * length;
+        }
     }
 
-    private void transformObb(BoxCollider collider, Obb obb) {
-        obb.reset();
-
-        Matrix44 transformation = collider.getTransformationMatrix();
-        transformation.transformPoint(obb.center);
-        transformation.transformVector(obb.axes[0]);
-        transformation.transformVector(obb.axes[1]);
-        transformation.transformVector(obb.axes[2]);
-
-        float xAxisLength = obb.axes[0].length();
-        obb.axes[0].divide(xAxisLength);
-        float yAxisLength = obb.axes[1].length();
-        obb.axes[1].divide(yAxisLength);
-        float zAxisLength = obb.axes[2].length();
-        obb.axes[2].divide(zAxisLength);
-
-        obb.size.set(
-                0.5f * xAxisLength,
-                0.5f * yAxisLength,
-                0.5f * zAxisLength
-        );
+    private float dotAxes(int firstAxisOffset, int secondAxisOffset) {
+        float[] axes = mObbAxes;
+        return axes[firstAxisOffset] * axes[secondAxisOffset]
+                + axes[firstAxisOffset + 1] * axes[secondAxisOffset + 1]
+                + axes[firstAxisOffset + 2] * axes[secondAxisOffset + 2];
     }
 
     /**
@@ -208,34 +308,52 @@ public class CollisionsSystem implements ISystem {
      * The algorithm implementation is taken
      * from Christer Ericson. Real-Time Collision Detection. CRC Press, 2004.
      *
-     * @param a First oriented bounding box of which collisions are tested.
-     * @param b Second oriented bounding box of which collisions are tested.
+     * @param a Index of first oriented bounding box of which collisions are tested.
+     * @param b Index of second oriented bounding box of which collisions are tested.
      * @return Returns true if given oriented bounding boxes collide, false otherwise.
      */
-    private boolean testCollision(Obb a, Obb b) {
-        Vector3.subtract(mTranslation, b.center, a.center);
-        float translationX = Vector3.dot(mTranslation, a.axes[0]);
-        float translationY = Vector3.dot(mTranslation, a.axes[1]);
-        float translationZ = Vector3.dot(mTranslation, a.axes[2]);
-        mTranslation.set(translationX, translationY, translationZ);
-
-        float[] aSize = a.size.getValues();
-        float[] bSize = b.size.getValues();
-        float[] t = mTranslation.getValues();
+    private boolean testCollision(int a, int b) {
+        float[] centers = mObbCenters;
+        float[] axes = mObbAxes;
+        float[] sizes = mObbSizes;
+        float[] r = mRotation;
+        float[] absR = mAbsRotation;
+        float[] t = mTranslation;
+
+        int aAxes = a * AXES_STRIDE;
+        int bAxes = b * AXES_STRIDE;
+        int aSize = a * SIZE_STRIDE;
+        int bSize = b * SIZE_STRIDE;
+
+        float translationX = centers[b * CENTER_STRIDE] - centers[a * CENTER_STRIDE];
+        float translationY = centers[b * CENTER_STRIDE + 1] - centers[a * CENTER_STRIDE + 1];
+        float translationZ = centers[b * CENTER_STRIDE + 2] - centers[a * CENTER_STRIDE + 2];
+        for (int i = 0; i < 3; ++i) {
+            int axisOffset = aAxes + i * 3;
+            t[i] = translationX * axes[axisOffset]
+                    + translationY * axes[axisOffset + 1]
+                    + translationZ * axes[axisOffset + 2];
+        }
+
+        float a0 = sizes[aSize];
+        float a1 = sizes[aSize + 1];
+        float a2 = sizes[aSize + 2];
+        float b0 = sizes[bSize];
+        float b1 = sizes[bSize + 1];
+        float b2 = sizes[bSize + 2];
         float rA;
         float rB;
 
         // Testing on axes of first OBB
         for (int i = 0; i < 3; ++i) {
             for (int j = 0; j < 3; j++) {
-                mRotation.set(i, j, Vector3.dot(a.axes[i], b.axes[j]));
-                mAbsRotation.set(i, j, Math.abs(mRotation.get(i, j)));
+                float value = dotAxes(aAxes + i * 3, bAxes + j * 3);
+                r[i * 3 + j] = value;
+                absR[i * 3 + j] = Math.abs(value);
             }
 
-            rA = aSize[i];
-            rB = bSize[0] * mAbsRotation.get(i, 0)
-                    + bSize[1] * mAbsRotation.get(i, 1)
-                    + bSize[2] * mAbsRotation.get(i, 2);
+            rA = sizes[aSize + i];
+            rB = b0 * absR[i * 3] + b1 * absR[i * 3 + 1] + b2 * absR[i * 3 + 2];
             if (Math.abs(t[i]) > rA + rB) {
                 return false;
             }
@@ -243,84 +361,81 @@ public class CollisionsSystem implements ISystem {
 
         // Testing on axes of second OBB
         for (int i = 0; i < 3; ++i) {
-            rA = aSize[0] * mAbsRotation.get(0, i)
-                    + aSize[1] * mAbsRotation.get(1, i)
-                    + aSize[2] * mAbsRotation.get(2, i);
-            rB = bSize[i];
-            if (Math.abs(t[0] * mRotation.get(0, i) + t[1] * mRotation.get(1, i) + t[2] * mRotation.get(2, i))
-                    > rA + rB) {
+            rA = a0 * absR[i] + a1 * absR[3 + i] + a2 * absR[6 + i];
+            rB = sizes[bSize + i];
+            if (Math.abs(t[0] * r[i] + t[1] * r[3 + i] + t[2] * r[6 + i]) > rA + rB) {
                 return false;
             }
         }
 
         // Test a0 x b0
-        rA = aSize[1] * mAbsRotation.get(2, 0) + aSize[2] * mAbsRotation.get(1, 0);
-        rB = bSize[1] * mAbsRotation.get(0, 2) + bSize[2] * mAbsRotation.get(0, 1);
-        if (Math.abs(t[2] * mRotation.get(1, 0) - t[1] * mRotation.get(2, 0))
+        rA = a1 * absR[6] + a2 * absR[3];
+        rB = b1 * absR[2] + b2 * absR[1];
+        if (Math.abs(t[2] * r[3] - t[1] * r[6])
                 > rA + rB) {
             return false;
         }
 
         // Test a0 x b1
-        rA = aSize[1] * mAbsRotation.get(2, 1) + aSize[2] * mAbsRotation.get(1, 1);
-        rB = bSize[0] * mAbsRotation.get(0, 2) + bSize[2] * mAbsRotation.get(0, 0);
-        if (Math.abs(t[2] * mRotation.get(1, 1) - t[1] * mRotation.get(2, 1))
+        rA = a1 * absR[7] + a2 * absR[4];
+        rB = b0 * absR[2] + b2 * absR[0];
+        if (Math.abs(t[2] * r[4] - t[1] * r[7])
                 > rA + rB) {
             return false;
         }
 
         // Test a0 x b2
-        rA = aSize[1] * mAbsRotation.get(2, 2) + aSize[2] * mAbsRotation.get(1, 2);
-        rB = bSize[0] * mAbsRotation.get(0, 1) + bSize[1] * mAbsRotation.get(0, 0);
-        if (Math.abs(t[2] * mRotation.get(1, 2) - t[1] * mRotation.get(2, 2))
+        rA = a1 * absR[8] + a2 * absR[5];
+        rB = b0 * absR[1] + b1 * absR[0];
+        if (Math.abs(t[2] * r[5] - t[1] * r[8])
                 > rA + rB) {
             return false;
         }
 
         // Test a1 x b0
-        rA = aSize[0] * mAbsRotation.get(2, 0) + aSize[2] * mAbsRotation.get(0, 0);
-        rB = bSize[1] * mAbsRotation.get(1, 2) + bSize[2] * mAbsRotation.get(1, 1);
-        if (Math.abs(t[0] * mRotation.get(2, 0) - t[2] * mRotation.get(0, 0))
+        rA = a0 * absR[6] + a2 * absR[0];
+        rB = b1 * absR[5] + b2 * absR[4];
+        if (Math.abs(t[0] * r[6] - t[2] * r[0])
                 > rA + rB) {
             return false;
         }
 
         // Test a1 x b1
-        rA = aSize[0] * mAbsRotation.get(2, 1) + aSize[2] * mAbsRotation.get(0, 1);
-        rB = bSize[0] * mAbsRotation.get(1, 2) + bSize[2] * mAbsRotation.get(1, 0);
-        if (Math.abs(t[0] * mRotation.get(2, 1) - t[2] * mRotation.get(0, 1))
+        rA = a0 * absR[7] + a2 * absR[1];
+        rB = b0 * absR[5] + b2 * absR[3];
+        if (Math.abs(t[0] * r[7] - t[2] * r[1])
                 > rA + rB) {
             return false;
         }
 
         // Test a1 x b2
-        rA = aSize[0] * mAbsRotation.get(2, 2) + aSize[2] * mAbsRotation.get(0, 2);
-        rB = bSize[0] * mAbsRotation.get(1, 1) + bSize[1] * mAbsRotation.get(1, 0);
-        if (Math.abs(t[0] * mRotation.get(2, 2) - t[2] * mRotation.get(0, 2))
+        rA = a0 * absR[8] + a2 * absR[2];
+        rB = b0 * absR[4] + b1 * absR[3];
+        if (Math.abs(t[0] * r[8] - t[2] * r[2])
                 > rA + rB) {
             return false;
         }
 
         // Test a2 x b0
-        rA = aSize[0] * mAbsRotation.get(1, 0) + aSize[1] * mAbsRotation.get(0, 0);
-        rB = bSize[1] * mAbsRotation.get(2, 2) + bSize[2] * mAbsRotation.get(2, 1);
-        if (Math.abs(t[1] * mRotation.get(0, 0) - t[0] * mRotation.get(1, 0))
+        rA = a0 * absR[3] + a1 * absR[0];
+        rB = b1 * absR[8] + b2 * absR[7];
+        if (Math.abs(t[1] * r[0] - t[0] * r[3])
                 > rA + rB) {
             return false;
         }
 
         // Test a2 x b1
-        rA = aSize[0] * mAbsRotation.get(1, 1) + aSize[1] * mAbsRotation.get(0, 1);
-        rB = bSize[0] * mAbsRotation.get(2, 2) + bSize[2] * mAbsRotation.get(2, 0);
-        if (Math.abs(t[1] * mRotation.get(0, 1) - t[0] * mRotation.get(1, 1))
+        rA = a0 * absR[4] + a1 * absR[1];
+        rB = b0 * absR[8] + b2 * absR[6];
+        if (Math.abs(t[1] * r[1] - t[0] * r[4])
                 > rA + rB) {
             return false;
         }
 
         // Test a2 x b2
-        rA = aSize[0] * mAbsRotation.get(1, 2) + aSize[1] * mAbsRotation.get(0, 2);
-        rB = bSize[0] * mAbsRotation.get(2, 1) + bSize[1] * mAbsRotation.get(2, 0);
-        if (Math.abs(t[1] * mRotation.get(0, 2) - t[0] * mRotation.get(1, 2))
+        rA = a0 * absR[5] + a1 * absR[2];
+        rB = b0 * absR[7] + b1 * absR[6];
+        if (Math.abs(t[1] * r[2] - t[0] * r[5])
                 > rA + rB) {
             return false;
         }
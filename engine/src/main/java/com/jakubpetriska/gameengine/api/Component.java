@@ -9,6 +9,17 @@ public abstract class Component {
 
     private Application mApplication;
     private GameObject mGameObject;
+    private boolean mAttached = false;
+    private boolean mEnabled = true;
+    private boolean mActiveAndEnabled = false;
+    private long mHandle = HandleTable.NONE;
+
+    // Update level of detail, driven by UpdateLodSystem
+    final boolean mUpdateLod = this instanceof UpdateLod;
+    int mStepsUntilUpdate = 0;
+    int mUpdateLodSeed = 0;
+    float mAccumulatedTimeDelta = 0;
+    float mTimeDelta = 0;
 
     protected Component() {
     }
@@ -29,6 +40,115 @@ public abstract class Component {
         this.mGameObject = gameObject;
     }
 
+    /**
+     * Marks whether this component is attached to it's {@link GameObject}.
+     */
+    void setAttached(boolean attached) {
+        mAttached = attached;
+        updateActiveAndEnabled(false);
+    }
+
+    /**
+     * Checks whether this component is attached to it's {@link GameObject}.
+     * Component is attached from the moment it is added to the moment it is removed.
+     *
+     * @return True if this component is attached to it's {@link GameObject}.
+     */
+    public final boolean isAttached() {
+        return mAttached;
+    }
+
+    /**
+     * Enables or disables this component. Disabled component is not updated, but it stays
+     * attached to it's {@link GameObject} and keeps it's state, so enabling it again is cheap.
+     *
+     * @param enabled True if this component should be enabled.
+     * @see GameObject#setActive(boolean)
+     */
+    public final void setEnabled(boolean enabled) {
+        if (mEnabled == enabled) {
+            return;
+        }
+        mEnabled = enabled;
+        if (mGameObject != null) {
+            updateActiveAndEnabled(true);
+        }
+    }
+
+    /**
+     * Checks whether this component is enabled. Components are enabled by default.
+     *
+     * @return True if this component is enabled.
+     */
+    public final boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * Checks whether this component is attached, enabled and it's {@link GameObject}
+     * is active in hierarchy. Only such components are updated.
+     *
+     * @return True if this component is attached, enabled and active in hierarchy.
+     */
+    public final boolean isActiveAndEnabled() {
+        return mActiveAndEnabled;
+    }
+
+    /**
+     * Recomputes whether this component is active and enabled.
+     *
+     * @param notify If true {@link Component#onEnable()} or {@link Component#onDisable()}
+     *               is called when the value changes.
+     */
+    void updateActiveAndEnabled(boolean notify) {
+        boolean activeAndEnabled = mAttached && mEnabled && mGameObject.isActiveInHierarchy();
+        if (activeAndEnabled == mActiveAndEnabled) {
+            return;
+        }
+        mActiveAndEnabled = activeAndEnabled;
+        if (notify) {
+            if (activeAndEnabled) {
+                onEnable();
+            } else {
+                onDisable();
+            }
+        }
+    }
+
+    /**
+     * Returns handle of this component, which becomes stale when the component is removed.
+     *
+     * @return Handle of this component or {@link HandleTable#NONE} if it is not attached.
+     * @see HandleTable
+     */
+    public final long getHandle() {
+        if (mHandle == HandleTable.NONE && mAttached) {
+            mHandle = mApplication.getHandleTable().acquire(this);
+        }
+        return mHandle;
+    }
+
+    /**
+     * Makes all handles of this component stale.
+     */
+    void releaseHandle() {
+        if (mHandle != HandleTable.NONE) {
+            mApplication.getHandleTable().release(mHandle);
+            mHandle = HandleTable.NONE;
+        }
+    }
+
+    /**
+     * Returns time in seconds since the last update of this component. For components
+     * implementing {@link UpdateLod} this includes all skipped update steps, for other components
+     * it is the same as {@link Time#getTimeDelta()}.
+     *
+     * @return Time in seconds since the last update of this component.
+     */
+    public final float getTimeDelta() {
+        return mUpdateLod ? mTimeDelta : mApplication.getTime().getTimeDelta();
+    }
+
     protected final Application getApplication() {
         return mApplication;
     }
@@ -50,6 +170,9 @@ public abstract class Component {
 
     /**
      * Called every frame. Override this method to update state of this Component.
+     * <p/>
+     * When engine runs with fixed time step this is called once for every step,
+     * which can be zero or more times during one frame.
      */
     public void update() {
 
@@ -64,6 +187,22 @@ public abstract class Component {
 
     }
 
+    /**
+     * Called when attached Component becomes enabled and active in hierarchy again
+     * after it was disabled or it's {@link GameObject} was deactivated.
+     */
+    public void onEnable() {
+
+    }
+
+    /**
+     * Called when attached Component is disabled or it's {@link GameObject}
+     * or any of it's parents is deactivated.
+     */
+    public void onDisable() {
+
+    }
+
     /**
      * Called when Component is removed from it's owning {@link GameObject} and
      * in the end of engine instance's life.
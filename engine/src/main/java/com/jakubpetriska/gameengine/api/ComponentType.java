@@ -0,0 +1,83 @@
+package com.jakubpetriska.gameengine.api;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pre-resolved type of {@link Component} used for constant time lookup of components
+ * by {@link GameObject#getComponent(ComponentType)}.
+ * <p/>
+ * Every component class gets a unique id when it is first used. Types can be kept in static
+ * fields, so scripts can look up components every frame without caching them.
+ *
+ * @param <T> Class of the component.
+ */
+public final class ComponentType<T extends Component> {
+
+    private static final ConcurrentHashMap<Class<?>, ComponentType<?>> sTypes = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Class<?>, int[]> sAssignableIds = new ConcurrentHashMap<>();
+    private static int sNextId = 0;
+
+    private final Class<T> mComponentClass;
+    private final int mId;
+
+    private ComponentType(Class<T> componentClass, int id) {
+        mComponentClass = componentClass;
+        mId = id;
+    }
+
+    /**
+     * Returns the type of given component class.
+     *
+     * @param componentClass Class of the component.
+     * @param <T>            Class of the component.
+     * @return Type of the component class.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Component> ComponentType<T> of(Class<T> componentClass) {
+        ComponentType<T> type = (ComponentType<T>) sTypes.get(componentClass);
+        if (type == null) {
+            synchronized (sTypes) {
+                type = (ComponentType<T>) sTypes.get(componentClass);
+                if (type == null) {
+                    type = new ComponentType<>(componentClass, sNextId++);
+                    sTypes.put(componentClass, type);
+                }
+            }
+        }
+        return type;
+    }
+
+    public Class<T> getComponentClass() {
+        return mComponentClass;
+    }
+
+    int getId() {
+        return mId;
+    }
+
+    /**
+     * Returns ids of all types instances of given class can be assigned to, which are the class
+     * itself and all of it's superclasses up to {@link Component}.
+     *
+     * @param componentClass Class of the component.
+     * @return Ids of the types.
+     */
+    @SuppressWarnings("unchecked")
+    static int[] getAssignableIds(Class<? extends Component> componentClass) {
+        int[] ids = sAssignableIds.get(componentClass);
+        if (ids == null) {
+            int count = 0;
+            for (Class<?> c = componentClass; c != Component.class; c = c.getSuperclass()) {
+                ++count;
+            }
+            ids = new int[count + 1];
+            int i = 0;
+            for (Class<?> c = componentClass; c != Component.class; c = c.getSuperclass()) {
+                ids[i++] = of((Class<? extends Component>) c).mId;
+            }
+            ids[i] = of(Component.class).mId;
+            sAssignableIds.put(componentClass, ids);
+        }
+        return ids;
+    }
+}
@@ -1,8 +1,10 @@
 package com.jakubpetriska.gameengine.api;
 
 import com.jakubpetriska.gameengine.api.components.Transform;
+import com.jakubpetriska.gameengine.engine.StructureCommandBuffer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -15,16 +17,31 @@ import java.util.List;
  * through GameObject's methods from scripts or in xml files defining initial scene layouts.
  * <p/>
  * GameObject can also be used to only hold children objects for manipulation.
+ * <p/>
+ * Adding and removing of children and components and changing of parents done while engine
+ * updates the scene are not applied immediately but at the end of the running update step
+ * or post update, so every component and system sees the same scene during one pass.
+ * Only the mandatory components are always added immediately.
  */
 public class GameObject {
 
-    /**
-     * Tag of this object. Can be used to identify objects during collisions.
-     */
-    public String tag;
-
-    private Application mApplication;
+    Application mApplication;
     private GameObject mParent;
+    private boolean mActive = true;
+    private boolean mActiveInHierarchy;
+
+    private String mTag;
+    private int mTagId;
+    // Whether this object is in the tag index of the scene and under which tag
+    private boolean mIndexed = false;
+    private int mIndexedTagId;
+    int mTagIndexPosition = -1;
+
+    private long mHandle = HandleTable.NONE;
+
+    // Set on instances of prefabs spawned through GameObjectPool
+    Prefab mPrefab;
+    boolean mPooled = false;
 
     /**
      * Contains all GameObject's children.
@@ -38,7 +55,7 @@ public class GameObject {
      * on the child GameObject.
      */
     public final List<GameObject> children;
-    private final List<GameObject> mChildren = new ArrayList<>();
+    private final ArrayList<GameObject> mChildren = new ArrayList<>();
 
     /**
      * Contains all GameObject's components.
@@ -49,6 +66,9 @@ public class GameObject {
     public final List<Component> components;
     private final List<Component> mComponents = new ArrayList<>();
 
+    // First component assignable to every component type indexed by the type id
+    private Component[] mTypeIndex = new Component[0];
+
     // Mandatory GameObject's components
     // None of them can be removed so make sure it is checked in removeComponent(Component) method
     public final Transform transform;
@@ -64,18 +84,26 @@ public class GameObject {
      * called on this object.
      */
     public GameObject(Application application, GameObject parent, String tag) {
-        this.tag = tag;
+        this.mTag = tag != null ? tag : "";
+        this.mTagId = Tags.getId(tag);
         this.mApplication = application;
         this.mParent = parent;
+        this.mActiveInHierarchy = parent == null || parent.mActiveInHierarchy;
         children = Collections.unmodifiableList(mChildren);
         components = Collections.unmodifiableList(mComponents);
 
         if (parent != null) {
-            parent.mChildren.add(this);
+            execute(new AttachToParentCommand(this, parent));
+        } else {
+            markStructureChanged();
+            if (application != null) {
+                setIndexed(true);
+            }
         }
 
         transform = new Transform();
-        addComponent(transform);
+        // Mandatory components are always attached immediately
+        addComponentInternal(transform);
     }
 
     /**
@@ -99,16 +127,19 @@ public class GameObject {
         if (parent == null) {
             throw new IllegalStateException("This constructor cannot be used for objects without parent.");
         }
-        this.tag = tag;
+        this.mTag = tag != null ? tag : "";
+        this.mTagId = Tags.getId(tag);
         this.mApplication = parent.mApplication;
         this.mParent = parent;
+        this.mActiveInHierarchy = parent.mActiveInHierarchy;
         children = Collections.unmodifiableList(mChildren);
         components = Collections.unmodifiableList(mComponents);
 
-        parent.mChildren.add(this);
+        execute(new AttachToParentCommand(this, parent));
 
         transform = new Transform();
-        addComponent(transform);
+        // Mandatory components are always attached immediately
+        addComponentInternal(transform);
     }
 
     /**
@@ -120,6 +151,91 @@ public class GameObject {
         this(parent, "");
     }
 
+    /**
+     * Returns tag of this object. Tag can be used to identify objects during collisions
+     * and to find them through {@link TagIndex}.
+     *
+     * @return Tag of this object.
+     */
+    public String getTag() {
+        return mTag;
+    }
+
+    /**
+     * Returns id of the tag of this object. Comparing ids is faster than comparing tags.
+     *
+     * @return Id of the tag of this object.
+     * @see Tags#getId(String)
+     */
+    public int getTagId() {
+        return mTagId;
+    }
+
+    /**
+     * Sets tag of this object.
+     *
+     * @param tag New tag of this object.
+     */
+    public void setTag(String tag) {
+        mTag = tag != null ? tag : "";
+        mTagId = Tags.getId(tag);
+        execute(new UpdateTagIndexCommand(this));
+    }
+
+    /**
+     * Adds or removes this object and all of it's children to or from the tag index of the scene.
+     */
+    private void setIndexed(boolean indexed) {
+        if (mIndexed == indexed) {
+            return;
+        }
+        mIndexed = indexed;
+        TagIndex tagIndex = mApplication.getTagIndex();
+        if (indexed) {
+            mIndexedTagId = mTagId;
+            tagIndex.add(this, mIndexedTagId);
+        } else {
+            tagIndex.remove(this, mIndexedTagId);
+        }
+        for (int i = 0; i < mChildren.size(); ++i) {
+            mChildren.get(i).setIndexed(indexed);
+        }
+    }
+
+    /**
+     * Returns handle of this object. Handle can be kept instead of a reference,
+     * it becomes stale when this object is removed or released into {@link GameObjectPool}.
+     *
+     * @return Handle of this object or {@link HandleTable#NONE} if it was removed.
+     * @see HandleTable
+     */
+    public long getHandle() {
+        if (mHandle == HandleTable.NONE && mApplication != null && transform.isAttached()) {
+            mHandle = mApplication.getHandleTable().acquire(this);
+        }
+        return mHandle;
+    }
+
+    private void releaseHandle() {
+        if (mHandle != HandleTable.NONE) {
+            mApplication.getHandleTable().release(mHandle);
+            mHandle = HandleTable.NONE;
+        }
+    }
+
+    /**
+     * Makes handles of this object, all it's children and their components stale.
+     */
+    void releaseHandles() {
+        releaseHandle();
+        for (int i = 0; i < mComponents.size(); ++i) {
+            mComponents.get(i).releaseHandle();
+        }
+        for (int i = 0; i < mChildren.size(); ++i) {
+            mChildren.get(i).releaseHandles();
+        }
+    }
+
     /**
      * Returns GameObject's parent GameObject.
      *
@@ -142,10 +258,223 @@ public class GameObject {
         if (getParent() == null) {
             throw new IllegalStateException("Cannot change parent of top level object.");
         }
+        execute(new SetParentCommand(this, parent));
+    }
 
-        getParent().mChildren.remove(this);
+    private void setParentInternal(GameObject parent) {
+        markStructureChanged();
+        mParent.mChildren.remove(this);
         parent.mChildren.add(this);
         mParent = parent;
+        invalidateTransforms();
+        setIndexed(parent.mIndexed);
+        updateActiveInHierarchy();
+        markStructureChanged();
+    }
+
+    /**
+     * Activates or deactivates this GameObject. Components of inactive object and of all
+     * it's children are not updated and their colliders do not collide, but they stay attached
+     * and keep their state, so activating the object again does not need to create anything.
+     *
+     * @param active True if this GameObject should be active.
+     * @see Component#setEnabled(boolean)
+     */
+    public void setActive(boolean active) {
+        if (mActive == active) {
+            return;
+        }
+        mActive = active;
+        updateActiveInHierarchy();
+    }
+
+    /**
+     * Checks whether this GameObject itself is active. Object can still be inactive
+     * in hierarchy if any of it's parents is inactive.
+     *
+     * @return True if this GameObject is active.
+     */
+    public boolean isActive() {
+        return mActive;
+    }
+
+    /**
+     * Checks whether this GameObject and all of it's parents are active.
+     *
+     * @return True if this GameObject is active in hierarchy.
+     */
+    public boolean isActiveInHierarchy() {
+        return mActiveInHierarchy;
+    }
+
+    /**
+     * Recomputes whether this object is active in hierarchy and propagates
+     * the change to it's components and children.
+     */
+    private void updateActiveInHierarchy() {
+        boolean activeInHierarchy = mActive && (mParent == null || mParent.mActiveInHierarchy);
+        if (activeInHierarchy == mActiveInHierarchy) {
+            return;
+        }
+        mActiveInHierarchy = activeInHierarchy;
+        for (int i = 0; i < mComponents.size(); ++i) {
+            mComponents.get(i).updateActiveAndEnabled(true);
+        }
+        for (int i = 0; i < mChildren.size(); ++i) {
+            mChildren.get(i).updateActiveInHierarchy();
+        }
+    }
+
+    /**
+     * Lets the transform storage know that absolute transformation of this object
+     * changed because of a change of the hierarchy.
+     */
+    private void invalidateTransforms() {
+        if (mApplication != null) {
+            mApplication.getTransformStorage().onTransformChanged(transform);
+        }
+    }
+
+    /**
+     * Lets the engine know that hierarchy or components of this object changed.
+     */
+    void markStructureChanged() {
+        if (mApplication != null) {
+            mApplication.getComponentTraversal().markDirty(this);
+        }
+    }
+
+    /**
+     * Makes sure that given number of children can be added without growing the list of children.
+     *
+     * @param count Number of children that will be added.
+     */
+    void ensureChildCapacity(int count) {
+        mChildren.ensureCapacity(mChildren.size() + count);
+    }
+
+    /**
+     * Applies structural change of the scene or records it if the engine is iterating over the scene.
+     */
+    private void execute(StructureCommandBuffer.Command command) {
+        if (mApplication != null) {
+            mApplication.getStructureCommandBuffer().execute(command);
+        } else {
+            command.apply();
+        }
+    }
+
+    private static class AttachToParentCommand implements StructureCommandBuffer.Command {
+        private final GameObject mChild;
+        private final GameObject mParent;
+
+        AttachToParentCommand(GameObject child, GameObject parent) {
+            mChild = child;
+            mParent = parent;
+        }
+
+        @Override
+        public void apply() {
+            mParent.mChildren.add(mChild);
+            mChild.setIndexed(mParent.mIndexed);
+            mParent.markStructureChanged();
+        }
+    }
+
+    private static class DetachFromParentCommand implements StructureCommandBuffer.Command {
+        private final GameObject mChild;
+        private final GameObject mParent;
+
+        DetachFromParentCommand(GameObject child, GameObject parent) {
+            mChild = child;
+            mParent = parent;
+        }
+
+        @Override
+        public void apply() {
+            mParent.mChildren.remove(mChild);
+            mChild.setIndexed(false);
+            mParent.markStructureChanged();
+        }
+    }
+
+    private static class UpdateTagIndexCommand implements StructureCommandBuffer.Command {
+        private final GameObject mGameObject;
+
+        UpdateTagIndexCommand(GameObject gameObject) {
+            mGameObject = gameObject;
+        }
+
+        @Override
+        public void apply() {
+            GameObject gameObject = mGameObject;
+            if (gameObject.mIndexed && gameObject.mIndexedTagId != gameObject.mTagId) {
+                TagIndex tagIndex = gameObject.mApplication.getTagIndex();
+                tagIndex.remove(gameObject, gameObject.mIndexedTagId);
+                gameObject.mIndexedTagId = gameObject.mTagId;
+                tagIndex.add(gameObject, gameObject.mIndexedTagId);
+            }
+        }
+    }
+
+    private static class SetParentCommand implements StructureCommandBuffer.Command {
+        private final GameObject mChild;
+        private final GameObject mParent;
+
+        SetParentCommand(GameObject child, GameObject parent) {
+            mChild = child;
+            mParent = parent;
+        }
+
+        @Override
+        public void apply() {
+            mChild.setParentInternal(mParent);
+        }
+    }
+
+    private static class RemoveChildCommand implements StructureCommandBuffer.Command {
+        private final GameObject mParent;
+        private final GameObject mChild;
+
+        RemoveChildCommand(GameObject parent, GameObject child) {
+            mParent = parent;
+            mChild = child;
+        }
+
+        @Override
+        public void apply() {
+            mParent.removeChildInternal(mChild);
+        }
+    }
+
+    private static class AddComponentCommand implements StructureCommandBuffer.Command {
+        private final GameObject mGameObject;
+        private final Component mComponent;
+
+        AddComponentCommand(GameObject gameObject, Component component) {
+            mGameObject = gameObject;
+            mComponent = component;
+        }
+
+        @Override
+        public void apply() {
+            mGameObject.addComponentInternal(mComponent);
+        }
+    }
+
+    private static class RemoveComponentCommand implements StructureCommandBuffer.Command {
+        private final GameObject mGameObject;
+        private final Component mComponent;
+
+        RemoveComponentCommand(GameObject gameObject, Component component) {
+            mGameObject = gameObject;
+            mComponent = component;
+        }
+
+        @Override
+        public void apply() {
+            mGameObject.removeComponentInternal(mComponent);
+        }
     }
 
     /**
@@ -154,34 +483,86 @@ public class GameObject {
      * <p/>
      * After removing, childObject is no longer valid GameObject
      * and cannot be used any further. Also no references to it should be
-     * kept.
+     * kept, keep it's {@link GameObject#getHandle() handle} instead.
      *
      * @param childObject Child GameObject to remove.
      */
     public void removeChild(GameObject childObject) {
+        execute(new RemoveChildCommand(this, childObject));
+    }
+
+    private void removeChildInternal(GameObject childObject) {
         if (mChildren.contains(childObject)) {
-            // Remove all components from this object
-            for (int i = childObject.mComponents.size() - 1; i >= 0; --i) {
-                childObject.removeComponentInternal(childObject.mComponents.get(i));
-            }
-            // Remove all child objects from removed object
-            for (int i = childObject.mChildren.size() - 1; i >= 0; --i) {
-                childObject.removeChild(childObject.mChildren.get(i));
-            }
+            childObject.destroy();
             mChildren.remove(childObject);
+            markStructureChanged();
+        }
+    }
+
+    /**
+     * Removes all components and children of this object.
+     */
+    void destroy() {
+        if (mApplication != null) {
+            setIndexed(false);
+        }
+        releaseHandle();
+        // Remove all components from this object
+        for (int i = mComponents.size() - 1; i >= 0; --i) {
+            removeComponentInternal(mComponents.get(i));
+        }
+        // Remove all child objects from removed object
+        for (int i = mChildren.size() - 1; i >= 0; --i) {
+            removeChildInternal(mChildren.get(i));
         }
     }
 
     /**
-     * Adds new {@link Component} to this GameObject.
+     * Takes this object out of the hierarchy without removing it's components,
+     * so it can be attached again by {@link GameObject#attachToParent(GameObject)}.
+     * Object should be inactive before it is detached.
+     */
+    void detachFromParent() {
+        execute(new DetachFromParentCommand(this, mParent));
+        mParent = null;
+        invalidateTransforms();
+    }
+
+    /**
+     * Attaches object detached by {@link GameObject#detachFromParent()} to a new parent.
+     *
+     * @param parent New parent of this object.
+     */
+    void attachToParent(GameObject parent) {
+        mParent = parent;
+        invalidateTransforms();
+        execute(new AttachToParentCommand(this, parent));
+        updateActiveInHierarchy();
+    }
+
+    /**
+     * Adds new {@link Component} to this GameObject. {@link Component#start()} is called
+     * when the component is actually added.
      *
      * @param component {@link Component} to add.
      */
     public void addComponent(Component component) {
+        execute(new AddComponentCommand(this, component));
+    }
+
+    private void addComponentInternal(Component component) {
         if (!mComponents.contains(component)) {
             component.setup(mApplication, this);
             // Beware that game object's mandatory components need to stay at the beginning of the list
             mComponents.add(component);
+            indexComponent(component);
+            component.setAttached(true);
+            if (component.mUpdateLod && mApplication != null) {
+                // Structural changes are applied in the same order in replay, so the component
+                // gets the same seed from the recorded random generator
+                component.mUpdateLodSeed = mApplication.getRandom().nextInt(Integer.MAX_VALUE);
+            }
+            markStructureChanged();
             component.start();
         }
     }
@@ -193,6 +574,10 @@ public class GameObject {
         if (mComponents.contains(component)) {
             component.finish();
             mComponents.remove(component);
+            unindexComponent(component);
+            component.setAttached(false);
+            component.releaseHandle();
+            markStructureChanged();
         }
     }
 
@@ -207,10 +592,43 @@ public class GameObject {
         if (component == transform) {
             throw new IllegalStateException("Cannot remove GameObject's mandatory component.");
         }
-        removeComponentInternal(component);
+        execute(new RemoveComponentCommand(this, component));
     }
 
-    // TODO bring order to children and components lists so searching for them is in O(log(n))
+    /**
+     * Sets this component into slots of all it's types that are not taken by another component.
+     */
+    private void indexComponent(Component component) {
+        int[] typeIds = ComponentType.getAssignableIds(component.getClass());
+        for (int i = 0; i < typeIds.length; ++i) {
+            int typeId = typeIds[i];
+            if (typeId >= mTypeIndex.length) {
+                mTypeIndex = Arrays.copyOf(mTypeIndex, Math.max(typeId + 1, mTypeIndex.length * 2));
+            }
+            if (mTypeIndex[typeId] == null) {
+                mTypeIndex[typeId] = component;
+            }
+        }
+    }
+
+    /**
+     * Clears slots of removed component and fills them with the next components of the same types.
+     */
+    private void unindexComponent(Component component) {
+        int[] typeIds = ComponentType.getAssignableIds(component.getClass());
+        boolean cleared = false;
+        for (int i = 0; i < typeIds.length; ++i) {
+            if (mTypeIndex[typeIds[i]] == component) {
+                mTypeIndex[typeIds[i]] = null;
+                cleared = true;
+            }
+        }
+        if (cleared) {
+            for (int i = 0; i < mComponents.size(); ++i) {
+                indexComponent(mComponents.get(i));
+            }
+        }
+    }
 
     /**
      * Returns the specific component of type T attached to this GameObject.
@@ -224,13 +642,24 @@ public class GameObject {
      * or null if no instance of T is attached to this GameObject.
      */
     public <T extends Component> T getComponent(Class<T> componentClass) {
-        for (int i = 0; i < mComponents.size(); ++i) {
-            Component component = mComponents.get(i);
-            if (componentClass.isInstance(component)) {
-                return (T) component;
-            }
-        }
-        return null;
+        return getComponent(ComponentType.of(componentClass));
+    }
+
+    /**
+     * Returns the specific component of type T attached to this GameObject in constant time.
+     * <p/>
+     * In case there is more than one component of type T attached
+     * to this GameObject the first that could be found is returned.
+     *
+     * @param componentType Type of the requested component.
+     * @param <T>           Type of the component to be returned.
+     * @return The instance of T attached to this GameObject as component
+     * or null if no instance of T is attached to this GameObject.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Component> T getComponent(ComponentType<T> componentType) {
+        int typeId = componentType.getId();
+        return typeId < mTypeIndex.length ? (T) mTypeIndex[typeId] : null;
     }
 
     /**
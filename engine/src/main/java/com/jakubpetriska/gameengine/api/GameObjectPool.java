@@ -0,0 +1,249 @@
+package com.jakubpetriska.gameengine.api;
+
+import com.jakubpetriska.gameengine.api.components.BoxCollider;
+import com.jakubpetriska.gameengine.engine.StructureCommandBuffer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pool of {@link GameObject} hierarchies created from {@link Prefab Prefabs}.
+ * <p/>
+ * Released instances are deactivated and taken out of the scene, but their components stay
+ * attached and keep their state. When an instance of the same prefab is spawned again
+ * a released instance is reused instead of creating a new one, so objects that are spawned
+ * and released often do not produce garbage. Components implementing {@link Poolable} are
+ * notified about releasing and reusing of their instance, so they can reset their state.
+ * <p/>
+ * Handles of released instances become stale, so references to them kept as handles
+ * do not resolve to the reused instance.
+ * <p/>
+ * Reused instance keeps the transformation it had when it was released, callers should set it.
+ * Pool is not thread safe, it must be used only from components that are not updated in parallel.
+ */
+public class GameObjectPool {
+
+    private final Map<Prefab, List<GameObject>> mPooledInstances = new HashMap<>();
+    private final List<Poolable> mPoolables = new ArrayList<>(); // Used during calculations
+
+    /**
+     * Spawns instance of the prefab. Reuses released instance if there is one,
+     * otherwise creates a new one.
+     *
+     * @param prefab Prefab whose instance is spawned.
+     * @param parent Parent of the spawned instance.
+     * @return Root object of the spawned instance.
+     */
+    public GameObject spawn(Prefab prefab, GameObject parent) {
+        if (parent == null) {
+            throw new IllegalArgumentException("Parent of spawned instance cannot be null.");
+        }
+        GameObject instance;
+        List<GameObject> pooledInstances = mPooledInstances.get(prefab);
+        if (pooledInstances != null && pooledInstances.size() > 0) {
+            instance = pooledInstances.remove(pooledInstances.size() - 1);
+            instance.mPooled = false;
+            instance.attachToParent(parent);
+            instance.setActive(true);
+
+            collectPoolables(instance);
+            for (int i = 0; i < mPoolables.size(); ++i) {
+                mPoolables.get(i).onSpawn();
+            }
+            mPoolables.clear();
+        } else {
+            instance = prefab.create(parent);
+            if (instance.mPrefab != null) {
+                throw new IllegalStateException("Prefab must create a new instance every time.");
+            }
+            instance.mPrefab = prefab;
+        }
+        return instance;
+    }
+
+    /**
+     * Releases spawned instance back into the pool.
+     *
+     * @param instance Root object of an instance spawned by this pool.
+     */
+    public void release(GameObject instance) {
+        if (instance.mPrefab == null) {
+            throw new IllegalArgumentException("Only instances spawned from a pool can be released.");
+        }
+        if (instance.mPooled) {
+            throw new IllegalStateException("Instance was already released.");
+        }
+
+        collectPoolables(instance);
+        for (int i = 0; i < mPoolables.size(); ++i) {
+            mPoolables.get(i).onRelease();
+        }
+        mPoolables.clear();
+
+        instance.setActive(false);
+        instance.releaseHandles();
+        instance.detachFromParent();
+        instance.mPooled = true;
+
+        List<GameObject> pooledInstances = mPooledInstances.get(instance.mPrefab);
+        if (pooledInstances == null) {
+            pooledInstances = new ArrayList<>();
+            mPooledInstances.put(instance.mPrefab, pooledInstances);
+        }
+        pooledInstances.add(instance);
+    }
+
+    /**
+     * Spawns many instances of the prefab at once and sets their transformations.
+     * <p/>
+     * Structures of the scene, like the list of children of the parent, transform storage
+     * and the collisions system, are sized for all instances up front, so spawning
+     * thousands of instances does not grow them repeatedly. Sizes are estimated from the first
+     * created instance.
+     * <p/>
+     * Transformations are passed as arrays with three floats per instance. Any of them can be null,
+     * in which case transformation created by the prefab or kept by reused instance is used.
+     *
+     * @param prefab    Prefab whose instances are spawned.
+     * @param parent    Parent of the spawned instances.
+     * @param count     Number of spawned instances.
+     * @param positions Positions of the instances or null.
+     * @param rotations Rotations of the instances in degrees or null.
+     * @param scales    Scales of the instances or null.
+     * @param instances Array into which the spawned instances are stored or null.
+     */
+    public void spawnAll(Prefab prefab, GameObject parent, int count,
+                         float[] positions, float[] rotations, float[] scales,
+                         GameObject[] instances) {
+        if (parent == null) {
+            throw new IllegalArgumentException("Parent of spawned instances cannot be null.");
+        }
+        checkTransformations(positions, count);
+        checkTransformations(rotations, count);
+        checkTransformations(scales, count);
+        if (instances != null && instances.length < count) {
+            throw new IllegalArgumentException("Array of instances is too short.");
+        }
+        parent.ensureChildCapacity(count);
+
+        int createdCount = count - getPooledCount(prefab);
+        for (int i = 0; i < count; ++i) {
+            GameObject instance = spawn(prefab, parent);
+            if (i == 0 && createdCount > 1 && instance.mApplication != null) {
+                reserve(instance, createdCount - 1);
+            }
+            int offset = i * 3;
+            if (positions != null) {
+                instance.transform.setPosition(positions[offset], positions[offset + 1], positions[offset + 2]);
+            }
+            if (rotations != null) {
+                instance.transform.setRotation(rotations[offset], rotations[offset + 1], rotations[offset + 2]);
+            }
+            if (scales != null) {
+                instance.transform.setScale(scales[offset], scales[offset + 1], scales[offset + 2]);
+            }
+            if (instances != null) {
+                instances[i] = instance;
+            }
+        }
+    }
+
+    private static void checkTransformations(float[] transformations, int count) {
+        if (transformations != null && transformations.length < count * 3) {
+            throw new IllegalArgumentException("Array of transformations must contain 3 values for every instance.");
+        }
+    }
+
+    /**
+     * Reserves space for given number of instances of the same size as the sample instance.
+     */
+    private static void reserve(final GameObject sample, final int count) {
+        final Application application = sample.mApplication;
+        // During update children and components of the sample are still waiting in the structure
+        // command buffer, so the sample is measured by a command applied right after them
+        // and before those of the other instances
+        application.getStructureCommandBuffer().execute(new StructureCommandBuffer.Command() {
+            @Override
+            public void apply() {
+                int[] sizes = new int[2];
+                countObjectsAndColliders(sample, sizes);
+                application.getTransformStorage().reserve(sizes[0] * count);
+                application.getCollisionsSystem().ensureCapacity(sizes[1] * count);
+            }
+        });
+    }
+
+    private static void countObjectsAndColliders(GameObject gameObject, int[] sizes) {
+        ++sizes[0];
+        List<Component> components = gameObject.components;
+        for (int i = 0; i < components.size(); ++i) {
+            if (components.get(i) instanceof BoxCollider) {
+                ++sizes[1];
+            }
+        }
+        List<GameObject> children = gameObject.children;
+        for (int i = 0; i < children.size(); ++i) {
+            countObjectsAndColliders(children.get(i), sizes);
+        }
+    }
+
+    /**
+     * Creates instances of the prefab ahead of time, so they do not need to be created
+     * when they are spawned for the first time.
+     *
+     * @param prefab Prefab whose instances are created.
+     * @param parent Object under which the instances are created before they are released.
+     * @param count  Number of instances that should be in the pool.
+     */
+    public void prewarm(Prefab prefab, GameObject parent, int count) {
+        List<GameObject> instances = new ArrayList<>();
+        for (int i = getPooledCount(prefab); i < count; ++i) {
+            GameObject instance = prefab.create(parent);
+            instance.mPrefab = prefab;
+            instances.add(instance);
+        }
+        for (int i = 0; i < instances.size(); ++i) {
+            release(instances.get(i));
+        }
+    }
+
+    /**
+     * Returns the number of released instances of the prefab waiting for reuse.
+     *
+     * @param prefab Prefab whose instances are counted.
+     * @return Number of released instances.
+     */
+    public int getPooledCount(Prefab prefab) {
+        List<GameObject> pooledInstances = mPooledInstances.get(prefab);
+        return pooledInstances != null ? pooledInstances.size() : 0;
+    }
+
+    /**
+     * Removes all components of all released instances and empties the pool. Called by engine
+     * when the scene ends.
+     */
+    public void clear() {
+        for (List<GameObject> pooledInstances : mPooledInstances.values()) {
+            for (int i = 0; i < pooledInstances.size(); ++i) {
+                pooledInstances.get(i).destroy();
+            }
+        }
+        mPooledInstances.clear();
+    }
+
+    private void collectPoolables(GameObject gameObject) {
+        List<Component> components = gameObject.components;
+        for (int i = 0; i < components.size(); ++i) {
+            Component component = components.get(i);
+            if (component instanceof Poolable) {
+                mPoolables.add((Poolable) component);
+            }
+        }
+        List<GameObject> children = gameObject.children;
+        for (int i = 0; i < children.size(); ++i) {
+            collectPoolables(children.get(i));
+        }
+    }
+}
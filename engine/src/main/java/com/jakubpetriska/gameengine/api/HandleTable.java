@@ -0,0 +1,159 @@
+package com.jakubpetriska.gameengine.api;
+
+import java.util.Arrays;
+
+/**
+ * Table of handles of {@link GameObject GameObjects} and {@link Component Components}.
+ * <p/>
+ * Handle is a long containing index of a slot in this table in it's lower 32 bits and generation
+ * of the slot in it's upper 32 bits. When the object is removed from the scene or released into
+ * {@link GameObjectPool} generation of it's slot is increased, so all handles of the object
+ * become stale and resolve to null, even after the slot is reused by another object.
+ * <p/>
+ * Unlike references, handles can be kept safely after the object is removed, they are resolved
+ * in constant time and since they are plain longs they can be stored in primitive arrays
+ * and used as keys in primitive maps.
+ *
+ * @see GameObject#getHandle()
+ * @see Component#getHandle()
+ */
+public class HandleTable {
+
+    /**
+     * Handle that never resolves to any object.
+     */
+    public static final long NONE = 0;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Slots are replaced as a whole when they grow, so they can be read without locking.
+     */
+    private static class Slots {
+        final Object[] objects;
+        final int[] generations;
+
+        Slots(Object[] objects, int[] generations) {
+            this.objects = objects;
+            this.generations = generations;
+        }
+    }
+
+    private volatile Slots mSlots;
+    private int mSlotCount = 0;
+    private int[] mFreeSlots = new int[INITIAL_CAPACITY];
+    private int mFreeSlotCount = 0;
+
+    public HandleTable() {
+        int[] generations = new int[INITIAL_CAPACITY];
+        // Generations start at 1 so no valid handle is equal to NONE
+        Arrays.fill(generations, 1);
+        mSlots = new Slots(new Object[INITIAL_CAPACITY], generations);
+    }
+
+    /**
+     * Returns the object with given handle.
+     *
+     * @param handle Handle of the object.
+     * @return Object with given handle or null if the handle is stale or it is a handle of a component.
+     */
+    public GameObject resolveGameObject(long handle) {
+        Object object = resolve(handle);
+        return object instanceof GameObject ? (GameObject) object : null;
+    }
+
+    /**
+     * Returns the component with given handle.
+     *
+     * @param handle Handle of the component.
+     * @return Component with given handle or null if the handle is stale or it is a handle of an object.
+     */
+    public Component resolveComponent(long handle) {
+        Object object = resolve(handle);
+        return object instanceof Component ? (Component) object : null;
+    }
+
+    /**
+     * Checks whether the handle still refers to an object.
+     *
+     * @param handle Checked handle.
+     * @return True if the handle is not stale.
+     */
+    public boolean isValid(long handle) {
+        return resolve(handle) != null;
+    }
+
+    private Object resolve(long handle) {
+        int index = getIndex(handle);
+        Slots slots = mSlots;
+        if (index < 0 || index >= slots.objects.length || slots.generations[index] != getGeneration(handle)) {
+            return null;
+        }
+        return slots.objects[index];
+    }
+
+    /**
+     * Puts object into a free slot.
+     *
+     * @param object Object to which the handle refers.
+     * @return Handle of the object.
+     */
+    synchronized long acquire(Object object) {
+        int index;
+        if (mFreeSlotCount > 0) {
+            index = mFreeSlots[--mFreeSlotCount];
+        } else {
+            if (mSlotCount == mSlots.objects.length) {
+                int capacity = mSlotCount * 2;
+                int[] generations = Arrays.copyOf(mSlots.generations, capacity);
+                Arrays.fill(generations, mSlotCount, capacity, 1);
+                mSlots = new Slots(Arrays.copyOf(mSlots.objects, capacity), generations);
+            }
+            index = mSlotCount++;
+        }
+        Slots slots = mSlots;
+        slots.objects[index] = object;
+        return ((long) slots.generations[index] << 32) | index;
+    }
+
+    /**
+     * Makes the handle and all it's copies stale and frees it's slot.
+     *
+     * @param handle Released handle.
+     */
+    synchronized void release(long handle) {
+        int index = getIndex(handle);
+        Slots slots = mSlots;
+        if (slots.generations[index] != getGeneration(handle)) {
+            return;
+        }
+        slots.objects[index] = null;
+        // Zero is skipped when the generation overflows
+        int generation = slots.generations[index] + 1;
+        slots.generations[index] = generation != 0 ? generation : 1;
+        if (mFreeSlotCount == mFreeSlots.length) {
+            mFreeSlots = Arrays.copyOf(mFreeSlots, mFreeSlotCount * 2);
+        }
+        mFreeSlots[mFreeSlotCount++] = index;
+    }
+
+    /**
+     * Returns index of the slot of the handle.
+     *
+     * @param handle The handle.
+     * @return Index of the slot.
+     */
+    public static int getIndex(long handle) {
+        return (int) handle;
+    }
+
+    /**
+     * Returns generation of the handle.
+     *
+     * @param handle The handle.
+     * @return Generation of the handle.
+     */
+    public static int getGeneration(long handle) {
+        return (int) (handle >>> 32);
+    }
+}
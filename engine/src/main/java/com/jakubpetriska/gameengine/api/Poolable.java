@@ -0,0 +1,19 @@
+package com.jakubpetriska.gameengine.api;
+
+/**
+ * Can be implemented by {@link Component Components} of {@link Prefab} instances
+ * that need to reset their state when their instance is reused by {@link GameObjectPool}.
+ */
+public interface Poolable {
+
+    /**
+     * Called when released instance is spawned again. Component should reset it's state here,
+     * the first spawn of the instance is covered by {@link Component#start()}.
+     */
+    void onSpawn();
+
+    /**
+     * Called when the instance is released back into the pool.
+     */
+    void onRelease();
+}
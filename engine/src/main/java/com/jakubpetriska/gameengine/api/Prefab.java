@@ -0,0 +1,18 @@
+package com.jakubpetriska.gameengine.api;
+
+/**
+ * Template from which instances of a {@link GameObject} hierarchy are created.
+ * <p/>
+ * Instances of prefabs are spawned through {@link GameObjectPool}, which reuses released
+ * instances of the same prefab instead of creating new ones.
+ */
+public interface Prefab {
+
+    /**
+     * Creates new instance of this prefab.
+     *
+     * @param parent Parent of the created instance.
+     * @return Root object of the created instance.
+     */
+    GameObject create(GameObject parent);
+}
@@ -0,0 +1,98 @@
+package com.jakubpetriska.gameengine.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index of {@link GameObject GameObjects} of the current scene by their tags.
+ * <p/>
+ * Index contains all objects that are part of the scene and have a non empty tag. It is updated
+ * together with the hierarchy of the scene, so objects created or removed while the engine updates
+ * the scene are found or not found from the next sync point.
+ * All queries run in constant time and do not allocate.
+ */
+public class TagIndex {
+
+    private static final List<GameObject> EMPTY = Collections.emptyList();
+
+    private final List<List<GameObject>> mObjects = new ArrayList<>();
+    private final List<List<GameObject>> mUnmodifiableObjects = new ArrayList<>();
+
+    /**
+     * Returns any object with given tag.
+     *
+     * @param tagId Id of the tag obtained from {@link Tags#getId(String)}.
+     * @return Object with given tag or null if there is none.
+     */
+    public GameObject findByTag(int tagId) {
+        if (tagId >= mObjects.size()) {
+            return null;
+        }
+        List<GameObject> objects = mObjects.get(tagId);
+        return objects.size() > 0 ? objects.get(0) : null;
+    }
+
+    /**
+     * Returns any object with given tag.
+     *
+     * @param tag Tag of the object.
+     * @return Object with given tag or null if there is none.
+     */
+    public GameObject findByTag(String tag) {
+        return findByTag(Tags.getId(tag));
+    }
+
+    /**
+     * Returns all objects with given tag. Returned list is unmodifiable, it changes
+     * as objects are added and removed and the order of objects in it is not defined.
+     *
+     * @param tagId Id of the tag obtained from {@link Tags#getId(String)}.
+     * @return All objects with given tag.
+     */
+    public List<GameObject> findAllByTag(int tagId) {
+        if (tagId == Tags.NONE || tagId >= mObjects.size()) {
+            return EMPTY;
+        }
+        return mUnmodifiableObjects.get(tagId);
+    }
+
+    /**
+     * Returns all objects with given tag, see {@link TagIndex#findAllByTag(int)}.
+     *
+     * @param tag Tag of the objects.
+     * @return All objects with given tag.
+     */
+    public List<GameObject> findAllByTag(String tag) {
+        return findAllByTag(Tags.getId(tag));
+    }
+
+    void add(GameObject gameObject, int tagId) {
+        if (tagId == Tags.NONE) {
+            return;
+        }
+        while (mObjects.size() <= tagId) {
+            List<GameObject> objects = new ArrayList<>();
+            mObjects.add(objects);
+            mUnmodifiableObjects.add(Collections.unmodifiableList(objects));
+        }
+        List<GameObject> objects = mObjects.get(tagId);
+        gameObject.mTagIndexPosition = objects.size();
+        objects.add(gameObject);
+    }
+
+    void remove(GameObject gameObject, int tagId) {
+        if (tagId == Tags.NONE) {
+            return;
+        }
+        // Last object is moved into place of the removed one
+        List<GameObject> objects = mObjects.get(tagId);
+        int position = gameObject.mTagIndexPosition;
+        GameObject lastObject = objects.remove(objects.size() - 1);
+        if (lastObject != gameObject) {
+            objects.set(position, lastObject);
+            lastObject.mTagIndexPosition = position;
+        }
+        gameObject.mTagIndexPosition = -1;
+    }
+}
@@ -0,0 +1,67 @@
+package com.jakubpetriska.gameengine.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns tags of {@link GameObject GameObjects} into integer ids, so tags can be compared
+ * by a single integer comparison instead of comparing strings.
+ * <p/>
+ * Ids are assigned when the tag is first used and are the same for the whole life
+ * of the process. Keep ids of frequently compared tags in static fields.
+ */
+public final class Tags {
+
+    /**
+     * Id of the empty tag. Objects without tag have this id.
+     */
+    public static final int NONE = 0;
+
+    private static final ConcurrentHashMap<String, Integer> sIds = new ConcurrentHashMap<>();
+    private static final List<String> sNames = new ArrayList<>();
+
+    static {
+        sIds.put("", NONE);
+        sNames.add("");
+    }
+
+    private Tags() {
+    }
+
+    /**
+     * Returns id of given tag.
+     *
+     * @param tag Tag whose id is returned. Null is considered to be the empty tag.
+     * @return Id of the tag.
+     */
+    public static int getId(String tag) {
+        if (tag == null) {
+            return NONE;
+        }
+        Integer id = sIds.get(tag);
+        if (id == null) {
+            synchronized (sNames) {
+                id = sIds.get(tag);
+                if (id == null) {
+                    id = sNames.size();
+                    sNames.add(tag);
+                    sIds.put(tag, id);
+                }
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Returns tag with given id.
+     *
+     * @param id Id of the tag.
+     * @return Tag with given id.
+     */
+    public static String getTag(int id) {
+        synchronized (sNames) {
+            return sNames.get(id);
+        }
+    }
+}
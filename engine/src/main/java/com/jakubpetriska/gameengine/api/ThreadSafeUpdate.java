@@ -0,0 +1,21 @@
+package com.jakubpetriska.gameengine.api;
+
+/**
+ * Marks {@link Component} whose {@link Component#update()} can be run
+ * on a worker thread in parallel update mode.
+ * <p/>
+ * When all components of a top level {@link GameObject} and all of it's children
+ * that override {@link Component#update()} implement this interface the whole subtree
+ * can be updated in parallel with other such subtrees. During update such component
+ * can only modify it's own subtree, read {@link Time}, {@link TouchInput} and received
+ * messages and send messages.
+ * Sent messages and changes of registered colliders are applied after all
+ * parallel updates finished.
+ * <p/>
+ * Component must not access objects from other top level subtrees or render anything
+ * from {@link Component#update()}.
+ *
+ * @see com.jakubpetriska.gameengine.engine.Engine#setParallelUpdate(int)
+ */
+public interface ThreadSafeUpdate {
+}
@@ -19,4 +19,17 @@ public interface Time {
      * the last frame in seconds.
      */
     float getTimeDelta();
+
+    /**
+     * Returns the position of the rendered frame between the last two
+     * simulation steps.
+     * <p/>
+     * When engine runs with fixed time step the simulation can be ahead
+     * of the rendered frame. Value is in range from 0 to 1 where 0 means the state
+     * before the last step and 1 the state after the last step. Without fixed time
+     * step this is always 1.
+     *
+     * @return Interpolation factor between the last two simulation states.
+     */
+    float getInterpolationAlpha();
 }
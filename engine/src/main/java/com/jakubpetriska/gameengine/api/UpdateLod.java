@@ -0,0 +1,27 @@
+package com.jakubpetriska.gameengine.api;
+
+/**
+ * Marks {@link Component} whose {@link Component#update()} can run less often when it's
+ * {@link GameObject} is far from the active {@link com.jakubpetriska.gameengine.api.components.Camera}
+ * or outside of it's view.
+ * <p/>
+ * Skipped updates are not lost, component receives the whole time elapsed since it's
+ * last update from {@link Component#getTimeDelta()}, which it must use instead of
+ * {@link Time#getTimeDelta()}. Interval is chosen again after every update of the component,
+ * so component which comes closer to the camera is updated more often after at most
+ * one long interval.
+ * <p/>
+ * When the scene has no active camera components are updated every update step.
+ */
+public interface UpdateLod {
+
+    /**
+     * Returns the number of update steps between two updates of this component.
+     *
+     * @param distance Distance of the component's {@link GameObject} from the camera.
+     * @param visible  True if the {@link GameObject} is in front of the camera, inside of it's
+     *                 field of view and not further than it's far plane.
+     * @return Number of update steps between two updates, 1 means every step.
+     */
+    int getUpdateInterval(float distance, boolean visible);
+}
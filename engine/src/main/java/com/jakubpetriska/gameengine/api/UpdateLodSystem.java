@@ -0,0 +1,107 @@
+package com.jakubpetriska.gameengine.api;
+
+import com.jakubpetriska.gameengine.api.components.Camera;
+import com.jakubpetriska.gameengine.api.components.Transform;
+import com.jakubpetriska.gameengine.api.math.Vector3;
+import com.jakubpetriska.gameengine.engine.ISystem;
+
+/**
+ * Decides which {@link Component Components} implementing {@link UpdateLod} are updated
+ * in the current update step.
+ * <p/>
+ * Position of the camera is read once per update step. Visibility is approximated
+ * by a cone around the view direction with the angle of the camera's vertical field of view
+ * on each side, so objects visible on wide screens are not considered invisible.
+ */
+public class UpdateLodSystem implements ISystem {
+
+    private final Application mApplication;
+
+    // State of the camera in the current update step
+    private boolean mCameraActive;
+    private float mCameraX;
+    private float mCameraY;
+    private float mCameraZ;
+    private float mForwardX;
+    private float mForwardY;
+    private float mForwardZ;
+    private float mFar;
+    private float mCosViewAngle;
+
+    private float mStepTimeDelta;
+
+    private final Vector3 mWorkVector = new Vector3(); // Used during calculations
+
+    public UpdateLodSystem(Application application) {
+        mApplication = application;
+    }
+
+    @Override
+    public void update() {
+        mStepTimeDelta = mApplication.getTime().getTimeDelta();
+
+        Renderer renderer = mApplication.getRenderer();
+        Camera camera = renderer != null ? renderer.getCamera() : null;
+        mCameraActive = camera != null && camera.isActiveAndEnabled();
+        if (!mCameraActive) {
+            return;
+        }
+        Transform cameraTransform = camera.getGameObject().transform;
+        cameraTransform.getWorldPosition(mWorkVector);
+        mCameraX = mWorkVector.getX();
+        mCameraY = mWorkVector.getY();
+        mCameraZ = mWorkVector.getZ();
+        cameraTransform.getForward(mWorkVector);
+        mForwardX = mWorkVector.getX();
+        mForwardY = mWorkVector.getY();
+        mForwardZ = mWorkVector.getZ();
+        mFar = camera.far;
+        mCosViewAngle = (float) Math.cos(Math.toRadians(Math.min(camera.fieldOfView, 180)));
+    }
+
+    @Override
+    public void postUpdate() {
+    }
+
+    /**
+     * Checks whether the component should be updated in the current update step. Must be called
+     * once in every update step for every active and enabled component before it is updated.
+     * <p/>
+     * Can be called from multiple threads for different components.
+     *
+     * @param component Component which is going to be updated.
+     * @return True if {@link Component#update()} should be called.
+     */
+    public boolean shouldUpdate(Component component) {
+        if (!component.mUpdateLod) {
+            return true;
+        }
+        component.mAccumulatedTimeDelta += mStepTimeDelta;
+        if (--component.mStepsUntilUpdate > 0) {
+            return false;
+        }
+        component.mTimeDelta = component.mAccumulatedTimeDelta;
+        component.mAccumulatedTimeDelta = 0;
+
+        int interval = mCameraActive ? getUpdateInterval(component) : 1;
+        if (component.mStepsUntilUpdate < 0) {
+            // First update, spread components created together over the whole interval
+            component.mStepsUntilUpdate = 1 + component.mUpdateLodSeed % interval;
+        } else {
+            component.mStepsUntilUpdate = interval;
+        }
+        return true;
+    }
+
+    private int getUpdateInterval(Component component) {
+        float[] values = component.getGameObject().transform.getTransformationMatrix().getValues();
+        float x = values[12] - mCameraX;
+        float y = values[13] - mCameraY;
+        float z = values[14] - mCameraZ;
+        float distance = (float) Math.sqrt(x * x + y * y + z * z);
+        boolean visible = distance == 0 || (distance <= mFar
+                && (x * mForwardX + y * mForwardY + z * mForwardZ) >= mCosViewAngle * distance);
+        int interval = ((UpdateLod) component).getUpdateInterval(distance, visible);
+        return Math.max(interval, 1);
+    }
+}
@@ -0,0 +1,43 @@
+package com.jakubpetriska.gameengine.api;
+
+/**
+ * Runs deferrable work at the end of frames while the frame is under it's time budget.
+ * <p/>
+ * Work with higher priority runs first, work with the same priority runs in order
+ * of submission. Unfinished work continues in the next frame. At least one slice runs
+ * every frame, so the work finishes even when frames are over budget.
+ * <p/>
+ * Slices run on the engine thread after all components were post updated. Work can be
+ * submitted from any thread.
+ *
+ * @see com.jakubpetriska.gameengine.engine.Engine#setFrameBudget(float)
+ */
+public interface WorkScheduler {
+
+    int PRIORITY_LOW = -100;
+    int PRIORITY_NORMAL = 0;
+    int PRIORITY_HIGH = 100;
+
+    /**
+     * Submits work.
+     *
+     * @param work     Work to run.
+     * @param priority Priority of the work, higher runs first.
+     */
+    void submit(WorkSlice work, int priority);
+
+    /**
+     * Cancels submitted work. Slices of the work that already ran are not reverted.
+     *
+     * @param work Work to cancel.
+     * @return True if work was pending, false otherwise.
+     */
+    boolean cancel(WorkSlice work);
+
+    /**
+     * Returns the number of unfinished submitted works.
+     *
+     * @return Number of pending works.
+     */
+    int getPendingCount();
+}
@@ -0,0 +1,17 @@
+package com.jakubpetriska.gameengine.api;
+
+/**
+ * Deferrable work divided into small slices, so it can be spread over multiple frames.
+ *
+ * @see WorkScheduler
+ */
+public interface WorkSlice {
+
+    /**
+     * Runs next slice of the work. Slice should be short, usually well under a millisecond,
+     * so the engine can stop when the frame budget is used up.
+     *
+     * @return True if the whole work is finished, false if there are more slices to run.
+     */
+    boolean runSlice();
+}
@@ -6,6 +6,7 @@ import com.jakubpetriska.gameengine.api.Color;
 import com.jakubpetriska.gameengine.api.Component;
 import com.jakubpetriska.gameengine.api.MeshData;
 import com.jakubpetriska.gameengine.api.Primitives;
+import com.jakubpetriska.gameengine.api.ThreadSafeUpdate;
 import com.jakubpetriska.gameengine.api.math.Matrix44;
 
 import java.util.ArrayList;
@@ -17,7 +18,7 @@ import java.util.List;
  * Collider cannot be rotated on it's own but is rotated by transformations of it's
  * {@link GameObject} and all parent {@link GameObject GameObjects}.
  */
-public class BoxCollider extends Component {
+public class BoxCollider extends Component implements ThreadSafeUpdate {
 
     /**
      * Group into which this collider belongs.
@@ -61,6 +62,10 @@ public class BoxCollider extends Component {
 
     private final Matrix44 mColliderAbsoluteTransformation = new Matrix44();
     private final Matrix44 sColliderLocalTransformation = new Matrix44(); // Used during calculations
+
+    // Values from which the absolute transformation was computed, it is recomputed only when they change
+    private int mComputedWorldVersion = -1;
+    private final float[] mComputedShape = new float[6];
     private final List<CollisionListener> mListeners = new ArrayList<>();
 
     private int mCollidingCollidersCount = 0;
@@ -110,12 +115,21 @@ public class BoxCollider extends Component {
 
     @Override
     public void start() {
-        if (getApplication().getDebug().drawColliders) {
-            this.meshData = getApplication().getMeshManager().getMeshData(Primitives.CUBE);
+        if (isActiveAndEnabled()) {
+            getApplication().getCollisionsSystem().registerCollider(this);
         }
+    }
+
+    @Override
+    public void onEnable() {
         getApplication().getCollisionsSystem().registerCollider(this);
     }
 
+    @Override
+    public void onDisable() {
+        getApplication().getCollisionsSystem().unregisterCollider(this);
+    }
+
     @Override
     public void finish() {
         getApplication().getCollisionsSystem().unregisterCollider(this);
@@ -147,25 +161,59 @@ public class BoxCollider extends Component {
         }
     }
 
+    /**
+     * Recomputes the absolute transformation matrix of this collider if it's transformation,
+     * size or offset changed. Called by the {@link CollisionsSystem} after every update step
+     * before collisions are detected.
+     */
+    public void updateTransformationMatrix() {
+        Transform transform = getGameObject().transform;
+        int worldVersion = transform.getWorldVersion();
+        boolean shapeChanged = shapeChanged();
+        if (shapeChanged || worldVersion != mComputedWorldVersion) {
+            sColliderLocalTransformation.setIdentity();
+            sColliderLocalTransformation.scale(sizeX, sizeY, sizeZ);
+            sColliderLocalTransformation.translate(offsetX, offsetY, offsetZ);
+
+            Matrix44.multiplyAffine(mColliderAbsoluteTransformation, transform.getTransformationMatrix(),
+                    sColliderLocalTransformation);
+            mComputedWorldVersion = worldVersion;
+        }
+    }
+
     @Override
     public void postUpdate() {
-        // Transformation matrix for this collider needs to be recalculated here
-        // It is later used by CollisionsSystem
-        Matrix44 objectTransformation = getGameObject().transform.getTransformationMatrix();
-
-        sColliderLocalTransformation.setIdentity();
-        sColliderLocalTransformation.scale(sizeX, sizeY, sizeZ);
-        sColliderLocalTransformation.translate(offsetX, offsetY, offsetZ);
-
-        Matrix44.multiply(mColliderAbsoluteTransformation, objectTransformation, sColliderLocalTransformation);
-
         if (getApplication().getDebug().drawColliders) {
+            // Mesh is loaded here since start can be called from a worker thread
+            // in parallel update mode and meshes must be created on the rendering thread
+            if (meshData == null) {
+                meshData = getApplication().getMeshManager().getMeshData(Primitives.CUBE);
+            }
             getApplication().getRenderer().renderWireframe(meshData,
                     mCollidingCollidersCount > 0 ? Color.RED : Color.GREEN,
                     mColliderAbsoluteTransformation);
         }
     }
 
+    /**
+     * Checks whether size or offset changed since the absolute transformation was computed
+     * and remembers the new values.
+     */
+    private boolean shapeChanged() {
+        float[] shape = mComputedShape;
+        if (shape[0] == sizeX && shape[1] == sizeY && shape[2] == sizeZ
+                && shape[3] == offsetX && shape[4] == offsetY && shape[5] == offsetZ) {
+            return false;
+        }
+        shape[0] = sizeX;
+        shape[1] = sizeY;
+        shape[2] = sizeZ;
+        shape[3] = offsetX;
+        shape[4] = offsetY;
+        shape[5] = offsetZ;
+        return true;
+    }
+
     /**
      * Returns the absolute transformation matrix for this collider. Transformation contains
      * it's relative offset and size.
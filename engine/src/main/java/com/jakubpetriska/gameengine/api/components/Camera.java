@@ -1,11 +1,12 @@
 package com.jakubpetriska.gameengine.api.components;
 
 import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.ThreadSafeUpdate;
 
 /**
  * Represents a camera in the scene.
  */
-public class Camera extends Component {
+public class Camera extends Component implements ThreadSafeUpdate {
 
     /**
      * Near plane distance.
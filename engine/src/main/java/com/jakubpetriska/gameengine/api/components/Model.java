@@ -3,11 +3,12 @@ package com.jakubpetriska.gameengine.api.components;
 import com.jakubpetriska.gameengine.api.Color;
 import com.jakubpetriska.gameengine.api.Component;
 import com.jakubpetriska.gameengine.api.MeshData;
+import com.jakubpetriska.gameengine.api.ThreadSafeUpdate;
 
 /**
  * Component responsible for rendering a mesh.
  */
-public class Model extends Component {
+public class Model extends Component implements ThreadSafeUpdate {
 
     /**
      * Name of primitive mesh.
@@ -24,22 +25,23 @@ public class Model extends Component {
 
     @Override
     public void start() {
-        this.meshData = getApplication().getMeshManager().getMeshData(meshPath);
+        // Mesh is loaded in postUpdate since start can be called from a worker thread
+        // in parallel update mode and meshes must be created on the rendering thread
         if(color == null) {
             color = Color.LIGHT_GRAY;
         }
-        lastMeshPath = meshPath;
     }
 
     @Override
     public void postUpdate() {
-        if(meshPath != lastMeshPath) { // Comparing objects to reduce the test cost
+        if(meshData == null || meshPath != lastMeshPath) { // Comparing objects to reduce the test cost
             this.meshData = getApplication().getMeshManager().getMeshData(meshPath);
             lastMeshPath = meshPath;
         }
         getApplication().getRenderer().render(
                 meshData,
                 color,
-                getGameObject().transform.getTransformationMatrix());
+                getGameObject().transform.getInterpolatedTransformationMatrix(
+                        getApplication().getTime().getInterpolationAlpha()));
     }
 }
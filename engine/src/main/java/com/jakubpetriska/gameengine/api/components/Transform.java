@@ -2,49 +2,91 @@ package com.jakubpetriska.gameengine.api.components;
 
 import com.jakubpetriska.gameengine.api.Component;
 import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.ThreadSafeUpdate;
 import com.jakubpetriska.gameengine.api.math.Matrix44;
+import com.jakubpetriska.gameengine.api.math.Quaternion;
 import com.jakubpetriska.gameengine.api.math.Vector3;
-
-import java.util.List;
+import com.jakubpetriska.gameengine.engine.TransformStorage;
 
 /**
  * Holds transformation of a {@link GameObject}.
  * <p/>
  * Transformation is relative to parent GameObject.
  * World (absolute) transformation can be obtained using appropriate methods.
+ * <p/>
+ * Values of the transformation are stored in {@link TransformStorage} of the scene,
+ * this object only provides access to them.
+ * <p/>
+ * Rotation can be set either in degrees or as a {@link Quaternion}. Rotations in degrees are
+ * converted into quaternion only when the transformation matrix is computed, rotating
+ * by quaternions avoids the conversion completely.
  */
-public class Transform extends Component {
+public class Transform extends Component implements ThreadSafeUpdate {
 
     // Used for translation calculations
     private final Vector3 sWorkVector = new Vector3();
     private final Vector3 sWorkVector2 = new Vector3();
 
-    private boolean mTransformationMatrixValid = false;
     private final Matrix44 mTransformationMatrix = new Matrix44();
 
-    /**
-     * Translation of this transform relative to parent.
-     */
-    private final Vector3 mPosition = new Vector3();
-
-    /**
-     * Rotation of this transform relative to parent.
-     */
-    private final Vector3 mRotation = new Vector3();
-
-    /**
-     * Scale of this transform relative to parent.
-     */
-    private final Vector3 mScale = new Vector3();
+    // Absolute transformation matrix is valid while the local transformation and the parent's
+    // absolute transformation are the same as when it was computed, so changing a transformation
+    // does not need to touch it's descendants
+    private int mLocalVersion = 0;
+    private int mComputedLocalVersion = -1;
+    private Transform mComputedParent;
+    private int mComputedParentWorldVersion;
+    private int mWorldVersion = 0;
+
+    // Inverse of the absolute transformation matrix, valid while it's version matches mWorldVersion
+    private final Matrix44 mInverseTransformationMatrix = new Matrix44();
+    private int mInverseWorldVersion = -1;
+
+    // Translation, rotation and scale relative to parent are stored in slot
+    // of TransformStorage, these point to the slot's values
+    private TransformStorage mStorage;
+    private int mSlot = -1;
+    private TransformStorage.Page mPage;
+    private int mVectorOffset;
+    private int mQuaternionOffset;
+
+    // Rotation is stored both in degrees and as a quaternion, when one of them is set
+    // the other one is computed only when it is needed
+    private boolean mEulerRotationValid = true;
+    private boolean mQuaternionRotationValid = true;
 
     /**
      * Create new transformation.
      * <p/>
-     * Newly created transformation is identity. It has 0 translation,
-     * 0 rotation and scale of 1 in all axes.
+     * Transformation is usable only after it is added to a {@link GameObject}.
+     * Then it is identity. It has 0 translation, 0 rotation and scale of 1 in all axes.
      */
     public Transform() {
-        mScale.set(1, 1, 1);
+    }
+
+    @Override
+    public void start() {
+        mStorage = getApplication().getTransformStorage();
+        mSlot = mStorage.acquire();
+        mPage = mStorage.getPage(mSlot);
+        mVectorOffset = TransformStorage.getVectorOffset(mSlot);
+        mQuaternionOffset = TransformStorage.getQuaternionOffset(mSlot);
+        mEulerRotationValid = true;
+        mQuaternionRotationValid = true;
+        // Object added after the engine computed all matrices needs it's matrix computed on read
+        invalidate();
+    }
+
+    @Override
+    public void finish() {
+        if (mSlot >= 0) {
+            // Transformation of the removed object keeps working on a private copy of it's values,
+            // so it cannot overwrite the slot once another transformation acquires it
+            mPage = mStorage.detach(mSlot);
+            mVectorOffset = 0;
+            mQuaternionOffset = 0;
+            mSlot = -1;
+        }
     }
 
     /**
@@ -53,7 +95,7 @@ public class Transform extends Component {
      * @return The local space X position.
      */
     public float getPositionX() {
-        return mPosition.getX();
+        return mPage.positions[mVectorOffset];
     }
 
     /**
@@ -62,7 +104,7 @@ public class Transform extends Component {
      * @return The local space Z position.
      */
     public float getPositionY() {
-        return mPosition.getY();
+        return mPage.positions[mVectorOffset + 1];
     }
 
     /**
@@ -71,7 +113,7 @@ public class Transform extends Component {
      * @return The local space Z position.
      */
     public float getPositionZ() {
-        return mPosition.getZ();
+        return mPage.positions[mVectorOffset + 2];
     }
 
     /**
@@ -80,7 +122,8 @@ public class Transform extends Component {
      * @return The local space rotation around X axis.
      */
     public float getRotationX() {
-        return mRotation.getX();
+        validateEulerRotation();
+        return mPage.rotations[mVectorOffset];
     }
 
     /**
@@ -89,7 +132,8 @@ public class Transform extends Component {
      * @return The local space rotation around Y axis.
      */
     public float getRotationY() {
-        return mRotation.getY();
+        validateEulerRotation();
+        return mPage.rotations[mVectorOffset + 1];
     }
 
     /**
@@ -98,7 +142,8 @@ public class Transform extends Component {
      * @return The local space rotation around Z axis.
      */
     public float getRotationZ() {
-        return mRotation.getZ();
+        validateEulerRotation();
+        return mPage.rotations[mVectorOffset + 2];
     }
 
     /**
@@ -107,7 +152,7 @@ public class Transform extends Component {
      * @return The local space scale in direction of X axis.
      */
     public float getScaleX() {
-        return mScale.getX();
+        return mPage.scales[mVectorOffset];
     }
 
     /**
@@ -116,7 +161,7 @@ public class Transform extends Component {
      * @return The local space scale in direction of Y axis.
      */
     public float getScaleY() {
-        return mScale.getY();
+        return mPage.scales[mVectorOffset + 1];
     }
 
     /**
@@ -125,7 +170,7 @@ public class Transform extends Component {
      * @return The local space scale in direction of Z axis.
      */
     public float getScaleZ() {
-        return mScale.getZ();
+        return mPage.scales[mVectorOffset + 2];
     }
 
     /**
@@ -144,7 +189,10 @@ public class Transform extends Component {
         Matrix44 transformationMatrix = getTransformationMatrix();
         transformationMatrix.transformVector(sWorkVector2, sWorkVector);
 
-        mPosition.add(sWorkVector2);
+        float[] positions = mPage.positions;
+        positions[mVectorOffset] += sWorkVector2.getX();
+        positions[mVectorOffset + 1] += sWorkVector2.getY();
+        positions[mVectorOffset + 2] += sWorkVector2.getZ();
         invalidate();
     }
 
@@ -156,7 +204,7 @@ public class Transform extends Component {
      * @param z Z coordinate of position.
      */
     public void setPosition(float x, float y, float z) {
-        mPosition.set(x, y, z);
+        set(mPage.positions, x, y, z);
         invalidate();
     }
 
@@ -170,7 +218,12 @@ public class Transform extends Component {
      * @param z Amount of rotation around Z axis.
      */
     public void rotateBy(float x, float y, float z) {
-        mRotation.add(x, y, z);
+        validateEulerRotation();
+        float[] rotations = mPage.rotations;
+        rotations[mVectorOffset] += x;
+        rotations[mVectorOffset + 1] += y;
+        rotations[mVectorOffset + 2] += z;
+        mQuaternionRotationValid = false;
         invalidate();
     }
 
@@ -182,10 +235,69 @@ public class Transform extends Component {
      * @param z Amount of rotation around Z axis.
      */
     public void setRotation(float x, float y, float z) {
-        mRotation.set(x, y, z);
+        set(mPage.rotations, x, y, z);
+        mEulerRotationValid = true;
+        mQuaternionRotationValid = false;
+        invalidate();
+    }
+
+    /**
+     * Store the rotation of this transformation into given quaternion.
+     *
+     * @param result Quaternion in which the rotation is stored.
+     */
+    public void getRotation(Quaternion result) {
+        validateQuaternionRotation();
+        System.arraycopy(mPage.orientations, mQuaternionOffset, result.getValues(), 0, Quaternion.STRIDE);
+    }
+
+    /**
+     * Set the rotation of this transformation.
+     *
+     * @param rotation Unit quaternion representing the rotation.
+     */
+    public void setRotation(Quaternion rotation) {
+        System.arraycopy(rotation.getValues(), 0, mPage.orientations, mQuaternionOffset, Quaternion.STRIDE);
+        mQuaternionRotationValid = true;
+        mEulerRotationValid = false;
         invalidate();
     }
 
+    /**
+     * Rotate this transformation by given rotation. Rotation is applied after the current rotation,
+     * so it rotates around axes of the parent. Rotating by a quaternion does not compute
+     * any sines or cosines.
+     *
+     * @param rotation Unit quaternion representing the rotation.
+     */
+    public void rotateBy(Quaternion rotation) {
+        validateQuaternionRotation();
+        float[] orientations = mPage.orientations;
+        // Rotation is on the left side, so it is applied in the parent space after the current rotation
+        Quaternion.multiply(orientations, mQuaternionOffset, rotation.getValues(), 0,
+                orientations, mQuaternionOffset);
+        // Keep rounding errors from accumulating
+        Quaternion.normalize(orientations, mQuaternionOffset);
+        mEulerRotationValid = false;
+        invalidate();
+    }
+
+    private void validateEulerRotation() {
+        if (!mEulerRotationValid) {
+            Quaternion.toEulerAngles(mPage.orientations, mQuaternionOffset, mPage.rotations, mVectorOffset);
+            mEulerRotationValid = true;
+        }
+    }
+
+    private void validateQuaternionRotation() {
+        if (!mQuaternionRotationValid) {
+            float[] rotations = mPage.rotations;
+            Quaternion.fromEulerAngles(mPage.orientations, mQuaternionOffset,
+                    rotations[mVectorOffset], rotations[mVectorOffset + 1], rotations[mVectorOffset + 2]);
+            mQuaternionRotationValid = true;
+        }
+    }
+
     /**
      * Scale this transformation by given amounts.
      *
@@ -194,9 +306,10 @@ public class Transform extends Component {
      * @param z Amount of scale in direction of Z axis.
      */
     public void scaleBy(float x, float y, float z) {
-        mScale.setX(mScale.getX() * x);
-        mScale.setY(mScale.getY() * y);
-        mScale.setZ(mScale.getZ() * z);
+        float[] scales = mPage.scales;
+        scales[mVectorOffset] *= x;
+        scales[mVectorOffset + 1] *= y;
+        scales[mVectorOffset + 2] *= z;
         invalidate();
     }
 
@@ -208,18 +321,20 @@ public class Transform extends Component {
      * @param z Amount of scale in direction of Z axis.
      */
     public void setScale(float x, float y, float z) {
-        mScale.set(x, y, z);
+        set(mPage.scales, x, y, z);
         invalidate();
     }
 
-    private void invalidate() {
-        if (mTransformationMatrixValid) {
-            mTransformationMatrixValid = false;
+    private void set(float[] vectors, float x, float y, float z) {
+        vectors[mVectorOffset] = x;
+        vectors[mVectorOffset + 1] = y;
+        vectors[mVectorOffset + 2] = z;
+    }
 
-            List<GameObject> children = getGameObject().children;
-            for (int i = 0; i < children.size(); ++i) {
-                children.get(i).transform.invalidate();
-            }
+    private void invalidate() {
+        ++mLocalVersion;
+        if (mStorage != null) {
+            mStorage.onTransformChanged(this);
         }
     }
 
@@ -236,24 +351,201 @@ public class Transform extends Component {
      * @return The absolute transformation matrix.
      */
     public Matrix44 getTransformationMatrix() {
-        if (!mTransformationMatrixValid) {
-            GameObject parent = getGameObject().getParent();
-            boolean hasParent = parent != null;
-            Matrix44 parentTransformation = hasParent ? parent.transform.getTransformationMatrix() : null;
-            Matrix44 localTransformation = hasParent ? mHelperMatrix : mTransformationMatrix;
-
-            localTransformation.setIdentity();
-            localTransformation.scale(mScale);
-            localTransformation.rotateZ(mRotation.getZ());
-            localTransformation.rotateX(mRotation.getX());
-            localTransformation.rotateY(mRotation.getY());
-            localTransformation.translate(mPosition);
-
-            if (hasParent) {
-                Matrix44.multiply(mTransformationMatrix, parentTransformation, localTransformation);
-            }
-            mTransformationMatrixValid = true;
+        if (mStorage != null && mStorage.areMatricesComputed()) {
+            // All matrices were computed by the engine, only subtrees changed since then are computed
+            mStorage.updateChangedRoots();
+            return mTransformationMatrix;
+        }
+        GameObject parent = getGameObject().getParent();
+        if (parent != null) {
+            // Ancestors are brought up to date first, which costs a few comparisons per level
+            parent.transform.getTransformationMatrix();
         }
+        updateMatrixIfChanged();
         return mTransformationMatrix;
     }
+
+    /**
+     * Get the inverse of the transformation matrix, which transforms from world space into
+     * the local space of this transformation.
+     * <p/>
+     * Inverse is computed only when the absolute transformation changed since it was last requested.
+     * If the transformation is not invertible, because some scale is 0, the inverse
+     * of the last invertible state is returned.
+     *
+     * @return The inverse of the absolute transformation matrix.
+     */
+    public Matrix44 getInverseTransformationMatrix() {
+        int worldVersion = getWorldVersion();
+        if (mInverseWorldVersion != worldVersion) {
+            Matrix44.invertAffine(mInverseTransformationMatrix, mTransformationMatrix);
+            mInverseWorldVersion = worldVersion;
+        }
+        return mInverseTransformationMatrix;
+    }
+
+    /**
+     * Store position of this transformation in world space into given vector.
+     *
+     * @param result Vector in which the position is stored.
+     */
+    public void getWorldPosition(Vector3 result) {
+        float[] m = getTransformationMatrix().getValues();
+        result.set(m[12], m[13], m[14]);
+    }
+
+    /**
+     * Store direction of Z axis of this transformation in world space into given vector.
+     * This is the direction in which the camera looks.
+     *
+     * @param result Vector in which the unit direction is stored.
+     */
+    public void getForward(Vector3 result) {
+        getWorldAxis(result, 2);
+    }
+
+    /**
+     * Store direction of Y axis of this transformation in world space into given vector.
+     *
+     * @param result Vector in which the unit direction is stored.
+     */
+    public void getUp(Vector3 result) {
+        getWorldAxis(result, 1);
+    }
+
+    private void getWorldAxis(Vector3 result, int axis) {
+        float[] m = getTransformationMatrix().getValues();
+        int offset = axis * 4;
+        float x = m[offset];
+        float y = m[offset + 1];
+        float z = m[offset + 2];
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if (length == 0) {
+            result.set(0, 0, 0);
+        } else {
+            result.set(x / length, y / length, z / length);
+        }
+    }
+
+    /**
+     * Returns the version of the absolute transformation. Version increases every time
+     * the absolute transformation matrix changes, so other systems can cheaply find out
+     * whether the object moved since they last saw it.
+     *
+     * @return Version of the absolute transformation.
+     */
+    public int getWorldVersion() {
+        getTransformationMatrix();
+        return mWorldVersion;
+    }
+
+    /**
+     * Recomputes the absolute transformation matrix if it changed.
+     * <p/>
+     * This is called by the engine once per frame after update for transformations of all
+     * objects with parents before their children, so every matrix is computed from an already
+     * valid matrix of the parent without recursion. Until the scene is updated again, reading
+     * the matrix afterwards is a plain read, only subtrees of transformations changed meanwhile
+     * are computed again.
+     */
+    public void updateTransformationMatrix() {
+        updateMatrixIfChanged();
+    }
+
+    private void updateMatrixIfChanged() {
+        GameObject parent = getGameObject().getParent();
+        Transform parentTransform = parent != null ? parent.transform : null;
+        if (mComputedLocalVersion == mLocalVersion && mComputedParent == parentTransform
+                && (parentTransform == null || mComputedParentWorldVersion == parentTransform.mWorldVersion)) {
+            return;
+        }
+        computeTransformationMatrix(parentTransform != null ? parentTransform.mTransformationMatrix : null);
+        mComputedLocalVersion = mLocalVersion;
+        mComputedParent = parentTransform;
+        mComputedParentWorldVersion = parentTransform != null ? parentTransform.mWorldVersion : 0;
+        ++mWorldVersion;
+    }
+
+    private void computeTransformationMatrix(Matrix44 parentTransformation) {
+        boolean hasParent = parentTransformation != null;
+        Matrix44 localTransformation = hasParent ? mHelperMatrix : mTransformationMatrix;
+
+        // Sines and cosines are computed only when rotation in degrees changed
+        validateQuaternionRotation();
+        float[] positions = mPage.positions;
+        float[] orientations = mPage.orientations;
+        float[] scales = mPage.scales;
+        int offset = mVectorOffset;
+        int quaternionOffset = mQuaternionOffset;
+
+        localTransformation.setTransformation(
+                positions[offset], positions[offset + 1], positions[offset + 2],
+                orientations[quaternionOffset], orientations[quaternionOffset + 1],
+                orientations[quaternionOffset + 2], orientations[quaternionOffset + 3],
+                scales[offset], scales[offset + 1], scales[offset + 2]);
+
+        if (hasParent) {
+            Matrix44.multiplyAffine(mTransformationMatrix, parentTransformation, localTransformation);
+        }
+    }
+
+    // State of the transformation before the last fixed time step and the current state,
+    // both decomposed into translation, rotation and scale for interpolation
+    private final float[] mPreviousState = new float[Matrix44.TRANSFORMATION_STRIDE];
+    private boolean mPreviousStateStored = false;
+    private int mPreviousWorldVersion;
+    private final float[] mCurrentState = new float[Matrix44.TRANSFORMATION_STRIDE];
+    private int mCurrentStateWorldVersion = -1;
+    private final Matrix44 mInterpolatedTransformationMatrix = new Matrix44();
+
+    /**
+     * Stores the current absolute transformation as the previous state
+     * used for interpolation during rendering.
+     * <p/>
+     * This is called by the engine before every fixed time step. Calling it after
+     * moving the object to a completely new place prevents it from being
+     * interpolated over the whole distance in the next rendered frame.
+     */
+    public void storePreviousState() {
+        int worldVersion = getWorldVersion();
+        if (mPreviousStateStored && mPreviousWorldVersion == worldVersion) {
+            // Object did not move since the previous state was stored
+            return;
+        }
+        if (mCurrentStateWorldVersion == worldVersion) {
+            System.arraycopy(mCurrentState, 0, mPreviousState, 0, Matrix44.TRANSFORMATION_STRIDE);
+        } else {
+            mTransformationMatrix.getTransformation(mPreviousState, 0);
+        }
+        mPreviousWorldVersion = worldVersion;
+        mPreviousStateStored = true;
+    }
+
+    /**
+     * Get the transformation matrix interpolated between the previous state
+     * and the current state.
+     * <p/>
+     * Transformation matrix is absolute. Meaning the transformation is from world's origin.
+     * Position and scale are interpolated linearly and rotation along the shorter arc, so rotating
+     * objects keep their shape.
+     *
+     * @param alpha Interpolation factor, 0 is the previous state and 1 the current state.
+     * @return The absolute interpolated transformation matrix.
+     * @see com.jakubpetriska.gameengine.api.Time#getInterpolationAlpha()
+     */
+    public Matrix44 getInterpolatedTransformationMatrix(float alpha) {
+        Matrix44 transformationMatrix = getTransformationMatrix();
+        int worldVersion = getWorldVersion();
+        if (!mPreviousStateStored || alpha >= 1 || mPreviousWorldVersion == worldVersion) {
+            return transformationMatrix;
+        }
+        if (mCurrentStateWorldVersion != worldVersion) {
+            // Current state is decomposed once per step, not for every rendered frame
+            transformationMatrix.getTransformation(mCurrentState, 0);
+            mCurrentStateWorldVersion = worldVersion;
+        }
+        mInterpolatedTransformationMatrix.setInterpolatedTransformation(
+                mPreviousState, 0, mCurrentState, 0, alpha);
+        return mInterpolatedTransformationMatrix;
+    }
 }
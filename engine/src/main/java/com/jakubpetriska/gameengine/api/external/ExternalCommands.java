@@ -0,0 +1,62 @@
+package com.jakubpetriska.gameengine.api.external;
+
+import com.jakubpetriska.gameengine.api.Application;
+
+import java.util.concurrent.Future;
+
+/**
+ * Allows running code on the engine thread from other threads, for example from UI thread.
+ * <p/>
+ * Commands can be submitted from any thread without blocking. They are run on the engine
+ * thread in the order in which they were submitted at the start of the next frame, before
+ * the scene is updated, so they can safely access the scene. Number of waiting commands
+ * is limited, when the queue is full new commands are rejected.
+ * <p/>
+ * Instance of this class is passed outside of the engine to allow this functionality.
+ * Commands run arbitrary code which cannot be recorded by
+ * {@link com.jakubpetriska.gameengine.engine.SessionRecorder}, so only the number of commands
+ * run in every frame is recorded. To replay such session the same commands must be submitted
+ * again during the replay, every frame then runs exactly as many of them as during recording.
+ * Input which should be replayed without any help from the outside must be sent through
+ * {@link ExternalMessenger}.
+ */
+public interface ExternalCommands {
+
+    /**
+     * Submits command which is run on the engine thread. Exception thrown by the command
+     * is logged into debug log.
+     *
+     * @param command Command to run.
+     * @return True if the command was queued, false if the queue is full.
+     */
+    boolean submit(Command<?> command);
+
+    /**
+     * Submits command which is run on the engine thread and returns future of it's result.
+     * If the command throws an exception it is thrown from {@link Future#get()}.
+     * If the engine finishes before the command runs the future is cancelled.
+     * <p/>
+     * Callers should not block on the future from a thread the engine thread waits for.
+     *
+     * @param command Command to run.
+     * @param <T>     Type of the result.
+     * @return Future of the command's result or null if the queue is full.
+     */
+    <T> Future<T> submitForResult(Command<T> command);
+
+    /**
+     * Code run on the engine thread.
+     *
+     * @param <T> Type of the result.
+     */
+    interface Command<T> {
+
+        /**
+         * Called on the engine thread.
+         *
+         * @param application Application of the engine.
+         * @return Result of the command, can be null.
+         */
+        T run(Application application);
+    }
+}
@@ -17,9 +17,19 @@ package com.jakubpetriska.gameengine.api.math;
  * <p/>
  * All operations performed on this matrix are equal to multiplying
  * this matrix from left with the matrix containing the appropriate operation.
+ * <p/>
+ * Transformation matrices of the engine are affine, their last row is 0, 0, 0, 1.
+ * Operations with affine in their name rely on it and skip the last row, which saves
+ * about half of the work. Their static variants operating on float arrays work with matrices
+ * stored at given offsets, so they can process many matrices stored in one array.
  */
 public class Matrix44 {
 
+    /**
+     * Number of values of transformation decomposed by {@link Matrix44#getTransformation(float[], int)}.
+     */
+    public static final int TRANSFORMATION_STRIDE = 10;
+
     private final float[] mValues;
 
     /**
@@ -80,6 +90,54 @@ public class Matrix44 {
         }
     }
 
+    /**
+     * Set this matrix to transformation which scales, then rotates and then translates.
+     * This is the same as setting it to identity and calling {@link Matrix44#scale(float, float, float)},
+     * rotations and {@link Matrix44#translate(float, float, float)}, but it is computed at once.
+     *
+     * @param translationX Translation in X axis direction.
+     * @param translationY Translation in Y axis direction.
+     * @param translationZ Translation in Z axis direction.
+     * @param rotationX    X value of the unit quaternion representing the rotation.
+     * @param rotationY    Y value of the unit quaternion representing the rotation.
+     * @param rotationZ    Z value of the unit quaternion representing the rotation.
+     * @param rotationW    W value of the unit quaternion representing the rotation.
+     * @param scaleX       Scale in direction of X axis.
+     * @param scaleY       Scale in direction of Y axis.
+     * @param scaleZ       Scale in direction of Z axis.
+     */
+    public void setTransformation(float translationX, float translationY, float translationZ,
+                                  float rotationX, float rotationY, float rotationZ, float rotationW,
+                                  float scaleX, float scaleY, float scaleZ) {
+        float xx = rotationX * rotationX;
+        float yy = rotationY * rotationY;
+        float zz = rotationZ * rotationZ;
+        float xy = rotationX * rotationY;
+        float xz = rotationX * rotationZ;
+        float yz = rotationY * rotationZ;
+        float wx = rotationW * rotationX;
+        float wy = rotationW * rotationY;
+        float wz = rotationW * rotationZ;
+
+        // Columns of the rotation matrix scaled by the scale of their axis
+        mValues[0] = (1 - 2 * (yy + zz)) * scaleX;
+        mValues[1] = 2 * (xy + wz) * scaleX;
+        mValues[2] = 2 * (xz - wy) * scaleX;
+        mValues[3] = 0;
+        mValues[4] = 2 * (xy - wz) * scaleY;
+        mValues[5] = (1 - 2 * (xx + zz)) * scaleY;
+        mValues[6] = 2 * (yz + wx) * scaleY;
+        mValues[7] = 0;
+        mValues[8] = 2 * (xz + wy) * scaleZ;
+        mValues[9] = 2 * (yz - wx) * scaleZ;
+        mValues[10] = (1 - 2 * (xx + yy)) * scaleZ;
+        mValues[11] = 0;
+        mValues[12] = translationX;
+        mValues[13] = translationY;
+        mValues[14] = translationZ;
+        mValues[15] = 1;
+    }
+
     /**
      * Translate this matrix.
      *
@@ -244,6 +302,311 @@ public class Matrix44 {
         res[15] = l[3] * r[12] + l[7] * r[13] + l[11] * r[14] + l[15] * r[15];
     }
 
+    /**
+     * Multiply two affine matrices. Last row of both matrices is expected to be 0, 0, 0, 1
+     * and it is not read.
+     *
+     * @param result Matrix in which the result is stored. Can be one of the multiplied matrices.
+     * @param left   Matrix on the left side of multiplication.
+     * @param right  Matrix on the right side of multiplication.
+     */
+    public static void multiplyAffine(Matrix44 result, Matrix44 left, Matrix44 right) {
+        multiplyAffine(result.getValues(), 0, left.getValues(), 0, right.getValues(), 0);
+    }
+
+    /**
+     * Multiply two affine matrices stored in arrays. Last row of both matrices is expected
+     * to be 0, 0, 0, 1 and it is not read.
+     *
+     * @param result       Array in which the result is stored. Can overlap with the multiplied matrices.
+     * @param resultOffset Offset of the result in it's array.
+     * @param left         Array containing matrix on the left side of multiplication.
+     * @param leftOffset   Offset of the left matrix in it's array.
+     * @param right        Array containing matrix on the right side of multiplication.
+     * @param rightOffset  Offset of the right matrix in it's array.
+     */
+    public static void multiplyAffine(float[] result, int resultOffset,
+                                      float[] left, int leftOffset,
+                                      float[] right, int rightOffset) {
+        float l0 = left[leftOffset], l1 = left[leftOffset + 1], l2 = left[leftOffset + 2];
+        float l4 = left[leftOffset + 4], l5 = left[leftOffset + 5], l6 = left[leftOffset + 6];
+        float l8 = left[leftOffset + 8], l9 = left[leftOffset + 9], l10 = left[leftOffset + 10];
+        float l12 = left[leftOffset + 12], l13 = left[leftOffset + 13], l14 = left[leftOffset + 14];
+
+        float r0 = right[rightOffset], r1 = right[rightOffset + 1], r2 = right[rightOffset + 2];
+        float r4 = right[rightOffset + 4], r5 = right[rightOffset + 5], r6 = right[rightOffset + 6];
+        float r8 = right[rightOffset + 8], r9 = right[rightOffset + 9], r10 = right[rightOffset + 10];
+        float r12 = right[rightOffset + 12], r13 = right[rightOffset + 13], r14 = right[rightOffset + 14];
+
+        result[resultOffset] = l0 * r0 + l4 * r1 + l8 * r2;
+        result[resultOffset + 1] = l1 * r0 + l5 * r1 + l9 * r2;
+        result[resultOffset + 2] = l2 * r0 + l6 * r1 + l10 * r2;
+        result[resultOffset + 3] = 0;
+
+        result[resultOffset + 4] = l0 * r4 + l4 * r5 + l8 * r6;
+        result[resultOffset + 5] = l1 * r4 + l5 * r5 + l9 * r6;
+        result[resultOffset + 6] = l2 * r4 + l6 * r5 + l10 * r6;
+        result[resultOffset + 7] = 0;
+
+        result[resultOffset + 8] = l0 * r8 + l4 * r9 + l8 * r10;
+        result[resultOffset + 9] = l1 * r8 + l5 * r9 + l9 * r10;
+        result[resultOffset + 10] = l2 * r8 + l6 * r9 + l10 * r10;
+        result[resultOffset + 11] = 0;
+
+        result[resultOffset + 12] = l0 * r12 + l4 * r13 + l8 * r14 + l12;
+        result[resultOffset + 13] = l1 * r12 + l5 * r13 + l9 * r14 + l13;
+        result[resultOffset + 14] = l2 * r12 + l6 * r13 + l10 * r14 + l14;
+        result[resultOffset + 15] = 1;
+    }
+
+    /**
+     * Multiply many pairs of affine matrices stored one after another in arrays.
+     * The i-th result is the product of the i-th left and the i-th right matrix.
+     *
+     * @param result       Array in which the results are stored.
+     * @param resultOffset Offset of the first result in it's array.
+     * @param left         Array containing matrices on the left side of multiplication.
+     * @param leftOffset   Offset of the first left matrix in it's array.
+     * @param right        Array containing matrices on the right side of multiplication.
+     * @param rightOffset  Offset of the first right matrix in it's array.
+     * @param count        Number of multiplied pairs.
+     */
+    public static void multiplyAffine(float[] result, int resultOffset,
+                                      float[] left, int leftOffset,
+                                      float[] right, int rightOffset, int count) {
+        for (int i = 0; i < count; ++i) {
+            int offset = i * 16;
+            multiplyAffine(result, resultOffset + offset,
+                    left, leftOffset + offset, right, rightOffset + offset);
+        }
+    }
+
+    /**
+     * Invert affine transformation matrix, which is a matrix whose last row is 0, 0, 0, 1.
+     * This is much cheaper than inverting a general matrix.
+     *
+     * @param result Matrix in which the result is stored. Can be the source matrix.
+     * @param source Inverted matrix.
+     * @return True if the matrix was inverted, false if it is singular, in which case
+     * the result is not changed.
+     */
+    public static boolean invertAffine(Matrix44 result, Matrix44 source) {
+        return invertAffine(result.getValues(), 0, source.getValues(), 0);
+    }
+
+    /**
+     * Invert many affine transformation matrices stored one after another in an array.
+     *
+     * @param result       Array in which the inverses are stored.
+     * @param resultOffset Offset of the first inverse in it's array.
+     * @param source       Array containing inverted matrices.
+     * @param sourceOffset Offset of the first inverted matrix in it's array.
+     * @param count        Number of inverted matrices.
+     * @return Number of singular matrices, whose results were not changed.
+     */
+    public static int invertAffine(float[] result, int resultOffset,
+                                   float[] source, int sourceOffset, int count) {
+        int singularCount = 0;
+        for (int i = 0; i < count; ++i) {
+            int offset = i * 16;
+            if (!invertAffine(result, resultOffset + offset, source, sourceOffset + offset)) {
+                ++singularCount;
+            }
+        }
+        return singularCount;
+    }
+
+    /**
+     * Invert affine transformation matrix stored in an array.
+     *
+     * @param result       Array in which the result is stored. Can overlap with the source matrix.
+     * @param resultOffset Offset of the result in it's array.
+     * @param source       Array containing inverted matrix.
+     * @param sourceOffset Offset of the inverted matrix in it's array.
+     * @return True if the matrix was inverted, false if it is singular, in which case
+     * the result is not changed.
+     */
+    public static boolean invertAffine(float[] result, int resultOffset, float[] source, int sourceOffset) {
+        float[] m = source;
+        int o = sourceOffset;
+        float m00 = m[o], m10 = m[o + 1], m20 = m[o + 2];
+        float m01 = m[o + 4], m11 = m[o + 5], m21 = m[o + 6];
+        float m02 = m[o + 8], m12 = m[o + 9], m22 = m[o + 10];
+        float tx = m[o + 12], ty = m[o + 13], tz = m[o + 14];
+
+        // Cofactors of the upper left 3x3 part
+        float c00 = m11 * m22 - m12 * m21;
+        float c01 = m12 * m20 - m10 * m22;
+        float c02 = m10 * m21 - m11 * m20;
+        float determinant = m00 * c00 + m01 * c01 + m02 * c02;
+        if (determinant == 0) {
+            return false;
+        }
+        float inverseDeterminant = 1 / determinant;
+
+        float i00 = c00 * inverseDeterminant;
+        float i01 = (m02 * m21 - m01 * m22) * inverseDeterminant;
+        float i02 = (m01 * m12 - m02 * m11) * inverseDeterminant;
+        float i10 = c01 * inverseDeterminant;
+        float i11 = (m00 * m22 - m02 * m20) * inverseDeterminant;
+        float i12 = (m02 * m10 - m00 * m12) * inverseDeterminant;
+        float i20 = c02 * inverseDeterminant;
+        float i21 = (m01 * m20 - m00 * m21) * inverseDeterminant;
+        float i22 = (m00 * m11 - m01 * m10) * inverseDeterminant;
+
+        float[] r = result;
+        int ro = resultOffset;
+        r[ro] = i00;
+        r[ro + 1] = i10;
+        r[ro + 2] = i20;
+        r[ro + 3] = 0;
+        r[ro + 4] = i01;
+        r[ro + 5] = i11;
+        r[ro + 6] = i21;
+        r[ro + 7] = 0;
+        r[ro + 8] = i02;
+        r[ro + 9] = i12;
+        r[ro + 10] = i22;
+        r[ro + 11] = 0;
+        // Inverted translation is the translation transformed by the inverted 3x3 part
+        r[ro + 12] = -(i00 * tx + i01 * ty + i02 * tz);
+        r[ro + 13] = -(i10 * tx + i11 * ty + i12 * tz);
+        r[ro + 14] = -(i20 * tx + i21 * ty + i22 * tz);
+        r[ro + 15] = 1;
+        return true;
+    }
+
+    /**
+     * Decomposes this affine transformation matrix into translation, rotation quaternion and scale
+     * stored in this order in {@link Matrix44#TRANSFORMATION_STRIDE} values. Setting them back
+     * using {@link Matrix44#setTransformation} gives this matrix again.
+     * <p/>
+     * Shear, which appears when a rotated transformation is combined with non-uniform scale
+     * of it's parent, cannot be represented this way and is lost.
+     *
+     * @param result Array into which the values are stored.
+     * @param offset Offset of the values in the array.
+     */
+    public void getTransformation(float[] result, int offset) {
+        float[] m = mValues;
+        float scaleX = (float) Math.sqrt(m[0] * m[0] + m[1] * m[1] + m[2] * m[2]);
+        float scaleY = (float) Math.sqrt(m[4] * m[4] + m[5] * m[5] + m[6] * m[6]);
+        float scaleZ = (float) Math.sqrt(m[8] * m[8] + m[9] * m[9] + m[10] * m[10]);
+        // Mirroring is represented by negative scale in X axis
+        float determinant = m[0] * (m[5] * m[10] - m[9] * m[6])
+                - m[4] * (m[1] * m[10] - m[9] * m[2])
+                + m[8] * (m[1] * m[6] - m[5] * m[2]);
+        if (determinant < 0) {
+            scaleX = -scaleX;
+        }
+
+        // Rotation matrix is the matrix with columns divided by scales
+        float inverseX = scaleX != 0 ? 1 / scaleX : 1;
+        float inverseY = scaleY != 0 ? 1 / scaleY : 1;
+        float inverseZ = scaleZ != 0 ? 1 / scaleZ : 1;
+        float r00 = m[0] * inverseX;
+        float r10 = m[1] * inverseX;
+        float r20 = m[2] * inverseX;
+        float r01 = m[4] * inverseY;
+        float r11 = m[5] * inverseY;
+        float r21 = m[6] * inverseY;
+        float r02 = m[8] * inverseZ;
+        float r12 = m[9] * inverseZ;
+        float r22 = m[10] * inverseZ;
+
+        float x;
+        float y;
+        float z;
+        float w;
+        float trace = r00 + r11 + r22;
+        if (trace > 0) {
+            float s = (float) Math.sqrt(trace + 1) * 2;
+            w = 0.25f * s;
+            x = (r21 - r12) / s;
+            y = (r02 - r20) / s;
+            z = (r10 - r01) / s;
+        } else if (r00 > r11 && r00 > r22) {
+            float s = (float) Math.sqrt(1 + r00 - r11 - r22) * 2;
+            w = (r21 - r12) / s;
+            x = 0.25f * s;
+            y = (r01 + r10) / s;
+            z = (r02 + r20) / s;
+        } else if (r11 > r22) {
+            float s = (float) Math.sqrt(1 + r11 - r00 - r22) * 2;
+            w = (r02 - r20) / s;
+            x = (r01 + r10) / s;
+            y = 0.25f * s;
+            z = (r12 + r21) / s;
+        } else {
+            float s = (float) Math.sqrt(1 + r22 - r00 - r11) * 2;
+            w = (r10 - r01) / s;
+            x = (r02 + r20) / s;
+            y = (r12 + r21) / s;
+            z = 0.25f * s;
+        }
+
+        result[offset] = m[12];
+        result[offset + 1] = m[13];
+        result[offset + 2] = m[14];
+        result[offset + 3] = x;
+        result[offset + 4] = y;
+        result[offset + 5] = z;
+        result[offset + 6] = w;
+        Quaternion.normalize(result, offset + 3);
+        result[offset + 7] = scaleX;
+        result[offset + 8] = scaleY;
+        result[offset + 9] = scaleZ;
+    }
+
+    /**
+     * Set this matrix to transformation interpolated between two transformations decomposed
+     * by {@link Matrix44#getTransformation(float[], int)}.
+     * <p/>
+     * Translation and scale are interpolated linearly, rotation is interpolated linearly
+     * along the shorter arc and normalized. Unlike interpolating values of the matrices this keeps
+     * rotating objects from shrinking and shearing.
+     *
+     * @param from       Array containing transformation representing the interpolation factor 0.
+     * @param fromOffset Offset of the transformation in the from array.
+     * @param to         Array containing transformation representing the interpolation factor 1.
+     * @param toOffset   Offset of the transformation in the to array.
+     * @param factor     Interpolation factor.
+     */
+    public void setInterpolatedTransformation(float[] from, int fromOffset,
+                                              float[] to, int toOffset, float factor) {
+        float translationX = from[fromOffset] + (to[toOffset] - from[fromOffset]) * factor;
+        float translationY = from[fromOffset + 1] + (to[toOffset + 1] - from[fromOffset + 1]) * factor;
+        float translationZ = from[fromOffset + 2] + (to[toOffset + 2] - from[fromOffset + 2]) * factor;
+
+        float fromX = from[fromOffset + 3];
+        float fromY = from[fromOffset + 4];
+        float fromZ = from[fromOffset + 5];
+        float fromW = from[fromOffset + 6];
+        float toX = to[toOffset + 3];
+        float toY = to[toOffset + 4];
+        float toZ = to[toOffset + 5];
+        float toW = to[toOffset + 6];
+        // Quaternions q and -q represent the same rotation, the closer one takes the shorter arc
+        if (fromX * toX + fromY * toY + fromZ * toZ + fromW * toW < 0) {
+            toX = -toX;
+            toY = -toY;
+            toZ = -toZ;
+            toW = -toW;
+        }
+        float rotationX = fromX + (toX - fromX) * factor;
+        float rotationY = fromY + (toY - fromY) * factor;
+        float rotationZ = fromZ + (toZ - fromZ) * factor;
+        float rotationW = fromW + (toW - fromW) * factor;
+        float length = (float) Math.sqrt(rotationX * rotationX + rotationY * rotationY
+                + rotationZ * rotationZ + rotationW * rotationW);
+
+        setTransformation(translationX, translationY, translationZ,
+                rotationX / length, rotationY / length, rotationZ / length, rotationW / length,
+                from[fromOffset + 7] + (to[toOffset + 7] - from[fromOffset + 7]) * factor,
+                from[fromOffset + 8] + (to[toOffset + 8] - from[fromOffset + 8]) * factor,
+                from[fromOffset + 9] + (to[toOffset + 9] - from[fromOffset + 9]) * factor);
+    }
+
     /**
      * Transform vector by this matrix.
      *
@@ -267,6 +630,25 @@ public class Matrix44 {
         result.set(x, y, z);
     }
 
+    /**
+     * Transform many vectors stored one after another in an array by this matrix.
+     *
+     * @param vectors Array containing three values for every vector, transformed vectors
+     *                are stored in place.
+     * @param offset  Offset of the first vector in the array.
+     * @param count   Number of transformed vectors.
+     */
+    public void transformVectors(float[] vectors, int offset, int count) {
+        float[] m = mValues;
+        for (int i = 0; i < count; ++i) {
+            int o = offset + i * 3;
+            float x = vectors[o], y = vectors[o + 1], z = vectors[o + 2];
+            vectors[o] = x * m[0] + y * m[4] + z * m[8];
+            vectors[o + 1] = x * m[1] + y * m[5] + z * m[9];
+            vectors[o + 2] = x * m[2] + y * m[6] + z * m[10];
+        }
+    }
+
     /**
      * Transform point by this matrix.
      *
@@ -289,4 +671,24 @@ public class Matrix44 {
 
         result.set(x, y, z);
     }
+
+    /**
+     * Transform many points stored one after another in an array by this matrix.
+     * The matrix is expected to be affine.
+     *
+     * @param points Array containing three values for every point, transformed points
+     *               are stored in place.
+     * @param offset Offset of the first point in the array.
+     * @param count  Number of transformed points.
+     */
+    public void transformPoints(float[] points, int offset, int count) {
+        float[] m = mValues;
+        for (int i = 0; i < count; ++i) {
+            int o = offset + i * 3;
+            float x = points[o], y = points[o + 1], z = points[o + 2];
+            points[o] = x * m[0] + y * m[4] + z * m[8] + m[12];
+            points[o + 1] = x * m[1] + y * m[5] + z * m[9] + m[13];
+            points[o + 2] = x * m[2] + y * m[6] + z * m[10] + m[14];
+        }
+    }
 }
@@ -0,0 +1,247 @@
+package com.jakubpetriska.gameengine.api.math;
+
+/**
+ * Represents rotation as a unit quaternion.
+ * <p/>
+ * Euler angles used by {@link com.jakubpetriska.gameengine.api.components.Transform} are
+ * in degrees and are applied around Z axis first, then around X axis and then around Y axis.
+ */
+public class Quaternion {
+
+    /**
+     * Number of floats occupied by one quaternion in arrays, values are in order x, y, z, w.
+     */
+    public static final int STRIDE = 4;
+
+    private final float[] mValues;
+
+    /**
+     * Create a new quaternion representing no rotation.
+     */
+    public Quaternion() {
+        mValues = new float[STRIDE];
+        mValues[3] = 1;
+    }
+
+    /**
+     * Create a new quaternion from given values.
+     *
+     * @param x X value of the new quaternion.
+     * @param y Y value of the new quaternion.
+     * @param z Z value of the new quaternion.
+     * @param w W value of the new quaternion.
+     */
+    public Quaternion(float x, float y, float z, float w) {
+        mValues = new float[STRIDE];
+        set(x, y, z, w);
+    }
+
+    /**
+     * Returns the array backing this quaternion.
+     *
+     * @return The array backing this quaternion.
+     */
+    public float[] getValues() {
+        return mValues;
+    }
+
+    /**
+     * Set values in this quaternion.
+     *
+     * @param x Value to set as X.
+     * @param y Value to set as Y.
+     * @param z Value to set as Z.
+     * @param w Value to set as W.
+     */
+    public void set(float x, float y, float z, float w) {
+        mValues[0] = x;
+        mValues[1] = y;
+        mValues[2] = z;
+        mValues[3] = w;
+    }
+
+    /**
+     * Set values in this quaternion from other quaternion.
+     *
+     * @param source Quaternion from which values are set into this quaternion.
+     */
+    public void set(Quaternion source) {
+        System.arraycopy(source.mValues, 0, mValues, 0, STRIDE);
+    }
+
+    /**
+     * Set this quaternion to no rotation.
+     */
+    public void setIdentity() {
+        set(0, 0, 0, 1);
+    }
+
+    public float getX() {
+        return mValues[0];
+    }
+
+    public float getY() {
+        return mValues[1];
+    }
+
+    public float getZ() {
+        return mValues[2];
+    }
+
+    public float getW() {
+        return mValues[3];
+    }
+
+    /**
+     * Set this quaternion to rotation around given axis.
+     *
+     * @param axisX X value of the axis.
+     * @param axisY Y value of the axis.
+     * @param axisZ Z value of the axis.
+     * @param angle Angle of the rotation in degrees.
+     */
+    public void setFromAxisAngle(float axisX, float axisY, float axisZ, float angle) {
+        float length = (float) Math.sqrt(axisX * axisX + axisY * axisY + axisZ * axisZ);
+        double halfAngle = Math.toRadians(angle) / 2;
+        float sin = (float) Math.sin(halfAngle) / length;
+        set(axisX * sin, axisY * sin, axisZ * sin, (float) Math.cos(halfAngle));
+    }
+
+    /**
+     * Set this quaternion to rotation given by Euler angles.
+     *
+     * @param x Rotation around X axis in degrees.
+     * @param y Rotation around Y axis in degrees.
+     * @param z Rotation around Z axis in degrees.
+     */
+    public void setFromEulerAngles(float x, float y, float z) {
+        fromEulerAngles(mValues, 0, x, y, z);
+    }
+
+    /**
+     * Stores Euler angles of this rotation into given vector. Angles are in degrees, rotation around
+     * X axis is in range -90 to 90, rotations around other axes are in range -180 to 180.
+     *
+     * @param result Vector in which the angles are stored.
+     */
+    public void getEulerAngles(Vector3 result) {
+        toEulerAngles(mValues, 0, result.getValues(), 0);
+    }
+
+    /**
+     * Normalize this quaternion to unit length.
+     */
+    public void normalize() {
+        normalize(mValues, 0);
+    }
+
+    /**
+     * Normalize quaternion stored in an array to unit length.
+     *
+     * @param quaternion Array containing the quaternion.
+     * @param offset     Offset of the quaternion in the array.
+     */
+    public static void normalize(float[] quaternion, int offset) {
+        float x = quaternion[offset];
+        float y = quaternion[offset + 1];
+        float z = quaternion[offset + 2];
+        float w = quaternion[offset + 3];
+        float length = (float) Math.sqrt(x * x + y * y + z * z + w * w);
+        quaternion[offset] = x / length;
+        quaternion[offset + 1] = y / length;
+        quaternion[offset + 2] = z / length;
+        quaternion[offset + 3] = w / length;
+    }
+
+    /**
+     * Multiply two quaternions. Result is the rotation by the right quaternion followed
+     * by the rotation by the left quaternion. Result can be one of the multiplied quaternions.
+     *
+     * @param result Quaternion in which the result is stored.
+     * @param left   Quaternion on the left side of multiplication.
+     * @param right  Quaternion on the right side of multiplication.
+     */
+    public static void multiply(Quaternion result, Quaternion left, Quaternion right) {
+        multiply(result.mValues, 0, left.mValues, 0, right.mValues, 0);
+    }
+
+    /**
+     * Multiply two quaternions stored in arrays, see {@link Quaternion#multiply(Quaternion, Quaternion, Quaternion)}.
+     */
+    public static void multiply(float[] result, int resultOffset, float[] left, int leftOffset,
+                                float[] right, int rightOffset) {
+        float lx = left[leftOffset];
+        float ly = left[leftOffset + 1];
+        float lz = left[leftOffset + 2];
+        float lw = left[leftOffset + 3];
+        float rx = right[rightOffset];
+        float ry = right[rightOffset + 1];
+        float rz = right[rightOffset + 2];
+        float rw = right[rightOffset + 3];
+        result[resultOffset] = lw * rx + lx * rw + ly * rz - lz * ry;
+        result[resultOffset + 1] = lw * ry - lx * rz + ly * rw + lz * rx;
+        result[resultOffset + 2] = lw * rz + lx * ry - ly * rx + lz * rw;
+        result[resultOffset + 3] = lw * rw - lx * rx - ly * ry - lz * rz;
+    }
+
+    /**
+     * Stores rotation given by Euler angles into an array as a quaternion.
+     *
+     * @param result Array in which the quaternion is stored.
+     * @param offset Offset of the quaternion in the array.
+     * @param x      Rotation around X axis in degrees.
+     * @param y      Rotation around Y axis in degrees.
+     * @param z      Rotation around Z axis in degrees.
+     */
+    public static void fromEulerAngles(float[] result, int offset, float x, float y, float z) {
+        double halfX = Math.toRadians(x) / 2;
+        double halfY = Math.toRadians(y) / 2;
+        double halfZ = Math.toRadians(z) / 2;
+        float sx = (float) Math.sin(halfX);
+        float cx = (float) Math.cos(halfX);
+        float sy = (float) Math.sin(halfY);
+        float cy = (float) Math.cos(halfY);
+        float sz = (float) Math.sin(halfZ);
+        float cz = (float) Math.cos(halfZ);
+        // Product of rotations around Y, X and Z axes
+        result[offset] = cy * sx * cz + sy * cx * sz;
+        result[offset + 1] = sy * cx * cz - cy * sx * sz;
+        result[offset + 2] = cy * cx * sz - sy * sx * cz;
+        result[offset + 3] = cy * cx * cz + sy * sx * sz;
+    }
+
+    /**
+     * Stores Euler angles in degrees of a quaternion stored in an array into another array,
+     * see {@link Quaternion#getEulerAngles(Vector3)}.
+     *
+     * @param quaternion       Array containing the quaternion.
+     * @param quaternionOffset Offset of the quaternion in the array.
+     * @param result           Array in which the angles are stored.
+     * @param resultOffset     Offset of the angles in the array.
+     */
+    public static void toEulerAngles(float[] quaternion, int quaternionOffset, float[] result, int resultOffset) {
+        float x = quaternion[quaternionOffset];
+        float y = quaternion[quaternionOffset + 1];
+        float z = quaternion[quaternionOffset + 2];
+        float w = quaternion[quaternionOffset + 3];
+        // Elements of the rotation matrix from which the angles are extracted
+        float m12 = 2 * (y * z - x * w);
+        float m10 = 2 * (x * y + z * w);
+        float m11 = 1 - 2 * (x * x + z * z);
+        // Cosine is computed from other elements since asin loses precision near the gimbal lock
+        float cosX = (float) Math.sqrt(m10 * m10 + m11 * m11);
+        result[resultOffset] = (float) Math.toDegrees(Math.atan2(-m12, cosX));
+        if (cosX > 0.0001f) {
+            float m02 = 2 * (x * z + y * w);
+            float m22 = 1 - 2 * (x * x + y * y);
+            result[resultOffset + 1] = (float) Math.toDegrees(Math.atan2(m02, m22));
+            result[resultOffset + 2] = (float) Math.toDegrees(Math.atan2(m10, m11));
+        } else {
+            // Gimbal lock, only the sum or difference of rotations around Y and Z axes is defined
+            float m00 = 1 - 2 * (y * y + z * z);
+            float m20 = 2 * (x * z - y * w);
+            result[resultOffset + 1] = (float) Math.toDegrees(Math.atan2(-m20, m00));
+            result[resultOffset + 2] = 0;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.jakubpetriska.gameengine.engine;
+
+import com.jakubpetriska.gameengine.api.MeshData;
+import com.jakubpetriska.gameengine.engine.config.model.initial_scene_state.ISScene;
+import com.jakubpetriska.gameengine.engine.config.model.scenes_config.SCScenes;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds immutable assets shared by multiple {@link Engine Engines}, so every engine
+ * does not have to load and keep it's own copy.
+ * <p/>
+ * Shared are parsed meshes, scene definitions and the scenes configuration.
+ * Assets are identified by their paths, so all engines sharing the cache must
+ * read assets from the same place and use renderers whose {@link MeshData} can be shared,
+ * such as {@link com.jakubpetriska.gameengine.headless.HeadlessRenderer}.
+ * <p/>
+ * Cache can be used from any thread. When two engines load the same asset at the same time
+ * both load it, but only one instance is kept.
+ *
+ * @see Engine#setAssetCache(AssetCache)
+ */
+public class AssetCache {
+
+    private final ConcurrentHashMap<String, MeshData> mMeshes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ISScene> mSceneDefinitions = new ConcurrentHashMap<>();
+    private volatile SCScenes mScenesConfig;
+
+    /**
+     * Returns cached mesh.
+     *
+     * @param meshPath Path to the mesh file or name of the primitive mesh.
+     * @return Cached mesh or null if mesh is not cached.
+     */
+    public MeshData getMeshData(String meshPath) {
+        return mMeshes.get(meshPath);
+    }
+
+    /**
+     * Stores loaded mesh.
+     *
+     * @param meshPath Path to the mesh file or name of the primitive mesh.
+     * @param meshData Loaded mesh.
+     * @return Mesh that is cached for the path, the stored one or one stored before.
+     */
+    public MeshData putMeshData(String meshPath, MeshData meshData) {
+        MeshData cached = mMeshes.putIfAbsent(meshPath, meshData);
+        return cached != null ? cached : meshData;
+    }
+
+    /**
+     * Returns the number of cached meshes.
+     *
+     * @return Number of cached meshes.
+     */
+    public int getMeshCount() {
+        return mMeshes.size();
+    }
+
+    ISScene getSceneDefinition(String sceneFilePath) {
+        return mSceneDefinitions.get(sceneFilePath);
+    }
+
+    ISScene putSceneDefinition(String sceneFilePath, ISScene scene) {
+        ISScene cached = mSceneDefinitions.putIfAbsent(sceneFilePath, scene);
+        return cached != null ? cached : scene;
+    }
+
+    SCScenes getScenesConfig() {
+        return mScenesConfig;
+    }
+
+    void putScenesConfig(SCScenes scenesConfig) {
+        mScenesConfig = scenesConfig;
+    }
+}
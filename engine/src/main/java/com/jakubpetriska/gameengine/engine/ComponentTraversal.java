@@ -0,0 +1,372 @@
+package com.jakubpetriska.gameengine.engine;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.ThreadSafeUpdate;
+import com.jakubpetriska.gameengine.api.components.Transform;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Holds all {@link Component Components} of the scene in a flat array in depth first order,
+ * so engine can iterate over them in a simple loop instead of walking the hierarchy.
+ * <p/>
+ * Besides the array of all components there are dispatch arrays containing only components
+ * that override {@link Component#update()} or {@link Component#postUpdate()}, so the empty
+ * base implementations are never called.
+ * <p/>
+ * Components of every top level {@link GameObject} and it's children form a contiguous span
+ * of every array. When hierarchy or components of an object change only the span of it's top level
+ * object is collected again, other spans are copied. Changes are applied when the traversal is
+ * rebuilt by {@link Engine}, so components added during a frame are updated from the next frame.
+ * Components removed during a frame stay in the arrays until then and must be skipped using
+ * {@link Component#isActiveAndEnabled()}.
+ * <p/>
+ * Disabled components and components of inactive objects stay in the dispatch arrays as well,
+ * so activating or deactivating an object does not rebuild anything. Span of every object with
+ * children is headed in the dispatch arrays by it's {@link Transform}, which holds the length
+ * of the span, so the engine skips whole subtree of an inactive object at once. Only disabled
+ * components of active objects are skipped one by one.
+ * <p/>
+ * {@link Transform Transforms} of all objects are also kept in a separate array. Since parents
+ * always come before their children the engine can compute all world matrices
+ * in a single pass over it.
+ */
+public class ComponentTraversal {
+
+    private Scene mScene;
+
+    private final SpanArray mAllComponents = new SpanArray();
+    private final SpanArray mUpdateComponents = new SpanArray();
+    private final SpanArray mPostUpdateComponents = new SpanArray();
+    private final SpanArray mTransforms = new SpanArray();
+
+    private boolean[] mSubtreeThreadSafe = new boolean[0];
+    private boolean[] mDirtySubtrees = new boolean[0];
+    private int mSubtreeCount = 0;
+
+    private final IdentityHashMap<GameObject, Integer> mSubtreeIndices = new IdentityHashMap<>();
+
+    // Marked from worker threads during parallel update
+    private volatile boolean mDirty = true;
+    private volatile boolean mFullRebuildNeeded = true;
+
+    /**
+     * Array of components divided into spans of top level objects. Holds a back buffer
+     * into which the array is rebuilt.
+     */
+    static class SpanArray {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private Component[] mComponents = new Component[INITIAL_CAPACITY];
+        private Component[] mBackComponents = new Component[INITIAL_CAPACITY];
+        private int mCount = 0;
+        private int mBackCount = 0;
+
+        // Start of span of every top level object, last value is the component count
+        private int[] mSubtreeStarts = new int[1];
+        private int[] mBackSubtreeStarts = new int[1];
+
+        // Number of components following a span header, 0 for components that are not headers,
+        // spans are relative so they stay valid when the array is copied
+        private int[] mSpanLengths = new int[INITIAL_CAPACITY];
+        private int[] mBackSpanLengths = new int[INITIAL_CAPACITY];
+
+        /**
+         * Returns the array of components. Only first {@link SpanArray#getCount()}
+         * values are valid.
+         *
+         * @return Array of components in depth first order.
+         */
+        Component[] getComponents() {
+            return mComponents;
+        }
+
+        int getCount() {
+            return mCount;
+        }
+
+        /**
+         * Returns lengths of object spans. Component whose value is not 0 is the {@link Transform}
+         * heading the span of it's object and the value is the number of components in the span
+         * following it. Only first {@link SpanArray#getCount()} values are valid.
+         *
+         * @return Lengths of object spans.
+         */
+        int[] getSpanLengths() {
+            return mSpanLengths;
+        }
+
+        /**
+         * Returns index of the first component of given top level object's subtree.
+         *
+         * @param subtreeIndex Index of the top level object.
+         * @return Index of the first component of the subtree.
+         */
+        int getSubtreeStart(int subtreeIndex) {
+            return mSubtreeStarts[subtreeIndex];
+        }
+
+        /**
+         * Returns index after the last component of given top level object's subtree.
+         *
+         * @param subtreeIndex Index of the top level object.
+         * @return Index after the last component of the subtree.
+         */
+        int getSubtreeEnd(int subtreeIndex) {
+            return mSubtreeStarts[subtreeIndex + 1];
+        }
+
+        private void startBuild(int subtreeCount, boolean fullRebuild) {
+            if (fullRebuild || mBackSubtreeStarts.length != subtreeCount + 1) {
+                mBackSubtreeStarts = new int[subtreeCount + 1];
+            }
+            mBackCount = 0;
+        }
+
+        private void startSubtree(int subtreeIndex) {
+            mBackSubtreeStarts[subtreeIndex] = mBackCount;
+        }
+
+        private void add(Component component) {
+            if (mBackComponents.length == mBackCount) {
+                mBackComponents = Arrays.copyOf(mBackComponents, mBackCount * 2);
+                mBackSpanLengths = Arrays.copyOf(mBackSpanLengths, mBackCount * 2);
+            }
+            mBackSpanLengths[mBackCount] = 0;
+            mBackComponents[mBackCount++] = component;
+        }
+
+        private int startSpan(Transform transform) {
+            add(transform);
+            return mBackCount - 1;
+        }
+
+        private void finishSpan(int headerIndex) {
+            int length = mBackCount - headerIndex - 1;
+            if (length == 0) {
+                // Nothing to skip
+                mBackComponents[--mBackCount] = null;
+            } else {
+                mBackSpanLengths[headerIndex] = length;
+            }
+        }
+
+        private void copySubtree(int subtreeIndex) {
+            int start = mSubtreeStarts[subtreeIndex];
+            int length = mSubtreeStarts[subtreeIndex + 1] - start;
+            if (mBackComponents.length < mBackCount + length) {
+                int capacity = Math.max(mBackCount + length, mBackComponents.length * 2);
+                mBackComponents = Arrays.copyOf(mBackComponents, capacity);
+                mBackSpanLengths = Arrays.copyOf(mBackSpanLengths, capacity);
+            }
+            System.arraycopy(mComponents, start, mBackComponents, mBackCount, length);
+            System.arraycopy(mSpanLengths, start, mBackSpanLengths, mBackCount, length);
+            mBackCount += length;
+        }
+
+        private void finishBuild(int subtreeCount) {
+            mBackSubtreeStarts[subtreeCount] = mBackCount;
+
+            // Drop references to removed components
+            Arrays.fill(mComponents, 0, mCount, null);
+
+            Component[] components = mComponents;
+            mComponents = mBackComponents;
+            mBackComponents = components;
+            int[] spanLengths = mSpanLengths;
+            mSpanLengths = mBackSpanLengths;
+            mBackSpanLengths = spanLengths;
+            int[] subtreeStarts = mSubtreeStarts;
+            mSubtreeStarts = mBackSubtreeStarts;
+            mBackSubtreeStarts = subtreeStarts;
+            mCount = mBackCount;
+        }
+    }
+
+    /**
+     * Marks that hierarchy or components of given {@link GameObject} changed.
+     *
+     * @param gameObject Changed object.
+     */
+    public void markDirty(GameObject gameObject) {
+        GameObject root = gameObject;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        Integer subtreeIndex = mSubtreeIndices.get(root);
+        if (subtreeIndex == null) {
+            mFullRebuildNeeded = true;
+        } else {
+            // Every subtree is modified by at most one thread during parallel update
+            mDirtySubtrees[subtreeIndex] = true;
+        }
+        mDirty = true;
+    }
+
+    /**
+     * Checks whether any changes were marked since the last rebuild.
+     *
+     * @return True if the traversal needs to be rebuilt.
+     */
+    boolean isDirty() {
+        return mDirty;
+    }
+
+    /**
+     * Applies all changes marked since the last rebuild.
+     *
+     * @param scene Scene whose components are traversed.
+     */
+    void rebuild(Scene scene) {
+        if (scene != mScene) {
+            mScene = scene;
+            mFullRebuildNeeded = true;
+            mDirty = true;
+        }
+        if (!mDirty) {
+            return;
+        }
+        mDirty = false;
+
+        List<GameObject> topLevelObjects = scene.gameObjects;
+        boolean fullRebuild = mFullRebuildNeeded;
+        mFullRebuildNeeded = false;
+        if (fullRebuild) {
+            mSubtreeCount = topLevelObjects.size();
+            mSubtreeIndices.clear();
+            for (int i = 0; i < mSubtreeCount; ++i) {
+                mSubtreeIndices.put(topLevelObjects.get(i), i);
+            }
+            mSubtreeThreadSafe = new boolean[mSubtreeCount];
+            mDirtySubtrees = new boolean[mSubtreeCount];
+        }
+
+        mAllComponents.startBuild(mSubtreeCount, fullRebuild);
+        mUpdateComponents.startBuild(mSubtreeCount, fullRebuild);
+        mPostUpdateComponents.startBuild(mSubtreeCount, fullRebuild);
+        mTransforms.startBuild(mSubtreeCount, fullRebuild);
+        for (int i = 0; i < mSubtreeCount; ++i) {
+            mAllComponents.startSubtree(i);
+            mUpdateComponents.startSubtree(i);
+            mPostUpdateComponents.startSubtree(i);
+            mTransforms.startSubtree(i);
+            if (fullRebuild || mDirtySubtrees[i]) {
+                mBuildThreadSafe = true;
+                collect(topLevelObjects.get(i));
+                mSubtreeThreadSafe[i] = mBuildThreadSafe;
+                mDirtySubtrees[i] = false;
+            } else {
+                mAllComponents.copySubtree(i);
+                mUpdateComponents.copySubtree(i);
+                mPostUpdateComponents.copySubtree(i);
+                mTransforms.copySubtree(i);
+            }
+        }
+        mAllComponents.finishBuild(mSubtreeCount);
+        mUpdateComponents.finishBuild(mSubtreeCount);
+        mPostUpdateComponents.finishBuild(mSubtreeCount);
+        mTransforms.finishBuild(mSubtreeCount);
+    }
+
+    // State of the currently running rebuild
+    private boolean mBuildThreadSafe;
+
+    private void collect(GameObject gameObject) {
+        mTransforms.add(gameObject.transform);
+        List<GameObject> children = gameObject.children;
+        boolean hasChildren = !children.isEmpty();
+        int updateHeader = hasChildren ? mUpdateComponents.startSpan(gameObject.transform) : -1;
+        int postUpdateHeader = hasChildren ? mPostUpdateComponents.startSpan(gameObject.transform) : -1;
+
+        List<Component> components = gameObject.components;
+        for (int i = 0; i < components.size(); ++i) {
+            Component component = components.get(i);
+            mAllComponents.add(component);
+            int overrides = LifecycleOverrides.get(component.getClass());
+            if ((overrides & LifecycleOverrides.UPDATE) != 0) {
+                mUpdateComponents.add(component);
+                // Only components that run code during update matter for thread safety,
+                // disabled ones count too since enabling them does not rebuild the traversal
+                if (!(component instanceof ThreadSafeUpdate)) {
+                    mBuildThreadSafe = false;
+                }
+            }
+            if ((overrides & LifecycleOverrides.POST_UPDATE) != 0) {
+                mPostUpdateComponents.add(component);
+            }
+        }
+        for (int i = 0; i < children.size(); ++i) {
+            collect(children.get(i));
+        }
+
+        if (hasChildren) {
+            mUpdateComponents.finishSpan(updateHeader);
+            mPostUpdateComponents.finishSpan(postUpdateHeader);
+        }
+    }
+
+    /**
+     * Returns all components of the scene.
+     *
+     * @return All components in depth first order.
+     */
+    SpanArray getAllComponents() {
+        return mAllComponents;
+    }
+
+    /**
+     * Returns components overriding {@link Component#update()} together with headers
+     * of object spans, see {@link SpanArray#getSpanLengths()}.
+     *
+     * @return Components overriding {@link Component#update()} in depth first order.
+     */
+    SpanArray getUpdateComponents() {
+        return mUpdateComponents;
+    }
+
+    /**
+     * Returns components overriding {@link Component#postUpdate()} together with headers
+     * of object spans, see {@link SpanArray#getSpanLengths()}.
+     *
+     * @return Components overriding {@link Component#postUpdate()} in depth first order.
+     */
+    SpanArray getPostUpdateComponents() {
+        return mPostUpdateComponents;
+    }
+
+    /**
+     * Returns {@link Transform Transforms} of all objects of the scene.
+     *
+     * @return Transforms in depth first order, parents before their children.
+     */
+    SpanArray getTransforms() {
+        return mTransforms;
+    }
+
+    /**
+     * Returns the number of top level objects of the scene.
+     *
+     * @return Number of top level objects.
+     */
+    int getSubtreeCount() {
+        return mSubtreeCount;
+    }
+
+    /**
+     * Checks whether all components of given top level object's subtree that override
+     * {@link Component#update()} implement {@link ThreadSafeUpdate}.
+     *
+     * @param subtreeIndex Index of the top level object.
+     * @return True if whole subtree can be updated on a worker thread.
+     */
+    boolean isSubtreeThreadSafe(int subtreeIndex) {
+        return mSubtreeThreadSafe[subtreeIndex];
+    }
+
+    boolean isBuiltFor(Scene scene) {
+        return mScene == scene;
+    }
+}
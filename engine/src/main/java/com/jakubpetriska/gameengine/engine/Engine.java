@@ -6,19 +6,29 @@ import com.jakubpetriska.gameengine.api.Component;
 import com.jakubpetriska.gameengine.api.Debug;
 import com.jakubpetriska.gameengine.api.Display;
 import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.GameObjectPool;
+import com.jakubpetriska.gameengine.api.HandleTable;
 import com.jakubpetriska.gameengine.api.Messenger;
 import com.jakubpetriska.gameengine.api.Renderer;
+import com.jakubpetriska.gameengine.api.TagIndex;
+import com.jakubpetriska.gameengine.api.ThreadSafeUpdate;
 import com.jakubpetriska.gameengine.api.Time;
 import com.jakubpetriska.gameengine.api.TouchInput;
+import com.jakubpetriska.gameengine.api.UpdateLodSystem;
+import com.jakubpetriska.gameengine.api.WorkScheduler;
 import com.jakubpetriska.gameengine.api.components.Camera;
+import com.jakubpetriska.gameengine.api.components.Transform;
+import com.jakubpetriska.gameengine.api.external.ExternalCommands;
 import com.jakubpetriska.gameengine.api.external.ExternalMessenger;
 import com.jakubpetriska.gameengine.engine.config.SceneCreator;
 import com.jakubpetriska.gameengine.engine.config.model.debug.DebugSettingsModel;
 import com.jakubpetriska.gameengine.engine.config.model.initial_scene_state.ISScene;
 import com.jakubpetriska.gameengine.engine.config.model.scenes_config.SCScene;
 import com.jakubpetriska.gameengine.engine.config.model.scenes_config.SCScenes;
+import com.jakubpetriska.gameengine.engine.messaging.ExternalCommandsInternal;
 import com.jakubpetriska.gameengine.engine.messaging.ExternalMessengerInternal;
 import com.jakubpetriska.gameengine.engine.messaging.MessengerInternal;
+import com.jakubpetriska.gameengine.platform.Clock;
 import com.jakubpetriska.gameengine.platform.Platform;
 import com.jakubpetriska.gameengine.platform.TouchInputInternal;
 
@@ -29,6 +39,8 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents one engine instance. Engine holds everything together.
@@ -39,26 +51,83 @@ public class Engine {
     private Application mApplication;
 
     private ExternalMessengerInternal mExternalMessengerInternal;
+    private final ExternalCommandsInternal mExternalCommandsInternal = new ExternalCommandsInternal();
 
     // Application objects
     private FullRenderer mRenderer;
     private TouchInputInternal mTouchInput;
     private MeshManager mMeshManager;
+    private TransformStorage mTransformStorage;
+    private GameObjectPool mGameObjectPool;
+    private TagIndex mTagIndex;
     private MessengerInternal mMessenger;
     private TimeInternal mTime;
     private CollisionsSystem mCollisionsSystem;
+    private UpdateLodSystem mUpdateLodSystem;
     private Display mDisplay;
 
-    private List<ISystem> mInternalSystems = new ArrayList<>();
+    private final SystemScheduler mSystemScheduler = new SystemScheduler();
+
+    private final ComponentTraversal mComponentTraversal = new ComponentTraversal();
+    private final StructureCommandBuffer mStructureCommandBuffer = new StructureCommandBuffer();
+    // Shared by all scenes so handles of objects of previous scenes do not resolve to new objects
+    private final HandleTable mHandleTable = new HandleTable();
+
+    private final Profiler mProfiler = new Profiler();
+    // Whether the running frame is measured, read by worker threads during parallel update
+    private boolean mProfiling = false;
+    private final Profiler.SectionTimes mEngineThreadTimes = new Profiler.SectionTimes();
+    // Section of collision detection, collisions are detected outside of the system scheduler
+    private int mCollisionsSection = -1;
+
+    private final WorkSchedulerInternal mWorkScheduler = new WorkSchedulerInternal();
+    private long mFrameBudgetNanos = TimeInternal.toNanos(DEFAULT_FRAME_BUDGET_MILLIS / 1000f);
+    // Set when frame budget was configured through code so scenes config does not override it
+    private boolean mFrameBudgetConfigured = false;
+
+    private Clock mClock = TimeInternal.SYSTEM_CLOCK;
+    private long mRandomSeed;
+    private final Random mRandom;
+
+    // Recording and replaying of sessions, at most one of them is not null
+    private SessionRecorder mRecorder;
+    private SessionReplay mReplay;
+    private final List<Object> mInboundMessages = new ArrayList<>();
 
     private SCScenes mScenesConfig;
 
+    // Assets shared with other engines, null if this engine does not share assets
+    private AssetCache mAssetCache;
+
     // This is only used for searching in scenes List
     private SCScene mDummyScene = new SCScene();
 
     private String mCurrentSceneName;
     private Scene mCurrentScene;
 
+    // Set when fixed time step was configured through code so scenes config does not override it
+    private boolean mTimeStepConfigured = false;
+
+    // Set when parallel update was configured through code so scenes config does not override it
+    private boolean mParallelUpdateConfigured = false;
+
+    // Parallel update, pool is null when scene is updated on a single thread
+    private WorkerPool mWorkerPool;
+    private final List<SubtreeUpdateTask> mSubtreeUpdateTasks = new ArrayList<>();
+    private int[] mParallelSubtrees = new int[0];
+    private int mParallelSubtreeCount = 0;
+    private final AtomicInteger mNextParallelSubtree = new AtomicInteger();
+
+    /**
+     * Default maximal number of fixed steps run during one frame.
+     */
+    public static final int DEFAULT_MAX_FIXED_STEPS_PER_FRAME = 5;
+
+    /**
+     * Default time budget of one frame in milliseconds.
+     */
+    public static final float DEFAULT_FRAME_BUDGET_MILLIS = 12;
+
     /**
      * Constructs new Engine instance.
      *
@@ -74,8 +143,13 @@ public class Engine {
 
         mTime = new TimeInternal();
 
-        mInternalSystems.add(mTime);
-        mInternalSystems.add(mMessenger);
+        mRandomSeed = System.nanoTime();
+        mRandom = new Random(mRandomSeed);
+
+        mSystemScheduler.register(mTime, SystemScheduler.PHASE_EARLY,
+                null, new Class<?>[]{Time.class});
+        mSystemScheduler.register(mMessenger, SystemScheduler.PHASE_DEFAULT,
+                null, new Class<?>[]{Messenger.class});
     }
 
     private DebugSettingsModel parseDebugSettingsFile() {
@@ -112,8 +186,15 @@ public class Engine {
         this.mPlatform = platform;
         this.mRenderer = renderer;
 
-        mInternalSystems.remove(mTouchInput);
-        mInternalSystems.add(touchInput);
+        if (mReplay != null) {
+            // Recorded touches are used during replay
+            touchInput = mReplay.getTouchInput();
+        }
+        if (mTouchInput != null) {
+            mSystemScheduler.unregister(mTouchInput);
+        }
+        mSystemScheduler.register(touchInput, SystemScheduler.PHASE_DEFAULT,
+                null, new Class<?>[]{TouchInput.class});
         this.mTouchInput = touchInput;
 
         mDisplay = mPlatform.createDisplay();
@@ -122,7 +203,15 @@ public class Engine {
             mApplication = new ApplicationImpl();
 
             mCollisionsSystem = new CollisionsSystem(mApplication);
-            mInternalSystems.add(mCollisionsSystem);
+            // Collision callbacks run scripts which can change the scene and send messages
+            mSystemScheduler.register(mCollisionsSystem, SystemScheduler.PHASE_LATE,
+                    new Class<?>[]{Time.class, TouchInput.class},
+                    new Class<?>[]{CollisionsSystem.class, Scene.class, Messenger.class});
+
+            mUpdateLodSystem = new UpdateLodSystem(mApplication);
+            mSystemScheduler.register(mUpdateLodSystem, SystemScheduler.PHASE_LATE,
+                    new Class<?>[]{Time.class, Scene.class},
+                    new Class<?>[]{UpdateLodSystem.class});
         }
 
         mRenderer.setApplication(mApplication);
@@ -145,6 +234,18 @@ public class Engine {
         }
 
         loadScenesConfig();
+        if (!mTimeStepConfigured && mScenesConfig.fixedTimeStep != null) {
+            mTime.setFixedTimeStep(mScenesConfig.fixedTimeStep,
+                    mScenesConfig.maxFixedStepsPerFrame != null
+                            ? mScenesConfig.maxFixedStepsPerFrame
+                            : DEFAULT_MAX_FIXED_STEPS_PER_FRAME);
+        }
+        if (!mParallelUpdateConfigured && mScenesConfig.parallelUpdateThreads != null) {
+            setParallelUpdateInternal(mScenesConfig.parallelUpdateThreads);
+        }
+        if (!mFrameBudgetConfigured && mScenesConfig.frameBudgetMillis != null) {
+            setFrameBudgetInternal(mScenesConfig.frameBudgetMillis);
+        }
         if (mCurrentSceneName == null) {
             mCurrentSceneName = mScenesConfig.defaultSceneName;
         }
@@ -153,11 +254,263 @@ public class Engine {
         mInitialized = true;
     }
 
+    /**
+     * Switches the engine into fixed time step mode.
+     * <p/>
+     * In this mode scene is updated in steps of fixed length that are independent
+     * on frame rate. During one frame zero or more steps are run, each of them calling
+     * {@link ISystem#update()} on systems and {@link Component#update()} on components.
+     * {@link Component#postUpdate()} and rendering is done once per frame with object
+     * transformations interpolated between the last two steps.
+     * <p/>
+     * Fixed time step can also be set in scenes configuration file. Value set through
+     * this method takes precedence.
+     *
+     * @param timeStep         Length of one step in seconds. Pass 0 to switch back into
+     *                         variable time step mode.
+     * @param maxStepsPerFrame Maximal number of steps run during one frame. When the engine
+     *                         falls behind more than this, the rest of the time is dropped.
+     */
+    public void setFixedTimeStep(float timeStep, int maxStepsPerFrame) {
+        mTime.setFixedTimeStep(timeStep, maxStepsPerFrame);
+        mTimeStepConfigured = true;
+    }
+
+    /**
+     * Switches the engine into parallel update mode.
+     * <p/>
+     * In this mode top level {@link GameObject GameObjects} whose subtrees contain only
+     * components that implement {@link ThreadSafeUpdate} or do not override
+     * {@link Component#update()} are updated in parallel on given
+     * number of threads. Then remaining top level objects are updated one by one
+     * in their order in the scene. Messages sent and colliders registered during the whole update
+     * are applied afterwards on the engine thread in order of the scene, so they do not depend
+     * on timing of the threads. {@link Component#postUpdate()} is always called
+     * on the engine thread.
+     * <p/>
+     * Parallel update can also be set in scenes configuration file. Value set through
+     * this method takes precedence.
+     * <p/>
+     * While a session is recorded or replayed the scene is updated on a single thread,
+     * see {@link Engine#startRecording(SessionRecorder)}.
+     *
+     * @param threadCount Number of threads used for update including the engine thread.
+     *                    Pass 0 or 1 to update the scene on a single thread.
+     */
+    public void setParallelUpdate(int threadCount) {
+        setParallelUpdateInternal(threadCount);
+        mParallelUpdateConfigured = true;
+    }
+
+    private void setParallelUpdateInternal(int threadCount) {
+        if (threadCount < 0) {
+            throw new IllegalArgumentException("Thread count cannot be negative.");
+        }
+        if (mWorkerPool != null) {
+            mWorkerPool.shutdown();
+            mWorkerPool = null;
+        }
+        mSubtreeUpdateTasks.clear();
+        if (threadCount > 1) {
+            mWorkerPool = new WorkerPool(threadCount);
+            for (int i = 0; i < threadCount; ++i) {
+                mSubtreeUpdateTasks.add(new SubtreeUpdateTask());
+            }
+        }
+    }
+
+    /**
+     * Sets the time budget of one frame. Work scheduled through {@link WorkScheduler}
+     * runs at the end of the frame only while the frame takes less time than the budget.
+     * <p/>
+     * Frame budget can also be set in scenes configuration file. Value set through
+     * this method takes precedence.
+     *
+     * @param milliseconds Budget of one frame in milliseconds.
+     */
+    public void setFrameBudget(float milliseconds) {
+        setFrameBudgetInternal(milliseconds);
+        mFrameBudgetConfigured = true;
+    }
+
+    private void setFrameBudgetInternal(float milliseconds) {
+        if (milliseconds < 0) {
+            throw new IllegalArgumentException("Frame budget cannot be negative.");
+        }
+        mFrameBudgetNanos = TimeInternal.toNanos(milliseconds / 1000f);
+    }
+
+    /**
+     * Registers custom system into the engine. {@link ISystem#update()} is called at the start
+     * of every update before components are updated, {@link ISystem#postUpdate()} is called
+     * at the end of every frame after components are post updated.
+     * <p/>
+     * System conflicts with all other systems in it's phase, so it always runs alone.
+     *
+     * @param system System to register.
+     * @param phase  Phase of the system, see {@link SystemScheduler}.
+     */
+    public void registerSystem(ISystem system, int phase) {
+        mSystemScheduler.register(system, phase);
+    }
+
+    /**
+     * Registers custom system into the engine with declared dependencies.
+     * Systems which do not conflict can run concurrently in parallel update mode,
+     * see {@link SystemScheduler} and {@link Engine#setParallelUpdate(int)}.
+     * <p/>
+     * Engine systems declare these resources: {@link Time}, {@link Messenger},
+     * {@link TouchInput}, {@link CollisionsSystem} and {@link Scene} for any access
+     * to objects of the scene.
+     *
+     * @param system System to register.
+     * @param phase  Phase of the system, see {@link SystemScheduler}.
+     * @param reads  Resources that the system reads.
+     * @param writes Resources that the system writes.
+     */
+    public void registerSystem(ISystem system, int phase, Class<?>[] reads, Class<?>[] writes) {
+        mSystemScheduler.register(system, phase, reads, writes);
+    }
+
+    /**
+     * Unregisters custom system from the engine.
+     *
+     * @param system System to unregister.
+     * @return True if system was registered, false otherwise.
+     */
+    public boolean unregisterSystem(ISystem system) {
+        return mSystemScheduler.unregister(system);
+    }
+
+    /**
+     * Sets the clock from which engine measures time. By default real time is used.
+     * <p/>
+     * Must be called before {@link Engine#onStart()}.
+     *
+     * @param clock Clock to use.
+     */
+    public void setClock(Clock clock) {
+        if (mReplay != null) {
+            throw new IllegalStateException("Clock cannot be changed during replay.");
+        }
+        mTime.setClock(mRecorder != null ? mRecorder.wrapClock(clock) : clock);
+        mClock = clock;
+    }
+
+    /**
+     * Makes this engine share immutable assets with other engines using the same cache.
+     * Engines sharing the cache must read assets from the same place.
+     * <p/>
+     * Must be called before {@link Engine#onStart()}.
+     *
+     * @param assetCache Cache of shared assets.
+     */
+    public void setAssetCache(AssetCache assetCache) {
+        if (mInitialized) {
+            throw new IllegalStateException("Asset cache must be set before the engine starts.");
+        }
+        mAssetCache = assetCache;
+    }
+
+    /**
+     * Sets the seed of {@link Application#getRandom()}. By default seed is based on the current time.
+     * <p/>
+     * Must be called before {@link Engine#onStart()}.
+     *
+     * @param seed Seed of the random number generator.
+     */
+    public void setRandomSeed(long seed) {
+        if (mInitialized || mRecorder != null || mReplay != null) {
+            throw new IllegalStateException("Random seed must be set before the engine starts"
+                    + " and before recording or replay starts.");
+        }
+        mRandomSeed = seed;
+        mRandom.setSeed(seed);
+    }
+
+    /**
+     * Starts recording everything that comes into the engine from the outside, so the session
+     * can be replayed using {@link Engine#startReplay(SessionReplay)}.
+     * <p/>
+     * Must be called before {@link Engine#onStart()} and after the clock was set.
+     * Scene is updated on a single thread until the recording stops, since components updated
+     * in parallel can use shared state such as {@link Application#getRandom()} in order that
+     * depends on timing of the threads.
+     * Only the number of {@link ExternalCommands} run in every frame is recorded, see
+     * {@link ExternalCommands} for how such session is replayed.
+     *
+     * @param recorder Recorder into which the session is written.
+     */
+    public void startRecording(SessionRecorder recorder) {
+        if (mInitialized) {
+            throw new IllegalStateException("Recording must start before the engine starts.");
+        }
+        if (mRecorder != null || mReplay != null) {
+            throw new IllegalStateException("Session is already being recorded or replayed.");
+        }
+        recorder.start(mRandomSeed);
+        mRecorder = recorder;
+        mTime.setClock(recorder.wrapClock(mClock));
+    }
+
+    /**
+     * Stops recording and closes the recorder. Recording is stopped
+     * automatically in {@link Engine#onFinish()}.
+     */
+    public void stopRecording() {
+        if (mRecorder != null) {
+            mRecorder.close();
+            mRecorder = null;
+        }
+    }
+
+    /**
+     * Starts replaying of a recorded session. Engine then uses recorded time, touches, messages
+     * and random seed instead of real ones. For the replay to have the same results as
+     * the recorded session engine must run the same scenes with the same configuration.
+     * <p/>
+     * Must be called after {@link Engine#insertProvidedObjects(Platform, FullRenderer, TouchInputInternal)}
+     * and before {@link Engine#onStart()}. Every call to {@link Engine#onUpdate()} replays
+     * one recorded frame, see {@link SessionReplay#hasNextFrame()}. Scene is updated on a single
+     * thread during the replay like during recording.
+     * Every frame runs exactly as many {@link ExternalCommands} as were run during recording,
+     * commands submitted sooner wait for their recorded frame.
+     *
+     * @param replay Recorded session.
+     */
+    public void startReplay(SessionReplay replay) {
+        if (mInitialized) {
+            throw new IllegalStateException("Replay must start before the engine starts.");
+        }
+        if (mApplication == null) {
+            throw new IllegalStateException("Provided objects must be inserted before replay starts.");
+        }
+        if (mRecorder != null || mReplay != null) {
+            throw new IllegalStateException("Session is already being recorded or replayed.");
+        }
+        replay.start();
+        mReplay = replay;
+
+        mRandomSeed = replay.getRandomSeed();
+        mRandom.setSeed(mRandomSeed);
+
+        mSystemScheduler.unregister(mTouchInput);
+        mTouchInput = replay.getTouchInput();
+        mSystemScheduler.register(mTouchInput, SystemScheduler.PHASE_DEFAULT,
+                null, new Class<?>[]{TouchInput.class});
+
+        mTime.setClock(replay.getClock());
+    }
+
     /**
      * Loads scenes configuration file. This file contains names of all scenes together with
      * paths to the files defining initial state for every scene.
      */
     private void loadScenesConfig() {
+        if (mAssetCache != null && mAssetCache.getScenesConfig() != null) {
+            mScenesConfig = mAssetCache.getScenesConfig();
+            return;
+        }
         Serializer serializer = new Persister();
         try {
             mScenesConfig = serializer.read(SCScenes.class,
@@ -170,6 +523,9 @@ public class Engine {
         } catch (Exception e) {
             throw new IllegalStateException("Error during retrieval of scenes config file.", e);
         }
+        if (mAssetCache != null) {
+            mAssetCache.putScenesConfig(mScenesConfig);
+        }
     }
 
     /**
@@ -187,13 +543,18 @@ public class Engine {
         }
         String configFilePath = mScenesConfig.scenes.get(sceneIndex).sceneFilePath;
 
-        ISScene scene;
-        try {
-            scene = new Persister().read(ISScene.class,
-                    mPlatform.getAssetFileInputStream(configFilePath));
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new IllegalStateException("Error during retrieval of scene config file " + configFilePath);
+        ISScene scene = mAssetCache != null ? mAssetCache.getSceneDefinition(configFilePath) : null;
+        if (scene == null) {
+            try {
+                scene = new Persister().read(ISScene.class,
+                        mPlatform.getAssetFileInputStream(configFilePath));
+            } catch (Exception e) {
+                e.printStackTrace();
+                throw new IllegalStateException("Error during retrieval of scene config file " + configFilePath);
+            }
+            if (mAssetCache != null) {
+                scene = mAssetCache.putSceneDefinition(configFilePath, scene);
+            }
         }
         SceneCreator sceneCreator = new SceneCreator(mApplication);
         sceneCreator.create(scene);
@@ -205,79 +566,446 @@ public class Engine {
      * This call is dispatched to all components which results in scene state update and rendering.
      */
     public void onUpdate() {
-        for (int i = 0; i < mInternalSystems.size(); ++i) {
-            mInternalSystems.get(i).update();
+        mProfiling = mProfiler.isEnabled();
+        long frameStart = System.nanoTime();
+
+        // Commands from other threads see the scene as it was left by the previous frame
+        runExternalCommands();
+
+        // Structural changes are applied at the end of every pass over the scene
+        mStructureCommandBuffer.setRecording(true);
+        try {
+            if (mTime.isFixedTimeStep()) {
+                int steps = mTime.startFixedStepFrame();
+                for (int i = 0; i < steps; ++i) {
+                    mComponentTraversal.rebuild(mCurrentScene);
+                    storePreviousState();
+                    updateStep();
+                    detectCollisions();
+                    mStructureCommandBuffer.apply();
+                }
+            } else {
+                mComponentTraversal.rebuild(mCurrentScene);
+                updateStep();
+                detectCollisions();
+                mStructureCommandBuffer.apply();
+            }
+
+            if (!mComponentTraversal.isBuiltFor(mCurrentScene)) {
+                // Scene was changed during update
+                mComponentTraversal.rebuild(mCurrentScene);
+            }
+            updateTransformationMatrices();
+            mRenderer.onStartRenderingFrame();
+            postUpdate();
+
+            mSystemScheduler.postUpdate(getUpdateWorkerPool(), mProfiling ? mProfiler : null);
+            mStructureCommandBuffer.apply();
+        } finally {
+            mStructureCommandBuffer.setRecording(false);
         }
 
-        update(mCurrentScene.gameObjects);
-        mRenderer.onStartRenderingFrame();
-        postUpdate(mCurrentScene.gameObjects);
+        runDeferredWork(frameStart);
+
+        if (mRecorder != null) {
+            mRecorder.endFrame();
+        } else if (mReplay != null) {
+            mReplay.endFrame();
+        }
 
-        for (int i = 0; i < mInternalSystems.size(); ++i) {
-            mInternalSystems.get(i).postUpdate();
+        if (mProfiling) {
+            mProfiler.merge(mEngineThreadTimes);
+            mProfiler.endFrame(System.nanoTime() - frameStart);
         }
     }
 
     /**
-     * Helper recursive method to call {@link Component#update()} on all
-     * {@link Component Components}.
+     * Runs commands submitted through {@link ExternalCommands}. During replay exactly the recorded
+     * number of commands is run, so commands submitted again during the replay run in the same frames.
+     */
+    private void runExternalCommands() {
+        if (mReplay != null) {
+            int commandCount = mReplay.getCommandCount();
+            if (mExternalCommandsInternal.runCommands(mApplication, commandCount) != commandCount) {
+                throw new IllegalStateException("Replay diverged from the recording in frame "
+                        + mReplay.getReplayedFrameCount() + ", fewer external commands were submitted than recorded.");
+            }
+            return;
+        }
+        int commandCount = mExternalCommandsInternal.runCommands(mApplication);
+        if (mRecorder != null) {
+            mRecorder.recordCommands(commandCount);
+        }
+    }
+
+    /**
+     * Runs work scheduled through {@link WorkScheduler} for the rest of the frame budget.
+     * During replay exactly the recorded number of slices is run so the replay does not depend
+     * on speed of the computer.
      *
-     * @param gameObjects {@link java.util.List} of top level scene objects.
+     * @param frameStart Value of {@link System#nanoTime()} at the start of the frame.
+     */
+    private void runDeferredWork(long frameStart) {
+        if (mReplay != null) {
+            int sliceCount = mReplay.getWorkSliceCount();
+            if (mWorkScheduler.runSlices(sliceCount) != sliceCount) {
+                throw new IllegalStateException("Replay diverged from the recording in frame "
+                        + mReplay.getReplayedFrameCount() + ", less work was scheduled than recorded.");
+            }
+            return;
+        }
+        int sliceCount = mWorkScheduler.runUntil(frameStart + mFrameBudgetNanos);
+        if (mRecorder != null) {
+            mRecorder.recordWorkSlices(sliceCount);
+        }
+    }
+
+    /**
+     * Runs one update of the scene. In fixed time step mode this is one step.
+     */
+    private void updateStep() {
+        // Transformations change during update, reads check their ancestors until the next pass
+        mTransformStorage.setMatricesComputed(false);
+
+        if (mReplay != null) {
+            mReplay.beforeStep(getExternalMessenger());
+        }
+
+        mSystemScheduler.update(getUpdateWorkerPool(), mProfiling ? mProfiler : null);
+
+        if (mRecorder != null) {
+            mInboundMessages.clear();
+            mMessenger.getCurrentMessages(mInboundMessages);
+            mRecorder.recordStep(mTouchInput.getTouches(), mInboundMessages);
+            mInboundMessages.clear();
+        }
+
+        if (getUpdateWorkerPool() != null) {
+            updateParallel();
+        } else {
+            update(0, mComponentTraversal.getUpdateComponents().getCount());
+        }
+    }
+
+    /**
+     * Detects collisions at positions reached by the update step. Runs after every step,
+     * so fast objects cannot pass through obstacles between rendered frames.
      */
-    private void update(List<GameObject> gameObjects) {
-        for (int i = 0; i < gameObjects.size(); ++i) {
-            GameObject gameObject = gameObjects.get(i);
-            for (int j = 0; j < gameObject.components.size(); ++j) {
-                gameObject.components.get(j).update();
+    private void detectCollisions() {
+        updateTransformationMatrices();
+        long start = mProfiling ? System.nanoTime() : 0;
+        mCollisionsSystem.detectCollisions();
+        if (mProfiling) {
+            if (mCollisionsSection < 0) {
+                mCollisionsSection = mProfiler.getSectionId(
+                        "System " + CollisionsSystem.class.getName() + ".detectCollisions");
             }
-            update(gameObject.children);
+            mProfiler.add(mCollisionsSection, System.nanoTime() - start);
         }
     }
 
     /**
-     * Helper recursive method to call {@link Component#postUpdate()} on all
-     * {@link Component Components}.
+     * Returns pool used to update the scene in parallel or null if the scene is updated
+     * on a single thread. Sessions are recorded and replayed on a single thread so they replay
+     * exactly.
      *
-     * @param gameObjects {@link java.util.List} of top level scene objects.
+     * @return Pool used for parallel update.
      */
-    private void postUpdate(List<GameObject> gameObjects) {
-        for (int i = 0; i < gameObjects.size(); ++i) {
-            GameObject gameObject = gameObjects.get(i);
-            for (int j = 0; j < gameObject.components.size(); ++j) {
-                gameObject.components.get(j).postUpdate();
+    private WorkerPool getUpdateWorkerPool() {
+        return mRecorder == null && mReplay == null ? mWorkerPool : null;
+    }
+
+    /**
+     * Calls {@link Component#update()} on all {@link Component Components}
+     * in parallel update mode.
+     */
+    private void updateParallel() {
+        int subtreeCount = mComponentTraversal.getSubtreeCount();
+        if (mParallelSubtrees.length < subtreeCount) {
+            mParallelSubtrees = new int[subtreeCount];
+        }
+        mParallelSubtreeCount = 0;
+        for (int i = 0; i < subtreeCount; ++i) {
+            if (mComponentTraversal.isSubtreeThreadSafe(i)) {
+                mParallelSubtrees[mParallelSubtreeCount++] = i;
             }
-            postUpdate(gameObject.children);
+        }
+
+        if (mParallelSubtreeCount < 2) {
+            // Nothing to gain, keep the order of the scene
+            update(0, mComponentTraversal.getUpdateComponents().getCount());
+            return;
+        }
+
+        mNextParallelSubtree.set(0);
+        // Subtrees that are not thread safe defer their work too, so the merge applies everything
+        // in order of subtrees like serial update does
+        mMessenger.setSendingDeferred(true);
+        mCollisionsSystem.setRegistrationDeferred(true);
+        try {
+            mWorkerPool.runAll(mSubtreeUpdateTasks);
+            if (mProfiling) {
+                for (int i = 0; i < mSubtreeUpdateTasks.size(); ++i) {
+                    mProfiler.merge(mSubtreeUpdateTasks.get(i).mTimes);
+                }
+            }
+
+            ComponentTraversal.SpanArray updateComponents = mComponentTraversal.getUpdateComponents();
+            for (int i = 0; i < subtreeCount; ++i) {
+                if (!mComponentTraversal.isSubtreeThreadSafe(i)) {
+                    SubtreeOrderedQueue.setCurrentSubtree(i);
+                    update(updateComponents.getSubtreeStart(i), updateComponents.getSubtreeEnd(i));
+                }
+            }
+        } finally {
+            SubtreeOrderedQueue.setCurrentSubtree(SubtreeOrderedQueue.NO_SUBTREE);
+            // Merge phase, apply work touching shared systems on this thread
+            mMessenger.setSendingDeferred(false);
+            mCollisionsSystem.setRegistrationDeferred(false);
+            mMessenger.flushDeferredMessages();
+            mCollisionsSystem.flushDeferredRegistrations();
         }
     }
 
     /**
-     * Must be called by platform when this engine instance finishes.
-     * This call is dispatched to all components.
+     * Task run by every thread during parallel update. Takes top level subtrees
+     * one by one until all of them are updated.
      */
-    public void onFinish() {
-        finish(mCurrentScene.gameObjects);
+    private class SubtreeUpdateTask implements Runnable {
+        // Timings measured by this task, merged on the engine thread
+        private final Profiler.SectionTimes mTimes = new Profiler.SectionTimes();
+
+        @Override
+        public void run() {
+            ComponentTraversal.SpanArray updateComponents = mComponentTraversal.getUpdateComponents();
+            int index;
+            try {
+                while ((index = mNextParallelSubtree.getAndIncrement()) < mParallelSubtreeCount) {
+                    int subtree = mParallelSubtrees[index];
+                    SubtreeOrderedQueue.setCurrentSubtree(subtree);
+                    update(updateComponents.getSubtreeStart(subtree), updateComponents.getSubtreeEnd(subtree),
+                            mTimes);
+                }
+            } finally {
+                SubtreeOrderedQueue.setCurrentSubtree(SubtreeOrderedQueue.NO_SUBTREE);
+            }
+        }
+    }
+
+    /**
+     * Stores state of all transformations before fixed step so rendering
+     * can interpolate between states.
+     */
+    private void storePreviousState() {
+        updateTransformationMatrices();
+        Component[] transforms = mComponentTraversal.getTransforms().getComponents();
+        int count = mComponentTraversal.getTransforms().getCount();
+        for (int i = 0; i < count; ++i) {
+            Transform transform = (Transform) transforms[i];
+            if (transform.isAttached()) {
+                transform.storePreviousState();
+            }
+        }
+    }
+
+    /**
+     * Computes world matrices of all changed {@link Transform Transforms} in one pass
+     * with parents before their children.
+     */
+    private void updateTransformationMatrices() {
+        Component[] transforms = mComponentTraversal.getTransforms().getComponents();
+        int count = mComponentTraversal.getTransforms().getCount();
+        for (int i = 0; i < count; ++i) {
+            Transform transform = (Transform) transforms[i];
+            if (transform.isAttached()) {
+                transform.updateTransformationMatrix();
+            }
+        }
+        // Objects added since the traversal was built were not computed, so reads of this frame
+        // keep checking ancestors
+        mTransformStorage.setMatricesComputed(!mComponentTraversal.isDirty());
     }
 
     /**
-     * Helper recursive method to call {@link Component#finish()} on all
-     * {@link Component Components}.
+     * Calls {@link Component#update()} on a range of {@link Component Components}
+     * overriding it in the traversal order.
      *
-     * @param gameObjects {@link java.util.List} of top level scene objects.
+     * @param from Index of the first updated component.
+     * @param to   Index after the last updated component.
      */
-    private void finish(List<GameObject> gameObjects) {
-        for (int i = 0; i < gameObjects.size(); ++i) {
-            GameObject gameObject = gameObjects.get(i);
-            for (int j = 0; j < gameObject.components.size(); ++j) {
-                gameObject.components.get(j).finish();
+    private void update(int from, int to) {
+        update(from, to, mEngineThreadTimes);
+    }
+
+    /**
+     * Calls {@link Component#update()} on a range of {@link Component Components}
+     * overriding it in the traversal order.
+     *
+     * @param from  Index of the first updated component.
+     * @param to    Index after the last updated component.
+     * @param times Timings of the calling thread used when profiler is enabled.
+     */
+    private void update(int from, int to, Profiler.SectionTimes times) {
+        Component[] components = mComponentTraversal.getUpdateComponents().getComponents();
+        int[] spanLengths = mComponentTraversal.getUpdateComponents().getSpanLengths();
+        if (mProfiling) {
+            updateTimed(components, spanLengths, from, to, times);
+            return;
+        }
+        for (int i = from; i < to; ++i) {
+            Component component = components[i];
+            if (spanLengths[i] != 0) {
+                i = skipInactiveSpan(component, i, spanLengths[i]);
+            } else if (component.isActiveAndEnabled() && mUpdateLodSystem.shouldUpdate(component)) {
+                component.update();
             }
-            finish(gameObject.children);
         }
     }
 
+    /**
+     * Handles {@link Transform} heading span of an object in the dispatch arrays.
+     * Subtree of an inactive object is skipped at once.
+     *
+     * @param header     Transform heading the span.
+     * @param index      Index of the header.
+     * @param spanLength Number of components in the span following the header.
+     * @return Index of the last handled component.
+     */
+    private static int skipInactiveSpan(Component header, int index, int spanLength) {
+        if (header.isAttached() && header.getGameObject().isActiveInHierarchy()) {
+            return index;
+        }
+        return index + spanLength;
+    }
+
+    /**
+     * Profiled variant of {@link Engine#update(int, int)}. To keep the overhead low time is
+     * measured once for every run of consecutive components of the same class.
+     */
+    private void updateTimed(Component[] components, int[] spanLengths, int from, int to,
+                             Profiler.SectionTimes times) {
+        Class<?> runClass = null;
+        long runStart = 0;
+        for (int i = from; i < to; ++i) {
+            Component component = components[i];
+            if (spanLengths[i] != 0) {
+                i = skipInactiveSpan(component, i, spanLengths[i]);
+            } else if (component.isActiveAndEnabled() && mUpdateLodSystem.shouldUpdate(component)) {
+                Class<?> componentClass = component.getClass();
+                if (componentClass != runClass) {
+                    long now = System.nanoTime();
+                    if (runClass != null) {
+                        times.add(mProfiler.getUpdateSectionId(runClass), now - runStart);
+                    }
+                    runClass = componentClass;
+                    runStart = now;
+                }
+                component.update();
+            }
+        }
+        if (runClass != null) {
+            times.add(mProfiler.getUpdateSectionId(runClass), System.nanoTime() - runStart);
+        }
+    }
+
+    /**
+     * Calls {@link Component#postUpdate()} on all {@link Component Components} overriding it.
+     */
+    private void postUpdate() {
+        Component[] components = mComponentTraversal.getPostUpdateComponents().getComponents();
+        int[] spanLengths = mComponentTraversal.getPostUpdateComponents().getSpanLengths();
+        int count = mComponentTraversal.getPostUpdateComponents().getCount();
+        if (mProfiling) {
+            postUpdateTimed(components, spanLengths, count);
+            return;
+        }
+        for (int i = 0; i < count; ++i) {
+            Component component = components[i];
+            if (spanLengths[i] != 0) {
+                i = skipInactiveSpan(component, i, spanLengths[i]);
+            } else if (component.isActiveAndEnabled()) {
+                component.postUpdate();
+            }
+        }
+    }
+
+    /**
+     * Profiled variant of {@link Engine#postUpdate()}, see {@link Engine#updateTimed}.
+     */
+    private void postUpdateTimed(Component[] components, int[] spanLengths, int count) {
+        Class<?> runClass = null;
+        long runStart = 0;
+        for (int i = 0; i < count; ++i) {
+            Component component = components[i];
+            if (spanLengths[i] != 0) {
+                i = skipInactiveSpan(component, i, spanLengths[i]);
+            } else if (component.isActiveAndEnabled()) {
+                Class<?> componentClass = component.getClass();
+                if (componentClass != runClass) {
+                    long now = System.nanoTime();
+                    if (runClass != null) {
+                        mEngineThreadTimes.add(mProfiler.getPostUpdateSectionId(runClass), now - runStart);
+                    }
+                    runClass = componentClass;
+                    runStart = now;
+                }
+                component.postUpdate();
+            }
+        }
+        if (runClass != null) {
+            mEngineThreadTimes.add(mProfiler.getPostUpdateSectionId(runClass), System.nanoTime() - runStart);
+        }
+    }
+
+    /**
+     * Must be called by platform when this engine instance finishes.
+     * This call is dispatched to all components.
+     */
+    public void onFinish() {
+        // Components added during the last frame need to be finished too
+        mComponentTraversal.rebuild(mCurrentScene);
+        Component[] components = mComponentTraversal.getAllComponents().getComponents();
+        int count = mComponentTraversal.getAllComponents().getCount();
+        for (int i = 0; i < count; ++i) {
+            Component component = components[i];
+            if (component.isAttached()) {
+                component.finish();
+            }
+        }
+        mGameObjectPool.clear();
+        mExternalCommandsInternal.cancelCommands();
+
+        if (mWorkerPool != null) {
+            mWorkerPool.shutdown();
+            mWorkerPool = null;
+        }
+
+        stopRecording();
+    }
+
     public ExternalMessenger getExternalMessenger() {
         return mExternalMessengerInternal.getExternalMessenger();
     }
 
+    /**
+     * Returns object through which other threads can run code on the engine thread.
+     *
+     * @return External commands of this engine.
+     */
+    public ExternalCommands getExternalCommands() {
+        return mExternalCommandsInternal.getExternalCommands();
+    }
+
+    /**
+     * Returns profiler measuring frames of this engine. Profiler is disabled by default,
+     * it can be enabled and read from any thread.
+     *
+     * @return Profiler of this engine.
+     */
+    public Profiler getProfiler() {
+        return mProfiler;
+    }
+
     private class ApplicationImpl extends Application {
 
         private Debug mDebug;
@@ -309,6 +1037,21 @@ public class Engine {
             return mMeshManager;
         }
 
+        @Override
+        public ComponentTraversal getComponentTraversal() {
+            return mComponentTraversal;
+        }
+
+        @Override
+        public StructureCommandBuffer getStructureCommandBuffer() {
+            return mStructureCommandBuffer;
+        }
+
+        @Override
+        public TransformStorage getTransformStorage() {
+            return mTransformStorage;
+        }
+
         @Override
         public Messenger getMessenger() {
             return mMessenger;
@@ -329,6 +1072,31 @@ public class Engine {
             return mDebug;
         }
 
+        @Override
+        public Random getRandom() {
+            return mRandom;
+        }
+
+        @Override
+        public WorkScheduler getWorkScheduler() {
+            return mWorkScheduler;
+        }
+
+        @Override
+        public GameObjectPool getGameObjectPool() {
+            return mGameObjectPool;
+        }
+
+        @Override
+        public TagIndex getTagIndex() {
+            return mTagIndex;
+        }
+
+        @Override
+        public HandleTable getHandleTable() {
+            return mHandleTable;
+        }
+
         @Override
         public Display getDisplay() {
             return mDisplay;
@@ -336,7 +1104,13 @@ public class Engine {
 
         @Override
         public void changeScene(String newSceneName) {
-            mMeshManager = new MeshManager(mApplication, mPlatform);
+            mMeshManager = new MeshManager(mApplication, mPlatform, mAssetCache);
+            mTransformStorage = new TransformStorage();
+            if (mGameObjectPool != null) {
+                mGameObjectPool.clear();
+            }
+            mGameObjectPool = new GameObjectPool();
+            mTagIndex = new TagIndex();
 
             SceneCreator newSceneCreator = getScene(newSceneName);
             mCurrentScene = newSceneCreator.scene;
@@ -1,13 +1,20 @@
 package com.jakubpetriska.gameengine.engine;
 
-// TODO maybe this should be public feature?
-// TODO maybe then it should be base class providing Application object
+// TODO maybe it should be base class providing Application object
 
 /**
  * Common API to the System. System can handle things such as time, messaging or rendering.
+ * <p/>
+ * Custom systems can be registered using {@link Engine#registerSystem(ISystem, int)}.
  */
 public interface ISystem {
+    /**
+     * Called at the start of every update before components are updated.
+     */
     void update();
 
+    /**
+     * Called at the end of every frame after components are post updated.
+     */
     void postUpdate();
 }
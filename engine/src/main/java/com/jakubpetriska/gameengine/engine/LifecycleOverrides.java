@@ -0,0 +1,65 @@
+package com.jakubpetriska.gameengine.engine;
+
+import com.jakubpetriska.gameengine.api.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detects which lifecycle methods are overridden by {@link Component} classes.
+ * <p/>
+ * Detection uses reflection and is done only once for every class.
+ */
+public final class LifecycleOverrides {
+
+    /**
+     * Flag of overridden {@link Component#update()}.
+     */
+    public static final int UPDATE = 1;
+
+    /**
+     * Flag of overridden {@link Component#postUpdate()}.
+     */
+    public static final int POST_UPDATE = 1 << 1;
+
+    private static final ConcurrentHashMap<Class<?>, Integer> sOverrides = new ConcurrentHashMap<>();
+
+    private LifecycleOverrides() {
+    }
+
+    /**
+     * Returns flags of lifecycle methods overridden by given component class.
+     *
+     * @param componentClass Class of the component.
+     * @return Combination of {@link LifecycleOverrides#UPDATE} and
+     * {@link LifecycleOverrides#POST_UPDATE} flags.
+     */
+    public static int get(Class<? extends Component> componentClass) {
+        Integer overrides = sOverrides.get(componentClass);
+        if (overrides == null) {
+            overrides = 0;
+            if (isOverridden(componentClass, "update")) {
+                overrides |= UPDATE;
+            }
+            if (isOverridden(componentClass, "postUpdate")) {
+                overrides |= POST_UPDATE;
+            }
+            sOverrides.put(componentClass, overrides);
+        }
+        return overrides;
+    }
+
+    private static boolean isOverridden(Class<?> componentClass, String methodName) {
+        for (Class<?> c = componentClass; c != Component.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(methodName);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // Continue with the superclass
+            } catch (SecurityException e) {
+                // Cannot be detected, the method must be called
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -20,14 +20,27 @@ public class MeshManager {
 
     private final Application mApplication;
     private final Platform mPlatform;
+    private final AssetCache mAssetCache;
 
     // TODO maybe delete these objects when they are no longer used, requires calling something on renderer since it provides instances
     // TODO maybe on scene change
     private HashMap<String, MeshData> mNameToMeshMap = new HashMap<>();
 
     public MeshManager(Application application, Platform platform) {
+        this(application, platform, null);
+    }
+
+    /**
+     * Creates MeshManager that shares loaded meshes with other engines.
+     *
+     * @param application Application of the engine.
+     * @param platform    Platform providing the mesh files.
+     * @param assetCache  Cache of meshes shared between engines. Can be null.
+     */
+    public MeshManager(Application application, Platform platform, AssetCache assetCache) {
         this.mApplication = application;
         this.mPlatform = platform;
+        this.mAssetCache = assetCache;
     }
 
     public Set<String> getStoredMeshesPaths() {
@@ -50,6 +63,10 @@ public class MeshManager {
             throw new IllegalArgumentException("Model path cannot be null");
         } else if (mNameToMeshMap.containsKey(meshPath)) {
             result = mNameToMeshMap.get(meshPath);
+        } else if (mAssetCache != null && mAssetCache.getMeshData(meshPath) != null) {
+            // Model was loaded by another engine
+            result = mAssetCache.getMeshData(meshPath);
+            mNameToMeshMap.put(meshPath, result);
         } else {
             // Model is not loaded so load it
             if (meshPath.equals(Primitives.CUBE)) {
@@ -65,6 +82,9 @@ public class MeshManager {
                     throw new IllegalStateException("Obj model asset on path " + meshPath + " could not be loaded", e);
                 }
             }
+            if (mAssetCache != null) {
+                result = mAssetCache.putMeshData(meshPath, result);
+            }
             mNameToMeshMap.put(meshPath, result);
         }
         return result;
@@ -0,0 +1,34 @@
+package com.jakubpetriska.gameengine.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes and reads messages of one class into session logs.
+ * <p/>
+ * Primitive wrappers, Strings and enums are recorded without a codec.
+ * Messages of other classes sent into the engine through
+ * {@link com.jakubpetriska.gameengine.api.external.ExternalMessenger} need a codec
+ * registered in both {@link SessionRecorder} and {@link SessionReplay}.
+ */
+public interface MessageCodec {
+
+    /**
+     * Writes the message.
+     *
+     * @param message Message to write.
+     * @param output  Output into which the message is written.
+     * @throws IOException When writing fails.
+     */
+    void write(Object message, DataOutput output) throws IOException;
+
+    /**
+     * Reads message written by {@link MessageCodec#write(Object, DataOutput)}.
+     *
+     * @param input Input from which the message is read.
+     * @return Read message.
+     * @throws IOException When reading fails.
+     */
+    Object read(DataInput input) throws IOException;
+}
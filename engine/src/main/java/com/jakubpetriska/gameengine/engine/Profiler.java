@@ -0,0 +1,274 @@
+package com.jakubpetriska.gameengine.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Measures where the time of frames goes.
+ * <p/>
+ * When enabled {@link Engine} measures the time of every frame, of {@link ISystem#update()}
+ * and {@link ISystem#postUpdate()} of every system and sums the time spent in
+ * {@link com.jakubpetriska.gameengine.api.Component#update()} and
+ * {@link com.jakubpetriska.gameengine.api.Component#postUpdate()} by component class.
+ * Every measured thing is a section identified by index, names of sections can be obtained
+ * by {@link Profiler#getSectionName(int)}.
+ * <p/>
+ * Measurements of recent frames are kept in a ring buffer. They can be read from any thread
+ * using {@link Profiler#readFrame(int, Frame)} without blocking the engine.
+ */
+public class Profiler {
+
+    /**
+     * Number of recent frames kept by the profiler.
+     */
+    public static final int FRAME_HISTORY = 120;
+
+    /**
+     * Measurements of one frame.
+     */
+    public static class Frame {
+        private long mFrameNumber;
+        private long mFrameNanos;
+        private long[] mSectionNanos = new long[0];
+        private int mSectionCount;
+
+        /**
+         * Returns the number of the frame counted from enabling of the profiler.
+         *
+         * @return Number of the frame.
+         */
+        public long getFrameNumber() {
+            return mFrameNumber;
+        }
+
+        /**
+         * Returns the duration of the whole frame.
+         *
+         * @return Duration of the frame in nanoseconds.
+         */
+        public long getFrameNanos() {
+            return mFrameNanos;
+        }
+
+        /**
+         * Returns the number of sections that existed during this frame.
+         *
+         * @return Number of sections.
+         */
+        public int getSectionCount() {
+            return mSectionCount;
+        }
+
+        /**
+         * Returns time spent in given section during this frame.
+         *
+         * @param section Index of the section.
+         * @return Time spent in the section in nanoseconds.
+         */
+        public long getSectionNanos(int section) {
+            return section < mSectionCount ? mSectionNanos[section] : 0;
+        }
+
+        private void set(long frameNumber, long frameNanos, long[] sectionNanos, int sectionCount) {
+            mFrameNumber = frameNumber;
+            mFrameNanos = frameNanos;
+            if (mSectionNanos.length < sectionCount) {
+                mSectionNanos = new long[sectionCount];
+            }
+            System.arraycopy(sectionNanos, 0, mSectionNanos, 0, sectionCount);
+            mSectionCount = sectionCount;
+        }
+    }
+
+    /**
+     * Immutable measurements of one frame as stored in the ring buffer. Final fields
+     * make a published instance safe to read from any thread.
+     */
+    private static class FrameData {
+        private final long mFrameNumber;
+        private final long mFrameNanos;
+        private final long[] mSectionNanos;
+
+        private FrameData(long frameNumber, long frameNanos, long[] sectionNanos) {
+            mFrameNumber = frameNumber;
+            mFrameNanos = frameNanos;
+            mSectionNanos = sectionNanos;
+        }
+    }
+
+    /**
+     * Accumulates time of sections. Every instance must be used by one thread at a time.
+     */
+    static class SectionTimes {
+        private long[] mNanos = new long[16];
+
+        void add(int section, long nanos) {
+            if (section >= mNanos.length) {
+                mNanos = Arrays.copyOf(mNanos, Math.max(section + 1, mNanos.length * 2));
+            }
+            mNanos[section] += nanos;
+        }
+
+        private void clear() {
+            Arrays.fill(mNanos, 0);
+        }
+    }
+
+    private volatile boolean mEnabled = false;
+
+    private volatile String[] mSectionNames = new String[0];
+    private final ConcurrentHashMap<String, Integer> mSectionIds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, Integer> mUpdateSectionIds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, Integer> mPostUpdateSectionIds = new ConcurrentHashMap<>();
+
+    // Measurements of the running frame
+    private final SectionTimes mCurrentFrame = new SectionTimes();
+
+    // Ring buffer of recent frames, a new immutable frame is published into the slot
+    // every frame so readers never see a frame that is being written
+    private final AtomicReferenceArray<FrameData> mFrames = new AtomicReferenceArray<>(FRAME_HISTORY);
+    private volatile long mWrittenFrameCount = 0;
+
+    /**
+     * Enables or disables the profiler. Measurements of previous frames are kept.
+     *
+     * @param enabled True if frames should be measured.
+     */
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * Returns the number of sections measured so far.
+     *
+     * @return Number of sections.
+     */
+    public int getSectionCount() {
+        return mSectionNames.length;
+    }
+
+    /**
+     * Returns name of the section. Systems have names in form <i>System class.method</i>
+     * and component classes <i>Component class.method</i>.
+     *
+     * @param section Index of the section.
+     * @return Name of the section.
+     */
+    public String getSectionName(int section) {
+        return mSectionNames[section];
+    }
+
+    /**
+     * Returns the number of frames measured since the profiler was created.
+     *
+     * @return Number of measured frames.
+     */
+    public long getMeasuredFrameCount() {
+        return mWrittenFrameCount;
+    }
+
+    /**
+     * Reads measurements of a recent frame.
+     *
+     * @param framesAgo Age of the frame, 0 is the last measured frame.
+     *                  Must be lower than {@link Profiler#FRAME_HISTORY}.
+     * @param result    Frame into which the measurements are copied.
+     * @return True if the frame was read, false if such frame was not measured
+     * or was already overwritten by a newer frame.
+     */
+    public boolean readFrame(int framesAgo, Frame result) {
+        long writtenFrameCount = mWrittenFrameCount;
+        if (framesAgo < 0 || framesAgo >= FRAME_HISTORY || framesAgo >= writtenFrameCount) {
+            return false;
+        }
+        long frameNumber = writtenFrameCount - 1 - framesAgo;
+        FrameData frame = mFrames.get((int) (frameNumber % FRAME_HISTORY));
+        if (frame == null || frame.mFrameNumber != frameNumber) {
+            return false;
+        }
+        result.set(frame.mFrameNumber, frame.mFrameNanos, frame.mSectionNanos, frame.mSectionNanos.length);
+        return true;
+    }
+
+    int getSectionId(String name) {
+        Integer id = mSectionIds.get(name);
+        if (id == null) {
+            synchronized (mSectionIds) {
+                id = mSectionIds.get(name);
+                if (id == null) {
+                    String[] names = Arrays.copyOf(mSectionNames, mSectionNames.length + 1);
+                    id = mSectionNames.length;
+                    names[id] = name;
+                    mSectionNames = names;
+                    mSectionIds.put(name, id);
+                }
+            }
+        }
+        return id;
+    }
+
+    int getUpdateSectionId(Class<?> componentClass) {
+        Integer id = mUpdateSectionIds.get(componentClass);
+        if (id == null) {
+            id = getSectionId("Component " + componentClass.getName() + ".update");
+            mUpdateSectionIds.put(componentClass, id);
+        }
+        return id;
+    }
+
+    int getPostUpdateSectionId(Class<?> componentClass) {
+        Integer id = mPostUpdateSectionIds.get(componentClass);
+        if (id == null) {
+            id = getSectionId("Component " + componentClass.getName() + ".postUpdate");
+            mPostUpdateSectionIds.put(componentClass, id);
+        }
+        return id;
+    }
+
+    /**
+     * Adds time to the section of the running frame. Must be called from the engine thread.
+     *
+     * @param section Index of the section.
+     * @param nanos   Measured time in nanoseconds.
+     */
+    void add(int section, long nanos) {
+        mCurrentFrame.add(section, nanos);
+    }
+
+    /**
+     * Adds times measured by other thread to the running frame and clears them.
+     * Must be called from the engine thread.
+     *
+     * @param times Measured times.
+     */
+    void merge(SectionTimes times) {
+        long[] nanos = times.mNanos;
+        for (int i = 0; i < nanos.length; ++i) {
+            if (nanos[i] != 0) {
+                mCurrentFrame.add(i, nanos[i]);
+            }
+        }
+        times.clear();
+    }
+
+    /**
+     * Stores the running frame into the ring buffer. Must be called from the engine thread.
+     *
+     * @param frameNanos Duration of the frame.
+     */
+    void endFrame(long frameNanos) {
+        long frameNumber = mWrittenFrameCount;
+        long[] sectionNanos = Arrays.copyOf(mCurrentFrame.mNanos,
+                Math.min(mSectionNames.length, mCurrentFrame.mNanos.length));
+        mFrames.set((int) (frameNumber % FRAME_HISTORY),
+                new FrameData(frameNumber, frameNanos, sectionNanos));
+
+        mWrittenFrameCount = frameNumber + 1;
+        mCurrentFrame.clear();
+    }
+}
@@ -0,0 +1,180 @@
+package com.jakubpetriska.gameengine.engine;
+
+import com.jakubpetriska.gameengine.api.Touch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Binary format of sessions written by {@link SessionRecorder} and read by {@link SessionReplay}.
+ * <p/>
+ * Log starts with a header containing {@link SessionLog#MAGIC}, {@link SessionLog#VERSION}
+ * and the random seed. Then it contains a sequence of events ended by {@link SessionLog#EVENT_END}.
+ * Every frame is a sequence of clock readings, steps and the numbers of run external commands
+ * and work slices ended by {@link SessionLog#EVENT_FRAME_END}.
+ * Clock readings are stored as differences from the previous reading, integers are stored
+ * in variable length encoding.
+ */
+class SessionLog {
+
+    static final int MAGIC = 0x47455352;
+    static final int VERSION = 1;
+
+    static final int EVENT_CLOCK = 1;
+    static final int EVENT_STEP = 2;
+    static final int EVENT_FRAME_END = 3;
+    static final int EVENT_END = 4;
+    static final int EVENT_WORK_SLICES = 5;
+    static final int EVENT_COMMANDS = 6;
+
+    private static final int TYPE_BOOLEAN = 1;
+    private static final int TYPE_BYTE = 2;
+    private static final int TYPE_SHORT = 3;
+    private static final int TYPE_CHARACTER = 4;
+    private static final int TYPE_INTEGER = 5;
+    private static final int TYPE_LONG = 6;
+    private static final int TYPE_FLOAT = 7;
+    private static final int TYPE_DOUBLE = 8;
+    private static final int TYPE_STRING = 9;
+    private static final int TYPE_ENUM = 10;
+    private static final int TYPE_CUSTOM = 11;
+
+    private SessionLog() {
+    }
+
+    static void writeVarLong(DataOutput output, long value) throws IOException {
+        // Zig zag encoding so small negative values are short too
+        long encoded = (value << 1) ^ (value >> 63);
+        while ((encoded & ~0x7FL) != 0) {
+            output.writeByte((int) ((encoded & 0x7F) | 0x80));
+            encoded >>>= 7;
+        }
+        output.writeByte((int) encoded);
+    }
+
+    static long readVarLong(DataInput input) throws IOException {
+        long encoded = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 63) {
+                throw new IOException("Malformed variable length number.");
+            }
+            b = input.readUnsignedByte();
+            encoded |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    static void writeTouch(DataOutput output, Touch touch) throws IOException {
+        writeVarLong(output, touch.getId());
+        output.writeByte(touch.getState());
+        output.writeFloat(touch.getX());
+        output.writeFloat(touch.getY());
+        output.writeFloat(touch.getStartX());
+        output.writeFloat(touch.getStartY());
+    }
+
+    static void readTouch(DataInput input, Touch touch) throws IOException {
+        touch.setId((int) readVarLong(input));
+        touch.setState(input.readByte());
+        touch.setX(input.readFloat());
+        touch.setY(input.readFloat());
+        touch.setStartX(input.readFloat());
+        touch.setStartY(input.readFloat());
+    }
+
+    static void writeMessage(DataOutput output, Object message,
+                             Map<String, MessageCodec> codecs) throws IOException {
+        if (message instanceof Boolean) {
+            output.writeByte(TYPE_BOOLEAN);
+            output.writeBoolean((Boolean) message);
+        } else if (message instanceof Byte) {
+            output.writeByte(TYPE_BYTE);
+            output.writeByte((Byte) message);
+        } else if (message instanceof Short) {
+            output.writeByte(TYPE_SHORT);
+            output.writeShort((Short) message);
+        } else if (message instanceof Character) {
+            output.writeByte(TYPE_CHARACTER);
+            output.writeChar((Character) message);
+        } else if (message instanceof Integer) {
+            output.writeByte(TYPE_INTEGER);
+            writeVarLong(output, (Integer) message);
+        } else if (message instanceof Long) {
+            output.writeByte(TYPE_LONG);
+            writeVarLong(output, (Long) message);
+        } else if (message instanceof Float) {
+            output.writeByte(TYPE_FLOAT);
+            output.writeFloat((Float) message);
+        } else if (message instanceof Double) {
+            output.writeByte(TYPE_DOUBLE);
+            output.writeDouble((Double) message);
+        } else if (message instanceof String) {
+            output.writeByte(TYPE_STRING);
+            output.writeUTF((String) message);
+        } else if (message instanceof Enum) {
+            output.writeByte(TYPE_ENUM);
+            output.writeUTF(((Enum<?>) message).getDeclaringClass().getName());
+            output.writeUTF(((Enum<?>) message).name());
+        } else {
+            String className = message.getClass().getName();
+            MessageCodec codec = codecs.get(className);
+            if (codec == null) {
+                throw new IllegalArgumentException("Message of class " + className
+                        + " cannot be recorded, no codec is registered for it.");
+            }
+            output.writeByte(TYPE_CUSTOM);
+            output.writeUTF(className);
+            codec.write(message, output);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Object readMessage(DataInput input, Map<String, MessageCodec> codecs) throws IOException {
+        int type = input.readUnsignedByte();
+        switch (type) {
+            case TYPE_BOOLEAN:
+                return input.readBoolean();
+            case TYPE_BYTE:
+                return input.readByte();
+            case TYPE_SHORT:
+                return input.readShort();
+            case TYPE_CHARACTER:
+                return input.readChar();
+            case TYPE_INTEGER:
+                return (int) readVarLong(input);
+            case TYPE_LONG:
+                return readVarLong(input);
+            case TYPE_FLOAT:
+                return input.readFloat();
+            case TYPE_DOUBLE:
+                return input.readDouble();
+            case TYPE_STRING:
+                return input.readUTF();
+            case TYPE_ENUM: {
+                String className = input.readUTF();
+                String name = input.readUTF();
+                try {
+                    return Enum.valueOf((Class<Enum>) Class.forName(className), name);
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException("Enum class " + className + " of recorded message not found.", e);
+                }
+            }
+            case TYPE_CUSTOM: {
+                String className = input.readUTF();
+                MessageCodec codec = codecs.get(className);
+                if (codec == null) {
+                    throw new IllegalStateException("Message of class " + className
+                            + " cannot be replayed, no codec is registered for it.");
+                }
+                return codec.read(input);
+            }
+            default:
+                throw new IOException("Unknown message type " + type + ".");
+        }
+    }
+}
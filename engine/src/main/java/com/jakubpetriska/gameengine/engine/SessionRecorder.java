@@ -0,0 +1,177 @@
+package com.jakubpetriska.gameengine.engine;
+
+import com.jakubpetriska.gameengine.api.Touch;
+import com.jakubpetriska.gameengine.platform.Clock;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records everything that comes into the {@link Engine} from the outside, so the session
+ * can be replayed by {@link SessionReplay} with exactly the same results.
+ * <p/>
+ * Recorded are readings of the clock, touches and messages received from
+ * {@link com.jakubpetriska.gameengine.api.external.ExternalMessenger} in every update step,
+ * the number of {@link com.jakubpetriska.gameengine.api.external.ExternalCommands} run in every frame
+ * and the seed of {@link com.jakubpetriska.gameengine.api.Application#getRandom()}.
+ *
+ * @see Engine#startRecording(SessionRecorder)
+ */
+public class SessionRecorder {
+
+    private final DataOutputStream mOutput;
+    private final Map<String, MessageCodec> mCodecs = new HashMap<>();
+
+    private boolean mStarted = false;
+    private boolean mClosed = false;
+
+    private long mLastClockReading = 0;
+
+    /**
+     * Creates new recorder.
+     *
+     * @param output Stream into which the session is written. It is closed
+     *               together with the recorder.
+     */
+    public SessionRecorder(OutputStream output) {
+        if (output == null) {
+            throw new IllegalArgumentException("Output cannot be null.");
+        }
+        mOutput = new DataOutputStream(new BufferedOutputStream(output));
+    }
+
+    /**
+     * Registers codec for messages of given class. Messages of classes
+     * other than primitive wrappers, String and enums can be recorded only with a codec.
+     *
+     * @param messageClass Class of the messages.
+     * @param codec        Codec writing the messages.
+     */
+    public void registerCodec(Class<?> messageClass, MessageCodec codec) {
+        mCodecs.put(messageClass.getName(), codec);
+    }
+
+    void start(long randomSeed) {
+        if (mStarted) {
+            throw new IllegalStateException("Recorder can be used only once.");
+        }
+        mStarted = true;
+        try {
+            mOutput.writeInt(SessionLog.MAGIC);
+            mOutput.writeInt(SessionLog.VERSION);
+            mOutput.writeLong(randomSeed);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error during writing of session log.", e);
+        }
+    }
+
+    /**
+     * Wraps the clock so every reading is recorded.
+     *
+     * @param clock Clock to wrap.
+     * @return Recording clock.
+     */
+    Clock wrapClock(final Clock clock) {
+        return new Clock() {
+            @Override
+            public long nanoTime() {
+                long reading = clock.nanoTime();
+                if (!mClosed) {
+                    try {
+                        mOutput.writeByte(SessionLog.EVENT_CLOCK);
+                        SessionLog.writeVarLong(mOutput, reading - mLastClockReading);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Error during writing of session log.", e);
+                    }
+                    mLastClockReading = reading;
+                }
+                return reading;
+            }
+        };
+    }
+
+    /**
+     * Records inputs of one update step.
+     *
+     * @param touches  Touches valid for the step.
+     * @param messages Messages received from the outside valid for the step.
+     */
+    void recordStep(List<Touch> touches, List<Object> messages) {
+        try {
+            mOutput.writeByte(SessionLog.EVENT_STEP);
+            SessionLog.writeVarLong(mOutput, touches.size());
+            for (int i = 0; i < touches.size(); ++i) {
+                SessionLog.writeTouch(mOutput, touches.get(i));
+            }
+            SessionLog.writeVarLong(mOutput, messages.size());
+            for (int i = 0; i < messages.size(); ++i) {
+                SessionLog.writeMessage(mOutput, messages.get(i), mCodecs);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Error during writing of session log.", e);
+        }
+    }
+
+    /**
+     * Records the number of external commands run at the start of the frame.
+     *
+     * @param commandCount Number of run commands.
+     */
+    void recordCommands(int commandCount) {
+        if (commandCount == 0) {
+            return;
+        }
+        try {
+            mOutput.writeByte(SessionLog.EVENT_COMMANDS);
+            SessionLog.writeVarLong(mOutput, commandCount);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error during writing of session log.", e);
+        }
+    }
+
+    /**
+     * Records the number of work slices run at the end of the frame.
+     *
+     * @param sliceCount Number of run slices.
+     */
+    void recordWorkSlices(int sliceCount) {
+        if (sliceCount == 0) {
+            return;
+        }
+        try {
+            mOutput.writeByte(SessionLog.EVENT_WORK_SLICES);
+            SessionLog.writeVarLong(mOutput, sliceCount);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error during writing of session log.", e);
+        }
+    }
+
+    void endFrame() {
+        try {
+            mOutput.writeByte(SessionLog.EVENT_FRAME_END);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error during writing of session log.", e);
+        }
+    }
+
+    /**
+     * Ends the log and closes the output.
+     */
+    void close() {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        try {
+            mOutput.writeByte(SessionLog.EVENT_END);
+            mOutput.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Error during writing of session log.", e);
+        }
+    }
+}
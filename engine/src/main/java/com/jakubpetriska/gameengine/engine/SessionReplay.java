@@ -0,0 +1,288 @@
+package com.jakubpetriska.gameengine.engine;
+
+import com.jakubpetriska.gameengine.api.Touch;
+import com.jakubpetriska.gameengine.api.external.ExternalMessenger;
+import com.jakubpetriska.gameengine.platform.Clock;
+import com.jakubpetriska.gameengine.platform.TouchInputInternal;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Feeds session recorded by {@link SessionRecorder} back into the {@link Engine}.
+ * <p/>
+ * Engine replaying the session reads the recorded clock values, touches and messages
+ * instead of real ones, so as long as it runs the same scenes with the same configuration
+ * every frame has exactly the same results as during recording. When the engine
+ * requests different inputs than were recorded replay fails with {@link IllegalStateException}.
+ * <p/>
+ * Frames are read one by one, so long sessions do not need to fit into memory.
+ *
+ * @see Engine#startReplay(SessionReplay)
+ */
+public class SessionReplay {
+
+    private static class StepRecord {
+        final List<Touch> touches = new ArrayList<>();
+        final List<Object> messages = new ArrayList<>();
+        int touchCount;
+    }
+
+    private final DataInputStream mInput;
+    private final long mRandomSeed;
+    private final Map<String, MessageCodec> mCodecs = new HashMap<>();
+
+    private boolean mStarted = false;
+    private boolean mEnded = false;
+    private long mFrameCount = 0;
+
+    // Inputs of the loaded frame
+    private long mLastClockReading = 0;
+    private long[] mClockReadings = new long[4];
+    private int mClockReadingCount = 0;
+    private int mNextClockReading = 0;
+    private final List<StepRecord> mSteps = new ArrayList<>();
+    private int mStepCount = 0;
+    private int mNextStep = 0;
+    private int mCommandCount = 0;
+    private int mWorkSliceCount = 0;
+
+    private final ReplayTouchInput mTouchInput = new ReplayTouchInput();
+
+    /**
+     * Touch input reporting recorded touches.
+     */
+    private static class ReplayTouchInput implements TouchInputInternal {
+        private final List<Touch> mTouches = new ArrayList<>();
+
+        @Override
+        public void update() {
+
+        }
+
+        @Override
+        public void postUpdate() {
+
+        }
+
+        @Override
+        public List<Touch> getTouches() {
+            return mTouches;
+        }
+    }
+
+    /**
+     * Opens recorded session and reads it's header.
+     *
+     * @param input Stream containing the session. It is closed together with the replay.
+     */
+    public SessionReplay(InputStream input) {
+        if (input == null) {
+            throw new IllegalArgumentException("Input cannot be null.");
+        }
+        mInput = new DataInputStream(new BufferedInputStream(input));
+        try {
+            if (mInput.readInt() != SessionLog.MAGIC) {
+                throw new IllegalStateException("Input does not contain recorded session.");
+            }
+            int version = mInput.readInt();
+            if (version != SessionLog.VERSION) {
+                throw new IllegalStateException("Unsupported version " + version + " of recorded session.");
+            }
+            mRandomSeed = mInput.readLong();
+        } catch (IOException e) {
+            throw new IllegalStateException("Error during reading of session log.", e);
+        }
+    }
+
+    /**
+     * Registers codec for messages of given class. Codecs must match those
+     * registered in {@link SessionRecorder}.
+     *
+     * @param messageClass Class of the messages.
+     * @param codec        Codec reading the messages.
+     */
+    public void registerCodec(Class<?> messageClass, MessageCodec codec) {
+        mCodecs.put(messageClass.getName(), codec);
+    }
+
+    public long getRandomSeed() {
+        return mRandomSeed;
+    }
+
+    /**
+     * Checks whether there is another recorded frame to replay.
+     *
+     * @return True if there is another frame.
+     */
+    public boolean hasNextFrame() {
+        return mStarted && !mEnded;
+    }
+
+    /**
+     * Returns the number of frames replayed so far.
+     *
+     * @return Number of replayed frames.
+     */
+    public long getReplayedFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Closes the input.
+     */
+    public void close() {
+        mEnded = true;
+        try {
+            mInput.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Error during closing of session log.", e);
+        }
+    }
+
+    void start() {
+        if (mStarted) {
+            throw new IllegalStateException("Replay can be used only once.");
+        }
+        mStarted = true;
+        loadFrame();
+    }
+
+    Clock getClock() {
+        return new Clock() {
+            @Override
+            public long nanoTime() {
+                if (mNextClockReading == mClockReadingCount) {
+                    throw new IllegalStateException("Replay diverged from the recording in frame "
+                            + mFrameCount + ", clock was read more times than recorded.");
+                }
+                return mClockReadings[mNextClockReading++];
+            }
+        };
+    }
+
+    TouchInputInternal getTouchInput() {
+        return mTouchInput;
+    }
+
+    /**
+     * Sets touches and sends messages of the next recorded step. Must be called before
+     * systems are updated, so messages are received during the step.
+     *
+     * @param externalMessenger Messenger through which messages are sent into the engine.
+     */
+    void beforeStep(ExternalMessenger externalMessenger) {
+        if (mNextStep == mStepCount) {
+            throw new IllegalStateException("Replay diverged from the recording in frame "
+                    + mFrameCount + ", more steps were run than recorded.");
+        }
+        StepRecord step = mSteps.get(mNextStep++);
+        mTouchInput.mTouches.clear();
+        for (int i = 0; i < step.touchCount; ++i) {
+            mTouchInput.mTouches.add(step.touches.get(i));
+        }
+        for (int i = 0; i < step.messages.size(); ++i) {
+            externalMessenger.sendMessage(step.messages.get(i));
+        }
+    }
+
+    /**
+     * Returns the number of external commands that were run at the start of the recorded frame.
+     *
+     * @return Number of commands.
+     */
+    int getCommandCount() {
+        return mCommandCount;
+    }
+
+    /**
+     * Returns the number of work slices that were run at the end of the recorded frame.
+     *
+     * @return Number of work slices.
+     */
+    int getWorkSliceCount() {
+        return mWorkSliceCount;
+    }
+
+    void endFrame() {
+        if (mNextClockReading != mClockReadingCount || mNextStep != mStepCount) {
+            throw new IllegalStateException("Replay diverged from the recording in frame "
+                    + mFrameCount + ", recorded inputs were not used.");
+        }
+        ++mFrameCount;
+        loadFrame();
+    }
+
+    private void loadFrame() {
+        mClockReadingCount = 0;
+        mNextClockReading = 0;
+        mStepCount = 0;
+        mNextStep = 0;
+        mCommandCount = 0;
+        mWorkSliceCount = 0;
+        if (mEnded) {
+            return;
+        }
+        try {
+            while (true) {
+                int event = mInput.readUnsignedByte();
+                switch (event) {
+                    case SessionLog.EVENT_CLOCK:
+                        if (mClockReadingCount == mClockReadings.length) {
+                            mClockReadings = Arrays.copyOf(mClockReadings, mClockReadingCount * 2);
+                        }
+                        mLastClockReading += SessionLog.readVarLong(mInput);
+                        mClockReadings[mClockReadingCount++] = mLastClockReading;
+                        break;
+                    case SessionLog.EVENT_STEP:
+                        readStep();
+                        break;
+                    case SessionLog.EVENT_COMMANDS:
+                        mCommandCount = (int) SessionLog.readVarLong(mInput);
+                        break;
+                    case SessionLog.EVENT_WORK_SLICES:
+                        mWorkSliceCount = (int) SessionLog.readVarLong(mInput);
+                        break;
+                    case SessionLog.EVENT_FRAME_END:
+                        return;
+                    case SessionLog.EVENT_END:
+                        mEnded = true;
+                        return;
+                    default:
+                        throw new IllegalStateException("Unknown event " + event + " in session log.");
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Error during reading of session log.", e);
+        }
+    }
+
+    private void readStep() throws IOException {
+        if (mStepCount == mSteps.size()) {
+            mSteps.add(new StepRecord());
+        }
+        StepRecord step = mSteps.get(mStepCount++);
+
+        // Touch objects are reused, touches are not valid after the frame anyway
+        step.touchCount = (int) SessionLog.readVarLong(mInput);
+        while (step.touches.size() < step.touchCount) {
+            step.touches.add(new Touch());
+        }
+        for (int i = 0; i < step.touchCount; ++i) {
+            SessionLog.readTouch(mInput, step.touches.get(i));
+        }
+
+        step.messages.clear();
+        int messageCount = (int) SessionLog.readVarLong(mInput);
+        for (int i = 0; i < messageCount; ++i) {
+            step.messages.add(SessionLog.readMessage(mInput, mCodecs));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.jakubpetriska.gameengine.engine;
+
+import com.jakubpetriska.gameengine.api.GameObject;
+
+import java.util.ArrayList;
+
+/**
+ * Records structural changes of the scene, such as adding and removing of
+ * {@link com.jakubpetriska.gameengine.api.Component Components} and child {@link GameObject GameObjects},
+ * while the {@link Engine} iterates over the scene.
+ * <p/>
+ * Recorded changes are applied in one batch at sync points defined by the engine, which are the end of every update step and the end of post update.
+ * Components and systems therefore never see the scene change under their hands and the engine
+ * does not have to guard it's iteration.
+ * <p/>
+ * Changes can be recorded from any thread. They are applied in order of top level subtrees
+ * which recorded them and in order in which they were recorded within a subtree, so parallel
+ * update applies them in the same order as serial update, see {@link SubtreeOrderedQueue}.
+ * Outside of the iteration changes are applied immediately.
+ */
+public class StructureCommandBuffer {
+
+    /**
+     * Structural change of the scene.
+     */
+    public interface Command {
+        void apply();
+    }
+
+    private final SubtreeOrderedQueue<Command> mCommands = new SubtreeOrderedQueue<>();
+    private final ArrayList<Command> mAppliedCommands = new ArrayList<>();
+
+    // Set from the engine thread before worker threads are started
+    private volatile boolean mRecording = false;
+
+    /**
+     * Applies the command immediately or records it if the engine is iterating over the scene.
+     *
+     * @param command Command to execute.
+     */
+    public void execute(Command command) {
+        if (mRecording) {
+            mCommands.add(command);
+        } else {
+            command.apply();
+        }
+    }
+
+    /**
+     * Checks whether commands are currently recorded instead of applied.
+     *
+     * @return True if commands are recorded.
+     */
+    public boolean isRecording() {
+        return mRecording;
+    }
+
+    /**
+     * Starts or stops recording of commands.
+     *
+     * @param recording True if commands should be recorded.
+     */
+    void setRecording(boolean recording) {
+        mRecording = recording;
+    }
+
+    /**
+     * Applies all recorded commands. Commands issued while the recorded ones are applied,
+     * for example from {@link com.jakubpetriska.gameengine.api.Component#start()},
+     * are applied immediately.
+     */
+    void apply() {
+        boolean recording = mRecording;
+        mRecording = false;
+        try {
+            mCommands.drainTo(mAppliedCommands);
+            for (int i = 0; i < mAppliedCommands.size(); ++i) {
+                mAppliedCommands.get(i).apply();
+            }
+        } finally {
+            mAppliedCommands.clear();
+            mRecording = recording;
+        }
+    }
+}
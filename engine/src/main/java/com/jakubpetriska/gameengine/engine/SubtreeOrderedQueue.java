@@ -0,0 +1,101 @@
+package com.jakubpetriska.gameengine.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Queue of work deferred during update that can be added to from any thread, but is drained
+ * in an order that does not depend on timing of the threads.
+ * <p/>
+ * Every item is tagged with the index of the top level subtree which the adding thread
+ * was updating, see {@link SubtreeOrderedQueue#setCurrentSubtree(int)}. Items are drained
+ * ordered by that index, items of one subtree keep the order in which they were added.
+ * Items added outside of update of any subtree come first. Since every subtree is updated
+ * by a single thread, parallel and serial update drain the same sequence of items.
+ *
+ * @param <T> Type of the items.
+ */
+public class SubtreeOrderedQueue<T> {
+
+    /**
+     * Index used for items added outside of update of any subtree.
+     */
+    public static final int NO_SUBTREE = -1;
+
+    private static final ThreadLocal<int[]> sCurrentSubtree = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[]{NO_SUBTREE};
+        }
+    };
+
+    private static final Comparator<Entry<?>> ENTRY_COMPARATOR = new Comparator<Entry<?>>() {
+        @Override
+        public int compare(Entry<?> first, Entry<?> second) {
+            return first.subtree < second.subtree ? -1 : (first.subtree == second.subtree ? 0 : 1);
+        }
+    };
+
+    private static class Entry<T> {
+        final int subtree;
+        final T item;
+
+        Entry(int subtree, T item) {
+            this.subtree = subtree;
+            this.item = item;
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Entry<T>> mEntries = new ConcurrentLinkedQueue<>();
+
+    // Used only by the draining thread
+    private final ArrayList<Entry<T>> mDrainedEntries = new ArrayList<>();
+
+    /**
+     * Sets index of the top level subtree updated by the calling thread. Must be called
+     * by {@link Engine} before every subtree is updated and reset to {@link SubtreeOrderedQueue#NO_SUBTREE}
+     * afterwards.
+     *
+     * @param subtreeIndex Index of the top level subtree.
+     */
+    public static void setCurrentSubtree(int subtreeIndex) {
+        sCurrentSubtree.get()[0] = subtreeIndex;
+    }
+
+    /**
+     * Adds item tagged with the subtree updated by the calling thread.
+     *
+     * @param item Item to add.
+     */
+    public void add(T item) {
+        mEntries.add(new Entry<>(sCurrentSubtree.get()[0], item));
+    }
+
+    /**
+     * Removes all items and adds them into given list in order of their subtrees.
+     * Must not be called concurrently with itself.
+     *
+     * @param result List into which the items are added.
+     */
+    public void drainTo(List<T> result) {
+        boolean sorted = true;
+        int lastSubtree = NO_SUBTREE;
+        Entry<T> entry;
+        while ((entry = mEntries.poll()) != null) {
+            sorted &= entry.subtree >= lastSubtree;
+            lastSubtree = entry.subtree;
+            mDrainedEntries.add(entry);
+        }
+        if (!sorted) {
+            // Sort is stable, so items of one subtree keep their order
+            Collections.sort(mDrainedEntries, ENTRY_COMPARATOR);
+        }
+        for (int i = 0; i < mDrainedEntries.size(); ++i) {
+            result.add(mDrainedEntries.get(i).item);
+        }
+        mDrainedEntries.clear();
+    }
+}
@@ -0,0 +1,330 @@
+package com.jakubpetriska.gameengine.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Runs {@link ISystem ISystems} in order given by their phases and dependencies.
+ * <p/>
+ * Every system is registered into a phase. Systems of lower phase always run before
+ * systems of higher phase. Within a phase systems declare which resources they read
+ * and write. Resources are identified by classes, for example
+ * {@link com.jakubpetriska.gameengine.api.Messenger}. Two systems conflict if one of them
+ * writes a resource the other one reads or writes. Conflicting systems run in the order
+ * of their registration, systems that do not conflict can run concurrently when
+ * a {@link WorkerPool} is available.
+ * <p/>
+ * System registered without declared resources conflicts with all other systems in it's phase.
+ */
+public class SystemScheduler {
+
+    /**
+     * Phase for systems preparing data for other systems, such as time.
+     */
+    public static final int PHASE_EARLY = -100;
+
+    /**
+     * Default phase.
+     */
+    public static final int PHASE_DEFAULT = 0;
+
+    /**
+     * Phase for systems processing results of other systems, such as collisions.
+     */
+    public static final int PHASE_LATE = 100;
+
+    private static class Entry {
+        final ISystem system;
+        final int phase;
+        final Class<?>[] reads;
+        final Class<?>[] writes;
+        final int registrationOrder;
+
+        final Runnable updateTask;
+        final Runnable postUpdateTask;
+
+        // Timing of the last run, measured only when profiler is enabled
+        boolean timed;
+        long updateNanos;
+        long postUpdateNanos;
+        int updateSection = -1;
+        int postUpdateSection = -1;
+
+        Entry(final ISystem system, int phase, Class<?>[] reads, Class<?>[] writes, int registrationOrder) {
+            this.system = system;
+            this.phase = phase;
+            this.reads = reads;
+            this.writes = writes;
+            this.registrationOrder = registrationOrder;
+
+            updateTask = new Runnable() {
+                @Override
+                public void run() {
+                    if (timed) {
+                        long start = System.nanoTime();
+                        system.update();
+                        updateNanos = System.nanoTime() - start;
+                    } else {
+                        system.update();
+                    }
+                }
+            };
+            postUpdateTask = new Runnable() {
+                @Override
+                public void run() {
+                    if (timed) {
+                        long start = System.nanoTime();
+                        system.postUpdate();
+                        postUpdateNanos = System.nanoTime() - start;
+                    } else {
+                        system.postUpdate();
+                    }
+                }
+            };
+        }
+
+        boolean isExclusive() {
+            return reads == null && writes == null;
+        }
+
+        boolean conflictsWith(Entry other) {
+            return isExclusive() || other.isExclusive()
+                    || intersects(writes, other.writes)
+                    || intersects(writes, other.reads)
+                    || intersects(reads, other.writes);
+        }
+
+        private static boolean intersects(Class<?>[] first, Class<?>[] second) {
+            if (first == null || second == null) {
+                return false;
+            }
+            for (Class<?> firstClass : first) {
+                for (Class<?> secondClass : second) {
+                    if (firstClass == secondClass) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final Comparator<Entry> ENTRY_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry first, Entry second) {
+            if (first.phase != second.phase) {
+                return first.phase < second.phase ? -1 : 1;
+            }
+            return first.registrationOrder < second.registrationOrder ? -1
+                    : (first.registrationOrder == second.registrationOrder ? 0 : 1);
+        }
+    };
+
+    private final List<Entry> mEntries = new ArrayList<>();
+    private int mRegistrationCounter = 0;
+
+    // Waves of systems in order of execution, systems in one wave can run concurrently
+    private final List<List<Runnable>> mUpdateWaves = new ArrayList<>();
+    private final List<List<Runnable>> mPostUpdateWaves = new ArrayList<>();
+    private boolean mWavesValid = false;
+
+    /**
+     * Registers system that conflicts with all other systems in it's phase.
+     *
+     * @param system System to register.
+     * @param phase  Phase of the system.
+     */
+    public void register(ISystem system, int phase) {
+        register(system, phase, null, null);
+    }
+
+    /**
+     * Registers system with declared dependencies.
+     *
+     * @param system System to register.
+     * @param phase  Phase of the system.
+     * @param reads  Resources that the system reads. Can be null.
+     * @param writes Resources that the system writes. Can be null.
+     *               If both reads and writes are null system conflicts with all other systems.
+     */
+    public void register(ISystem system, int phase, Class<?>[] reads, Class<?>[] writes) {
+        if (system == null) {
+            throw new IllegalArgumentException("System cannot be null.");
+        }
+        if (contains(system)) {
+            throw new IllegalStateException("System is already registered.");
+        }
+        mEntries.add(new Entry(system, phase,
+                reads == null && writes != null ? new Class<?>[0] : reads,
+                writes == null && reads != null ? new Class<?>[0] : writes,
+                mRegistrationCounter++));
+        mWavesValid = false;
+    }
+
+    /**
+     * Unregisters the system.
+     *
+     * @param system System to unregister.
+     * @return True if system was registered, false otherwise.
+     */
+    public boolean unregister(ISystem system) {
+        for (int i = 0; i < mEntries.size(); ++i) {
+            if (mEntries.get(i).system == system) {
+                mEntries.remove(i);
+                mWavesValid = false;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the system is registered.
+     *
+     * @param system System to check.
+     * @return True if system is registered, false otherwise.
+     */
+    public boolean contains(ISystem system) {
+        for (int i = 0; i < mEntries.size(); ++i) {
+            if (mEntries.get(i).system == system) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calls {@link ISystem#update()} on all systems.
+     *
+     * @param workerPool Pool used to run independent systems concurrently.
+     *                   If null systems run one by one on the calling thread.
+     */
+    public void update(WorkerPool workerPool) {
+        update(workerPool, null);
+    }
+
+    /**
+     * Calls {@link ISystem#update()} on all systems and reports time spent in every system
+     * to the profiler if it is enabled.
+     *
+     * @param workerPool Pool used to run independent systems concurrently.
+     *                   If null systems run one by one on the calling thread.
+     * @param profiler   Profiler receiving the timings. Can be null.
+     */
+    public void update(WorkerPool workerPool, Profiler profiler) {
+        boolean timed = startTiming(profiler);
+        run(mUpdateWaves, workerPool);
+        if (timed) {
+            for (int i = 0; i < mEntries.size(); ++i) {
+                Entry entry = mEntries.get(i);
+                if (entry.updateSection < 0) {
+                    entry.updateSection = profiler.getSectionId(
+                            "System " + entry.system.getClass().getName() + ".update");
+                }
+                profiler.add(entry.updateSection, entry.updateNanos);
+            }
+        }
+    }
+
+    /**
+     * Calls {@link ISystem#postUpdate()} on all systems.
+     *
+     * @param workerPool Pool used to run independent systems concurrently.
+     *                   If null systems run one by one on the calling thread.
+     */
+    public void postUpdate(WorkerPool workerPool) {
+        postUpdate(workerPool, null);
+    }
+
+    /**
+     * Calls {@link ISystem#postUpdate()} on all systems and reports time spent in every system
+     * to the profiler if it is enabled.
+     *
+     * @param workerPool Pool used to run independent systems concurrently.
+     *                   If null systems run one by one on the calling thread.
+     * @param profiler   Profiler receiving the timings. Can be null.
+     */
+    public void postUpdate(WorkerPool workerPool, Profiler profiler) {
+        boolean timed = startTiming(profiler);
+        run(mPostUpdateWaves, workerPool);
+        if (timed) {
+            for (int i = 0; i < mEntries.size(); ++i) {
+                Entry entry = mEntries.get(i);
+                if (entry.postUpdateSection < 0) {
+                    entry.postUpdateSection = profiler.getSectionId(
+                            "System " + entry.system.getClass().getName() + ".postUpdate");
+                }
+                profiler.add(entry.postUpdateSection, entry.postUpdateNanos);
+            }
+        }
+    }
+
+    private boolean startTiming(Profiler profiler) {
+        boolean timed = profiler != null && profiler.isEnabled();
+        for (int i = 0; i < mEntries.size(); ++i) {
+            mEntries.get(i).timed = timed;
+        }
+        return timed;
+    }
+
+    private void run(List<List<Runnable>> waves, WorkerPool workerPool) {
+        if (!mWavesValid) {
+            buildWaves();
+        }
+        for (int i = 0; i < waves.size(); ++i) {
+            List<Runnable> wave = waves.get(i);
+            if (workerPool == null || wave.size() == 1) {
+                for (int j = 0; j < wave.size(); ++j) {
+                    wave.get(j).run();
+                }
+            } else {
+                workerPool.runAll(wave);
+            }
+        }
+    }
+
+    /**
+     * Groups systems into waves. Every system is placed into the first wave after
+     * all waves containing earlier registered systems of the same phase it conflicts with.
+     */
+    private void buildWaves() {
+        mUpdateWaves.clear();
+        mPostUpdateWaves.clear();
+
+        List<Entry> entries = new ArrayList<>(mEntries);
+        Collections.sort(entries, ENTRY_ORDER);
+
+        int phaseStart = 0;
+        int[] levels = new int[entries.size()];
+        while (phaseStart < entries.size()) {
+            int phase = entries.get(phaseStart).phase;
+            int phaseEnd = phaseStart;
+            while (phaseEnd < entries.size() && entries.get(phaseEnd).phase == phase) {
+                ++phaseEnd;
+            }
+
+            int firstWave = mUpdateWaves.size();
+            for (int i = phaseStart; i < phaseEnd; ++i) {
+                Entry entry = entries.get(i);
+                int level = 0;
+                for (int j = phaseStart; j < i; ++j) {
+                    if (levels[j] >= level && entry.conflictsWith(entries.get(j))) {
+                        level = levels[j] + 1;
+                    }
+                }
+                levels[i] = level;
+
+                while (mUpdateWaves.size() <= firstWave + level) {
+                    mUpdateWaves.add(new ArrayList<Runnable>());
+                    mPostUpdateWaves.add(new ArrayList<Runnable>());
+                }
+                mUpdateWaves.get(firstWave + level).add(entry.updateTask);
+                mPostUpdateWaves.get(firstWave + level).add(entry.postUpdateTask);
+            }
+            phaseStart = phaseEnd;
+        }
+        mWavesValid = true;
+    }
+}
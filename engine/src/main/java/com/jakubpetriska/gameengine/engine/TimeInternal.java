@@ -1,31 +1,149 @@
 package com.jakubpetriska.gameengine.engine;
 
 import com.jakubpetriska.gameengine.api.Time;
+import com.jakubpetriska.gameengine.platform.Clock;
 
 /**
  * Internal implementation of {@link Time} interface.
+ * <p/>
+ * Time can run in two modes. In variable time step mode (default) every call to
+ * {@link TimeInternal#update()} measures the real time that passed since the last frame.
+ * In fixed time step mode real time is only measured once per rendered frame by
+ * {@link TimeInternal#startFixedStepFrame()} and every call to {@link TimeInternal#update()}
+ * advances the time by exactly one fixed step.
  */
 public class TimeInternal implements Time, ISystem {
 
-    private final long engineInstanceStartTime;
+    private static final float NANOS_IN_SECOND = 1000000000f;
+
+    /**
+     * Clock measuring real time.
+     */
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return java.lang.System.nanoTime();
+        }
+    };
+
+    private Clock clock;
+    private long engineInstanceStartTime;
 
     private float frameStart;
     private float timeDelta;
 
+    private float fixedTimeStep = 0;
+    private long fixedTimeStepNanos = 0;
+    private int maxFixedStepsPerFrame;
+
+    // Real time of the last rendered frame start, used only in fixed time step mode
+    private long lastRealFrameStart = -1;
+    // Real time in nanoseconds that was not yet consumed by fixed steps
+    private long accumulator;
+    private float interpolationAlpha = 1;
+
     public TimeInternal() {
-        engineInstanceStartTime = java.lang.System.currentTimeMillis();
+        setClock(SYSTEM_CLOCK);
+    }
+
+    /**
+     * Sets the clock from which the time is measured. Time from start
+     * is measured from the moment of this call.
+     *
+     * @param clock Clock to use.
+     */
+    public void setClock(Clock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null.");
+        }
+        this.clock = clock;
+        engineInstanceStartTime = clock.nanoTime();
+        lastRealFrameStart = -1;
+    }
+
+    /**
+     * Switches time into fixed time step mode.
+     *
+     * @param timeStep         Length of one step in seconds. If 0 time is switched
+     *                         back into variable time step mode.
+     * @param maxStepsPerFrame Maximal number of steps that can be run during one frame.
+     */
+    public void setFixedTimeStep(float timeStep, int maxStepsPerFrame) {
+        if (timeStep < 0) {
+            throw new IllegalArgumentException("Fixed time step cannot be negative.");
+        }
+        if (timeStep > 0 && maxStepsPerFrame < 1) {
+            throw new IllegalArgumentException("At least one fixed step must be allowed per frame.");
+        }
+        fixedTimeStep = timeStep;
+        fixedTimeStepNanos = toNanos(timeStep);
+        maxFixedStepsPerFrame = maxStepsPerFrame;
+        lastRealFrameStart = -1;
+        accumulator = 0;
+        interpolationAlpha = 1;
+    }
+
+    /**
+     * Converts time in seconds into nanoseconds the same way fixed time step is converted.
+     *
+     * @param seconds Time in seconds.
+     * @return Time in nanoseconds.
+     */
+    public static long toNanos(float seconds) {
+        return Math.round(seconds * (double) NANOS_IN_SECOND);
+    }
+
+    public boolean isFixedTimeStep() {
+        return fixedTimeStep > 0;
     }
 
     /**
-     * Must be called by {@link Engine} on the start of every frame.
+     * Must be called by {@link Engine} on the start of every frame in fixed time step mode.
+     * Measures the real time that passed since the last frame and computes how many
+     * fixed steps should be run during this frame.
+     * <p/>
+     * In case more steps are needed than allowed the rest of the time is dropped,
+     * so slow frames do not cause even slower frames.
+     *
+     * @return Number of fixed steps that should be run during this frame.
+     */
+    public int startFixedStepFrame() {
+        long realFrameStart = getRealTimeNanos();
+        if (lastRealFrameStart < 0) {
+            // Run one step in the first frame so the first rendered frame is updated
+            accumulator = fixedTimeStepNanos;
+        } else {
+            // Time is accumulated in nanoseconds so it does not lose precision in long runs
+            accumulator += realFrameStart - lastRealFrameStart;
+        }
+        lastRealFrameStart = realFrameStart;
+
+        long steps = accumulator / fixedTimeStepNanos;
+        if (steps > maxFixedStepsPerFrame) {
+            steps = maxFixedStepsPerFrame;
+            accumulator = fixedTimeStepNanos * steps;
+        }
+        accumulator -= fixedTimeStepNanos * steps;
+        interpolationAlpha = accumulator / (float) fixedTimeStepNanos;
+        return (int) steps;
+    }
+
+    /**
+     * Must be called by {@link Engine} on the start of every frame
+     * or on the start of every fixed step in fixed time step mode.
      * Recalculates values to be valid for this new frame.
      */
     @Override
     public void update() {
+        if (isFixedTimeStep()) {
+            frameStart += fixedTimeStep;
+            timeDelta = fixedTimeStep;
+            return;
+        }
+
         float lastFrameStart = frameStart;
 
-        long frameStartMillis = java.lang.System.currentTimeMillis() - engineInstanceStartTime;
-        frameStart = frameStartMillis / 1000f;
+        frameStart = getRealTimeNanos() / NANOS_IN_SECOND;
 
         if(lastFrameStart != 0) {
             timeDelta = frameStart - lastFrameStart;
@@ -37,6 +155,10 @@ public class TimeInternal implements Time, ISystem {
 
     }
 
+    private long getRealTimeNanos() {
+        return clock.nanoTime() - engineInstanceStartTime;
+    }
+
     @Override
     public float getTimeFromStart() {
         return frameStart;
@@ -46,4 +168,9 @@ public class TimeInternal implements Time, ISystem {
     public float getTimeDelta() {
         return timeDelta;
     }
+
+    @Override
+    public float getInterpolationAlpha() {
+        return isFixedTimeStep() ? interpolationAlpha : 1;
+    }
 }
@@ -0,0 +1,277 @@
+package com.jakubpetriska.gameengine.engine;
+
+import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.components.Transform;
+import com.jakubpetriska.gameengine.api.math.Quaternion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores data of all {@link Transform Transforms} of a scene in primitive arrays.
+ * <p/>
+ * Every transform occupies one slot. Values of the slot are stored in the arrays
+ * of a {@link TransformStorage.Page} with stride {@link TransformStorage#VECTOR_STRIDE}
+ * for vectors and {@link Quaternion#STRIDE} for quaternions. Pages are never
+ * moved or resized, so arrays obtained from a page stay valid while the storage grows.
+ * <p/>
+ * Slots can be acquired and released from any thread.
+ * <p/>
+ * Storage also tracks whether absolute transformations of all objects were computed by
+ * the engine. Until the scene is updated again reading them is a plain read. Transformations
+ * changed meanwhile are collected as changed roots and only their subtrees are computed again.
+ */
+public class TransformStorage {
+
+    /**
+     * Number of slots in one page.
+     */
+    public static final int PAGE_SIZE = 256;
+
+    /**
+     * Number of floats occupied by one vector.
+     */
+    public static final int VECTOR_STRIDE = 3;
+
+    /**
+     * Holds values of {@link TransformStorage#PAGE_SIZE} slots, or of a single slot
+     * if it was created by {@link TransformStorage#detach(int)}.
+     */
+    public static class Page {
+        /**
+         * Local positions.
+         */
+        public final float[] positions;
+
+        /**
+         * Local rotations in degrees.
+         */
+        public final float[] rotations;
+
+        /**
+         * Local rotations as quaternions. Quaternion and the rotation in degrees represent
+         * the same rotation, but {@link Transform} converts between them lazily, so one of them
+         * can be out of date.
+         */
+        public final float[] orientations;
+
+        /**
+         * Local scales.
+         */
+        public final float[] scales;
+
+        private Page(int slotCount) {
+            positions = new float[slotCount * VECTOR_STRIDE];
+            rotations = new float[slotCount * VECTOR_STRIDE];
+            orientations = new float[slotCount * Quaternion.STRIDE];
+            scales = new float[slotCount * VECTOR_STRIDE];
+        }
+    }
+
+    private volatile Page[] mPages = new Page[0];
+
+    // Number of slots ever used, slots below this number are either used or free
+    private int mSlotCount = 0;
+    private int[] mFreeSlots = new int[PAGE_SIZE];
+    private int mFreeSlotCount = 0;
+
+    // Changed only on the engine thread while no other thread reads transformations
+    private boolean mMatricesComputed = false;
+    // Transformations changed since all matrices were computed, their subtrees need to be computed again
+    private final ArrayList<Transform> mChangedRoots = new ArrayList<>();
+
+    /**
+     * Acquires new slot. Slot is initialized to 0 position, 0 rotation and scale of 1 in all axes.
+     *
+     * @return Index of the slot.
+     */
+    public synchronized int acquire() {
+        int slot;
+        if (mFreeSlotCount > 0) {
+            slot = mFreeSlots[--mFreeSlotCount];
+        } else {
+            slot = mSlotCount++;
+            int pageIndex = slot / PAGE_SIZE;
+            if (pageIndex == mPages.length) {
+                Page[] pages = Arrays.copyOf(mPages, pageIndex + 1);
+                pages[pageIndex] = new Page(PAGE_SIZE);
+                mPages = pages;
+            }
+        }
+
+        Page page = getPage(slot);
+        int vectorOffset = getVectorOffset(slot);
+        Arrays.fill(page.positions, vectorOffset, vectorOffset + VECTOR_STRIDE, 0);
+        Arrays.fill(page.rotations, vectorOffset, vectorOffset + VECTOR_STRIDE, 0);
+        Arrays.fill(page.scales, vectorOffset, vectorOffset + VECTOR_STRIDE, 1);
+        int quaternionOffset = getQuaternionOffset(slot);
+        Arrays.fill(page.orientations, quaternionOffset, quaternionOffset + Quaternion.STRIDE, 0);
+        page.orientations[quaternionOffset + 3] = 1;
+        return slot;
+    }
+
+    /**
+     * Makes sure that given number of slots can be acquired without allocating new pages.
+     *
+     * @param count Number of slots that will be acquired.
+     */
+    public synchronized void reserve(int count) {
+        int newSlotCount = mSlotCount + Math.max(0, count - mFreeSlotCount);
+        int pageCount = (newSlotCount + PAGE_SIZE - 1) / PAGE_SIZE;
+        if (pageCount > mPages.length) {
+            Page[] pages = Arrays.copyOf(mPages, pageCount);
+            for (int i = mPages.length; i < pageCount; ++i) {
+                pages[i] = new Page(PAGE_SIZE);
+            }
+            mPages = pages;
+        }
+    }
+
+    /**
+     * Releases the slot so it can be acquired again.
+     *
+     * @param slot Index of the slot.
+     */
+    public synchronized void release(int slot) {
+        if (slot < 0 || slot >= mSlotCount) {
+            throw new IllegalArgumentException("Slot " + slot + " does not belong to this storage.");
+        }
+        if (mFreeSlotCount == mFreeSlots.length) {
+            mFreeSlots = Arrays.copyOf(mFreeSlots, mFreeSlots.length * 2);
+        }
+        mFreeSlots[mFreeSlotCount++] = slot;
+    }
+
+    /**
+     * Releases the slot and returns a page holding a copy of it's values, which are at offset 0.
+     * Owner of the slot can keep using the copy, so it cannot change values of the slot
+     * after it is acquired again by someone else.
+     *
+     * @param slot Index of the slot.
+     * @return Page holding values of the slot, not part of this storage.
+     */
+    public Page detach(int slot) {
+        Page page = getPage(slot);
+        Page copy = new Page(1);
+        int vectorOffset = getVectorOffset(slot);
+        System.arraycopy(page.positions, vectorOffset, copy.positions, 0, VECTOR_STRIDE);
+        System.arraycopy(page.rotations, vectorOffset, copy.rotations, 0, VECTOR_STRIDE);
+        System.arraycopy(page.scales, vectorOffset, copy.scales, 0, VECTOR_STRIDE);
+        System.arraycopy(page.orientations, getQuaternionOffset(slot), copy.orientations, 0, Quaternion.STRIDE);
+        release(slot);
+        return copy;
+    }
+
+    /**
+     * Sets whether absolute transformations of all objects are computed. Must be called
+     * by the engine on it's thread after computing them and before the scene is updated again.
+     *
+     * @param computed True if all absolute transformations were just computed.
+     */
+    public void setMatricesComputed(boolean computed) {
+        mMatricesComputed = computed;
+        mChangedRoots.clear();
+    }
+
+    /**
+     * Checks whether absolute transformations of all objects are computed, so they can be read
+     * after {@link TransformStorage#updateChangedRoots()} without checking their ancestors.
+     *
+     * @return True if absolute transformations of all objects are computed.
+     */
+    public boolean areMatricesComputed() {
+        return mMatricesComputed;
+    }
+
+    /**
+     * Must be called after a transformation or parent of an object changes. While absolute
+     * transformations of all objects are computed, the transformation is remembered as a changed
+     * root, otherwise nothing is done.
+     *
+     * @param transform Changed transformation.
+     */
+    public void onTransformChanged(Transform transform) {
+        if (mMatricesComputed) {
+            int count = mChangedRoots.size();
+            if (count == 0 || mChangedRoots.get(count - 1) != transform) {
+                mChangedRoots.add(transform);
+            }
+        }
+    }
+
+    /**
+     * Computes absolute transformations of subtrees of changed roots.
+     */
+    public void updateChangedRoots() {
+        if (mChangedRoots.isEmpty()) {
+            return;
+        }
+        // Roots are processed in order of changes, a subtree computed from a parent that changed
+        // later is computed again with the parent's subtree since matrices compare parent versions
+        for (int i = 0; i < mChangedRoots.size(); ++i) {
+            Transform transform = mChangedRoots.get(i);
+            if (transform.isAttached()) {
+                updateSubtree(transform.getGameObject());
+            }
+        }
+        mChangedRoots.clear();
+    }
+
+    private static void updateSubtree(GameObject gameObject) {
+        gameObject.transform.updateTransformationMatrix();
+        List<GameObject> children = gameObject.children;
+        for (int i = 0; i < children.size(); ++i) {
+            updateSubtree(children.get(i));
+        }
+    }
+
+    /**
+     * Returns the page holding values of given slot.
+     *
+     * @param slot Index of the slot.
+     * @return Page holding the slot.
+     */
+    public Page getPage(int slot) {
+        return mPages[slot / PAGE_SIZE];
+    }
+
+    /**
+     * Returns the number of pages.
+     *
+     * @return Number of pages.
+     */
+    public int getPageCount() {
+        return mPages.length;
+    }
+
+    /**
+     * Returns page with given index.
+     *
+     * @param pageIndex Index of the page.
+     * @return Page with given index.
+     */
+    public Page getPageAt(int pageIndex) {
+        return mPages[pageIndex];
+    }
+
+    /**
+     * Returns offset of vectors of given slot in it's page arrays.
+     *
+     * @param slot Index of the slot.
+     * @return Offset of the first value of vectors of the slot.
+     */
+    public static int getVectorOffset(int slot) {
+        return (slot % PAGE_SIZE) * VECTOR_STRIDE;
+    }
+
+    /**
+     * Returns offset of quaternions of given slot in it's page arrays.
+     *
+     * @param slot Index of the slot.
+     * @return Offset of the first value of quaternions of the slot.
+     */
+    public static int getQuaternionOffset(int slot) {
+        return (slot % PAGE_SIZE) * Quaternion.STRIDE;
+    }
+}
@@ -0,0 +1,114 @@
+package com.jakubpetriska.gameengine.engine;
+
+import com.jakubpetriska.gameengine.api.WorkScheduler;
+import com.jakubpetriska.gameengine.api.WorkSlice;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * Internal implementation of {@link WorkScheduler}.
+ */
+public class WorkSchedulerInternal implements WorkScheduler {
+
+    private static class Entry {
+        final WorkSlice work;
+        final int priority;
+        final long order;
+
+        Entry(WorkSlice work, int priority, long order) {
+            this.work = work;
+            this.priority = priority;
+            this.order = order;
+        }
+    }
+
+    private static final Comparator<Entry> ENTRY_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry first, Entry second) {
+            if (first.priority != second.priority) {
+                return first.priority > second.priority ? -1 : 1;
+            }
+            return first.order < second.order ? -1 : (first.order == second.order ? 0 : 1);
+        }
+    };
+
+    private final PriorityQueue<Entry> mPending = new PriorityQueue<>(16, ENTRY_ORDER);
+    private long mSubmissionCounter = 0;
+
+    @Override
+    public synchronized void submit(WorkSlice work, int priority) {
+        if (work == null) {
+            throw new IllegalArgumentException("Work cannot be null.");
+        }
+        mPending.add(new Entry(work, priority, mSubmissionCounter++));
+    }
+
+    @Override
+    public synchronized boolean cancel(WorkSlice work) {
+        Iterator<Entry> iterator = mPending.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().work == work) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized int getPendingCount() {
+        return mPending.size();
+    }
+
+    /**
+     * Runs slices until the deadline passes. At least one slice is run if any work is pending.
+     *
+     * @param deadlineNanos Value of {@link System#nanoTime()} after which no slice is started.
+     * @return Number of slices that were run.
+     */
+    int runUntil(long deadlineNanos) {
+        int sliceCount = 0;
+        while (sliceCount == 0 || System.nanoTime() < deadlineNanos) {
+            if (!runNextSlice()) {
+                break;
+            }
+            ++sliceCount;
+        }
+        return sliceCount;
+    }
+
+    /**
+     * Runs exactly given number of slices, used to replay recorded sessions.
+     *
+     * @param sliceCount Number of slices to run.
+     * @return Number of slices that were run, lower than requested if work ran out.
+     */
+    int runSlices(int sliceCount) {
+        for (int i = 0; i < sliceCount; ++i) {
+            if (!runNextSlice()) {
+                return i;
+            }
+        }
+        return sliceCount;
+    }
+
+    private boolean runNextSlice() {
+        Entry entry;
+        synchronized (this) {
+            entry = mPending.peek();
+        }
+        if (entry == null) {
+            return false;
+        }
+        // Work is not locked while running so it can submit more work
+        boolean finished = entry.work.runSlice();
+        if (finished) {
+            synchronized (this) {
+                mPending.remove(entry);
+            }
+        }
+        return true;
+    }
+}
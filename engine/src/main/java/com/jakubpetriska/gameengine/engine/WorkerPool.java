@@ -0,0 +1,126 @@
+package com.jakubpetriska.gameengine.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Pool of worker threads used by the engine to run work in parallel.
+ * <p/>
+ * Thread calling {@link WorkerPool#runAll(List)} also takes part in the work,
+ * so the pool needs one thread less than the number of tasks that should run at once.
+ */
+public class WorkerPool {
+
+    private final ExecutorService mExecutor;
+    private final int mThreadCount;
+
+    // Reused between calls of runAll to avoid allocation
+    private final List<Future<?>> mFutures = new ArrayList<>();
+
+    /**
+     * Creates new pool.
+     *
+     * @param threadCount Number of threads that run the work including the calling thread.
+     *                    Must be at least 2.
+     */
+    public WorkerPool(int threadCount) {
+        if (threadCount < 2) {
+            throw new IllegalArgumentException("Worker pool needs at least 2 threads.");
+        }
+        mThreadCount = threadCount;
+        mExecutor = Executors.newFixedThreadPool(threadCount - 1, new ThreadFactory() {
+            private int mCreatedThreads = 0;
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Game Engine worker " + (++mCreatedThreads));
+                // Workers must never prevent application from exiting
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the number of threads that run the work including the calling thread.
+     *
+     * @return Number of threads that run the work.
+     */
+    public int getThreadCount() {
+        return mThreadCount;
+    }
+
+    /**
+     * Runs all tasks and waits until all of them are finished. First task is run
+     * on the calling thread.
+     * <p/>
+     * If any of the tasks throws an exception it is rethrown on the calling thread
+     * after all tasks finished.
+     *
+     * @param tasks Tasks to run.
+     */
+    public void runAll(List<? extends Runnable> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        for (int i = 1; i < tasks.size(); ++i) {
+            mFutures.add(mExecutor.submit(tasks.get(i)));
+        }
+
+        Throwable failure = null;
+        try {
+            tasks.get(0).run();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+
+        for (int i = 0; i < mFutures.size(); ++i) {
+            try {
+                getUninterruptibly(mFutures.get(i));
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        mFutures.clear();
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException("Error during parallel work.", failure);
+        }
+    }
+
+    private static void getUninterruptibly(Future<?> future) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    future.get();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stops all worker threads. Pool cannot be used afterwards.
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+}
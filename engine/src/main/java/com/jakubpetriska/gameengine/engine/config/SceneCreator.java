@@ -157,7 +157,7 @@ public class SceneCreator {
                             throw new IllegalArgumentException(
                                     "Color not in proper format for param "
                                             + paramName
-                                            + " for the object with tag " + owner.tag + ".", e);
+                                            + " for the object with tag " + owner.getTag() + ".", e);
                         }
                     } else {
                         throw new IllegalStateException(
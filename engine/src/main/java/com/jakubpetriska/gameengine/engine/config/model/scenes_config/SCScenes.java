@@ -14,6 +14,30 @@ public class SCScenes {
     @Attribute
     public String defaultSceneName;
 
+    /**
+     * Length of fixed simulation step in seconds. If not set engine
+     * runs with variable time step.
+     */
+    @Attribute(required = false)
+    public Float fixedTimeStep;
+
+    @Attribute(required = false)
+    public Integer maxFixedStepsPerFrame;
+
+    /**
+     * Number of threads used to update the scene. If not set or lower than 2
+     * scene is updated on a single thread.
+     */
+    @Attribute(required = false)
+    public Integer parallelUpdateThreads;
+
+    /**
+     * Time budget of one frame in milliseconds. Deferred work scheduled through
+     * {@link com.jakubpetriska.gameengine.api.WorkScheduler} runs only while the frame is under budget.
+     */
+    @Attribute(required = false)
+    public Float frameBudgetMillis;
+
     @ElementList(inline = true)
     public List<SCScene> scenes;
 }
@@ -0,0 +1,144 @@
+package com.jakubpetriska.gameengine.engine.messaging;
+
+import com.jakubpetriska.gameengine.api.Application;
+import com.jakubpetriska.gameengine.api.external.ExternalCommands;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Internal implementation of {@link ExternalCommands}.
+ * <p/>
+ * Commands are kept in a lock free queue, it's size is bounded by a counter reserved
+ * before a command is queued.
+ */
+public class ExternalCommandsInternal {
+
+    /**
+     * Default maximal number of waiting commands.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final int mCapacity;
+    private final ConcurrentLinkedQueue<Runnable> mCommands = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mCommandCount = new AtomicInteger();
+
+    // Read by commands on the engine thread
+    private Application mApplication;
+
+    public ExternalCommandsInternal() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ExternalCommandsInternal(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        mCapacity = capacity;
+    }
+
+    /**
+     * Runs all commands that were submitted before this call. Commands submitted while
+     * they are run wait for the next call. Must be called on the engine thread.
+     * <p/>
+     * Exceptions thrown by commands submitted without a future are logged, so one failing
+     * command does not prevent the rest from running.
+     *
+     * @param application Application passed to the commands.
+     * @return Number of commands that were run.
+     */
+    public int runCommands(Application application) {
+        return runCommands(application, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Runs commands that were submitted before this call, at most given number of them.
+     * Remaining commands wait for the next call. Must be called on the engine thread.
+     *
+     * @param application Application passed to the commands.
+     * @param maxCount    Maximal number of commands to run.
+     * @return Number of commands that were run.
+     */
+    public int runCommands(Application application, int maxCount) {
+        mApplication = application;
+        // Count is reserved before the command is queued, so some counted commands
+        // may not be in the queue yet
+        int count = Math.min(mCommandCount.get(), maxCount);
+        int runCount = 0;
+        Runnable command;
+        while (runCount < count && (command = mCommands.poll()) != null) {
+            mCommandCount.decrementAndGet();
+            ++runCount;
+            command.run();
+        }
+        return runCount;
+    }
+
+    /**
+     * Drops all waiting commands and cancels their futures.
+     */
+    public void cancelCommands() {
+        Runnable command;
+        while ((command = mCommands.poll()) != null) {
+            mCommandCount.decrementAndGet();
+            if (command instanceof Future) {
+                ((Future<?>) command).cancel(false);
+            }
+        }
+    }
+
+    private boolean enqueue(Runnable command) {
+        if (mCommandCount.incrementAndGet() > mCapacity) {
+            mCommandCount.decrementAndGet();
+            return false;
+        }
+        mCommands.add(command);
+        return true;
+    }
+
+    private ExternalCommands mExternalCommands;
+
+    public ExternalCommands getExternalCommands() {
+        if (mExternalCommands == null) {
+            mExternalCommands = new ExternalCommandsImpl();
+        }
+        return mExternalCommands;
+    }
+
+    /**
+     * ExternalCommands is an object passed outside of the engine to allow
+     * users to run commands in it.
+     * <p/>
+     * This class is implemented here to forbid casting ExternalCommands
+     * to ExternalCommandsInternal by engine users.
+     */
+    private class ExternalCommandsImpl implements ExternalCommands {
+        @Override
+        public boolean submit(final Command<?> command) {
+            return enqueue(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        command.run(mApplication);
+                    } catch (RuntimeException e) {
+                        mApplication.getDebug().log("External command failed: " + e);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public <T> Future<T> submitForResult(final Command<T> command) {
+            FutureTask<T> task = new FutureTask<>(new Callable<T>() {
+                @Override
+                public T call() {
+                    return command.run(mApplication);
+                }
+            });
+            return enqueue(task) ? task : null;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.jakubpetriska.gameengine.engine.messaging;
 import com.jakubpetriska.gameengine.engine.Engine;
 import com.jakubpetriska.gameengine.api.Messenger;
 import com.jakubpetriska.gameengine.engine.ISystem;
+import com.jakubpetriska.gameengine.engine.SubtreeOrderedQueue;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -33,6 +34,13 @@ public class MessengerInternal implements Messenger, ISystem {
      */
     private HashMap<String, List<Object>> mCachingMessagesMap = new HashMap<>();
 
+    /**
+     * Messages sent while sending is deferred. These are sent during {@link MessengerInternal#flushDeferredMessages()}.
+     */
+    private final SubtreeOrderedQueue<Object> mDeferredMessages = new SubtreeOrderedQueue<>();
+    private final List<Object> mFlushedMessages = new ArrayList<>();
+    private volatile boolean mSendingDeferred = false;
+
     public MessengerInternal(ExternalMessengerInternal externalMessengerInternal) {
         this.mExternalMessengerInternal = externalMessengerInternal;
         mExternalMessengerInternal.setMessageReceiver(new ExternalMessengerInternal.MessageReceiver() {
@@ -59,7 +67,33 @@ public class MessengerInternal implements Messenger, ISystem {
 
     @Override
     public void sendMessage(Object message) {
-        mExternalMessengerInternal.sendMessage(message);
+        if (mSendingDeferred) {
+            mDeferredMessages.add(message);
+        } else {
+            mExternalMessengerInternal.sendMessage(message);
+        }
+    }
+
+    /**
+     * Starts or stops deferring of sent messages. While deferred, messages can be sent
+     * from any thread and are sent out of the engine by {@link MessengerInternal#flushDeferredMessages()}
+     * in order of top level subtrees which sent them, see {@link SubtreeOrderedQueue}.
+     *
+     * @param deferred True if sending of messages should be deferred.
+     */
+    public void setSendingDeferred(boolean deferred) {
+        mSendingDeferred = deferred;
+    }
+
+    /**
+     * Sends all messages whose sending was deferred.
+     */
+    public void flushDeferredMessages() {
+        mDeferredMessages.drainTo(mFlushedMessages);
+        for (int i = 0; i < mFlushedMessages.size(); ++i) {
+            mExternalMessengerInternal.sendMessage(mFlushedMessages.get(i));
+        }
+        mFlushedMessages.clear();
     }
 
     @Override
@@ -81,6 +115,18 @@ public class MessengerInternal implements Messenger, ISystem {
         }
     }
 
+    /**
+     * Collects all messages received from the outside of the engine that are valid
+     * for the current frame.
+     *
+     * @param resultList List into which the messages are added.
+     */
+    public void getCurrentMessages(List<Object> resultList) {
+        for (List<Object> messages : mCurrentMessagesMap.values()) {
+            resultList.addAll(messages);
+        }
+    }
+
     /**
      * This must be called by {@link Engine}.
      */
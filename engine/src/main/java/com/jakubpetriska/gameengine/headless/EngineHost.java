@@ -0,0 +1,234 @@
+package com.jakubpetriska.gameengine.headless;
+
+import com.jakubpetriska.gameengine.engine.AssetCache;
+import com.jakubpetriska.gameengine.engine.Engine;
+import com.jakubpetriska.gameengine.engine.WorkerPool;
+import com.jakubpetriska.gameengine.platform.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many headless {@link Engine Engines} on a bounded number of threads.
+ * <p/>
+ * Engines run in rounds. During every round each instance gets it's time budget and runs
+ * ticks until the budget is used up. Time an instance spends over it's budget is subtracted
+ * from the next rounds, so expensive instances cannot starve cheap ones. Every instance
+ * is run by at most one thread at a time.
+ * <p/>
+ * All instances share one {@link AssetCache}, so meshes and scene definitions are loaded
+ * only once. All instances must therefore read assets from the same place.
+ * <p/>
+ * Methods of the host must be called from one thread.
+ */
+public class EngineHost {
+
+    /**
+     * Default time budget of an instance for one round in nanoseconds.
+     */
+    public static final long DEFAULT_BUDGET_NANOS = 1000000;
+
+    /**
+     * Engine instance run by the host.
+     */
+    public static class Instance {
+        private final HeadlessEngineRunner mRunner;
+        private final long mBudgetNanos;
+
+        private long mDeficitNanos = 0;
+        private long mUsedNanos = 0;
+        private RuntimeException mFailure;
+
+        private Instance(HeadlessEngineRunner runner, long budgetNanos) {
+            mRunner = runner;
+            mBudgetNanos = budgetNanos;
+        }
+
+        public HeadlessEngineRunner getRunner() {
+            return mRunner;
+        }
+
+        public long getBudgetNanos() {
+            return mBudgetNanos;
+        }
+
+        /**
+         * Returns the total time this instance ran.
+         *
+         * @return Time in nanoseconds.
+         */
+        public long getUsedNanos() {
+            return mUsedNanos;
+        }
+
+        /**
+         * Returns exception thrown by the engine of this instance. Failed instance
+         * is finished and removed from the host.
+         *
+         * @return Exception that stopped this instance or null if it did not fail.
+         */
+        public RuntimeException getFailure() {
+            return mFailure;
+        }
+
+        private void runRound() {
+            mDeficitNanos += mBudgetNanos;
+            try {
+                // Loading of the scene does not count into the budget
+                mRunner.start();
+                while (mDeficitNanos > 0) {
+                    long tickStart = System.nanoTime();
+                    mRunner.tick();
+                    // Count at least a nanosecond so coarse clocks cannot cause endless round
+                    long tickNanos = Math.max(1, System.nanoTime() - tickStart);
+                    mDeficitNanos -= tickNanos;
+                    mUsedNanos += tickNanos;
+                }
+            } catch (RuntimeException e) {
+                mFailure = e;
+            }
+        }
+    }
+
+    private final AssetCache mAssetCache = new AssetCache();
+
+    private final List<Instance> mInstances = new ArrayList<>();
+
+    // Pool is null when host runs on the calling thread only
+    private final WorkerPool mWorkerPool;
+    private final List<Runnable> mRoundTasks = new ArrayList<>();
+    private final AtomicInteger mNextInstance = new AtomicInteger();
+
+    private boolean mShutdown = false;
+
+    /**
+     * Creates new host.
+     *
+     * @param threadCount Number of threads running the engines including the thread
+     *                    calling {@link EngineHost#runRound()}.
+     */
+    public EngineHost(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("At least one thread is needed.");
+        }
+        mWorkerPool = threadCount > 1 ? new WorkerPool(threadCount) : null;
+        for (int i = 0; i < threadCount; ++i) {
+            mRoundTasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    int index;
+                    while ((index = mNextInstance.getAndIncrement()) < mInstances.size()) {
+                        mInstances.get(index).runRound();
+                    }
+                }
+            });
+        }
+    }
+
+    public AssetCache getAssetCache() {
+        return mAssetCache;
+    }
+
+    /**
+     * Adds new instance with the default time budget.
+     *
+     * @param platform  Platform providing the assets, usually {@link HeadlessPlatform}.
+     * @param sceneName Name of the scene to run. If null default scene is used.
+     * @param timeStep  Length of one tick in seconds.
+     * @return Added instance.
+     */
+    public Instance addInstance(Platform platform, String sceneName, float timeStep) {
+        return addInstance(platform, sceneName, timeStep, DEFAULT_BUDGET_NANOS);
+    }
+
+    /**
+     * Adds new instance. Engine of the instance can be configured before the next round.
+     *
+     * @param platform    Platform providing the assets, usually {@link HeadlessPlatform}.
+     * @param sceneName   Name of the scene to run. If null default scene is used.
+     * @param timeStep    Length of one tick in seconds.
+     * @param budgetNanos Time budget of the instance for one round in nanoseconds.
+     * @return Added instance.
+     */
+    public Instance addInstance(Platform platform, String sceneName, float timeStep, long budgetNanos) {
+        if (mShutdown) {
+            throw new IllegalStateException("Host was shut down.");
+        }
+        if (budgetNanos <= 0) {
+            throw new IllegalArgumentException("Time budget must be positive.");
+        }
+        HeadlessEngineRunner runner = new HeadlessEngineRunner(platform, sceneName, timeStep);
+        runner.getEngine().setAssetCache(mAssetCache);
+        Instance instance = new Instance(runner, budgetNanos);
+        mInstances.add(instance);
+        return instance;
+    }
+
+    /**
+     * Finishes the instance and removes it from the host.
+     *
+     * @param instance Instance to remove.
+     * @return True if instance was run by this host, false otherwise.
+     */
+    public boolean removeInstance(Instance instance) {
+        if (mInstances.remove(instance)) {
+            instance.mRunner.finish();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of running instances.
+     *
+     * @return Number of instances.
+     */
+    public int getInstanceCount() {
+        return mInstances.size();
+    }
+
+    /**
+     * Runs one round of all instances. Instances that failed during the round are removed.
+     */
+    public void runRound() {
+        if (mShutdown) {
+            throw new IllegalStateException("Host was shut down.");
+        }
+        mNextInstance.set(0);
+        if (mWorkerPool != null) {
+            mWorkerPool.runAll(mRoundTasks);
+        } else {
+            mRoundTasks.get(0).run();
+        }
+
+        for (int i = mInstances.size() - 1; i >= 0; --i) {
+            Instance instance = mInstances.get(i);
+            if (instance.mFailure != null) {
+                mInstances.remove(i);
+                try {
+                    instance.mRunner.finish();
+                } catch (RuntimeException e) {
+                    // Engine is already broken, the original failure is kept
+                }
+            }
+        }
+    }
+
+    /**
+     * Finishes all instances and stops the threads.
+     */
+    public void shutdown() {
+        if (mShutdown) {
+            return;
+        }
+        mShutdown = true;
+        for (int i = 0; i < mInstances.size(); ++i) {
+            mInstances.get(i).mRunner.finish();
+        }
+        mInstances.clear();
+        if (mWorkerPool != null) {
+            mWorkerPool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.jakubpetriska.gameengine.headless;
+
+import com.jakubpetriska.gameengine.engine.Engine;
+import com.jakubpetriska.gameengine.engine.TimeInternal;
+import com.jakubpetriska.gameengine.platform.Platform;
+
+/**
+ * Runs {@link Engine} without display as fast as possible.
+ * <p/>
+ * Engine runs in fixed time step mode with virtual time. Every tick advances
+ * the time by exactly one step and runs one frame, so the simulation does not
+ * depend on how fast the computer is.
+ */
+public class HeadlessEngineRunner {
+
+    private static final double NANOS_IN_SECOND = 1000000000d;
+
+    private final Engine mEngine;
+    private final VirtualClock mClock = new VirtualClock();
+    private final long mTimeStepNanos;
+
+    private boolean mStarted = false;
+    private boolean mFinished = false;
+
+    private long mTickCount = 0;
+    // Ticks and time measured during run(int) calls
+    private long mRunTicks = 0;
+    private long mRunNanos = 0;
+
+    /**
+     * Creates new runner.
+     *
+     * @param platform  Platform providing the assets, usually {@link HeadlessPlatform}.
+     * @param sceneName Name of the scene to run. If null default scene is used.
+     * @param timeStep  Length of one tick in seconds.
+     */
+    public HeadlessEngineRunner(Platform platform, String sceneName, float timeStep) {
+        if (timeStep <= 0) {
+            throw new IllegalArgumentException("Time step must be positive.");
+        }
+        mTimeStepNanos = TimeInternal.toNanos(timeStep);
+
+        mEngine = new Engine(sceneName);
+        mEngine.insertProvidedObjects(platform, new HeadlessRenderer(), new HeadlessTouchInput());
+        mEngine.setClock(mClock);
+        mEngine.setFixedTimeStep(timeStep, 1);
+    }
+
+    public Engine getEngine() {
+        return mEngine;
+    }
+
+    /**
+     * Starts the engine. Called automatically by the first tick.
+     */
+    public void start() {
+        if (!mStarted) {
+            mEngine.onStart();
+            mStarted = true;
+        }
+    }
+
+    /**
+     * Runs one tick of the engine.
+     */
+    public void tick() {
+        if (mFinished) {
+            throw new IllegalStateException("Engine already finished.");
+        }
+        start();
+        mClock.advance(mTimeStepNanos);
+        mEngine.onUpdate();
+        ++mTickCount;
+    }
+
+    /**
+     * Runs given number of ticks and measures how long it took.
+     *
+     * @param ticks Number of ticks to run.
+     */
+    public void run(int ticks) {
+        start();
+        long runStart = System.nanoTime();
+        for (int i = 0; i < ticks; ++i) {
+            tick();
+        }
+        mRunNanos += System.nanoTime() - runStart;
+        mRunTicks += ticks;
+    }
+
+    /**
+     * Finishes the engine. No more ticks can be run afterwards.
+     */
+    public void finish() {
+        if (mStarted && !mFinished) {
+            mEngine.onFinish();
+        }
+        mFinished = true;
+    }
+
+    /**
+     * Returns the number of ticks run so far.
+     *
+     * @return Number of ticks run so far.
+     */
+    public long getTickCount() {
+        return mTickCount;
+    }
+
+    /**
+     * Returns the number of ticks per second of real time measured
+     * during all calls to {@link HeadlessEngineRunner#run(int)}.
+     *
+     * @return Measured ticks per second or 0 if nothing was measured yet.
+     */
+    public double getTicksPerSecond() {
+        if (mRunNanos == 0) {
+            return 0;
+        }
+        return mRunTicks * NANOS_IN_SECOND / mRunNanos;
+    }
+}
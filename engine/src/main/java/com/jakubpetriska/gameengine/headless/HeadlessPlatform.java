@@ -0,0 +1,60 @@
+package com.jakubpetriska.gameengine.headless;
+
+import com.jakubpetriska.gameengine.api.Display;
+import com.jakubpetriska.gameengine.platform.Platform;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+
+/**
+ * Implementation of underlying platform for running the engine without display,
+ * for example on a server or during testing.
+ * <p/>
+ * Assets are read from a folder on the file system.
+ */
+public class HeadlessPlatform implements Platform {
+
+    private final File mAssetsFolder;
+    private final Display mDisplay;
+
+    /**
+     * Creates new HeadlessPlatform with display of size 1920x1080 pixels.
+     *
+     * @param assetsFolder Folder containing the engine assets, such as scenes.xml file.
+     */
+    public HeadlessPlatform(File assetsFolder) {
+        this(assetsFolder, new Display(1920, 1080, 1));
+    }
+
+    /**
+     * Creates new HeadlessPlatform.
+     *
+     * @param assetsFolder Folder containing the engine assets, such as scenes.xml file.
+     * @param display      Display reported to the engine.
+     */
+    public HeadlessPlatform(File assetsFolder, Display display) {
+        mAssetsFolder = assetsFolder;
+        mDisplay = display;
+    }
+
+    @Override
+    public InputStream getAssetFileInputStream(String path) {
+        try {
+            return new FileInputStream(new File(mAssetsFolder, path));
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void log(String message) {
+        System.out.println(message);
+    }
+
+    @Override
+    public Display createDisplay() {
+        return mDisplay;
+    }
+}
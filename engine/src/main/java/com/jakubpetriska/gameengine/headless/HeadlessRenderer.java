@@ -0,0 +1,51 @@
+package com.jakubpetriska.gameengine.headless;
+
+import com.jakubpetriska.gameengine.api.Application;
+import com.jakubpetriska.gameengine.api.Color;
+import com.jakubpetriska.gameengine.api.MeshData;
+import com.jakubpetriska.gameengine.api.components.Camera;
+import com.jakubpetriska.gameengine.api.math.Matrix44;
+import com.jakubpetriska.gameengine.engine.FullRenderer;
+
+/**
+ * Renderer that does not render anything. Used when engine runs without display.
+ */
+public class HeadlessRenderer implements FullRenderer {
+
+    private Camera mCamera;
+
+    @Override
+    public void setApplication(Application application) {
+        // Nothing to do
+    }
+
+    @Override
+    public void onStartRenderingFrame() {
+        // Nothing to do
+    }
+
+    @Override
+    public void render(MeshData mesh, Color color, Matrix44 transformation) {
+        // Nothing to do
+    }
+
+    @Override
+    public void renderWireframe(MeshData mesh, Color color, Matrix44 transformation) {
+        // Nothing to do
+    }
+
+    @Override
+    public MeshData createMeshData(float[] vertices, float[] normals, int[] trianglesVertices, int[] trianglesNormals) {
+        return new MeshData(vertices, normals, trianglesVertices, trianglesNormals);
+    }
+
+    @Override
+    public void setCamera(Camera camera) {
+        mCamera = camera;
+    }
+
+    @Override
+    public Camera getCamera() {
+        return mCamera;
+    }
+}
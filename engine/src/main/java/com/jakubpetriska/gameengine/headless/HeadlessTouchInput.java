@@ -0,0 +1,30 @@
+package com.jakubpetriska.gameengine.headless;
+
+import com.jakubpetriska.gameengine.api.Touch;
+import com.jakubpetriska.gameengine.platform.TouchInputInternal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Touch input of an engine running without display. There are never any touches.
+ */
+public class HeadlessTouchInput implements TouchInputInternal {
+
+    private final List<Touch> mTouches = new ArrayList<>();
+
+    @Override
+    public void update() {
+
+    }
+
+    @Override
+    public void postUpdate() {
+
+    }
+
+    @Override
+    public List<Touch> getTouches() {
+        return mTouches;
+    }
+}
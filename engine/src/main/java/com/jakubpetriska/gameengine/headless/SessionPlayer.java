@@ -0,0 +1,132 @@
+package com.jakubpetriska.gameengine.headless;
+
+import com.jakubpetriska.gameengine.engine.Engine;
+import com.jakubpetriska.gameengine.engine.SessionReplay;
+import com.jakubpetriska.gameengine.platform.Platform;
+
+/**
+ * Replays session recorded by {@link com.jakubpetriska.gameengine.engine.SessionRecorder}
+ * in {@link Engine} without display as fast as possible.
+ * <p/>
+ * Every frame of the replay has exactly the same inputs as the recorded frame,
+ * so cost of frames can be compared between versions of the code.
+ */
+public class SessionPlayer {
+
+    private static final double NANOS_IN_SECOND = 1000000000d;
+
+    private final Engine mEngine;
+    private final SessionReplay mReplay;
+
+    private boolean mStarted = false;
+    private boolean mFinished = false;
+
+    private long mFrameCount = 0;
+    // Frames and time measured during playAll() calls
+    private long mMeasuredFrames = 0;
+    private long mMeasuredNanos = 0;
+
+    /**
+     * Creates new player.
+     *
+     * @param platform  Platform providing the assets, usually {@link HeadlessPlatform}.
+     * @param sceneName Name of the scene that was recorded. If null default scene is used.
+     * @param replay    Recorded session.
+     */
+    public SessionPlayer(Platform platform, String sceneName, SessionReplay replay) {
+        mReplay = replay;
+        mEngine = new Engine(sceneName);
+        mEngine.insertProvidedObjects(platform, new HeadlessRenderer(), new HeadlessTouchInput());
+        mEngine.startReplay(replay);
+    }
+
+    /**
+     * Returns the engine replaying the session. It can be configured before the first frame
+     * is played, for example to match the configuration of the recorded engine.
+     *
+     * @return Engine replaying the session.
+     */
+    public Engine getEngine() {
+        return mEngine;
+    }
+
+    /**
+     * Starts the engine. Called automatically by the first frame.
+     */
+    public void start() {
+        if (!mStarted) {
+            mEngine.onStart();
+            mStarted = true;
+        }
+    }
+
+    /**
+     * Plays the next recorded frame.
+     *
+     * @return True if frame was played, false if all frames were already played.
+     */
+    public boolean playFrame() {
+        if (mFinished) {
+            throw new IllegalStateException("Engine already finished.");
+        }
+        if (!mReplay.hasNextFrame()) {
+            return false;
+        }
+        start();
+        mEngine.onUpdate();
+        ++mFrameCount;
+        return true;
+    }
+
+    /**
+     * Plays all remaining frames and measures how long it took.
+     *
+     * @return Number of played frames.
+     */
+    public long playAll() {
+        start();
+        long played = 0;
+        long playStart = System.nanoTime();
+        while (playFrame()) {
+            ++played;
+        }
+        mMeasuredNanos += System.nanoTime() - playStart;
+        mMeasuredFrames += played;
+        return played;
+    }
+
+    /**
+     * Finishes the engine and closes the replay.
+     */
+    public void finish() {
+        if (mStarted && !mFinished) {
+            mEngine.onFinish();
+        }
+        if (!mFinished) {
+            mReplay.close();
+        }
+        mFinished = true;
+    }
+
+    /**
+     * Returns the number of frames played so far.
+     *
+     * @return Number of played frames.
+     */
+    public long getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Returns the number of frames per second of real time measured
+     * during all calls to {@link SessionPlayer#playAll()}.
+     *
+     * @return Measured frames per second or 0 if nothing was measured yet.
+     */
+    public double getFramesPerSecond() {
+        if (mMeasuredNanos == 0) {
+            return 0;
+        }
+        return mMeasuredFrames * NANOS_IN_SECOND / mMeasuredNanos;
+    }
+}
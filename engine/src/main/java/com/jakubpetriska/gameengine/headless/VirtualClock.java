@@ -0,0 +1,29 @@
+package com.jakubpetriska.gameengine.headless;
+
+import com.jakubpetriska.gameengine.platform.Clock;
+
+/**
+ * {@link Clock} that does not follow real time. Time moves only
+ * when it is advanced explicitly.
+ */
+public class VirtualClock implements Clock {
+
+    private long mNanoTime = 0;
+
+    /**
+     * Moves the time forward.
+     *
+     * @param nanos Amount of time in nanoseconds.
+     */
+    public void advance(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Time cannot move backwards.");
+        }
+        mNanoTime += nanos;
+    }
+
+    @Override
+    public long nanoTime() {
+        return mNanoTime;
+    }
+}
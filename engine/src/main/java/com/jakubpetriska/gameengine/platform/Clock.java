@@ -0,0 +1,18 @@
+package com.jakubpetriska.gameengine.platform;
+
+/**
+ * Source of time for the engine.
+ * <p/>
+ * By default engine measures real time. Platforms that do not run in real time,
+ * such as headless simulation, can provide their own clock.
+ */
+public interface Clock {
+
+    /**
+     * Returns current time in nanoseconds. Only differences between
+     * returned values are meaningful.
+     *
+     * @return Current time in nanoseconds.
+     */
+    long nanoTime();
+}
@@ -0,0 +1,42 @@
+package com.jakubpetriska.gameengine.tests;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.components.BoxCollider;
+import com.jakubpetriska.gameengine.api.components.Camera;
+import com.jakubpetriska.gameengine.api.components.Model;
+import com.jakubpetriska.gameengine.api.components.Transform;
+import com.jakubpetriska.gameengine.engine.LifecycleOverrides;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test of {@link LifecycleOverrides} class.
+ */
+public class LifecycleOverridesTest {
+
+    public static class UpdatingComponent extends Component {
+        @Override
+        public void update() {
+
+        }
+    }
+
+    public static class InheritingComponent extends UpdatingComponent {
+        @Override
+        public void postUpdate() {
+
+        }
+    }
+
+    @Test
+    public void testOverridesDetection() {
+        assertEquals(0, LifecycleOverrides.get(Transform.class));
+        assertEquals(0, LifecycleOverrides.get(Camera.class));
+        assertEquals(LifecycleOverrides.POST_UPDATE, LifecycleOverrides.get(Model.class));
+        assertEquals(LifecycleOverrides.POST_UPDATE, LifecycleOverrides.get(BoxCollider.class));
+        assertEquals(LifecycleOverrides.UPDATE, LifecycleOverrides.get(UpdatingComponent.class));
+        assertEquals(LifecycleOverrides.UPDATE | LifecycleOverrides.POST_UPDATE,
+                LifecycleOverrides.get(InheritingComponent.class));
+    }
+}
@@ -0,0 +1,217 @@
+package com.jakubpetriska.gameengine.tests;
+
+import com.jakubpetriska.gameengine.api.math.Matrix44;
+import com.jakubpetriska.gameengine.api.math.Vector3;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of affine operations of {@link Matrix44} and their variants operating on arrays.
+ */
+public class Matrix44AffineTest {
+
+    private static final float EPSILON = 0.0001f;
+
+    /**
+     * Affine multiplication must give the same result as the full multiplication.
+     */
+    @Test
+    public void testMultiplyAffine() {
+        Random random = new Random(42);
+        Matrix44 left = new Matrix44();
+        Matrix44 right = new Matrix44();
+        Matrix44 expected = new Matrix44();
+        Matrix44 actual = new Matrix44();
+        for (int i = 0; i < 100; ++i) {
+            setRandomTransformation(left, random);
+            setRandomTransformation(right, random);
+
+            Matrix44.multiply(expected, left, right);
+            Matrix44.multiplyAffine(actual, left, right);
+            assertMatricesEqual(expected.getValues(), 0, actual.getValues(), 0);
+
+            // Result can be one of the multiplied matrices
+            Matrix44.multiplyAffine(left, left, right);
+            assertMatricesEqual(expected.getValues(), 0, left.getValues(), 0);
+        }
+    }
+
+    /**
+     * Batch variants must process every matrix stored in the arrays.
+     */
+    @Test
+    public void testBatchOperations() {
+        Random random = new Random(7);
+        int count = 10;
+        int offset = 3;
+        float[] left = new float[offset + count * 16];
+        float[] right = new float[offset + count * 16];
+        float[] products = new float[offset + count * 16];
+        float[] inverses = new float[offset + count * 16];
+        Matrix44 matrix = new Matrix44();
+        for (int i = 0; i < count; ++i) {
+            setRandomTransformation(matrix, random);
+            System.arraycopy(matrix.getValues(), 0, left, offset + i * 16, 16);
+            setRandomTransformation(matrix, random);
+            System.arraycopy(matrix.getValues(), 0, right, offset + i * 16, 16);
+        }
+
+        Matrix44.multiplyAffine(products, offset, left, offset, right, offset, count);
+        assertEquals(0, Matrix44.invertAffine(inverses, offset, products, offset, count));
+
+        Matrix44 leftMatrix = new Matrix44();
+        Matrix44 rightMatrix = new Matrix44();
+        Matrix44 expected = new Matrix44();
+        for (int i = 0; i < count; ++i) {
+            int matrixOffset = offset + i * 16;
+            System.arraycopy(left, matrixOffset, leftMatrix.getValues(), 0, 16);
+            System.arraycopy(right, matrixOffset, rightMatrix.getValues(), 0, 16);
+            Matrix44.multiply(expected, leftMatrix, rightMatrix);
+            assertMatricesEqual(expected.getValues(), 0, products, matrixOffset);
+
+            System.arraycopy(inverses, matrixOffset, rightMatrix.getValues(), 0, 16);
+            Matrix44.multiply(leftMatrix, expected, rightMatrix);
+            leftMatrix.getValues()[0] -= 1;
+            leftMatrix.getValues()[5] -= 1;
+            leftMatrix.getValues()[10] -= 1;
+            leftMatrix.getValues()[15] -= 1;
+            assertMatricesEqual(new float[16], 0, leftMatrix.getValues(), 0);
+        }
+    }
+
+    /**
+     * Singular matrix must not be inverted and the result must stay unchanged.
+     */
+    @Test
+    public void testInvertSingular() {
+        Matrix44 singular = new Matrix44();
+        singular.setIdentity();
+        singular.scale(1, 0, 1);
+        Matrix44 result = new Matrix44();
+        result.setIdentity();
+        assertFalse(Matrix44.invertAffine(result, singular));
+        Matrix44 identity = new Matrix44();
+        identity.setIdentity();
+        assertMatricesEqual(identity.getValues(), 0, result.getValues(), 0);
+    }
+
+    /**
+     * Batch transformation of points and vectors must give the same results
+     * as transforming them one by one.
+     */
+    @Test
+    public void testTransformPointsAndVectors() {
+        Random random = new Random(11);
+        Matrix44 matrix = new Matrix44();
+        setRandomTransformation(matrix, random);
+        int count = 10;
+        float[] points = new float[count * 3 + 1];
+        for (int i = 0; i < points.length; ++i) {
+            points[i] = random.nextFloat() * 20 - 10;
+        }
+        float[] vectors = points.clone();
+        float[] source = points.clone();
+
+        matrix.transformPoints(points, 1, count);
+        matrix.transformVectors(vectors, 1, count);
+        assertEquals(source[0], points[0], 0);
+        assertEquals(source[0], vectors[0], 0);
+
+        Vector3 vector = new Vector3();
+        for (int i = 0; i < count; ++i) {
+            int offset = 1 + i * 3;
+            vector.set(source[offset], source[offset + 1], source[offset + 2]);
+            matrix.transformPoint(vector);
+            assertEquals(vector.getX(), points[offset], EPSILON);
+            assertEquals(vector.getY(), points[offset + 1], EPSILON);
+            assertEquals(vector.getZ(), points[offset + 2], EPSILON);
+
+            vector.set(source[offset], source[offset + 1], source[offset + 2]);
+            matrix.transformVector(vector);
+            assertEquals(vector.getX(), vectors[offset], EPSILON);
+            assertEquals(vector.getY(), vectors[offset + 1], EPSILON);
+            assertEquals(vector.getZ(), vectors[offset + 2], EPSILON);
+        }
+    }
+
+    /**
+     * Decomposed transformation must recreate the same matrix.
+     */
+    @Test
+    public void testDecomposeTransformation() {
+        Random random = new Random(13);
+        Matrix44 matrix = new Matrix44();
+        Matrix44 recomposed = new Matrix44();
+        float[] transformation = new float[1 + Matrix44.TRANSFORMATION_STRIDE];
+        for (int i = 0; i < 100; ++i) {
+            setRandomTransformation(matrix, random);
+            if (i % 10 == 0) {
+                // Mirrored transformation
+                matrix.scale(1, -1, 1);
+            }
+            matrix.getTransformation(transformation, 1);
+            recomposed.setInterpolatedTransformation(transformation, 1, transformation, 1, 0.5f);
+            assertMatricesEqual(matrix.getValues(), 0, recomposed.getValues(), 0);
+        }
+    }
+
+    /**
+     * Interpolated rotation must keep the size of the object and rotate it along the shorter arc.
+     */
+    @Test
+    public void testInterpolateRotation() {
+        Matrix44 from = new Matrix44();
+        from.setIdentity();
+        from.scale(2, 2, 2);
+        Matrix44 to = new Matrix44();
+        to.setIdentity();
+        to.scale(2, 2, 2);
+        to.rotateZ(90);
+        to.translate(4, 0, 0);
+        float[] fromTransformation = new float[Matrix44.TRANSFORMATION_STRIDE];
+        float[] toTransformation = new float[Matrix44.TRANSFORMATION_STRIDE];
+        from.getTransformation(fromTransformation, 0);
+        to.getTransformation(toTransformation, 0);
+
+        Matrix44 expected = new Matrix44();
+        expected.setIdentity();
+        expected.scale(2, 2, 2);
+        expected.rotateZ(45);
+        expected.translate(2, 0, 0);
+        Matrix44 actual = new Matrix44();
+        actual.setInterpolatedTransformation(fromTransformation, 0, toTransformation, 0, 0.5f);
+        assertMatricesEqual(expected.getValues(), 0, actual.getValues(), 0);
+
+        // Rotation by 270 degrees is the same as by -90 degrees, shorter arc is used
+        to.setIdentity();
+        to.rotateZ(270);
+        to.getTransformation(toTransformation, 0);
+        from.setIdentity();
+        from.getTransformation(fromTransformation, 0);
+        expected.setIdentity();
+        expected.rotateZ(-45);
+        actual.setInterpolatedTransformation(fromTransformation, 0, toTransformation, 0, 0.5f);
+        assertMatricesEqual(expected.getValues(), 0, actual.getValues(), 0);
+    }
+
+    private static void setRandomTransformation(Matrix44 matrix, Random random) {
+        matrix.setIdentity();
+        matrix.scale(random.nextFloat() + 0.5f, random.nextFloat() + 0.5f, random.nextFloat() + 0.5f);
+        matrix.rotateZ(random.nextFloat() * 360);
+        matrix.rotateX(random.nextFloat() * 360);
+        matrix.rotateY(random.nextFloat() * 360);
+        matrix.translate(random.nextFloat() * 20 - 10, random.nextFloat() * 20 - 10,
+                random.nextFloat() * 20 - 10);
+    }
+
+    private static void assertMatricesEqual(float[] expected, int expectedOffset,
+                                            float[] actual, int actualOffset) {
+        for (int i = 0; i < 16; ++i) {
+            assertEquals(expected[expectedOffset + i], actual[actualOffset + i], EPSILON);
+        }
+    }
+}
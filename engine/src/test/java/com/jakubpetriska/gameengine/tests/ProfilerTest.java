@@ -0,0 +1,77 @@
+package com.jakubpetriska.gameengine.tests;
+
+import com.jakubpetriska.gameengine.engine.Profiler;
+import com.jakubpetriska.gameengine.tests.parallel_update.EngineThreadComponent;
+import com.jakubpetriska.gameengine.tests.parallel_update.ThreadSafeCountingComponent;
+import com.jakubpetriska.gameengine.tests.support.BaseEngineTest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of {@link Profiler}.
+ */
+public class ProfilerTest extends BaseEngineTest {
+
+    private static final String FILES_FOLDER = "parallel_update_test";
+
+    private static final int FRAMES_COUNT = 10;
+
+    @Before
+    public void prepareEngine() {
+        setupEngine(FILES_FOLDER);
+        EngineThreadComponent.sEngineThread = Thread.currentThread();
+    }
+
+    /**
+     * Enabled profiler must record every frame including systems and component classes
+     * updated on worker threads.
+     */
+    @Test
+    public void profilerTest() {
+        Profiler profiler = getEngine().getProfiler();
+        getEngine().setParallelUpdate(4);
+        getEngine().onStart();
+
+        getEngine().onUpdate();
+        assertEquals("Disabled profiler measured a frame", 0, profiler.getMeasuredFrameCount());
+
+        profiler.setEnabled(true);
+        for (int i = 0; i < FRAMES_COUNT; ++i) {
+            getEngine().onUpdate();
+        }
+        assertEquals(FRAMES_COUNT, profiler.getMeasuredFrameCount());
+
+        Profiler.Frame frame = new Profiler.Frame();
+        assertTrue(profiler.readFrame(0, frame));
+        assertEquals(FRAMES_COUNT - 1, frame.getFrameNumber());
+        assertTrue(frame.getFrameNanos() > 0);
+        assertFalse("Frame that was not measured was read", profiler.readFrame(FRAMES_COUNT, frame));
+
+        assertTrue(profiler.readFrame(0, frame));
+        int componentSection = findSection(profiler,
+                "Component " + ThreadSafeCountingComponent.class.getName() + ".update");
+        assertTrue("Component class updated on worker threads was not measured",
+                frame.getSectionNanos(componentSection) > 0);
+        findSection(profiler, "Component " + EngineThreadComponent.class.getName() + ".update");
+        findSection(profiler, "System com.jakubpetriska.gameengine.engine.TimeInternal.update");
+        findSection(profiler, "System com.jakubpetriska.gameengine.api.CollisionsSystem.detectCollisions");
+
+        profiler.setEnabled(false);
+        getEngine().onUpdate();
+        assertEquals(FRAMES_COUNT, profiler.getMeasuredFrameCount());
+        getEngine().onFinish();
+    }
+
+    private static int findSection(Profiler profiler, String name) {
+        for (int i = 0; i < profiler.getSectionCount(); ++i) {
+            if (name.equals(profiler.getSectionName(i))) {
+                return i;
+            }
+        }
+        fail("Section " + name + " was not measured");
+        return -1;
+    }
+}
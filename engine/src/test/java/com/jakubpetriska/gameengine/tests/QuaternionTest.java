@@ -0,0 +1,103 @@
+package com.jakubpetriska.gameengine.tests;
+
+import com.jakubpetriska.gameengine.api.math.Matrix44;
+import com.jakubpetriska.gameengine.api.math.Quaternion;
+import com.jakubpetriska.gameengine.api.math.Vector3;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of {@link Quaternion} class and building of transformation matrices from it.
+ */
+public class QuaternionTest {
+
+    private static final float EPSILON = 0.0001f;
+
+    /**
+     * Matrix built from quaternion must be the same as the matrix built
+     * by rotating around single axes.
+     */
+    @Test
+    public void testTransformationMatrix() {
+        Random random = new Random(42);
+        Quaternion rotation = new Quaternion();
+        Matrix44 expected = new Matrix44();
+        Matrix44 actual = new Matrix44();
+        for (int i = 0; i < 100; ++i) {
+            float x = random.nextFloat() * 720 - 360;
+            float y = random.nextFloat() * 720 - 360;
+            float z = random.nextFloat() * 720 - 360;
+
+            expected.setIdentity();
+            expected.scale(1, 2, 3);
+            expected.rotateZ(z);
+            expected.rotateX(x);
+            expected.rotateY(y);
+            expected.translate(4, 5, 6);
+
+            rotation.setFromEulerAngles(x, y, z);
+            actual.setTransformation(4, 5, 6,
+                    rotation.getX(), rotation.getY(), rotation.getZ(), rotation.getW(),
+                    1, 2, 3);
+            assertMatricesEqual(expected, actual);
+        }
+    }
+
+    /**
+     * Euler angles extracted from a quaternion must represent the same rotation.
+     */
+    @Test
+    public void testEulerAngles() {
+        Random random = new Random(7);
+        Quaternion rotation = new Quaternion();
+        Quaternion extractedRotation = new Quaternion();
+        Vector3 angles = new Vector3();
+        Matrix44 expected = new Matrix44();
+        Matrix44 actual = new Matrix44();
+        for (int i = 0; i < 100; ++i) {
+            rotation.setFromEulerAngles(random.nextFloat() * 360, random.nextFloat() * 360,
+                    random.nextFloat() * 360);
+            rotation.getEulerAngles(angles);
+            assertTrue(angles.getX() >= -90 && angles.getX() <= 90);
+            extractedRotation.setFromEulerAngles(angles.getX(), angles.getY(), angles.getZ());
+
+            setRotation(expected, rotation);
+            setRotation(actual, extractedRotation);
+            assertMatricesEqual(expected, actual);
+        }
+    }
+
+    /**
+     * Product of quaternions must combine their rotations.
+     */
+    @Test
+    public void testMultiply() {
+        Quaternion first = new Quaternion();
+        first.setFromAxisAngle(0, 1, 0, 30);
+        Quaternion second = new Quaternion();
+        second.setFromAxisAngle(0, 2, 0, 60);
+        Quaternion product = new Quaternion();
+        Quaternion.multiply(product, second, first);
+
+        Vector3 angles = new Vector3();
+        product.getEulerAngles(angles);
+        assertEquals(0, angles.getX(), EPSILON);
+        assertEquals(90, angles.getY(), EPSILON);
+        assertEquals(0, angles.getZ(), EPSILON);
+    }
+
+    private static void setRotation(Matrix44 matrix, Quaternion rotation) {
+        matrix.setTransformation(0, 0, 0,
+                rotation.getX(), rotation.getY(), rotation.getZ(), rotation.getW(), 1, 1, 1);
+    }
+
+    private static void assertMatricesEqual(Matrix44 expected, Matrix44 actual) {
+        for (int i = 0; i < 16; ++i) {
+            assertEquals(expected.getValues()[i], actual.getValues()[i], EPSILON * 10);
+        }
+    }
+}
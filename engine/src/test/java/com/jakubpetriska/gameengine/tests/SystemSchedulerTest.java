@@ -0,0 +1,81 @@
+package com.jakubpetriska.gameengine.tests;
+
+import com.jakubpetriska.gameengine.engine.ISystem;
+import com.jakubpetriska.gameengine.engine.SystemScheduler;
+import com.jakubpetriska.gameengine.engine.WorkerPool;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of {@link SystemScheduler} class.
+ */
+public class SystemSchedulerTest {
+
+    private static class ResourceA {
+    }
+
+    private static class ResourceB {
+    }
+
+    private final List<String> mUpdates = Collections.synchronizedList(new ArrayList<String>());
+
+    private class RecordingSystem implements ISystem {
+        private final String mName;
+
+        RecordingSystem(String name) {
+            mName = name;
+        }
+
+        @Override
+        public void update() {
+            mUpdates.add(mName);
+        }
+
+        @Override
+        public void postUpdate() {
+
+        }
+    }
+
+    /**
+     * Phases must run in order and conflicting systems in the order of registration,
+     * with or without worker pool.
+     */
+    @Test
+    public void testOrdering() {
+        SystemScheduler scheduler = new SystemScheduler();
+        scheduler.register(new RecordingSystem("late"), SystemScheduler.PHASE_LATE);
+        scheduler.register(new RecordingSystem("writeA"), SystemScheduler.PHASE_DEFAULT,
+                null, new Class<?>[]{ResourceA.class});
+        scheduler.register(new RecordingSystem("writeB"), SystemScheduler.PHASE_DEFAULT,
+                null, new Class<?>[]{ResourceB.class});
+        scheduler.register(new RecordingSystem("readA"), SystemScheduler.PHASE_DEFAULT,
+                new Class<?>[]{ResourceA.class}, null);
+        scheduler.register(new RecordingSystem("early"), SystemScheduler.PHASE_EARLY);
+
+        scheduler.update(null);
+        assertEquals(Arrays.asList("early", "writeA", "writeB", "readA", "late"), mUpdates);
+
+        WorkerPool workerPool = new WorkerPool(3);
+        try {
+            for (int i = 0; i < 100; ++i) {
+                mUpdates.clear();
+                scheduler.update(workerPool);
+                assertEquals(5, mUpdates.size());
+                assertEquals("early", mUpdates.get(0));
+                assertEquals("late", mUpdates.get(4));
+                assertTrue("Conflicting systems did not run in order of registration",
+                        mUpdates.indexOf("writeA") < mUpdates.indexOf("readA"));
+            }
+        } finally {
+            workerPool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.jakubpetriska.gameengine.tests;
+
+import com.jakubpetriska.gameengine.engine.TransformStorage;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test of {@link TransformStorage} class.
+ */
+public class TransformStorageTest {
+
+    /**
+     * Values of slots must survive growth of the storage and released slots must be reused.
+     */
+    @Test
+    public void testSlots() {
+        TransformStorage storage = new TransformStorage();
+        int first = storage.acquire();
+        TransformStorage.Page firstPage = storage.getPage(first);
+        firstPage.positions[TransformStorage.getVectorOffset(first)] = 42;
+
+        int slotCount = 3 * TransformStorage.PAGE_SIZE;
+        for (int i = 1; i < slotCount; ++i) {
+            storage.acquire();
+        }
+        assertEquals(3, storage.getPageCount());
+        assertSame("Page was moved during growth", firstPage, storage.getPage(first));
+        assertEquals(42, firstPage.positions[TransformStorage.getVectorOffset(first)], 0);
+
+        storage.release(first);
+        int reused = storage.acquire();
+        assertEquals("Released slot was not reused", first, reused);
+        int offset = TransformStorage.getVectorOffset(reused);
+        assertEquals("Reused slot was not reset", 0, firstPage.positions[offset], 0);
+        assertEquals("Reused slot was not reset", 1, firstPage.scales[offset], 0);
+        assertEquals("Reused slot was not reset", 1,
+                firstPage.orientations[TransformStorage.getQuaternionOffset(reused) + 3], 0);
+    }
+
+    /**
+     * Detached slot must keep it's values in a copy and be released for reuse.
+     */
+    @Test
+    public void testDetach() {
+        TransformStorage storage = new TransformStorage();
+        int slot = storage.acquire();
+        TransformStorage.Page page = storage.getPage(slot);
+        page.positions[TransformStorage.getVectorOffset(slot) + 1] = 42;
+
+        TransformStorage.Page copy = storage.detach(slot);
+        assertNotSame(page, copy);
+        assertEquals(42, copy.positions[1], 0);
+        assertEquals(1, copy.scales[0], 0);
+        assertEquals(1, copy.orientations[3], 0);
+
+        assertEquals("Detached slot was not released", slot, storage.acquire());
+        copy.positions[1] = 7;
+        assertEquals("Copy writes into the storage", 0, page.positions[TransformStorage.getVectorOffset(slot) + 1], 0);
+    }
+}
@@ -0,0 +1,98 @@
+package com.jakubpetriska.gameengine.tests.activation;
+
+import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.tests.support.BaseEngineTest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of deactivating objects and disabling components.
+ */
+public class ActivationTest extends BaseEngineTest {
+
+    private static final String FILES_FOLDER = "activation_test";
+
+    @Before
+    public void prepareEngine() {
+        ActivationTrackingComponent.sInstances.clear();
+        setupEngine(FILES_FOLDER);
+        getEngine().onStart();
+    }
+
+    /**
+     * Inactive subtree must not be updated and it's colliders must not collide until
+     * it is activated again.
+     */
+    @Test
+    public void subtreeActivationTest() {
+        ActivationTrackingComponent first = ActivationTrackingComponent.sInstances.get("first");
+        ActivationTrackingComponent second = ActivationTrackingComponent.sInstances.get("second");
+        GameObject parent = first.getGameObject().getParent();
+
+        getEngine().onUpdate();
+        assertEquals(1, first.postUpdateCount);
+        assertEquals(1, first.collisionCount);
+        assertEquals(1, second.collisionCount);
+
+        parent.setActive(false);
+        assertFalse(parent.isActive());
+        assertTrue(first.getGameObject().isActive());
+        assertFalse(first.getGameObject().isActiveInHierarchy());
+        assertFalse(first.isActiveAndEnabled());
+        assertEquals("Collision did not end on deactivation", 0, second.collisionCount);
+
+        getEngine().onUpdate();
+        getEngine().onUpdate();
+        assertEquals("Inactive subtree was updated", 1, first.postUpdateCount);
+        assertEquals(0, second.collisionCount);
+        assertEquals(3, second.postUpdateCount);
+
+        parent.setActive(true);
+        assertTrue(first.isActiveAndEnabled());
+        getEngine().onUpdate();
+        assertEquals(2, first.postUpdateCount);
+        assertEquals("Collision was not detected after activation", 1, second.collisionCount);
+        getEngine().onFinish();
+    }
+
+    /**
+     * Disabled component must not be updated but other components of it's object must.
+     */
+    @Test
+    public void componentEnablingTest() {
+        ActivationTrackingComponent first = ActivationTrackingComponent.sInstances.get("first");
+
+        first.setEnabled(false);
+        getEngine().onUpdate();
+        assertEquals(0, first.postUpdateCount);
+        assertEquals("Collider of object with disabled component did not collide", 1, first.collisionCount);
+
+        first.setEnabled(true);
+        getEngine().onUpdate();
+        assertEquals(1, first.postUpdateCount);
+        getEngine().onFinish();
+    }
+
+    /**
+     * Enabling a component must not wait for the next frame, component enabled during
+     * a frame is post updated in the same frame if it's turn did not pass yet.
+     */
+    @Test
+    public void enablingDuringFrameTest() {
+        ActivationTrackingComponent first = ActivationTrackingComponent.sInstances.get("first");
+        ActivationTrackingComponent second = ActivationTrackingComponent.sInstances.get("second");
+
+        second.setEnabled(false);
+        getEngine().onUpdate();
+        assertEquals(0, second.postUpdateCount);
+
+        first.enableInPostUpdate = second;
+        getEngine().onUpdate();
+        assertTrue(second.isActiveAndEnabled());
+        assertEquals("Component enabled during frame was not post updated", 1, second.postUpdateCount);
+        getEngine().onFinish();
+    }
+}
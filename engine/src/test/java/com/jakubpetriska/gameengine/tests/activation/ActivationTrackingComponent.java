@@ -0,0 +1,48 @@
+package com.jakubpetriska.gameengine.tests.activation;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.components.BoxCollider;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts post updates and ongoing collisions of it's object.
+ */
+public class ActivationTrackingComponent extends Component implements BoxCollider.CollisionListener {
+
+    public static final Map<String, ActivationTrackingComponent> sInstances = new HashMap<>();
+
+    public int postUpdateCount = 0;
+    public int collisionCount = 0;
+
+    /**
+     * Component enabled by this component during it's next post update.
+     */
+    public Component enableInPostUpdate;
+
+    @Override
+    public void start() {
+        sInstances.put(getGameObject().getTag(), this);
+        getGameObject().getComponent(BoxCollider.class).registerCollisionListener(this);
+    }
+
+    @Override
+    public void postUpdate() {
+        ++postUpdateCount;
+        if (enableInPostUpdate != null) {
+            enableInPostUpdate.setEnabled(true);
+            enableInPostUpdate = null;
+        }
+    }
+
+    @Override
+    public void onCollisionDetected(BoxCollider collisionObject) {
+        ++collisionCount;
+    }
+
+    @Override
+    public void onCollisionEnded(BoxCollider collisionObject) {
+        --collisionCount;
+    }
+}
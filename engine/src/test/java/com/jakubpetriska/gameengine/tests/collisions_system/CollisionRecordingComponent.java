@@ -0,0 +1,35 @@
+package com.jakubpetriska.gameengine.tests.collisions_system;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.components.BoxCollider;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records collisions of collider of it's object as pairs of tags.
+ */
+public class CollisionRecordingComponent extends Component implements BoxCollider.CollisionListener {
+
+    public static final List<String> sCollisions = new ArrayList<>();
+
+    private boolean mListenerRegistered = false;
+
+    @Override
+    public void update() {
+        if (!mListenerRegistered) {
+            getGameObject().getComponent(BoxCollider.class).registerCollisionListener(this);
+            mListenerRegistered = true;
+        }
+    }
+
+    @Override
+    public void onCollisionDetected(BoxCollider collisionObject) {
+        sCollisions.add(getGameObject().getTag() + "-" + collisionObject.getGameObject().getTag());
+    }
+
+    @Override
+    public void onCollisionEnded(BoxCollider collisionObject) {
+
+    }
+}
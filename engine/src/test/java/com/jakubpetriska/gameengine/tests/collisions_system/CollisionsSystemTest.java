@@ -4,6 +4,11 @@ import com.jakubpetriska.gameengine.tests.support.BaseEngineTest;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
 /**
  * Created by Jakub on 9. 5. 2015.
  */
@@ -20,4 +25,17 @@ public class CollisionsSystemTest extends BaseEngineTest {
     public void basicComponentLifecycleTest() {
         runEngine(FILES_FOLDER, "main_scene", 15);
     }
+
+    /**
+     * Tests detection of collisions of rotated and not rotated colliders.
+     */
+    @Test
+    public void collisionDetectionTest() {
+        CollisionRecordingComponent.sCollisions.clear();
+        runEngine(FILES_FOLDER, "detection_scene", 3);
+
+        Collections.sort(CollisionRecordingComponent.sCollisions);
+        assertEquals(Arrays.asList("first-second", "second-first"),
+                CollisionRecordingComponent.sCollisions);
+    }
 }
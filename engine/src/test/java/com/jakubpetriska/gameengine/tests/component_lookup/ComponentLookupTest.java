@@ -0,0 +1,54 @@
+package com.jakubpetriska.gameengine.tests.component_lookup;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.ComponentType;
+import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.components.BoxCollider;
+import com.jakubpetriska.gameengine.api.components.Camera;
+import com.jakubpetriska.gameengine.api.components.Model;
+import com.jakubpetriska.gameengine.tests.support.BaseEngineTest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of looking up components of game objects by their types.
+ */
+public class ComponentLookupTest extends BaseEngineTest {
+
+    private static final String FILES_FOLDER = "component_lookup_test";
+
+    private static final ComponentType<BoxCollider> BOX_COLLIDER = ComponentType.of(BoxCollider.class);
+
+    /**
+     * Lookup must return the first component assignable to the requested type,
+     * also after components are removed.
+     */
+    @Test
+    public void lookupTest() {
+        setupEngine(FILES_FOLDER);
+        getEngine().onStart();
+        DerivedCollider derivedCollider = DerivedCollider.sInstance;
+        GameObject gameObject = derivedCollider.getGameObject();
+        BoxCollider boxCollider = (BoxCollider) gameObject.components.get(3);
+
+        assertSame(gameObject.transform, gameObject.getComponent(Component.class));
+        assertSame(gameObject.components.get(1), gameObject.getComponent(Model.class));
+        assertSame(derivedCollider, gameObject.getComponent(BoxCollider.class));
+        assertSame(derivedCollider, gameObject.getComponent(BOX_COLLIDER));
+        assertSame(derivedCollider, gameObject.getComponent(DerivedCollider.class));
+        assertNull(gameObject.getComponent(Camera.class));
+        assertSame(BOX_COLLIDER, ComponentType.of(BoxCollider.class));
+
+        gameObject.removeComponent(derivedCollider);
+        assertSame(boxCollider, gameObject.getComponent(BOX_COLLIDER));
+        assertNull(gameObject.getComponent(DerivedCollider.class));
+
+        gameObject.removeComponent(boxCollider);
+        assertNull(gameObject.getComponent(BOX_COLLIDER));
+        gameObject.addComponent(derivedCollider = new DerivedCollider());
+        assertSame(derivedCollider, gameObject.getComponent(BOX_COLLIDER));
+        getEngine().onFinish();
+    }
+}
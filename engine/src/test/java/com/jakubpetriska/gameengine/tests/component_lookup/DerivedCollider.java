@@ -0,0 +1,17 @@
+package com.jakubpetriska.gameengine.tests.component_lookup;
+
+import com.jakubpetriska.gameengine.api.components.BoxCollider;
+
+/**
+ * Subclass of a built in component used to test lookup of components by their superclasses.
+ */
+public class DerivedCollider extends BoxCollider {
+
+    public static DerivedCollider sInstance;
+
+    @Override
+    public void start() {
+        super.start();
+        sInstance = this;
+    }
+}
@@ -0,0 +1,139 @@
+package com.jakubpetriska.gameengine.tests.fixed_time_step;
+
+import com.jakubpetriska.gameengine.api.components.Transform;
+import com.jakubpetriska.gameengine.api.math.Matrix44;
+import com.jakubpetriska.gameengine.headless.VirtualClock;
+import com.jakubpetriska.gameengine.tests.support.BaseEngineTest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of running the scene in fixed time steps and interpolating
+ * transformations between them.
+ */
+public class FixedTimeStepTest extends BaseEngineTest {
+
+    private static final String FILES_FOLDER = "fixed_time_step_test";
+
+    // Values set in scenes.xml of the test
+    private static final long STEP_NANOS = 20000000;
+    private static final int MAX_STEPS_PER_FRAME = 3;
+
+    private static final float EPSILON = 0.0001f;
+
+    private VirtualClock mClock;
+    private StepCountingComponent mComponent;
+
+    @Before
+    public void prepareEngine() {
+        StepCountingComponent.sInstance = null;
+        mClock = new VirtualClock();
+        setupEngine(FILES_FOLDER);
+        getEngine().setClock(mClock);
+        getEngine().onStart();
+        // First frame always runs one step
+        getEngine().onUpdate();
+        mComponent = StepCountingComponent.sInstance;
+        assertEquals(1, mComponent.updateCount);
+        assertEquals(1, mComponent.postUpdateCount);
+    }
+
+    /**
+     * Every frame must run as many steps as fit into the time that passed and keep
+     * the rest for the next frames.
+     */
+    @Test
+    public void stepsPerFrameTest() {
+        runFrame(2 * STEP_NANOS);
+        assertEquals(3, mComponent.updateCount);
+        assertEquals(2, mComponent.postUpdateCount);
+        assertEquals(0.02f, mComponent.lastTimeDelta, 0);
+        assertEquals(0, mComponent.interpolationAlpha, EPSILON);
+
+        // Frame shorter than a step does not update, but is still rendered
+        runFrame(STEP_NANOS / 2);
+        assertEquals(3, mComponent.updateCount);
+        assertEquals(3, mComponent.postUpdateCount);
+        assertEquals(0.5f, mComponent.interpolationAlpha, EPSILON);
+
+        // Remaining time is added to the next frame
+        runFrame(STEP_NANOS * 3 / 4);
+        assertEquals(4, mComponent.updateCount);
+        assertEquals(0.25f, mComponent.interpolationAlpha, EPSILON);
+        assertEquals(4 * 0.02f, mComponent.lastTimeFromStart, EPSILON);
+        getEngine().onFinish();
+    }
+
+    /**
+     * Slow frame must not run more steps than allowed and the time
+     * that did not fit must be dropped.
+     */
+    @Test
+    public void maxStepsClampTest() {
+        runFrame(10 * STEP_NANOS + STEP_NANOS / 2);
+        assertEquals(1 + MAX_STEPS_PER_FRAME, mComponent.updateCount);
+        assertEquals(0, mComponent.interpolationAlpha, EPSILON);
+
+        runFrame(STEP_NANOS / 2);
+        assertEquals("Dropped time was run in later frame", 1 + MAX_STEPS_PER_FRAME, mComponent.updateCount);
+        assertEquals(0.5f, mComponent.interpolationAlpha, EPSILON);
+        getEngine().onFinish();
+    }
+
+    /**
+     * Collisions must be detected at positions of every step, not only of the rendered frame,
+     * so fast object does not pass through an obstacle.
+     */
+    @Test
+    public void collisionsPerStepTest() {
+        // Object moves to 2, 3 and 4 and overlaps the obstacle at 2.9 only after the second step
+        runFrame(3 * STEP_NANOS);
+        assertEquals(4, mComponent.updateCount);
+        assertEquals(1, mComponent.collisionCount);
+        assertEquals(1, mComponent.collisionEndCount);
+
+        // Frame without a step does not detect collisions again
+        runFrame(STEP_NANOS / 2);
+        assertEquals(1, mComponent.collisionCount);
+        assertEquals(1, mComponent.collisionEndCount);
+        getEngine().onFinish();
+    }
+
+    /**
+     * Rendered transformation must be interpolated between the state before
+     * the last step and the current state.
+     */
+    @Test
+    public void interpolationTest() {
+        Transform transform = mComponent.getGameObject().transform;
+
+        runFrame(STEP_NANOS);
+        // Object moved from 1 to 2 during the last step
+        assertInterpolatedX(transform, 0, 1);
+        assertInterpolatedX(transform, 0.5f, 1.5f);
+        assertInterpolatedX(transform, 1, 2);
+
+        runFrame(STEP_NANOS / 4);
+        assertInterpolatedX(transform, mComponent.interpolationAlpha, 1.25f);
+
+        // Object that did not move in the last step is not interpolated
+        mComponent.setEnabled(false);
+        runFrame(STEP_NANOS * 3 / 4);
+        runFrame(STEP_NANOS);
+        assertInterpolatedX(transform, 0.5f, 2);
+        getEngine().onFinish();
+    }
+
+    private void runFrame(long nanos) {
+        mClock.advance(nanos);
+        getEngine().onUpdate();
+    }
+
+    private static void assertInterpolatedX(Transform transform, float alpha, float x) {
+        Matrix44 matrix = transform.getInterpolatedTransformationMatrix(alpha);
+        assertEquals(x, matrix.get(0, 3), EPSILON);
+    }
+}
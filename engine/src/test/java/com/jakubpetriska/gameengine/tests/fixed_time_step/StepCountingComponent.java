@@ -0,0 +1,51 @@
+package com.jakubpetriska.gameengine.tests.fixed_time_step;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.components.BoxCollider;
+
+/**
+ * Counts fixed steps of it's object, moves it along X axis by 1 every step
+ * and records interpolation factor of every rendered frame and collisions of it's collider.
+ */
+public class StepCountingComponent extends Component implements BoxCollider.CollisionListener {
+
+    public static StepCountingComponent sInstance;
+
+    public int updateCount = 0;
+    public int postUpdateCount = 0;
+    public float lastTimeDelta = 0;
+    public float lastTimeFromStart = 0;
+    public float interpolationAlpha = -1;
+    public int collisionCount = 0;
+    public int collisionEndCount = 0;
+
+    @Override
+    public void start() {
+        sInstance = this;
+        getGameObject().getComponent(BoxCollider.class).registerCollisionListener(this);
+    }
+
+    @Override
+    public void update() {
+        ++updateCount;
+        lastTimeDelta = getTimeDelta();
+        lastTimeFromStart = getApplication().getTime().getTimeFromStart();
+        getGameObject().transform.translateBy(1, 0, 0);
+    }
+
+    @Override
+    public void postUpdate() {
+        ++postUpdateCount;
+        interpolationAlpha = getApplication().getTime().getInterpolationAlpha();
+    }
+
+    @Override
+    public void onCollisionDetected(BoxCollider collisionObject) {
+        ++collisionCount;
+    }
+
+    @Override
+    public void onCollisionEnded(BoxCollider collisionObject) {
+        ++collisionEndCount;
+    }
+}
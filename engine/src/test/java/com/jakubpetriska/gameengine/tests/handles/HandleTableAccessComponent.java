@@ -0,0 +1,26 @@
+package com.jakubpetriska.gameengine.tests.handles;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.GameObjectPool;
+import com.jakubpetriska.gameengine.api.HandleTable;
+
+/**
+ * Gives the test access to the handle table and the pool of the scene.
+ */
+public class HandleTableAccessComponent extends Component {
+
+    public static HandleTableAccessComponent sInstance;
+
+    @Override
+    public void start() {
+        sInstance = this;
+    }
+
+    public HandleTable getHandleTable() {
+        return getApplication().getHandleTable();
+    }
+
+    public GameObjectPool getPool() {
+        return getApplication().getGameObjectPool();
+    }
+}
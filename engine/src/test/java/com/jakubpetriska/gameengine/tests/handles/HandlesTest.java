@@ -0,0 +1,87 @@
+package com.jakubpetriska.gameengine.tests.handles;
+
+import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.HandleTable;
+import com.jakubpetriska.gameengine.api.Prefab;
+import com.jakubpetriska.gameengine.api.components.BoxCollider;
+import com.jakubpetriska.gameengine.tests.support.BaseEngineTest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of handles of objects and components.
+ */
+public class HandlesTest extends BaseEngineTest {
+
+    private static final String FILES_FOLDER = "handles_test";
+
+    private HandleTable mHandleTable;
+    private GameObject mRoot;
+
+    @Before
+    public void prepareEngine() {
+        setupEngine(FILES_FOLDER);
+        getEngine().onStart();
+        mHandleTable = HandleTableAccessComponent.sInstance.getHandleTable();
+        mRoot = HandleTableAccessComponent.sInstance.getGameObject();
+    }
+
+    /**
+     * Handles must resolve until their object is removed and must not resolve
+     * to another object reusing their slot.
+     */
+    @Test
+    public void staleHandleTest() {
+        GameObject child = new GameObject(mRoot);
+        BoxCollider collider = new BoxCollider();
+        child.addComponent(collider);
+        long childHandle = child.getHandle();
+        long colliderHandle = collider.getHandle();
+
+        assertNotEquals(HandleTable.NONE, childHandle);
+        assertEquals(childHandle, child.getHandle());
+        assertSame(child, mHandleTable.resolveGameObject(childHandle));
+        assertSame(collider, mHandleTable.resolveComponent(colliderHandle));
+        assertNull(mHandleTable.resolveComponent(childHandle));
+        assertNull(mHandleTable.resolveGameObject(HandleTable.NONE));
+
+        mRoot.removeChild(child);
+        assertFalse(mHandleTable.isValid(childHandle));
+        assertFalse(mHandleTable.isValid(colliderHandle));
+        assertEquals(HandleTable.NONE, child.getHandle());
+
+        GameObject newChild = new GameObject(mRoot);
+        long newChildHandle = newChild.getHandle();
+        assertEquals("Slot was not reused", HandleTable.getIndex(colliderHandle), HandleTable.getIndex(newChildHandle));
+        assertNotEquals(colliderHandle, newChildHandle);
+        assertNull(mHandleTable.resolveComponent(colliderHandle));
+        assertSame(newChild, mHandleTable.resolveGameObject(newChildHandle));
+        getEngine().onFinish();
+    }
+
+    /**
+     * Handles of instances released into the pool must become stale.
+     */
+    @Test
+    public void pooledHandleTest() {
+        Prefab prefab = new Prefab() {
+            @Override
+            public GameObject create(GameObject parent) {
+                return new GameObject(parent);
+            }
+        };
+        GameObject instance = HandleTableAccessComponent.sInstance.getPool().spawn(prefab, mRoot);
+        long handle = instance.getHandle();
+        HandleTableAccessComponent.sInstance.getPool().release(instance);
+        assertNull(mHandleTable.resolveGameObject(handle));
+
+        GameObject reusedInstance = HandleTableAccessComponent.sInstance.getPool().spawn(prefab, mRoot);
+        assertSame(instance, reusedInstance);
+        assertNull(mHandleTable.resolveGameObject(handle));
+        assertSame(instance, mHandleTable.resolveGameObject(instance.getHandle()));
+        getEngine().onFinish();
+    }
+}
@@ -0,0 +1,58 @@
+package com.jakubpetriska.gameengine.tests.headless;
+
+import com.jakubpetriska.gameengine.headless.EngineHost;
+import com.jakubpetriska.gameengine.headless.HeadlessPlatform;
+import com.jakubpetriska.gameengine.tests.support.Constants;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of running many engines in one host.
+ */
+public class EngineHostTest {
+
+    private static final String FILES_FOLDER = "headless_test";
+
+    private static final int INSTANCES_COUNT = 8;
+    private static final int ROUNDS_COUNT = 5;
+
+    /**
+     * Every instance must run in every round and all instances must share loaded assets.
+     */
+    @Test
+    public void hostTest() {
+        EngineHost host = new EngineHost(3);
+        HeadlessPlatform platform = new HeadlessPlatform(new File(Constants.FILES_FOLDER_PATH + FILES_FOLDER));
+        List<EngineHost.Instance> instances = new ArrayList<>();
+        for (int i = 0; i < INSTANCES_COUNT; ++i) {
+            instances.add(host.addInstance(platform, null, HeadlessEngineRunnerTest.TIME_STEP));
+        }
+
+        host.runRound();
+        for (EngineHost.Instance instance : instances) {
+            assertTrue("Instance did not run during the first round", instance.getRunner().getTickCount() > 0);
+        }
+        for (int i = 1; i < ROUNDS_COUNT; ++i) {
+            host.runRound();
+        }
+        for (EngineHost.Instance instance : instances) {
+            assertNull(instance.getFailure());
+            assertTrue(instance.getUsedNanos() > 0);
+        }
+        assertEquals(INSTANCES_COUNT, host.getInstanceCount());
+        assertEquals("Meshes were not shared between instances", 1, host.getAssetCache().getMeshCount());
+
+        assertTrue(host.removeInstance(instances.get(0)));
+        assertFalse(host.removeInstance(instances.get(0)));
+        assertEquals(INSTANCES_COUNT - 1, host.getInstanceCount());
+
+        host.shutdown();
+        assertEquals(0, host.getInstanceCount());
+    }
+}
@@ -0,0 +1,44 @@
+package com.jakubpetriska.gameengine.tests.headless;
+
+import com.jakubpetriska.gameengine.headless.HeadlessEngineRunner;
+import com.jakubpetriska.gameengine.headless.HeadlessPlatform;
+import com.jakubpetriska.gameengine.tests.support.Constants;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of running the engine without display.
+ */
+public class HeadlessEngineRunnerTest {
+
+    private static final String FILES_FOLDER = "headless_test";
+
+    public static final float TIME_STEP = 1 / 60f;
+
+    @Before
+    public void resetCounter() {
+        StepCountingComponent.sUpdateCount = 0;
+    }
+
+    /**
+     * Every tick must run exactly one fixed step, no matter how fast the ticks are run.
+     */
+    @Test
+    public void oneStepPerTickTest() {
+        HeadlessEngineRunner runner = new HeadlessEngineRunner(
+                new HeadlessPlatform(new File(Constants.FILES_FOLDER_PATH + FILES_FOLDER)),
+                null, TIME_STEP);
+        runner.run(1000);
+        runner.finish();
+
+        assertEquals(1000, runner.getTickCount());
+        assertEquals("Number of steps does not match number of ticks",
+                1000, StepCountingComponent.sUpdateCount);
+        assertTrue("Ticks per second were not measured", runner.getTicksPerSecond() > 0);
+    }
+}
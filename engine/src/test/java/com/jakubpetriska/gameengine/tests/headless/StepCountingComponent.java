@@ -0,0 +1,20 @@
+package com.jakubpetriska.gameengine.tests.headless;
+
+import com.jakubpetriska.gameengine.api.Component;
+
+import static org.junit.Assert.*;
+
+/**
+ * Counts updates and asserts that every update has the fixed time delta.
+ */
+public class StepCountingComponent extends Component {
+
+    public static int sUpdateCount = 0;
+
+    @Override
+    public void update() {
+        assertEquals("Time delta is not equal to the fixed time step",
+                HeadlessEngineRunnerTest.TIME_STEP, getApplication().getTime().getTimeDelta(), 0);
+        ++sUpdateCount;
+    }
+}
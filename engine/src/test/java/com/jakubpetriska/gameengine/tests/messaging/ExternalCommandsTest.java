@@ -0,0 +1,156 @@
+package com.jakubpetriska.gameengine.tests.messaging;
+
+import com.jakubpetriska.gameengine.api.Application;
+import com.jakubpetriska.gameengine.api.external.ExternalCommands;
+import com.jakubpetriska.gameengine.engine.messaging.ExternalCommandsInternal;
+import com.jakubpetriska.gameengine.tests.support.BaseEngineTest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of running commands submitted from other threads on the engine thread.
+ */
+public class ExternalCommandsTest extends BaseEngineTest {
+
+    private static final String FILES_FOLDER = "messaging_test";
+
+    private ExternalCommands mCommands;
+
+    @Before
+    public void prepareEngine() {
+        setupEngine(FILES_FOLDER);
+        getEngine().onStart();
+        mCommands = getEngine().getExternalCommands();
+    }
+
+    /**
+     * Commands submitted from other threads must run on the engine thread
+     * during the next frame in order of submission.
+     */
+    @Test
+    public void runOrderTest() throws Exception {
+        final List<Integer> runCommands = new ArrayList<>();
+        final Thread engineThread = Thread.currentThread();
+        Thread submitter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10; ++i) {
+                    final int index = i;
+                    mCommands.submit(new ExternalCommands.Command<Void>() {
+                        @Override
+                        public Void run(Application application) {
+                            assertSame(engineThread, Thread.currentThread());
+                            runCommands.add(index);
+                            return null;
+                        }
+                    });
+                }
+            }
+        });
+        submitter.start();
+        submitter.join();
+        assertTrue("Command ran before the frame", runCommands.isEmpty());
+
+        getEngine().onUpdate();
+        assertEquals(10, runCommands.size());
+        for (int i = 0; i < runCommands.size(); ++i) {
+            assertEquals(i, (int) runCommands.get(i));
+        }
+        getEngine().onFinish();
+    }
+
+    /**
+     * Futures must receive results and exceptions of their commands and be cancelled
+     * when the engine finishes before their commands run.
+     */
+    @Test
+    public void futureTest() throws Exception {
+        Future<String> sceneName = mCommands.submitForResult(new ExternalCommands.Command<String>() {
+            @Override
+            public String run(Application application) {
+                return application.getCurrentSceneName();
+            }
+        });
+        Future<Void> failing = mCommands.submitForResult(new ExternalCommands.Command<Void>() {
+            @Override
+            public Void run(Application application) {
+                throw new IllegalStateException("Failure");
+            }
+        });
+        assertFalse(sceneName.isDone());
+
+        getEngine().onUpdate();
+        assertEquals("main_scene", sceneName.get());
+        try {
+            failing.get();
+            fail("Exception of the command was not propagated");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        Future<String> notRun = mCommands.submitForResult(new ExternalCommands.Command<String>() {
+            @Override
+            public String run(Application application) {
+                return "";
+            }
+        });
+        getEngine().onFinish();
+        assertTrue(notRun.isCancelled());
+    }
+
+    /**
+     * Exception thrown by a command submitted without a future must not prevent
+     * the following commands from running.
+     */
+    @Test
+    public void failingCommandTest() {
+        final List<Integer> runCommands = new ArrayList<>();
+        mCommands.submit(new ExternalCommands.Command<Void>() {
+            @Override
+            public Void run(Application application) {
+                throw new IllegalStateException("Failure");
+            }
+        });
+        mCommands.submit(new ExternalCommands.Command<Void>() {
+            @Override
+            public Void run(Application application) {
+                runCommands.add(1);
+                return null;
+            }
+        });
+
+        getEngine().onUpdate();
+        assertEquals(1, runCommands.size());
+        getEngine().onFinish();
+    }
+
+    /**
+     * Commands must be rejected when the queue is full.
+     */
+    @Test
+    public void capacityTest() {
+        ExternalCommands.Command<Void> command = new ExternalCommands.Command<Void>() {
+            @Override
+            public Void run(Application application) {
+                return null;
+            }
+        };
+        for (int i = 0; i < ExternalCommandsInternal.DEFAULT_CAPACITY; ++i) {
+            assertTrue(mCommands.submit(command));
+        }
+        assertFalse(mCommands.submit(command));
+        assertNull(mCommands.submitForResult(command));
+
+        getEngine().onUpdate();
+        assertTrue("Queue was not emptied", mCommands.submit(command));
+        getEngine().onFinish();
+    }
+}
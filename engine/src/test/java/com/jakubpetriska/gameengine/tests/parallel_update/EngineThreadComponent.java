@@ -0,0 +1,29 @@
+package com.jakubpetriska.gameengine.tests.parallel_update;
+
+import com.jakubpetriska.gameengine.api.Component;
+
+import static org.junit.Assert.*;
+
+/**
+ * Asserts that it is updated on the engine thread, in parallel update after all thread safe
+ * components, and sends a message every update.
+ */
+public class EngineThreadComponent extends Component {
+
+    public static Thread sEngineThread;
+    public static boolean sParallelUpdate = true;
+
+    private int mUpdateCount = 0;
+
+    @Override
+    public void update() {
+        ++mUpdateCount;
+        assertSame("Component was not updated on the engine thread", sEngineThread, Thread.currentThread());
+        if (sParallelUpdate) {
+            assertEquals("Not all thread safe components were updated before this component",
+                    ParallelUpdateTest.THREAD_SAFE_OBJECTS_COUNT * mUpdateCount,
+                    ThreadSafeCountingComponent.sUpdateCount.get());
+        }
+        getApplication().getMessenger().sendMessage(new ParallelUpdateTest.OutputMessage(getGameObject().getTag()));
+    }
+}
@@ -0,0 +1,116 @@
+package com.jakubpetriska.gameengine.tests.parallel_update;
+
+import com.jakubpetriska.gameengine.api.external.ExternalMessenger;
+import com.jakubpetriska.gameengine.engine.SessionRecorder;
+import com.jakubpetriska.gameengine.tests.support.BaseEngineTest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of updating scene subtrees in parallel.
+ */
+public class ParallelUpdateTest extends BaseEngineTest implements ExternalMessenger.MessageReceiver<ParallelUpdateTest.OutputMessage> {
+
+    private static final String FILES_FOLDER = "parallel_update_test";
+
+    public static final int THREAD_SAFE_OBJECTS_COUNT = 4;
+    private static final int FRAMES_COUNT = 50;
+
+    public static class OutputMessage {
+        public final String sender;
+
+        public OutputMessage(String sender) {
+            this.sender = sender;
+        }
+    }
+
+    private int mReceivedMessagesCount;
+    private final List<String> mSenders = new ArrayList<>();
+
+    @Before
+    public void prepareEngine() {
+        setupEngine(FILES_FOLDER);
+        ThreadSafeCountingComponent.sUpdateCount.set(0);
+        ThreadSafeCountingComponent.sChildCollisionDetected = false;
+        ThreadSafeCountingComponent.sUpdatedOnWorkerThread = false;
+        EngineThreadComponent.sEngineThread = Thread.currentThread();
+        EngineThreadComponent.sParallelUpdate = true;
+        mReceivedMessagesCount = 0;
+        mSenders.clear();
+    }
+
+    /**
+     * Thread safe subtrees must be updated exactly once per frame, messages sent from them must
+     * be delivered on the engine thread and colliders created in them must be registered.
+     */
+    @Test
+    public void parallelUpdateTest() {
+        getEngine().setParallelUpdate(4);
+        getEngine().onStart();
+        getEngine().getExternalMessenger().registerMessageReceiver(OutputMessage.class, this);
+
+        for (int i = 0; i < FRAMES_COUNT; ++i) {
+            getEngine().onUpdate();
+            assertEquals("Thread safe components were not updated once per frame",
+                    THREAD_SAFE_OBJECTS_COUNT * (i + 1), ThreadSafeCountingComponent.sUpdateCount.get());
+            assertEquals("Messages sent during parallel update were not delivered",
+                    (THREAD_SAFE_OBJECTS_COUNT + 1) * (i + 1), mReceivedMessagesCount);
+        }
+        getEngine().onFinish();
+
+        assertTrue("Collider created during parallel update was not registered",
+                ThreadSafeCountingComponent.sChildCollisionDetected);
+    }
+
+    /**
+     * Recorded session must be updated on a single thread, so it can be replayed exactly.
+     */
+    @Test
+    public void recordingUpdatesSeriallyTest() {
+        getEngine().setParallelUpdate(4);
+        getEngine().startRecording(new SessionRecorder(new ByteArrayOutputStream()));
+        getEngine().onStart();
+        EngineThreadComponent.sParallelUpdate = false;
+        for (int i = 0; i < FRAMES_COUNT; ++i) {
+            getEngine().onUpdate();
+        }
+        assertFalse("Recorded session was updated on worker threads",
+                ThreadSafeCountingComponent.sUpdatedOnWorkerThread);
+        getEngine().onFinish();
+    }
+
+    /**
+     * Messages sent during parallel update must be delivered in order of the scene
+     * like during serial update, regardless of timing of the threads.
+     */
+    @Test
+    public void deterministicOrderTest() {
+        getEngine().setParallelUpdate(4);
+        getEngine().onStart();
+        getEngine().getExternalMessenger().registerMessageReceiver(OutputMessage.class, this);
+
+        List<String> sceneOrder = Arrays.asList("first", "second", "engine", "third", "fourth");
+        for (int i = 0; i < FRAMES_COUNT; ++i) {
+            mSenders.clear();
+            getEngine().onUpdate();
+            assertEquals("Messages were not delivered in order of the scene", sceneOrder, mSenders);
+        }
+        getEngine().onFinish();
+    }
+
+    @Override
+    public void onNewMessage(OutputMessage message) {
+        assertSame("Message was not delivered on the engine thread",
+                EngineThreadComponent.sEngineThread, Thread.currentThread());
+        ++mReceivedMessagesCount;
+        mSenders.add(message.sender);
+    }
+}
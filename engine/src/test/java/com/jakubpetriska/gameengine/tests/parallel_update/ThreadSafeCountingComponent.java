@@ -0,0 +1,48 @@
+package com.jakubpetriska.gameengine.tests.parallel_update;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.ThreadSafeUpdate;
+import com.jakubpetriska.gameengine.api.components.BoxCollider;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts updates, sends message every update and in the first update creates
+ * a child object with collider.
+ */
+public class ThreadSafeCountingComponent extends Component implements ThreadSafeUpdate {
+
+    public static final AtomicInteger sUpdateCount = new AtomicInteger();
+    public static volatile boolean sChildCollisionDetected = false;
+    public static volatile boolean sUpdatedOnWorkerThread = false;
+
+    private boolean mChildCreated = false;
+
+    @Override
+    public void update() {
+        if (!mChildCreated) {
+            GameObject child = new GameObject(getGameObject());
+            BoxCollider collider = new BoxCollider();
+            child.addComponent(collider);
+            collider.registerCollisionListener(new BoxCollider.CollisionListener() {
+                @Override
+                public void onCollisionDetected(BoxCollider collisionObject) {
+                    sChildCollisionDetected = true;
+                }
+
+                @Override
+                public void onCollisionEnded(BoxCollider collisionObject) {
+
+                }
+            });
+            mChildCreated = true;
+        }
+
+        if (Thread.currentThread() != EngineThreadComponent.sEngineThread) {
+            sUpdatedOnWorkerThread = true;
+        }
+        sUpdateCount.incrementAndGet();
+        getApplication().getMessenger().sendMessage(new ParallelUpdateTest.OutputMessage(getGameObject().getTag()));
+    }
+}
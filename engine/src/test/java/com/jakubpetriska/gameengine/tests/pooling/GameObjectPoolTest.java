@@ -0,0 +1,155 @@
+package com.jakubpetriska.gameengine.tests.pooling;
+
+import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.GameObjectPool;
+import com.jakubpetriska.gameengine.engine.TransformStorage;
+import com.jakubpetriska.gameengine.tests.support.BaseEngineTest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of spawning and releasing prefab instances.
+ */
+public class GameObjectPoolTest extends BaseEngineTest {
+
+    private static final String FILES_FOLDER = "pooling_test";
+
+    private GameObjectPool mPool;
+    private GameObject mRoot;
+
+    @Before
+    public void prepareEngine() {
+        setupEngine(FILES_FOLDER);
+        getEngine().onStart();
+        mPool = PoolAccessComponent.sInstance.getPool();
+        mRoot = PoolAccessComponent.sInstance.getGameObject();
+    }
+
+    /**
+     * Released instance must leave the scene and be reused with it's components
+     * when the prefab is spawned again.
+     */
+    @Test
+    public void reuseTest() {
+        GameObject instance = mPool.spawn(PooledComponent.PREFAB, mRoot);
+        PooledComponent component = instance.children.get(0).getComponent(PooledComponent.class);
+        getEngine().onUpdate();
+        assertEquals(1, component.updateCount);
+
+        mPool.release(instance);
+        assertEquals(1, component.releaseCount);
+        assertEquals(1, mPool.getPooledCount(PooledComponent.PREFAB));
+        assertFalse(mRoot.children.contains(instance));
+        getEngine().onUpdate();
+        assertEquals("Released instance was updated", 1, component.updateCount);
+
+        GameObject reusedInstance = mPool.spawn(PooledComponent.PREFAB, mRoot);
+        assertSame(instance, reusedInstance);
+        assertTrue(mRoot.children.contains(instance));
+        assertEquals(0, mPool.getPooledCount(PooledComponent.PREFAB));
+        assertEquals(1, component.spawnCount);
+        assertEquals("Component of reused instance was started again", 1, component.startCount);
+        getEngine().onUpdate();
+        assertEquals(1, component.updateCount);
+
+        mPool.release(instance);
+        getEngine().onFinish();
+        assertEquals("Pooled component was not finished", 1, component.finishCount);
+    }
+
+    /**
+     * Batch spawn must reuse released instances first, create the rest and set transformations
+     * of all of them.
+     */
+    @Test
+    public void spawnAllTest() {
+        mPool.prewarm(PooledComponent.PREFAB, mRoot, 2);
+        int count = 100;
+        float[] positions = new float[count * 3];
+        float[] scales = new float[count * 3];
+        for (int i = 0; i < count; ++i) {
+            positions[i * 3] = i;
+            positions[i * 3 + 1] = -i;
+            scales[i * 3] = 1;
+            scales[i * 3 + 1] = 2;
+            scales[i * 3 + 2] = 3;
+        }
+        GameObject[] instances = new GameObject[count];
+        mPool.spawnAll(PooledComponent.PREFAB, mRoot, count, positions, null, scales, instances);
+
+        assertEquals(0, mPool.getPooledCount(PooledComponent.PREFAB));
+        assertEquals(count, mRoot.children.size());
+        for (int i = 0; i < count; ++i) {
+            GameObject instance = instances[i];
+            assertSame(mRoot, instance.getParent());
+            assertEquals(i, instance.transform.getPositionX(), 0);
+            assertEquals(-i, instance.transform.getPositionY(), 0);
+            assertEquals(0, instance.transform.getPositionZ(), 0);
+            assertEquals(2, instance.transform.getScaleY(), 0);
+            assertEquals(3, instance.transform.getScaleZ(), 0);
+        }
+
+        getEngine().onUpdate();
+        for (int i = 0; i < count; ++i) {
+            PooledComponent component = instances[i].children.get(0).getComponent(PooledComponent.class);
+            assertEquals(1, component.updateCount);
+        }
+
+        try {
+            mPool.spawnAll(PooledComponent.PREFAB, mRoot, 2, new float[3], null, null, null);
+            fail("Too short array of positions was accepted");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        getEngine().onFinish();
+    }
+
+    /**
+     * Instances spawned at once during update, while structural changes are recorded,
+     * must be complete after the frame.
+     */
+    @Test
+    public void spawnAllDuringUpdateTest() {
+        int count = 2 * TransformStorage.PAGE_SIZE;
+        SpawningComponent spawningComponent = new SpawningComponent(count);
+        mRoot.addComponent(spawningComponent);
+        getEngine().onUpdate();
+
+        assertEquals(count, mRoot.children.size());
+        for (int i = 0; i < count; ++i) {
+            GameObject instance = spawningComponent.instances[i];
+            assertSame(mRoot, instance.getParent());
+            assertEquals(1, instance.children.size());
+            assertNotNull(instance.children.get(0).getComponent(PooledComponent.class));
+        }
+        getEngine().onFinish();
+    }
+
+    /**
+     * Only instances spawned from the pool can be released and only once.
+     */
+    @Test
+    public void releaseValidationTest() {
+        try {
+            mPool.release(new GameObject(mRoot));
+            fail("Object not spawned from the pool was released");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        mPool.prewarm(PooledComponent.PREFAB, mRoot, 2);
+        assertEquals(2, mPool.getPooledCount(PooledComponent.PREFAB));
+        GameObject instance = mPool.spawn(PooledComponent.PREFAB, mRoot);
+        mPool.release(instance);
+        try {
+            mPool.release(instance);
+            fail("Instance was released twice");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        getEngine().onFinish();
+    }
+}
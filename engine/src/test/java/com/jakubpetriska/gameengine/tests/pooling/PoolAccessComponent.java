@@ -0,0 +1,21 @@
+package com.jakubpetriska.gameengine.tests.pooling;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.GameObjectPool;
+
+/**
+ * Gives the test access to the pool of the scene.
+ */
+public class PoolAccessComponent extends Component {
+
+    public static PoolAccessComponent sInstance;
+
+    @Override
+    public void start() {
+        sInstance = this;
+    }
+
+    public GameObjectPool getPool() {
+        return getApplication().getGameObjectPool();
+    }
+}
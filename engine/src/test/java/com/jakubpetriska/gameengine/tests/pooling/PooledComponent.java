@@ -0,0 +1,54 @@
+package com.jakubpetriska.gameengine.tests.pooling;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.Poolable;
+import com.jakubpetriska.gameengine.api.Prefab;
+
+/**
+ * Component of pooled prefab counting calls of it's lifecycle methods.
+ */
+public class PooledComponent extends Component implements Poolable {
+
+    public static final Prefab PREFAB = new Prefab() {
+        @Override
+        public GameObject create(GameObject parent) {
+            GameObject instance = new GameObject(parent);
+            GameObject child = new GameObject(instance);
+            child.addComponent(new PooledComponent());
+            return instance;
+        }
+    };
+
+    public int startCount = 0;
+    public int updateCount = 0;
+    public int spawnCount = 0;
+    public int releaseCount = 0;
+    public int finishCount = 0;
+
+    @Override
+    public void start() {
+        ++startCount;
+    }
+
+    @Override
+    public void update() {
+        ++updateCount;
+    }
+
+    @Override
+    public void finish() {
+        ++finishCount;
+    }
+
+    @Override
+    public void onSpawn() {
+        ++spawnCount;
+        updateCount = 0;
+    }
+
+    @Override
+    public void onRelease() {
+        ++releaseCount;
+    }
+}
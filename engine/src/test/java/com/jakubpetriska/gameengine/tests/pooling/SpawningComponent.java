@@ -0,0 +1,24 @@
+package com.jakubpetriska.gameengine.tests.pooling;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.GameObject;
+
+/**
+ * Spawns instances of {@link PooledComponent#PREFAB} at once during it's first update.
+ */
+public class SpawningComponent extends Component {
+
+    public final GameObject[] instances;
+
+    public SpawningComponent(int count) {
+        instances = new GameObject[count];
+    }
+
+    @Override
+    public void update() {
+        if (instances[0] == null) {
+            getApplication().getGameObjectPool().spawnAll(PooledComponent.PREFAB, getGameObject(),
+                    instances.length, null, null, null, instances);
+        }
+    }
+}
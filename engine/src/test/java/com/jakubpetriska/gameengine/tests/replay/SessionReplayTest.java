@@ -0,0 +1,245 @@
+package com.jakubpetriska.gameengine.tests.replay;
+
+import com.jakubpetriska.gameengine.api.Application;
+import com.jakubpetriska.gameengine.api.Touch;
+import com.jakubpetriska.gameengine.api.external.ExternalCommands;
+import com.jakubpetriska.gameengine.engine.Engine;
+import com.jakubpetriska.gameengine.engine.MessageCodec;
+import com.jakubpetriska.gameengine.engine.SessionRecorder;
+import com.jakubpetriska.gameengine.engine.SessionReplay;
+import com.jakubpetriska.gameengine.headless.HeadlessPlatform;
+import com.jakubpetriska.gameengine.headless.HeadlessRenderer;
+import com.jakubpetriska.gameengine.headless.SessionPlayer;
+import com.jakubpetriska.gameengine.headless.VirtualClock;
+import com.jakubpetriska.gameengine.platform.TouchInputInternal;
+import com.jakubpetriska.gameengine.tests.support.Constants;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of recording and replaying of sessions.
+ */
+public class SessionReplayTest {
+
+    private static final String FILES_FOLDER = "replay_test";
+
+    private static final int FRAMES_COUNT = 100;
+
+    public enum Direction {
+        LEFT, RIGHT
+    }
+
+    public static class CustomMessage {
+        public final int value;
+
+        public CustomMessage(int value) {
+            this.value = value;
+        }
+    }
+
+    private static final MessageCodec CUSTOM_MESSAGE_CODEC = new MessageCodec() {
+        @Override
+        public void write(Object message, DataOutput output) throws IOException {
+            output.writeInt(((CustomMessage) message).value);
+        }
+
+        @Override
+        public Object read(DataInput input) throws IOException {
+            return new CustomMessage(input.readInt());
+        }
+    };
+
+    private static class RecordedTouchInput implements TouchInputInternal {
+        private final List<Touch> mTouches = new ArrayList<>();
+        private int mFrame = 0;
+
+        @Override
+        public void update() {
+            mTouches.clear();
+            if (mFrame % 10 < 3) {
+                Touch touch = new Touch();
+                touch.setId(mFrame / 10);
+                touch.setState(mFrame % 10 == 0 ? Touch.STATE_BEGAN : Touch.STATE_RUNNING);
+                touch.setX(mFrame * 3.7f);
+                touch.setY(mFrame / 7f);
+                mTouches.add(touch);
+            }
+            ++mFrame;
+        }
+
+        @Override
+        public void postUpdate() {
+
+        }
+
+        @Override
+        public List<Touch> getTouches() {
+            return mTouches;
+        }
+    }
+
+    /**
+     * Command writing random number into the trace, so the trace differs when commands
+     * run in different frames.
+     */
+    private static class TraceCommand implements ExternalCommands.Command<Long> {
+        private final int mId;
+
+        TraceCommand(int id) {
+            mId = id;
+        }
+
+        @Override
+        public Long run(Application application) {
+            long value = application.getRandom().nextLong();
+            TraceRecordingComponent.sTrace.add("command " + mId + " " + value);
+            return value;
+        }
+    }
+
+    @Before
+    public void resetTrace() {
+        TraceRecordingComponent.sTrace.clear();
+    }
+
+    /**
+     * Replayed session must see exactly the same time, random numbers, touches and messages
+     * as the recorded one.
+     */
+    @Test
+    public void replayTest() {
+        File assetsFolder = new File(Constants.FILES_FOLDER_PATH + FILES_FOLDER);
+
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        SessionRecorder recorder = new SessionRecorder(log);
+        recorder.registerCodec(CustomMessage.class, CUSTOM_MESSAGE_CODEC);
+
+        VirtualClock clock = new VirtualClock();
+        Engine engine = new Engine(null);
+        engine.insertProvidedObjects(new HeadlessPlatform(assetsFolder), new HeadlessRenderer(),
+                new RecordedTouchInput());
+        engine.setClock(clock);
+        engine.startRecording(recorder);
+        engine.onStart();
+        for (int i = 0; i < FRAMES_COUNT; ++i) {
+            // Irregular frame times like on a real device
+            clock.advance(16000000 + (i * 7919 % 5000000));
+            if (i % 4 == 0) {
+                engine.getExternalMessenger().sendMessage("frame " + i);
+            }
+            if (i % 9 == 0) {
+                engine.getExternalMessenger().sendMessage(i % 2 == 0 ? Direction.LEFT : Direction.RIGHT);
+                engine.getExternalMessenger().sendMessage(new CustomMessage(i * 31));
+            }
+            engine.onUpdate();
+        }
+        engine.onFinish();
+
+        List<String> recordedTrace = new ArrayList<>(TraceRecordingComponent.sTrace);
+        assertEquals(FRAMES_COUNT, recordedTrace.size());
+        TraceRecordingComponent.sTrace.clear();
+
+        SessionReplay replay = new SessionReplay(new ByteArrayInputStream(log.toByteArray()));
+        replay.registerCodec(CustomMessage.class, CUSTOM_MESSAGE_CODEC);
+        SessionPlayer player = new SessionPlayer(new HeadlessPlatform(assetsFolder), null, replay);
+        assertEquals(FRAMES_COUNT, player.playAll());
+        player.finish();
+
+        assertEquals(FRAMES_COUNT, player.getFrameCount());
+        assertTrue("Frames per second were not measured", player.getFramesPerSecond() > 0);
+        assertEquals("Replayed session differs from the recorded one",
+                recordedTrace, TraceRecordingComponent.sTrace);
+    }
+
+    /**
+     * External commands do not stop working while a session is recorded. When the same commands
+     * are submitted during the replay they run in the same frames as during recording.
+     */
+    @Test
+    public void commandsReplayTest() {
+        File assetsFolder = new File(Constants.FILES_FOLDER_PATH + FILES_FOLDER);
+
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        VirtualClock clock = new VirtualClock();
+        Engine engine = new Engine(null);
+        engine.insertProvidedObjects(new HeadlessPlatform(assetsFolder), new HeadlessRenderer(),
+                new RecordedTouchInput());
+        engine.setClock(clock);
+        engine.startRecording(new SessionRecorder(log));
+        engine.onStart();
+        for (int i = 0; i < FRAMES_COUNT; ++i) {
+            clock.advance(16000000);
+            if (i % 7 == 0) {
+                assertTrue(engine.getExternalCommands().submit(new TraceCommand(i)));
+                assertNotNull(engine.getExternalCommands().submitForResult(new TraceCommand(-i)));
+            }
+            engine.onUpdate();
+        }
+        engine.onFinish();
+
+        List<String> recordedTrace = new ArrayList<>(TraceRecordingComponent.sTrace);
+        TraceRecordingComponent.sTrace.clear();
+
+        SessionReplay replay = new SessionReplay(new ByteArrayInputStream(log.toByteArray()));
+        SessionPlayer player = new SessionPlayer(new HeadlessPlatform(assetsFolder), null, replay);
+        // Commands submitted at once must wait for the frames in which they were recorded
+        for (int i = 0; i < FRAMES_COUNT; i += 7) {
+            assertTrue(player.getEngine().getExternalCommands().submit(new TraceCommand(i)));
+            assertNotNull(player.getEngine().getExternalCommands().submitForResult(new TraceCommand(-i)));
+        }
+        assertEquals(FRAMES_COUNT, player.playAll());
+        player.finish();
+
+        assertEquals("Replayed session differs from the recorded one",
+                recordedTrace, TraceRecordingComponent.sTrace);
+    }
+
+    /**
+     * Replay must fail when commands that were run during recording are not submitted again.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void missingCommandsTest() {
+        File assetsFolder = new File(Constants.FILES_FOLDER_PATH + FILES_FOLDER);
+
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        Engine engine = new Engine(null);
+        engine.insertProvidedObjects(new HeadlessPlatform(assetsFolder), new HeadlessRenderer(),
+                new RecordedTouchInput());
+        engine.setClock(new VirtualClock());
+        engine.startRecording(new SessionRecorder(log));
+        engine.onStart();
+        engine.getExternalCommands().submit(new TraceCommand(0));
+        engine.onUpdate();
+        engine.onFinish();
+
+        SessionReplay replay = new SessionReplay(new ByteArrayInputStream(log.toByteArray()));
+        new SessionPlayer(new HeadlessPlatform(assetsFolder), null, replay).playAll();
+    }
+
+    /**
+     * Messages that cannot be recorded must be reported.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void missingCodecTest() {
+        Engine engine = new Engine(null);
+        engine.insertProvidedObjects(
+                new HeadlessPlatform(new File(Constants.FILES_FOLDER_PATH + FILES_FOLDER)),
+                new HeadlessRenderer(), new RecordedTouchInput());
+        engine.startRecording(new SessionRecorder(new ByteArrayOutputStream()));
+        engine.onStart();
+        engine.getExternalMessenger().sendMessage(new CustomMessage(1));
+        engine.onUpdate();
+    }
+}
@@ -0,0 +1,51 @@
+package com.jakubpetriska.gameengine.tests.replay;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.Touch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes everything that comes into the engine from the outside into a trace.
+ */
+public class TraceRecordingComponent extends Component {
+
+    public static final List<String> sTrace = new ArrayList<>();
+
+    private final List<String> mStringMessages = new ArrayList<>();
+    private final List<SessionReplayTest.Direction> mDirectionMessages = new ArrayList<>();
+    private final List<SessionReplayTest.CustomMessage> mCustomMessages = new ArrayList<>();
+
+    @Override
+    public void update() {
+        StringBuilder entry = new StringBuilder();
+        entry.append(Float.floatToIntBits(getApplication().getTime().getTimeFromStart()));
+        entry.append(' ').append(Float.floatToIntBits(getApplication().getTime().getTimeDelta()));
+        entry.append(' ').append(getApplication().getRandom().nextLong());
+
+        for (Touch touch : getApplication().getTouchInput().getTouches()) {
+            entry.append(" touch ").append(touch.getId()).append(' ').append(touch.getState())
+                    .append(' ').append(Float.floatToIntBits(touch.getX()))
+                    .append(' ').append(Float.floatToIntBits(touch.getY()));
+        }
+
+        mStringMessages.clear();
+        getApplication().getMessenger().getMessages(String.class, mStringMessages);
+        for (String message : mStringMessages) {
+            entry.append(" string ").append(message);
+        }
+        mDirectionMessages.clear();
+        getApplication().getMessenger().getMessages(SessionReplayTest.Direction.class, mDirectionMessages);
+        for (SessionReplayTest.Direction message : mDirectionMessages) {
+            entry.append(" direction ").append(message);
+        }
+        mCustomMessages.clear();
+        getApplication().getMessenger().getMessages(SessionReplayTest.CustomMessage.class, mCustomMessages);
+        for (SessionReplayTest.CustomMessage message : mCustomMessages) {
+            entry.append(" custom ").append(message.value);
+        }
+
+        sTrace.add(entry.toString());
+    }
+}
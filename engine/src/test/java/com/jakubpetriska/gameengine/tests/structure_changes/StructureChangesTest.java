@@ -0,0 +1,41 @@
+package com.jakubpetriska.gameengine.tests.structure_changes;
+
+import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.components.BoxCollider;
+import com.jakubpetriska.gameengine.tests.support.BaseEngineTest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of deferring structural changes of the scene to sync points.
+ */
+public class StructureChangesTest extends BaseEngineTest {
+
+    private static final String FILES_FOLDER = "structure_changes_test";
+
+    /**
+     * Changes made during update must be applied at the end of the update step in order
+     * in which they were made.
+     */
+    @Test
+    public void syncPointTest() {
+        setupEngine(FILES_FOLDER);
+        getEngine().onStart();
+        StructureChangingComponent component = StructureChangingComponent.sInstance;
+        GameObject removedChild = component.getGameObject().children.get(0);
+
+        getEngine().onUpdate();
+        assertEquals(1, component.getGameObject().children.size());
+        assertSame(component.addedChild, component.getGameObject().children.get(0));
+        assertFalse(removedChild.transform.isAttached());
+        assertTrue(component.addedCollider.isAttached());
+        assertSame(component.addedCollider, component.addedChild.getComponent(BoxCollider.class));
+
+        // Outside of the frame changes are applied immediately
+        component.addedChild.removeComponent(component.addedCollider);
+        assertFalse(component.addedCollider.isAttached());
+        getEngine().onFinish();
+    }
+}
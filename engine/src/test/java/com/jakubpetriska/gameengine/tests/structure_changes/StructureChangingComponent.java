@@ -0,0 +1,44 @@
+package com.jakubpetriska.gameengine.tests.structure_changes;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.components.BoxCollider;
+
+import static org.junit.Assert.*;
+
+/**
+ * Changes the hierarchy during update and checks that changes are not visible before the sync point.
+ */
+public class StructureChangingComponent extends Component {
+
+    public static StructureChangingComponent sInstance;
+
+    public GameObject addedChild;
+    public BoxCollider addedCollider;
+
+    private int mUpdateCount = 0;
+
+    @Override
+    public void start() {
+        sInstance = this;
+    }
+
+    @Override
+    public void update() {
+        ++mUpdateCount;
+        if (mUpdateCount == 1) {
+            GameObject removedChild = getGameObject().children.get(0);
+            getGameObject().removeChild(removedChild);
+            assertTrue("Child was removed during update", getGameObject().children.contains(removedChild));
+            assertTrue(removedChild.transform.isAttached());
+
+            addedChild = new GameObject(getGameObject(), "added");
+            assertTrue("Mandatory component was not added immediately", addedChild.transform.isAttached());
+            assertFalse("Child was added during update", getGameObject().children.contains(addedChild));
+
+            addedCollider = new BoxCollider();
+            addedChild.addComponent(addedCollider);
+            assertFalse("Component was added during update", addedCollider.isAttached());
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.jakubpetriska.gameengine.tests.tag_index;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.TagIndex;
+
+/**
+ * Gives the test access to the tag index of the scene.
+ */
+public class TagIndexAccessComponent extends Component {
+
+    public static TagIndex sTagIndex;
+
+    @Override
+    public void start() {
+        sTagIndex = getApplication().getTagIndex();
+    }
+}
@@ -0,0 +1,57 @@
+package com.jakubpetriska.gameengine.tests.tag_index;
+
+import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.TagIndex;
+import com.jakubpetriska.gameengine.api.Tags;
+import com.jakubpetriska.gameengine.tests.support.BaseEngineTest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of finding objects by their tags.
+ */
+public class TagIndexTest extends BaseEngineTest {
+
+    private static final String FILES_FOLDER = "tag_index_test";
+
+    /**
+     * Index must follow creation and removal of objects and changes of their tags.
+     */
+    @Test
+    public void indexTest() {
+        setupEngine(FILES_FOLDER);
+        getEngine().onStart();
+        TagIndex tagIndex = TagIndexAccessComponent.sTagIndex;
+
+        GameObject root = tagIndex.findByTag("root");
+        assertNotNull(root);
+        List<GameObject> items = tagIndex.findAllByTag(Tags.getId("item"));
+        assertEquals(2, items.size());
+        assertTrue(items.contains(root.children.get(0)));
+        assertTrue(items.contains(root.children.get(1)));
+        assertNotNull(tagIndex.findByTag("nested"));
+        assertNull(tagIndex.findByTag("unknown"));
+        assertEquals(0, tagIndex.findAllByTag("").size());
+
+        assertEquals(Tags.getId("item"), root.children.get(0).getTagId());
+        assertEquals("item", Tags.getTag(Tags.getId("item")));
+
+        root.removeChild(root.children.get(1));
+        assertEquals(1, items.size());
+        assertNull("Child of removed object stayed in the index", tagIndex.findByTag("nested"));
+
+        GameObject newItem = new GameObject(root, "item");
+        assertEquals(2, items.size());
+        newItem.setTag("renamed");
+        assertEquals(1, items.size());
+        assertSame(newItem, tagIndex.findByTag("renamed"));
+
+        root.children.get(2).setTag("item");
+        assertEquals(2, items.size());
+        getEngine().onFinish();
+    }
+}
@@ -0,0 +1,27 @@
+package com.jakubpetriska.gameengine.tests.transform_hierarchy;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.engine.TransformStorage;
+
+/**
+ * Moves it's object along X axis by 1 every update and gives the test access
+ * to the transform storage.
+ */
+public class MovingComponent extends Component {
+
+    public static MovingComponent sInstance;
+
+    @Override
+    public void start() {
+        sInstance = this;
+    }
+
+    @Override
+    public void update() {
+        getGameObject().transform.translateBy(1, 0, 0);
+    }
+
+    public TransformStorage getTransformStorage() {
+        return getApplication().getTransformStorage();
+    }
+}
@@ -0,0 +1,214 @@
+package com.jakubpetriska.gameengine.tests.transform_hierarchy;
+
+import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.components.Transform;
+import com.jakubpetriska.gameengine.api.math.Matrix44;
+import com.jakubpetriska.gameengine.api.math.Quaternion;
+import com.jakubpetriska.gameengine.api.math.Vector3;
+import com.jakubpetriska.gameengine.engine.TransformStorage;
+import com.jakubpetriska.gameengine.tests.support.BaseEngineTest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of computing world matrices of the hierarchy.
+ */
+public class TransformHierarchyTest extends BaseEngineTest {
+
+    private static final String FILES_FOLDER = "transform_hierarchy_test";
+
+    /**
+     * World matrices must follow movement of the ancestors in every frame.
+     */
+    @Test
+    public void worldMatricesTest() {
+        setupEngine(FILES_FOLDER);
+        getEngine().onStart();
+        GameObject root = MovingComponent.sInstance.getGameObject();
+        GameObject child = root.children.get(0);
+        GameObject grandchild = child.children.get(0);
+        for (int frame = 1; frame <= 3; ++frame) {
+            getEngine().onUpdate();
+            assertTranslation(root.transform.getTransformationMatrix(), frame, 0, 0);
+            assertTranslation(child.transform.getTransformationMatrix(), frame + 10, 20, 30);
+            assertTranslation(grandchild.transform.getTransformationMatrix(), frame + 10, 25, 30);
+        }
+        getEngine().onFinish();
+    }
+
+    /**
+     * World version of a transformation must change when any of it's ancestors moves
+     * or when it is moved under another parent and stay the same otherwise.
+     */
+    @Test
+    public void worldVersionTest() {
+        setupEngine(FILES_FOLDER);
+        getEngine().onStart();
+        GameObject root = MovingComponent.sInstance.getGameObject();
+        GameObject child = root.children.get(0);
+        GameObject grandchild = child.children.get(0);
+
+        int version = grandchild.transform.getWorldVersion();
+        assertEquals(version, grandchild.transform.getWorldVersion());
+
+        getEngine().onUpdate();
+        int movedVersion = grandchild.transform.getWorldVersion();
+        assertTrue("Moving the root did not change world version of the grandchild", movedVersion > version);
+        assertEquals(11, grandchild.transform.getTransformationMatrix().get(0, 3), 0);
+
+        grandchild.setParent(root);
+        assertTrue("Changing the parent did not change world version",
+                grandchild.transform.getWorldVersion() > movedVersion);
+        assertEquals(1, grandchild.transform.getTransformationMatrix().get(0, 3), 0);
+        assertEquals(5, grandchild.transform.getTransformationMatrix().get(1, 3), 0);
+        getEngine().onFinish();
+    }
+
+    /**
+     * Inverse world matrix must undo the world matrix and follow changes of the hierarchy,
+     * world-space accessors must agree with the world matrix.
+     */
+    @Test
+    public void inverseAndWorldAccessorsTest() {
+        setupEngine(FILES_FOLDER);
+        getEngine().onStart();
+        GameObject root = MovingComponent.sInstance.getGameObject();
+        GameObject grandchild = root.children.get(0).children.get(0);
+        grandchild.transform.setRotation(30, 45, 60);
+        grandchild.transform.setScale(2, 3, 4);
+
+        for (int frame = 0; frame < 2; ++frame) {
+            Matrix44 product = new Matrix44();
+            Matrix44.multiply(product, grandchild.transform.getTransformationMatrix(),
+                    grandchild.transform.getInverseTransformationMatrix());
+            for (int row = 0; row < 4; ++row) {
+                for (int column = 0; column < 4; ++column) {
+                    assertEquals(row == column ? 1 : 0, product.get(row, column), 0.0001f);
+                }
+            }
+            getEngine().onUpdate();
+        }
+
+        Matrix44 matrix = grandchild.transform.getTransformationMatrix();
+        Vector3 vector = new Vector3();
+        grandchild.transform.getWorldPosition(vector);
+        assertEquals(matrix.get(0, 3), vector.getX(), 0);
+        assertEquals(matrix.get(1, 3), vector.getY(), 0);
+        assertEquals(matrix.get(2, 3), vector.getZ(), 0);
+
+        grandchild.transform.getForward(vector);
+        assertEquals(1, vector.getX() * vector.getX() + vector.getY() * vector.getY()
+                + vector.getZ() * vector.getZ(), 0.0001f);
+        assertEquals(matrix.get(0, 2) / 4, vector.getX(), 0.0001f);
+        assertEquals(matrix.get(1, 2) / 4, vector.getY(), 0.0001f);
+        assertEquals(matrix.get(2, 2) / 4, vector.getZ(), 0.0001f);
+
+        grandchild.transform.getUp(vector);
+        assertEquals(matrix.get(0, 1) / 3, vector.getX(), 0.0001f);
+        assertEquals(matrix.get(1, 1) / 3, vector.getY(), 0.0001f);
+        assertEquals(matrix.get(2, 1) / 3, vector.getZ(), 0.0001f);
+        getEngine().onFinish();
+    }
+
+    /**
+     * Rotating by quaternions must rotate around axes of the parent the same way
+     * as rotating by Euler angles does.
+     */
+    @Test
+    public void rotateByQuaternionTest() {
+        setupEngine(FILES_FOLDER);
+        getEngine().onStart();
+        GameObject root = MovingComponent.sInstance.getGameObject();
+        Transform eulerTransform = root.children.get(0).transform;
+        Transform quaternionTransform = root.children.get(0).children.get(0).transform;
+        eulerTransform.setRotation(0, 0, 0);
+        quaternionTransform.setRotation(0, 0, 0);
+
+        eulerTransform.rotateBy(90, 0, 0);
+        eulerTransform.rotateBy(0, 90, 0);
+        Quaternion rotation = new Quaternion();
+        rotation.setFromAxisAngle(1, 0, 0, 90);
+        quaternionTransform.rotateBy(rotation);
+        rotation.setFromAxisAngle(0, 1, 0, 90);
+        quaternionTransform.rotateBy(rotation);
+
+        Quaternion eulerRotation = new Quaternion();
+        eulerTransform.getRotation(eulerRotation);
+        Quaternion quaternionRotation = new Quaternion();
+        quaternionTransform.getRotation(quaternionRotation);
+        // Quaternions q and -q represent the same rotation
+        float dot = eulerRotation.getX() * quaternionRotation.getX() + eulerRotation.getY() * quaternionRotation.getY()
+                + eulerRotation.getZ() * quaternionRotation.getZ() + eulerRotation.getW() * quaternionRotation.getW();
+        assertEquals(1, Math.abs(dot), 0.0001f);
+        assertEquals(90, quaternionTransform.getRotationX(), 0.001f);
+        assertEquals(90, quaternionTransform.getRotationY(), 0.001f);
+        assertEquals(0, quaternionTransform.getRotationZ(), 0.001f);
+        getEngine().onFinish();
+    }
+
+    /**
+     * Transformation of a removed object must not change the transformation
+     * that reused it's storage slot.
+     */
+    @Test
+    public void removedTransformTest() {
+        setupEngine(FILES_FOLDER);
+        getEngine().onStart();
+        GameObject root = MovingComponent.sInstance.getGameObject();
+        GameObject child = root.children.get(0);
+        GameObject grandchild = child.children.get(0);
+        child.removeChild(grandchild);
+
+        GameObject newObject = new GameObject(root);
+        grandchild.transform.setPosition(99, 99, 99);
+        assertEquals(99, grandchild.transform.getPositionX(), 0);
+        assertEquals(0, newObject.transform.getPositionX(), 0);
+        assertEquals(0, newObject.transform.getPositionY(), 0);
+        getEngine().onFinish();
+    }
+
+    /**
+     * After the engine computed all matrices they must stay readable without checking ancestors,
+     * but any change of a transformation or of the hierarchy must be visible to the next read
+     * of all descendants.
+     */
+    @Test
+    public void changedRootsTest() {
+        setupEngine(FILES_FOLDER);
+        getEngine().onStart();
+        getEngine().onUpdate();
+        GameObject root = MovingComponent.sInstance.getGameObject();
+        GameObject child = root.children.get(0);
+        GameObject grandchild = child.children.get(0);
+        TransformStorage storage = MovingComponent.sInstance.getTransformStorage();
+        assertTrue(storage.areMatricesComputed());
+
+        int version = grandchild.transform.getWorldVersion();
+        assertTranslation(grandchild.transform.getTransformationMatrix(), 11, 25, 30);
+        assertEquals(version, grandchild.transform.getWorldVersion());
+
+        root.transform.translateBy(5, 0, 0);
+        assertTranslation(grandchild.transform.getTransformationMatrix(), 16, 25, 30);
+        assertTrue(version != grandchild.transform.getWorldVersion());
+
+        grandchild.setParent(root);
+        assertTranslation(grandchild.transform.getTransformationMatrix(), 6, 5, 0);
+
+        GameObject added = new GameObject(child);
+        added.transform.setPosition(1, 0, 0);
+        assertTranslation(added.transform.getTransformationMatrix(), 17, 20, 30);
+        assertTrue("Matrices were not kept computed", storage.areMatricesComputed());
+
+        getEngine().onUpdate();
+        assertTranslation(added.transform.getTransformationMatrix(), 18, 20, 30);
+        getEngine().onFinish();
+    }
+
+    private static void assertTranslation(Matrix44 matrix, float x, float y, float z) {
+        assertEquals(x, matrix.get(0, 3), 0);
+        assertEquals(y, matrix.get(1, 3), 0);
+        assertEquals(z, matrix.get(2, 3), 0);
+    }
+}
@@ -0,0 +1,49 @@
+package com.jakubpetriska.gameengine.tests.update_lod;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.UpdateLod;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Component with update level of detail recording it's updates.
+ */
+public class LodComponent extends Component implements UpdateLod {
+
+    public static final int NEAR_INTERVAL = 1;
+    public static final int FAR_INTERVAL = 4;
+    public static final int INVISIBLE_INTERVAL = 8;
+
+    public static final float NEAR_DISTANCE = 50;
+
+    public static final Map<String, LodComponent> sInstances = new HashMap<>();
+
+    public int updateCount = 0;
+    public float updatedTime = 0;
+    public float firstTimeDelta = -1;
+    public boolean lastVisible;
+
+    @Override
+    public void start() {
+        sInstances.put(getGameObject().getTag(), this);
+    }
+
+    @Override
+    public void update() {
+        if (updateCount == 0) {
+            firstTimeDelta = getTimeDelta();
+        }
+        ++updateCount;
+        updatedTime += getTimeDelta();
+    }
+
+    @Override
+    public int getUpdateInterval(float distance, boolean visible) {
+        lastVisible = visible;
+        if (!visible) {
+            return INVISIBLE_INTERVAL;
+        }
+        return distance < NEAR_DISTANCE ? NEAR_INTERVAL : FAR_INTERVAL;
+    }
+}
@@ -0,0 +1,88 @@
+package com.jakubpetriska.gameengine.tests.update_lod;
+
+import com.jakubpetriska.gameengine.headless.HeadlessEngineRunner;
+import com.jakubpetriska.gameengine.headless.HeadlessPlatform;
+import com.jakubpetriska.gameengine.tests.support.Constants;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of updating components less often based on their distance from the camera and visibility.
+ */
+public class UpdateLodTest {
+
+    private static final String FILES_FOLDER = "update_lod_test";
+
+    private static final float TIME_STEP = 1 / 60f;
+    private static final int STEPS_COUNT = 800;
+    private static final int INVISIBLE_STEPS_COUNT = LodComponent.INVISIBLE_INTERVAL * 2;
+
+    @Before
+    public void resetInstances() {
+        LodComponent.sInstances.clear();
+    }
+
+    /**
+     * Far and invisible components must be updated less often, but they must receive
+     * all of the elapsed time.
+     */
+    @Test
+    public void updateIntervalTest() {
+        HeadlessEngineRunner runner = new HeadlessEngineRunner(
+                new HeadlessPlatform(new File(Constants.FILES_FOLDER_PATH + FILES_FOLDER)),
+                null, TIME_STEP);
+        runner.run(STEPS_COUNT);
+
+        LodComponent near = LodComponent.sInstances.get("near");
+        LodComponent far = LodComponent.sInstances.get("far");
+        LodComponent behind = LodComponent.sInstances.get("behind");
+        assertTrue(near.lastVisible);
+        assertTrue(far.lastVisible);
+        assertFalse(behind.lastVisible);
+
+        assertEquals(STEPS_COUNT, near.updateCount);
+        assertUpdatedEvery(far, LodComponent.FAR_INTERVAL);
+        assertUpdatedEvery(behind, LodComponent.INVISIBLE_INTERVAL);
+        runner.finish();
+    }
+
+    /**
+     * Spreading of the first updates must depend only on the random seed, so recorded
+     * sessions replay with the same update steps.
+     */
+    @Test
+    public void deterministicSpreadTest() {
+        float[] firstRun = runWithSeed(42);
+        float[] secondRun = runWithSeed(42);
+        assertArrayEquals(firstRun, secondRun, 0);
+    }
+
+    private float[] runWithSeed(long seed) {
+        LodComponent.sInstances.clear();
+        HeadlessEngineRunner runner = new HeadlessEngineRunner(
+                new HeadlessPlatform(new File(Constants.FILES_FOLDER_PATH + FILES_FOLDER)),
+                null, TIME_STEP);
+        runner.getEngine().setRandomSeed(seed);
+        runner.run(INVISIBLE_STEPS_COUNT);
+        float[] firstTimeDeltas = new float[]{
+                LodComponent.sInstances.get("far").firstTimeDelta,
+                LodComponent.sInstances.get("behind").firstTimeDelta
+        };
+        runner.finish();
+        return firstTimeDeltas;
+    }
+
+    private static void assertUpdatedEvery(LodComponent component, int interval) {
+        // First interval is shortened to spread components over the interval
+        assertTrue(Math.abs(component.updateCount - STEPS_COUNT / interval) <= 1);
+        float elapsedTime = STEPS_COUNT * TIME_STEP;
+        assertTrue("Time of skipped steps was lost",
+                component.updatedTime <= elapsedTime + 0.001f
+                        && component.updatedTime > elapsedTime - interval * TIME_STEP - 0.001f);
+    }
+}
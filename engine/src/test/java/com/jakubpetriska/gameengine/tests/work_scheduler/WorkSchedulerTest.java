@@ -0,0 +1,58 @@
+package com.jakubpetriska.gameengine.tests.work_scheduler;
+
+import com.jakubpetriska.gameengine.tests.support.BaseEngineTest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test of running deferred work within the frame budget.
+ */
+public class WorkSchedulerTest extends BaseEngineTest {
+
+    private static final String FILES_FOLDER = "work_scheduler_test";
+
+    @Before
+    public void prepareEngine() {
+        setupEngine(FILES_FOLDER);
+        WorkSubmittingComponent.sExecutedSlices.clear();
+    }
+
+    /**
+     * Over budget exactly one slice must run every frame in order of priorities,
+     * under budget all pending work must run.
+     */
+    @Test
+    public void frameBudgetTest() {
+        getEngine().setFrameBudget(0);
+        getEngine().onStart();
+
+        for (int i = 0; i < 6; ++i) {
+            getEngine().onUpdate();
+            assertEquals("One slice must run every frame over budget",
+                    i + 1, WorkSubmittingComponent.sExecutedSlices.size());
+        }
+        assertEquals(Arrays.asList("high0", "high1", "normal0", "low0", "low1", "low2"),
+                WorkSubmittingComponent.sExecutedSlices);
+        assertEquals(0, WorkSubmittingComponent.sWorkScheduler.getPendingCount());
+
+        getEngine().onUpdate();
+        assertEquals("Slice ran without any work", 6, WorkSubmittingComponent.sExecutedSlices.size());
+
+        getEngine().setFrameBudget(60000);
+        WorkSubmittingComponent.LoggingWork cancelledWork = new WorkSubmittingComponent.LoggingWork("cancelled", 1);
+        WorkSubmittingComponent.sWorkScheduler.submit(new WorkSubmittingComponent.LoggingWork("long", 50), 0);
+        WorkSubmittingComponent.sWorkScheduler.submit(cancelledWork, 0);
+        assertTrue(WorkSubmittingComponent.sWorkScheduler.cancel(cancelledWork));
+        assertFalse(WorkSubmittingComponent.sWorkScheduler.cancel(cancelledWork));
+        getEngine().onUpdate();
+        assertEquals("Work under budget was not finished in one frame",
+                56, WorkSubmittingComponent.sExecutedSlices.size());
+        assertEquals(0, WorkSubmittingComponent.sWorkScheduler.getPendingCount());
+        getEngine().onFinish();
+    }
+}
@@ -0,0 +1,42 @@
+package com.jakubpetriska.gameengine.tests.work_scheduler;
+
+import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.WorkScheduler;
+import com.jakubpetriska.gameengine.api.WorkSlice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Submits work whose slices log their execution.
+ */
+public class WorkSubmittingComponent extends Component {
+
+    public static final List<String> sExecutedSlices = new ArrayList<>();
+    public static WorkScheduler sWorkScheduler;
+
+    public static class LoggingWork implements WorkSlice {
+        private final String mName;
+        private final int mSliceCount;
+        private int mExecutedCount = 0;
+
+        public LoggingWork(String name, int sliceCount) {
+            mName = name;
+            mSliceCount = sliceCount;
+        }
+
+        @Override
+        public boolean runSlice() {
+            sExecutedSlices.add(mName + mExecutedCount++);
+            return mExecutedCount == mSliceCount;
+        }
+    }
+
+    @Override
+    public void start() {
+        sWorkScheduler = getApplication().getWorkScheduler();
+        sWorkScheduler.submit(new LoggingWork("low", 3), WorkScheduler.PRIORITY_LOW);
+        sWorkScheduler.submit(new LoggingWork("high", 2), WorkScheduler.PRIORITY_HIGH);
+        sWorkScheduler.submit(new LoggingWork("normal", 1), WorkScheduler.PRIORITY_NORMAL);
+    }
+}
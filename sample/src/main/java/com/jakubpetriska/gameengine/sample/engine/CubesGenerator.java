@@ -2,6 +2,8 @@ package com.jakubpetriska.gameengine.sample.engine;
 
 import com.jakubpetriska.gameengine.api.Component;
 import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.GameObjectPool;
+import com.jakubpetriska.gameengine.api.Prefab;
 import com.jakubpetriska.gameengine.api.Primitives;
 import com.jakubpetriska.gameengine.api.components.Model;
 
@@ -15,32 +17,75 @@ public class CubesGenerator extends Component {
 
     private static final float CUBE_SPACE = 2;
 
+    private static final Prefab CUBE_PREFAB = new CubePrefab(Primitives.CUBE, 1);
+    private static final Prefab DIAMOND_PREFAB = new CubePrefab("models/diamond.obj", 0.5f);
+
     public int cubeLayerCount;
 
     @Override
     public void start() {
+        // Every layer has two squares of cubes, one above and one below the object
+        int count = 0;
+        for (int layer = 0; layer < cubeLayerCount; ++layer) {
+            int layerSize = 3 + 2 * layer;
+            count += 2 * layerSize * layerSize;
+        }
+        float[] cubePositions = new float[count * 3];
+        float[] diamondPositions = new float[count * 3];
+        int cubeCount = 0;
+        int diamondCount = 0;
+
         boolean generateCube = false;
         for (int layer = 0; layer < cubeLayerCount; ++layer) {
             float distance = (layer + 1) * CUBE_SPACE;
             int halfLayerSizeFloor = 1 + layer;
             for (int i = -halfLayerSizeFloor; i <= halfLayerSizeFloor; ++i) {
                 for (int j = -halfLayerSizeFloor; j <= halfLayerSizeFloor; ++j) {
-                    String mesh = generateCube ? Primitives.CUBE : "models/diamond.obj";
-                    float scale = generateCube ? 1 : 0.5f;
-                    addCube(i * CUBE_SPACE, distance, j * CUBE_SPACE, mesh, scale);
-                    addCube(i * CUBE_SPACE, -distance, j * CUBE_SPACE, mesh, scale);
+                    float[] positions = generateCube ? cubePositions : diamondPositions;
+                    int offset = (generateCube ? cubeCount : diamondCount) * 3;
+                    setPosition(positions, offset, i * CUBE_SPACE, distance, j * CUBE_SPACE);
+                    setPosition(positions, offset + 3, i * CUBE_SPACE, -distance, j * CUBE_SPACE);
+                    if (generateCube) {
+                        cubeCount += 2;
+                    } else {
+                        diamondCount += 2;
+                    }
                     generateCube = !generateCube;
                 }
             }
         }
+
+        GameObjectPool pool = getApplication().getGameObjectPool();
+        pool.spawnAll(CUBE_PREFAB, getGameObject(), cubeCount,
+                cubePositions, null, null, null);
+        pool.spawnAll(DIAMOND_PREFAB, getGameObject(), diamondCount,
+                diamondPositions, null, null, null);
+    }
+
+    private static void setPosition(float[] positions, int offset, float x, float y, float z) {
+        positions[offset] = x;
+        positions[offset + 1] = y;
+        positions[offset + 2] = z;
     }
 
-    private void addCube(float x, float y, float z, String mesh, float scale) {
-        GameObject newCube = new GameObject(getGameObject());
-        newCube.transform.setScale(scale, scale, scale);
-        Model model = new Model();
-        model.meshPath = mesh;
-        newCube.addComponent(model);
-        newCube.transform.setPosition(x, y, z);
+    private static class CubePrefab implements Prefab {
+
+        private final String mMesh;
+        private final float mScale;
+
+        CubePrefab(String mesh, float scale) {
+            mMesh = mesh;
+            mScale = scale;
+        }
+
+        @Override
+        public GameObject create(GameObject parent) {
+            GameObject newCube = new GameObject(parent);
+            newCube.transform.setScale(mScale, mScale, mScale);
+            Model model = new Model();
+            model.meshPath = mMesh;
+            newCube.addComponent(model);
+            return newCube;
+        }
     }
 }
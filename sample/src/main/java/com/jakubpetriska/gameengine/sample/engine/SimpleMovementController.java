@@ -1,6 +1,7 @@
 package com.jakubpetriska.gameengine.sample.engine;
 
 import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.ThreadSafeUpdate;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -9,7 +10,7 @@ import java.util.List;
  * Allows controlling {@link Component}'s movement. Movement is controlled
  * by messages that must be sent into the engine.
  */
-public class SimpleMovementController extends Component {
+public class SimpleMovementController extends Component implements ThreadSafeUpdate {
 
     private static final float MOVEMENT_PER_SECOND = 5;
 
@@ -2,6 +2,7 @@ package com.jakubpetriska.gameengine.sample.engine;
 
 import com.jakubpetriska.gameengine.api.Component;
 import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.ThreadSafeUpdate;
 
 /**
  * Rotates the {@link GameObject} in the positive direction of
@@ -9,7 +10,7 @@ import com.jakubpetriska.gameengine.api.GameObject;
  *
  * This serves for visualizing that all rotation directions are done right.
  */
-public class TransformationTestRotationController extends Component {
+public class TransformationTestRotationController extends Component implements ThreadSafeUpdate {
 
     private static final float ROTATION_PER_SECOND = 15;
 
@@ -1,19 +1,33 @@
 package com.jakubpetriska.gameengine.showcase.engine;
 
 import com.jakubpetriska.gameengine.api.Component;
+import com.jakubpetriska.gameengine.api.ThreadSafeUpdate;
+import com.jakubpetriska.gameengine.api.UpdateLod;
+import com.jakubpetriska.gameengine.api.math.Quaternion;
 
 /**
  * Created by Jakub on 6. 5. 2015.
  */
-public class PickupAnimator extends Component {
+public class PickupAnimator extends Component implements ThreadSafeUpdate, UpdateLod {
 
     private static final float ROTATION_SPEED_DEGREES_PER_SECOND = 90;
 
+    // Beyond this distance the rotation is hardly noticeable
+    private static final float NEAR_DISTANCE = 60;
+
+    private final Quaternion mRotation = new Quaternion(); // Used during calculations
+
     @Override
     public void update() {
-        getGameObject().transform.rotateBy(
-                0,
-                ROTATION_SPEED_DEGREES_PER_SECOND * getApplication().getTime().getTimeDelta(),
-                0);
+        mRotation.setFromAxisAngle(0, 1, 0, ROTATION_SPEED_DEGREES_PER_SECOND * getTimeDelta());
+        getGameObject().transform.rotateBy(mRotation);
+    }
+
+    @Override
+    public int getUpdateInterval(float distance, boolean visible) {
+        if (!visible) {
+            return 10;
+        }
+        return distance < NEAR_DISTANCE ? 1 : 3;
     }
 }
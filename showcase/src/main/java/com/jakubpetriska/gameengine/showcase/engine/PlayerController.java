@@ -40,11 +40,9 @@ public class PlayerController extends Component implements BoxCollider.Collision
     @Override
     public void start() {
         gestureDetector = new GestureDetector(getApplication());
-        for (GameObject sibling : getGameObject().getParent().children) {
-            if ("track_container".equals(sibling.tag)) {
-                trackContainer = sibling;
-                trackGenerator = sibling.getComponent(TrackGenerator.class);
-            }
+        trackContainer = getApplication().getTagIndex().findByTag("track_container");
+        if (trackContainer != null) {
+            trackGenerator = trackContainer.getComponent(TrackGenerator.class);
         }
         if (trackGenerator == null || trackContainer == null) {
             throw new IllegalStateException("Needed object could not be obtained.");
@@ -54,11 +52,9 @@ public class PlayerController extends Component implements BoxCollider.Collision
     @Override
     public void update() {
         if (!collisionListenersRegistered) {
-            for (GameObject child : getGameObject().children) {
-                if ("spaceship_collider".equals(child.tag)) {
-                    BoxCollider collider = child.getComponent(BoxCollider.class);
-                    collider.registerCollisionListener(this);
-                }
+            List<GameObject> colliderObjects = getApplication().getTagIndex().findAllByTag("spaceship_collider");
+            for (int i = 0; i < colliderObjects.size(); ++i) {
+                colliderObjects.get(i).getComponent(BoxCollider.class).registerCollisionListener(this);
             }
             collisionListenersRegistered = true;
         }
@@ -155,13 +151,16 @@ public class PlayerController extends Component implements BoxCollider.Collision
 
     @Override
     public void onCollisionDetected(BoxCollider boxCollider) {
-        if (TrackGenerator.TAG_OBSTACLE.equals(boxCollider.getGameObject().tag)) {
+        int tagId = boxCollider.getGameObject().getTagId();
+        if (tagId == TrackGenerator.TAG_OBSTACLE_ID) {
             paused = true;
             getApplication().getMessenger().sendMessage(FINAL_MESSAGE);
-        } else if (TrackGenerator.TAG_PICKUP.equals(boxCollider.getGameObject().tag)) {
+        } else if (tagId == TrackGenerator.TAG_PICKUP_ID) {
             getApplication().getMessenger().sendMessage(POINTS_PER_PICKUP);
             GameObject pickup = boxCollider.getGameObject();
-            pickup.getParent().removeChild(pickup);
+            if (pickup.isActive()) {
+                getApplication().getGameObjectPool().release(pickup);
+            }
         }
     }
 
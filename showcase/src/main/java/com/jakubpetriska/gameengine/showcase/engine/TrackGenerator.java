@@ -3,6 +3,11 @@ package com.jakubpetriska.gameengine.showcase.engine;
 import com.jakubpetriska.gameengine.api.Color;
 import com.jakubpetriska.gameengine.api.Component;
 import com.jakubpetriska.gameengine.api.GameObject;
+import com.jakubpetriska.gameengine.api.GameObjectPool;
+import com.jakubpetriska.gameengine.api.Prefab;
+import com.jakubpetriska.gameengine.api.Tags;
+import com.jakubpetriska.gameengine.api.WorkScheduler;
+import com.jakubpetriska.gameengine.api.WorkSlice;
 import com.jakubpetriska.gameengine.api.components.BoxCollider;
 import com.jakubpetriska.gameengine.api.components.Model;
 
@@ -17,6 +22,9 @@ public class TrackGenerator extends Component {
     public static final String TAG_PICKUP = "pickup";
     public static final String TAG_OBSTACLE = "obstacle";
 
+    public static final int TAG_PICKUP_ID = Tags.getId(TAG_PICKUP);
+    public static final int TAG_OBSTACLE_ID = Tags.getId(TAG_OBSTACLE);
+
     private static final int TRACK_LENGTH_IN_PARTS = 10;
     private static final int EMPTY_TRACKS_COUNT = 2;
 
@@ -33,23 +41,102 @@ public class TrackGenerator extends Component {
 
     private List<GameObject> trackParts = new ArrayList<>();
 
+    /**
+     * Pickups and obstacles are spawned from the pool, so they are reused when
+     * track parts are removed instead of being created again.
+     */
+    public static final Prefab PICKUP_PREFAB = new Prefab() {
+        @Override
+        public GameObject create(GameObject parent) {
+            GameObject pickupContainer = new GameObject(parent);
+            pickupContainer.setTag(TAG_PICKUP);
+
+            BoxCollider pickupCollider = new BoxCollider();
+            pickupCollider.group = "static";
+            pickupContainer.addComponent(pickupCollider);
+
+            GameObject pickup = new GameObject(pickupContainer);
+            pickup.transform.setScale(0.4f, 0.4f, 0.4f);
+            pickup.addComponent(new PickupAnimator());
+
+            Model model = new Model();
+            model.meshPath = "models/star.obj";
+            model.color = new Color(248, 234, 5, 255);
+            pickup.addComponent(model);
+            return pickupContainer;
+        }
+    };
+
+    public static final Prefab OBSTACLE_PREFAB = new Prefab() {
+        @Override
+        public GameObject create(GameObject parent) {
+            GameObject obstacle = new GameObject(parent);
+            obstacle.setTag(TAG_OBSTACLE);
+            obstacle.transform.setScale(BLOCK_WIDTH, 2, BLOCK_LENGTH);
+
+            BoxCollider obstacleCollider = new BoxCollider();
+            obstacleCollider.group = "static";
+            obstacle.addComponent(obstacleCollider);
+
+            Model model = new Model();
+            model.meshPath = "cube";
+            model.color = new Color(31, 229, 55, 255);
+            obstacle.addComponent(model);
+            return obstacle;
+        }
+    };
+
+    /**
+     * Fills track part with pickups and obstacles one row per slice,
+     * so spawning of a track part does not cause a hitch.
+     */
+    private class TrackPartFiller implements WorkSlice {
+        private final long trackPartHandle;
+        private int row = 0;
+
+        TrackPartFiller(GameObject trackPart) {
+            this.trackPartHandle = trackPart.getHandle();
+        }
+
+        @Override
+        public boolean runSlice() {
+            GameObject trackPart = getApplication().getHandleTable().resolveGameObject(trackPartHandle);
+            if (trackPart == null) {
+                // Track part was removed before it was filled
+                return true;
+            }
+            generateRow(trackPart, row++);
+            return row == TRACK_PART_LENGTH_IN_BLOCKS;
+        }
+    }
+
     @Override
     public void start() {
-        addMissingTrackPieces();
+        addMissingTrackPieces(false);
     }
 
     @Override
     public void postUpdate() {
         if (trackParts.get(0).transform.getPositionZ() < -TRACK_PART_LENGTH) {
-            getGameObject().removeChild(trackParts.remove(0));
+            GameObject removedTrackPart = trackParts.remove(0);
+            GameObjectPool pool = getApplication().getGameObjectPool();
+            for (int i = removedTrackPart.children.size() - 1; i >= 0; --i) {
+                pool.release(removedTrackPart.children.get(i));
+            }
+            getGameObject().removeChild(removedTrackPart);
         }
-        addMissingTrackPieces();
+        addMissingTrackPieces(true);
     }
 
-    private void addMissingTrackPieces() {
+    /**
+     * Adds track parts so the track has it's full length.
+     *
+     * @param deferred If true pickups and obstacles are generated over the next frames.
+     */
+    private void addMissingTrackPieces(boolean deferred) {
         GameObject lastTrackPart = trackParts.size() > 0 ? trackParts.get(trackParts.size() - 1) : null;
         for (int i = trackParts.size(); i < TRACK_LENGTH_IN_PARTS; ++i) {
-            GameObject newTrackPart = generateNewTrackPart(i >= EMPTY_TRACKS_COUNT);
+            GameObject newTrackPart = generateNewTrackPart(i >= EMPTY_TRACKS_COUNT, deferred);
             if (lastTrackPart != null) {
                 newTrackPart.transform.setPosition(0, 0,
                         lastTrackPart.transform.getPositionZ() + TRACK_PART_LENGTH);
@@ -79,21 +166,19 @@ public class TrackGenerator extends Component {
     private static final float ZERO_BLOCK_X = -PlayerController.LANE_HALF_COUNT * BLOCK_WIDTH;
     private static final float ZERO_BLOCK_Y = -(TRACK_PART_LENGTH_IN_BLOCKS / 2) * BLOCK_WIDTH + (BLOCK_WIDTH / 2);
 
-    private GameObject generateNewTrackPart(boolean generateObjects) {
+    private GameObject generateNewTrackPart(boolean generateObjects, boolean deferred) {
         GameObject newTrackPart = new GameObject(getGameObject());
         Model trackPartModel = new Model();
         trackPartModel.meshPath = "models/track_1.obj";
         newTrackPart.addComponent(trackPartModel);
 
         if (generateObjects) {
-            for (int i = 0; i < TRACK_PART_LENGTH_IN_BLOCKS; ++i) {
-                for (int j = 0; j < TRACK_PART_WIDTH_IN_BLOCKS; ++j) {
-                    double rand = Math.random();
-                    if (rand <= PICKUP_PERC) {
-                        addPickup(newTrackPart, getX(j), getY(i));
-                    } else if (rand >= OBSTACLE_PERC) {
-                        addObstacle(newTrackPart, getX(j), getY(i));
-                    }
+            if (deferred) {
+                getApplication().getWorkScheduler().submit(new TrackPartFiller(newTrackPart),
+                        WorkScheduler.PRIORITY_NORMAL);
+            } else {
+                for (int i = 0; i < TRACK_PART_LENGTH_IN_BLOCKS; ++i) {
+                    generateRow(newTrackPart, i);
                 }
             }
         }
@@ -101,6 +186,17 @@ public class TrackGenerator extends Component {
         return newTrackPart;
     }
 
+    private void generateRow(GameObject trackPart, int row) {
+        for (int j = 0; j < TRACK_PART_WIDTH_IN_BLOCKS; ++j) {
+            double rand = getApplication().getRandom().nextDouble();
+            if (rand <= PICKUP_PERC) {
+                addPickup(trackPart, getX(j), getY(row));
+            } else if (rand >= OBSTACLE_PERC) {
+                addObstacle(trackPart, getX(j), getY(row));
+            }
+        }
+    }
+
     private float getX(int blockXIndex) {
         return ZERO_BLOCK_X + blockXIndex * BLOCK_WIDTH;
     }
@@ -110,37 +206,12 @@ public class TrackGenerator extends Component {
     }
 
     private void addPickup(GameObject parent, float x, float z) {
-        GameObject pickupContainer = new GameObject(parent);
-        pickupContainer.tag = TAG_PICKUP;
+        GameObject pickupContainer = getApplication().getGameObjectPool().spawn(PICKUP_PREFAB, parent);
         pickupContainer.transform.setPosition(x, 1, z);
-
-        BoxCollider pickupCollider = new BoxCollider();
-        pickupCollider.group = "static";
-        pickupContainer.addComponent(pickupCollider);
-
-        GameObject pickup = new GameObject(pickupContainer);
-        pickup.transform.setScale(0.4f, 0.4f, 0.4f);
-        pickup.addComponent(new PickupAnimator());
-
-        Model model = new Model();
-        model.meshPath = "models/star.obj";
-        model.color = new Color(248, 234, 5, 255);
-        pickup.addComponent(model);
     }
 
     private void addObstacle(GameObject parent, float x, float z) {
-        GameObject obstacle = new GameObject(parent);
-        obstacle.tag = TAG_OBSTACLE;
+        GameObject obstacle = getApplication().getGameObjectPool().spawn(OBSTACLE_PREFAB, parent);
         obstacle.transform.setPosition(x, 1, z);
-        obstacle.transform.setScale(BLOCK_WIDTH, 2, BLOCK_LENGTH);
-
-        BoxCollider pickupCollider = new BoxCollider();
-        pickupCollider.group = "static";
-        obstacle.addComponent(pickupCollider);
-
-        Model model = new Model();
-        model.meshPath = "cube";
-        model.color = new Color(31, 229, 55, 255);
-        obstacle.addComponent(model);
     }
 }